@@ -16,6 +16,7 @@
 
 package com.matthewtamlin.shamir.app;
 
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
 import com.matthewtamlin.shamir.app.files.FilesModule;
 import com.matthewtamlin.shamir.app.files.RxFilePicker;
 import com.matthewtamlin.shamir.app.files.RxFiles;
@@ -36,6 +37,8 @@ public interface AppComponent {
   
   public RxFilePicker getRxFilePicker();
   
+  public ConcurrentFileWriter getConcurrentFileWriter();
+  
   @Component.Builder
   public interface Builder {
     @BindsInstance
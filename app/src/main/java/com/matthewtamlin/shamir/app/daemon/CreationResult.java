@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * The shares created from a secret, and the recovery scheme needed to recover the secret from them.
+ */
+@AutoValue
+public abstract class CreationResult {
+  /**
+   * @return the recovery scheme for the shares, not null
+   */
+  public abstract RecoveryScheme getRecoveryScheme();
+  
+  /**
+   * @return the shares in ascending order of index, not null
+   */
+  public abstract ImmutableList<Share> getShares();
+  
+  /**
+   * Creates a new CreationResult.
+   *
+   * @param recoveryScheme
+   *     the recovery scheme for the shares, not null
+   * @param shares
+   *     the shares, not null, not containing null
+   *
+   * @return the new result, not null
+   */
+  @Nonnull
+  public static CreationResult create(@Nonnull final RecoveryScheme recoveryScheme, @Nonnull final List<Share> shares) {
+    checkNotNull(recoveryScheme, "\'recoveryScheme\' must not be null.");
+    checkNotNull(shares, "\'shares\' must not be null.");
+    checkEachElementIsNotNull(shares, "\'shares\' must not contain null.");
+    
+    return new AutoValue_CreationResult(recoveryScheme, ImmutableList.copyOf(shares));
+  }
+}
\ No newline at end of file
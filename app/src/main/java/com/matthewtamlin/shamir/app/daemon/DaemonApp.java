@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.matthewtamlin.shamir.app.secretsharing.creation.PrimeSelection;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Entry point for running the {@link DaemonServer} as a long-running process. The JVM stays warm between requests, so
+ * callers avoid paying for startup and JIT compilation on every operation.
+ * <p>
+ * Usage: {@code [--port <port>] [--workers <count>] [--queue-capacity <count>] [--primes smallest|fixed]}. The port
+ * defaults to 7750, the worker count defaults to the number of available processors, and the queue capacity defaults
+ * to 64 requests per worker. Secrets are shared with the 4096 bit prime of the app unless {@code --primes smallest} is
+ * given, in which case the prime recorded in each recovery scheme reveals a range for the length of the secret.
+ * The server only listens on the loopback interface and does not authenticate callers, so any process on the machine
+ * can use it. It runs until the process is terminated. The exit status is 1 if the server cannot be started and 2 if
+ * the arguments are invalid.
+ */
+public class DaemonApp {
+  private static final int EXIT_STATUS_RUNNING = 0;
+  
+  private static final int EXIT_STATUS_START_FAILED = 1;
+  
+  private static final int EXIT_STATUS_INVALID_ARGUMENTS = 2;
+  
+  private static final int DEFAULT_PORT = 7750;
+  
+  private static final int DEFAULT_QUEUE_CAPACITY_PER_WORKER = 64;
+  
+  private static final int SHUTDOWN_DELAY_SECONDS = 5;
+  
+  private static final String USAGE =
+      "Usage: [--port <port>] [--workers <count>] [--queue-capacity <count>] [--primes smallest|fixed]";
+  
+  private DaemonApp() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  public static void main(final String[] args) {
+    final int status = start(Arrays.asList(args), System.out, System.err);
+    
+    // The server threads keep the process alive while the server is running
+    if (status != EXIT_STATUS_RUNNING) {
+      System.exit(status);
+    }
+  }
+  
+  static int start(final List<String> args, final PrintStream out, final PrintStream err) {
+    int port = DEFAULT_PORT;
+    int workerCount = Runtime.getRuntime().availableProcessors();
+    Integer queueCapacity = null;
+    PrimeSelection primeSelection = PrimeSelection.FIXED;
+    int position = 0;
+    
+    while (position < args.size()) {
+      final String option = args.get(position);
+      
+      if (position + 1 >= args.size()) {
+        return invalidArguments(err, format("Option \'%1$s\' requires a value.", option));
+      }
+      
+      final String value = args.get(position + 1);
+      
+      if (option.equals("--primes")) {
+        if (value.equals("fixed")) {
+          primeSelection = PrimeSelection.FIXED;
+          
+        } else if (value.equals("smallest")) {
+          primeSelection = PrimeSelection.SMALLEST_SUFFICIENT;
+          
+        } else {
+          return invalidArguments(err, format("Unknown prime selection \'%1$s\'.", value));
+        }
+        
+        position += 2;
+        continue;
+      }
+      
+      final int parsedValue;
+      
+      try {
+        parsedValue = Integer.parseInt(value);
+        
+      } catch (final NumberFormatException e) {
+        return invalidArguments(err, format("\'%1$s\' is not a valid value for \'%2$s\'.", value, option));
+      }
+      
+      if (option.equals("--port")) {
+        if (parsedValue < 0 || parsedValue > 65535) {
+          return invalidArguments(err, "The port must be between 0 and 65535.");
+        }
+        
+        port = parsedValue;
+        
+      } else if (option.equals("--workers")) {
+        if (parsedValue <= 0) {
+          return invalidArguments(err, "The worker count must be greater than zero.");
+        }
+        
+        workerCount = parsedValue;
+        
+      } else if (option.equals("--queue-capacity")) {
+        if (parsedValue <= 0) {
+          return invalidArguments(err, "The queue capacity must be greater than zero.");
+        }
+        
+        queueCapacity = parsedValue;
+        
+      } else {
+        return invalidArguments(err, format("Unknown option \'%1$s\'.", option));
+      }
+      
+      position += 2;
+    }
+    
+    final DaemonServer server = DaggerDaemonComponent
+        .builder()
+        .setDaemonModule(new DaemonModule(
+            workerCount,
+            queueCapacity != null ? queueCapacity : workerCount * DEFAULT_QUEUE_CAPACITY_PER_WORKER,
+            primeSelection))
+        .build()
+        .getDaemonServer();
+    
+    final InetSocketAddress address;
+    
+    try {
+      address = server.start(port);
+      
+    } catch (final IOException e) {
+      err.println(format("Cannot listen on port %1$s: %2$s", port, e.getMessage()));
+      return EXIT_STATUS_START_FAILED;
+    }
+    
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(SHUTDOWN_DELAY_SECONDS)));
+    
+    out.println(format("Listening on http://%1$s:%2$s", address.getHostString(), address.getPort()));
+    
+    return EXIT_STATUS_RUNNING;
+  }
+  
+  private static int invalidArguments(final PrintStream err, final String message) {
+    err.println(message);
+    err.println(USAGE);
+    
+    return EXIT_STATUS_INVALID_ARGUMENTS;
+  }
+}
\ No newline at end of file
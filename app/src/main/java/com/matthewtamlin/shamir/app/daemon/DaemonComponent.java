@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import dagger.Component;
+
+@Component(modules = DaemonModule.class)
+@DaemonScope
+public interface DaemonComponent {
+  public DaemonServer getDaemonServer();
+  
+  @Component.Builder
+  public interface Builder {
+    public Builder setDaemonModule(DaemonModule module);
+    
+    public DaemonComponent build();
+  }
+}
\ No newline at end of file
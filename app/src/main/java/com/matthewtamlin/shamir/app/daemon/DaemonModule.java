@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PrimeSelection;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.ModelTypeAdapterFactory;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import dagger.Module;
+import dagger.Provides;
+
+import javax.annotation.Nonnull;
+import java.security.SecureRandom;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Provides the daemon and the parts of the app it uses. Like the headless module, nothing provided by this module
+ * depends on JavaFX.
+ */
+@Module
+public class DaemonModule {
+  private final int workerCount;
+  
+  private final int queueCapacity;
+  
+  private final PrimeSelection primeSelection;
+  
+  /**
+   * Constructs a new DaemonModule which provides a server with one worker per available processor, and a queue of
+   * 64 requests per worker, and shares every secret with the fixed prime.
+   */
+  public DaemonModule() {
+    this(
+        Runtime.getRuntime().availableProcessors(),
+        Runtime.getRuntime().availableProcessors() * 64,
+        PrimeSelection.FIXED);
+  }
+  
+  /**
+   * Constructs a new DaemonModule.
+   *
+   * @param workerCount
+   *     the number of requests the server performs at once, greater than zero
+   * @param queueCapacity
+   *     the number of requests the server holds while every worker is busy, greater than zero
+   * @param primeSelection
+   *     the way to choose the prime for each secret, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code workerCount} or {@code queueCapacity} is not greater than zero
+   */
+  public DaemonModule(final int workerCount, final int queueCapacity, @Nonnull final PrimeSelection primeSelection) {
+    this.primeSelection = checkNotNull(primeSelection, "\'primeSelection\' must not be null.");
+    
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("\'workerCount\' must be greater than zero.");
+    }
+    
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("\'queueCapacity\' must be greater than zero.");
+    }
+    
+    this.workerCount = workerCount;
+    this.queueCapacity = queueCapacity;
+  }
+  
+  @Provides
+  @DaemonScope
+  public RxShamir provideRxShamir() {
+    return new RxShamir(new SecureRandom());
+  }
+  
+  @Provides
+  @DaemonScope
+  public SecretEncoder provideSecretEncoder() {
+    return new SecretEncoder();
+  }
+  
+  @Provides
+  @DaemonScope
+  public CryptoConstants provideCryptoConstants() {
+    return CryptoConstants.createDefault(primeSelection);
+  }
+  
+  @Provides
+  @DaemonScope
+  public SecretSharingService provideSecretSharingService(
+      final RxShamir rxShamir,
+      final CryptoConstants cryptoConstants,
+      final SecretEncoder secretEncoder) {
+    
+    return new SecretSharingService(rxShamir, cryptoConstants, secretEncoder);
+  }
+  
+  @Provides
+  @DaemonScope
+  public Gson provideGson() {
+    return new GsonBuilder()
+        .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+        .disableHtmlEscaping()
+        .create();
+  }
+  
+  @Provides
+  @DaemonScope
+  public DaemonServer provideDaemonServer(final SecretSharingService service, final Gson gson) {
+    return new DaemonServer(service, gson, workerCount, queueCapacity);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Serves a {@link SecretSharingService} over HTTP on the loopback interface, so that scripts and other local processes
+ * can share secrets without starting a new JVM each time. Every endpoint accepts a JSON body via POST and responds with
+ * JSON:
+ * <ul>
+ * <li>{@code /create} takes {@code secret} (base64), {@code requiredShareCount} and {@code totalShareCount}, and
+ * responds with {@code recoveryScheme} and {@code shares}.</li>
+ * <li>{@code /recover} takes {@code recoveryScheme} and {@code shares}, and responds with {@code secret}
+ * (base64).</li>
+ * <li>{@code /regenerate} takes {@code recoveryScheme}, {@code shares}, {@code requiredShareCount} and
+ * {@code totalShareCount}, and responds with a new {@code recoveryScheme} and {@code shares} for the same secret.</li>
+ * <li>{@code /batch} takes {@code requests}, an array of objects each with an {@code operation} (one of the names
+ * above) and a {@code request}, and responds with {@code responses}, an array of objects each with the
+ * {@code status} and {@code response} of the corresponding request.</li>
+ * </ul>
+ * Failed requests respond with an {@code error} message, using status 400 for unsuitable requests and 500 otherwise.
+ * Requests for more than {@link #MAX_TOTAL_SHARE_COUNT} shares are unsuitable, as are batches which request more than
+ * {@link #MAX_BATCH_SHARE_COUNT} shares in total, since every share is held in memory until the response is sent.
+ * <p>
+ * Requests are read on a small pool of dispatcher threads then handed to a fixed pool of worker threads. Requests
+ * which arrive while every worker is busy wait in a bounded queue, and requests which arrive while the queue is full
+ * are rejected immediately with status 503 so that callers can back off instead of waiting indefinitely. A batch
+ * occupies a single place in the queue and its requests run one after another on a single worker, which saves the
+ * per-request overhead when a caller has many small operations. Responses always have a fixed length so that
+ * connections are kept alive between requests.
+ */
+public class DaemonServer {
+  public static final int MAX_BATCH_SIZE = 64;
+  
+  public static final int MAX_TOTAL_SHARE_COUNT = 1024;
+  
+  public static final int MAX_BATCH_SHARE_COUNT = 4096;
+  
+  public static final int MAX_REQUEST_BYTES = 1024 * 1024;
+  
+  private static final int DISPATCHER_THREAD_COUNT = 2;
+  
+  private static final int CONNECTION_BACKLOG = 64;
+  
+  private static final String OPERATION_CREATE = "create";
+  
+  private static final String OPERATION_RECOVER = "recover";
+  
+  private static final String OPERATION_REGENERATE = "regenerate";
+  
+  private static final String OPERATION_BATCH = "batch";
+  
+  private static final int STATUS_OK = 200;
+  
+  private static final int STATUS_BAD_REQUEST = 400;
+  
+  private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+  
+  private static final int STATUS_PAYLOAD_TOO_LARGE = 413;
+  
+  private static final int STATUS_INTERNAL_ERROR = 500;
+  
+  private static final int STATUS_UNAVAILABLE = 503;
+  
+  private final SecretSharingService service;
+  
+  private final Gson gson;
+  
+  private final int workerCount;
+  
+  private final int queueCapacity;
+  
+  private HttpServer server;
+  
+  private ExecutorService dispatchers;
+  
+  private ExecutorService workers;
+  
+  /**
+   * Constructs a new DaemonServer. The server does not accept requests until it is started.
+   *
+   * @param service
+   *     the service to perform requests with, not null
+   * @param gson
+   *     the Gson to read requests and write responses with, not null, able to serialise the model classes
+   * @param workerCount
+   *     the number of requests to perform at once, greater than zero
+   * @param queueCapacity
+   *     the number of requests to hold while every worker is busy, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if {@code workerCount} or {@code queueCapacity} is not greater than zero
+   */
+  public DaemonServer(
+      @Nonnull final SecretSharingService service,
+      @Nonnull final Gson gson,
+      final int workerCount,
+      final int queueCapacity) {
+    
+    this.service = checkNotNull(service, "\'service\' must not be null.");
+    this.gson = checkNotNull(gson, "\'gson\' must not be null.");
+    
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("\'workerCount\' must be greater than zero.");
+    }
+    
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("\'queueCapacity\' must be greater than zero.");
+    }
+    
+    this.workerCount = workerCount;
+    this.queueCapacity = queueCapacity;
+  }
+  
+  /**
+   * Starts accepting requests on the loopback interface. A server can only be started once.
+   *
+   * @param port
+   *     the port to listen on, or 0 to use any free port
+   *
+   * @return the address the server is listening on, not null
+   *
+   * @throws IOException
+   *     if the port cannot be bound
+   * @throws IllegalStateException
+   *     if the server has already been started
+   */
+  @Nonnull
+  public synchronized InetSocketAddress start(final int port) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("The server has already been started.");
+    }
+    
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECTION_BACKLOG);
+    
+    dispatchers = Executors.newFixedThreadPool(DISPATCHER_THREAD_COUNT, createThreadFactory("daemon-dispatcher"));
+    
+    // Aborts rather than blocking when the queue is full, so that the dispatchers are always free to reject requests
+    workers = new ThreadPoolExecutor(
+        workerCount,
+        workerCount,
+        0,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        createThreadFactory("daemon-worker"));
+    
+    for (final String operation : new String[]{OPERATION_CREATE, OPERATION_RECOVER, OPERATION_REGENERATE,
+        OPERATION_BATCH}) {
+      
+      server.createContext("/" + operation, exchange -> dispatch(exchange, operation));
+    }
+    
+    server.setExecutor(dispatchers);
+    server.start();
+    
+    return server.getAddress();
+  }
+  
+  /**
+   * Stops accepting requests, waits up to the given time for requests in progress to finish, then releases every
+   * thread. Does nothing if the server has not been started.
+   *
+   * @param delaySeconds
+   *     the maximum number of seconds to wait for requests in progress to finish, at least zero
+   */
+  public synchronized void stop(final int delaySeconds) {
+    if (server != null) {
+      server.stop(delaySeconds);
+      workers.shutdownNow();
+      dispatchers.shutdownNow();
+    }
+  }
+  
+  private void dispatch(final HttpExchange exchange, final String operation) {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        respond(exchange, STATUS_METHOD_NOT_ALLOWED, new ErrorResponse("Only POST is supported."));
+        return;
+      }
+      
+      final byte[] body = readBody(exchange);
+      
+      if (body == null) {
+        respond(exchange, STATUS_PAYLOAD_TOO_LARGE, new ErrorResponse(format(
+            "Requests must not be larger than %1$s bytes.",
+            MAX_REQUEST_BYTES)));
+        return;
+      }
+      
+      try {
+        workers.execute(() -> respond(exchange, perform(operation, body)));
+        
+      } catch (final RejectedExecutionException e) {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        respond(exchange, STATUS_UNAVAILABLE, new ErrorResponse("Too many requests are queued. Try again later."));
+      }
+      
+    } catch (final IOException e) {
+      exchange.close();
+    }
+  }
+  
+  /**
+   * Reads the whole body of a request, or returns null if the body is larger than {@link #MAX_REQUEST_BYTES}.
+   */
+  private byte[] readBody(final HttpExchange exchange) throws IOException {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[8192];
+    
+    try (final InputStream in = exchange.getRequestBody()) {
+      int count;
+      
+      while ((count = in.read(buffer)) != -1) {
+        if (body.size() + count > MAX_REQUEST_BYTES) {
+          return null;
+        }
+        
+        body.write(buffer, 0, count);
+      }
+    }
+    
+    return body.toByteArray();
+  }
+  
+  private Response perform(final String operation, final byte[] body) {
+    try {
+      final JsonElement request = new JsonParser().parse(new String(body, StandardCharsets.UTF_8));
+      
+      return new Response(
+          STATUS_OK,
+          operation.equals(OPERATION_BATCH) ? performBatch(request) : performSingle(operation, request));
+      
+    } catch (final Exception e) {
+      return createErrorResponse(e);
+    }
+  }
+  
+  private BatchResponse performBatch(final JsonElement request) throws InvalidRequestException {
+    final JsonElement items = request.isJsonObject() ? request.getAsJsonObject().get("requests") : null;
+    
+    if (items == null || !items.isJsonArray()) {
+      throw new InvalidRequestException("\'requests\' must be an array.");
+    }
+    
+    final JsonArray itemArray = items.getAsJsonArray();
+    
+    if (itemArray.size() > MAX_BATCH_SIZE) {
+      throw new InvalidRequestException(format("Batches must not contain more than %1$s requests.", MAX_BATCH_SIZE));
+    }
+    
+    long batchShareCount = 0;
+    
+    for (final JsonElement item : itemArray) {
+      batchShareCount += getRequestedShareCount(item);
+    }
+    
+    if (batchShareCount > MAX_BATCH_SHARE_COUNT) {
+      throw new InvalidRequestException(format(
+          "Batches must not request more than %1$s shares in total.",
+          MAX_BATCH_SHARE_COUNT));
+    }
+    
+    final List<Response> responses = new ArrayList<>();
+    
+    for (final JsonElement item : itemArray) {
+      try {
+        final JsonObject itemObject = item.getAsJsonObject();
+        final JsonElement operation = itemObject.get("operation");
+        
+        if (operation == null || !operation.isJsonPrimitive()) {
+          throw new InvalidRequestException("\'operation\' must be specified.");
+        }
+        
+        responses.add(new Response(STATUS_OK, performSingle(operation.getAsString(), itemObject.get("request"))));
+        
+      } catch (final Exception e) {
+        responses.add(createErrorResponse(e));
+      }
+    }
+    
+    return new BatchResponse(responses);
+  }
+  
+  private Object performSingle(final String operation, final JsonElement request) throws Exception {
+    if (request == null || !request.isJsonObject()) {
+      throw new InvalidRequestException("The request must be a JSON object.");
+    }
+    
+    if (operation.equals(OPERATION_CREATE)) {
+      final CreateRequest createRequest = gson.fromJson(request, CreateRequest.class);
+      
+      checkShareCounts(createRequest.requiredShareCount, createRequest.totalShareCount);
+      
+      return new CreationResponse(await(service.createShares(
+          decodeSecret(createRequest.secret),
+          createRequest.requiredShareCount,
+          createRequest.totalShareCount)));
+      
+    } else if (operation.equals(OPERATION_RECOVER)) {
+      final RecoverRequest recoverRequest = gson.fromJson(request, RecoverRequest.class);
+      
+      final byte[] secret = await(service.recoverSecret(
+          checkSpecified(recoverRequest.shares, "shares"),
+          checkSpecified(recoverRequest.recoveryScheme, "recoveryScheme")));
+      
+      return new RecoveryResponse(Base64.getEncoder().encodeToString(secret));
+      
+    } else if (operation.equals(OPERATION_REGENERATE)) {
+      final RegenerateRequest regenerateRequest = gson.fromJson(request, RegenerateRequest.class);
+      
+      checkShareCounts(regenerateRequest.requiredShareCount, regenerateRequest.totalShareCount);
+      
+      return new CreationResponse(await(service.regenerateShares(
+          checkSpecified(regenerateRequest.shares, "shares"),
+          checkSpecified(regenerateRequest.recoveryScheme, "recoveryScheme"),
+          regenerateRequest.requiredShareCount,
+          regenerateRequest.totalShareCount)));
+      
+    } else {
+      throw new InvalidRequestException(format("Unknown operation \'%1$s\'.", operation));
+    }
+  }
+  
+  private void respond(final HttpExchange exchange, final Response response) {
+    try {
+      respond(exchange, response.status, response.body);
+      
+    } catch (final IOException e) {
+      exchange.close();
+    }
+  }
+  
+  private void respond(final HttpExchange exchange, final int status, final Object body) throws IOException {
+    final byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+    
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    
+    try (final OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+  
+  private static Response createErrorResponse(final Exception error) {
+    final boolean badRequest = error instanceof InvalidRequestException ||
+        error instanceof IllegalStateException ||
+        error instanceof IllegalArgumentException ||
+        error instanceof JsonParseException;
+    
+    final String message = error.getMessage() != null ? error.getMessage() : error.toString();
+    
+    return new Response(badRequest ? STATUS_BAD_REQUEST : STATUS_INTERNAL_ERROR, new ErrorResponse(message));
+  }
+  
+  /**
+   * Waits for a single, rethrowing the original exception if it fails.
+   */
+  private static <T> T await(final Single<T> single) throws Exception {
+    try {
+      return single.toFuture().get();
+      
+    } catch (final ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+  
+  private static byte[] decodeSecret(final String secret) throws InvalidRequestException {
+    try {
+      return Base64.getDecoder().decode(checkSpecified(secret, "secret"));
+      
+    } catch (final IllegalArgumentException e) {
+      throw new InvalidRequestException("\'secret\' must be valid base64.", e);
+    }
+  }
+  
+  private static void checkShareCounts(final int requiredShareCount, final int totalShareCount)
+      throws InvalidRequestException {
+    
+    if (requiredShareCount > MAX_TOTAL_SHARE_COUNT || totalShareCount > MAX_TOTAL_SHARE_COUNT) {
+      throw new InvalidRequestException(format(
+          "Share counts must not be greater than %1$s.",
+          MAX_TOTAL_SHARE_COUNT));
+    }
+  }
+  
+  // Items which do not specify a valid count are counted as zero, and fail on their own when they are performed
+  private static long getRequestedShareCount(final JsonElement item) {
+    final JsonElement request = item.isJsonObject() ? item.getAsJsonObject().get("request") : null;
+    
+    final JsonElement totalShareCount = request != null && request.isJsonObject() ?
+        request.getAsJsonObject().get("totalShareCount") :
+        null;
+    
+    if (totalShareCount == null || !totalShareCount.isJsonPrimitive() ||
+        !totalShareCount.getAsJsonPrimitive().isNumber()) {
+      return 0;
+    }
+    
+    return Math.max(0, totalShareCount.getAsLong());
+  }
+  
+  private static <T> T checkSpecified(final T value, final String name) throws InvalidRequestException {
+    if (value == null) {
+      throw new InvalidRequestException(format("\'%1$s\' must be specified.", name));
+    }
+    
+    return value;
+  }
+  
+  private static ThreadFactory createThreadFactory(final String name) {
+    return runnable -> {
+      final Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+  
+  private static class Response {
+    private final int status;
+    
+    private final Object body;
+    
+    private Response(final int status, final Object body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+  
+  private static class CreateRequest {
+    private String secret;
+    
+    private int requiredShareCount;
+    
+    private int totalShareCount;
+  }
+  
+  private static class RecoverRequest {
+    private RecoveryScheme recoveryScheme;
+    
+    private Set<Share> shares;
+  }
+  
+  private static class RegenerateRequest {
+    private RecoveryScheme recoveryScheme;
+    
+    private Set<Share> shares;
+    
+    private int requiredShareCount;
+    
+    private int totalShareCount;
+  }
+  
+  private static class CreationResponse {
+    private final RecoveryScheme recoveryScheme;
+    
+    private final List<Share> shares;
+    
+    private CreationResponse(final CreationResult result) {
+      this.recoveryScheme = result.getRecoveryScheme();
+      this.shares = result.getShares();
+    }
+  }
+  
+  private static class RecoveryResponse {
+    private final String secret;
+    
+    private RecoveryResponse(final String secret) {
+      this.secret = secret;
+    }
+  }
+  
+  private static class ErrorResponse {
+    private final String error;
+    
+    private ErrorResponse(final String error) {
+      this.error = error;
+    }
+  }
+  
+  private static class BatchResponse {
+    private final List<BatchItemResponse> responses = new ArrayList<>();
+    
+    private BatchResponse(final List<Response> responses) {
+      for (final Response response : responses) {
+        this.responses.add(new BatchItemResponse(response.status, response.body));
+      }
+    }
+  }
+  
+  private static class BatchItemResponse {
+    private final int status;
+    
+    private final Object response;
+    
+    private BatchItemResponse(final int status, final Object response) {
+      this.status = status;
+      this.response = response;
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Creates, recovers and regenerates shares from values held in memory rather than in files. Requests which are
+ * unsuitable fail with an {@link InvalidRequestException}, and schemes or shares which the engine rejects fail with an
+ * {@link IllegalStateException}.
+ */
+public class SecretSharingService {
+  private final RxShamir rxShamir;
+  
+  private final CryptoConstants cryptoConstants;
+  
+  private final SecretEncoder secretEncoder;
+  
+  public SecretSharingService(
+      @Nonnull final RxShamir rxShamir,
+      @Nonnull final CryptoConstants cryptoConstants,
+      @Nonnull final SecretEncoder secretEncoder) {
+    
+    this.rxShamir = checkNotNull(rxShamir, "\'rxShamir\' must not be null.");
+    this.cryptoConstants = checkNotNull(cryptoConstants, "\'cryptoConstants\' must not be null.");
+    this.secretEncoder = checkNotNull(secretEncoder, "\'secretEncoder\' must not be null.");
+  }
+  
+  /**
+   * Splits a secret into shares using the prime selected by the crypto constants. The operation fails with an
+   * {@link InvalidRequestException} if the secret is too large to share as a single value with the prime of the
+   * crypto constants, since each share the daemon returns holds a single value.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param secret
+   *     the secret to share, not null
+   * @param requiredShareCount
+   *     the number of shares needed to recover the secret
+   * @param totalShareCount
+   *     the number of shares to create
+   *
+   * @return a new single which emits the shares and their recovery scheme, not null
+   */
+  @Nonnull
+  public Single<CreationResult> createShares(
+      @Nonnull final byte[] secret,
+      final int requiredShareCount,
+      final int totalShareCount) {
+    
+    checkNotNull(secret, "\'secret\' must not be null.");
+    
+    final int maxSecretSizeBytes = SecretEncoder.getMaxBlockSizeBytes(cryptoConstants.getPrime());
+    
+    final Completable checkSize = Completable.defer(() -> secret.length <= maxSecretSizeBytes ?
+        Completable.complete() :
+        Completable.error(new InvalidRequestException(format(
+            "The secret is larger than %1$s bytes.",
+            maxSecretSizeBytes))));
+    
+    return checkSize
+        .andThen(secretEncoder.encodeSecret(secret))
+        .flatMap(encodedSecret -> createShares(
+            encodedSecret,
+            requiredShareCount,
+            totalShareCount,
+            cryptoConstants.selectPrime(encodedSecret, totalShareCount)));
+  }
+  
+  /**
+   * Recovers a secret from shares. A secret is always produced when the shares are consistent with the recovery
+   * scheme, however the secret is only correct if the shares were created from it.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param shares
+   *     the shares to recover the secret from, not null, not containing null
+   * @param recoveryScheme
+   *     the recovery scheme of the shares, not null
+   *
+   * @return a new single which emits the recovered secret, not null
+   */
+  @Nonnull
+  public Single<byte[]> recoverSecret(@Nonnull final Set<Share> shares, @Nonnull final RecoveryScheme recoveryScheme) {
+    checkNotNull(shares, "\'shares\' must not be null.");
+    checkEachElementIsNotNull(shares, "\'shares\' must not contain null.");
+    checkNotNull(recoveryScheme, "\'recoveryScheme\' must not be null.");
+    
+    return rxShamir
+        .recoverSecret(shares, recoveryScheme)
+        .flatMap(secretEncoder::decodeSecret);
+  }
+  
+  /**
+   * Recovers a secret from shares then splits it into a new set of shares, so that the shares can be redistributed or
+   * the share counts changed without the secret ever leaving memory. The new shares use the same prime as the existing
+   * shares, and are independent of them.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param shares
+   *     the existing shares, not null, not containing null
+   * @param recoveryScheme
+   *     the recovery scheme of the existing shares, not null
+   * @param requiredShareCount
+   *     the number of new shares needed to recover the secret
+   * @param totalShareCount
+   *     the number of new shares to create
+   *
+   * @return a new single which emits the new shares and their recovery scheme, not null
+   */
+  @Nonnull
+  public Single<CreationResult> regenerateShares(
+      @Nonnull final Set<Share> shares,
+      @Nonnull final RecoveryScheme recoveryScheme,
+      final int requiredShareCount,
+      final int totalShareCount) {
+    
+    checkNotNull(shares, "\'shares\' must not be null.");
+    checkEachElementIsNotNull(shares, "\'shares\' must not contain null.");
+    checkNotNull(recoveryScheme, "\'recoveryScheme\' must not be null.");
+    
+    return rxShamir
+        .recoverSecret(shares, recoveryScheme)
+        .flatMap(secret -> createShares(secret, requiredShareCount, totalShareCount, recoveryScheme.getPrime()));
+  }
+  
+  private Single<CreationResult> createShares(
+      final BigInteger encodedSecret,
+      final int requiredShareCount,
+      final int totalShareCount,
+      final BigInteger prime) {
+    
+    return Single
+        .fromCallable(() -> CreationScheme
+            .builder()
+            .setRequiredShareCount(requiredShareCount)
+            .setTotalShareCount(totalShareCount)
+            .setPrime(prime)
+            .build())
+        .flatMap(creationScheme -> rxShamir
+            .createShares(encodedSecret, creationScheme)
+            .toSortedList(Comparator.comparing(Share::getIndex))
+            .map(shares -> CreationResult.create(
+                RecoveryScheme
+                    .builder()
+                    .setRequiredShareCount(requiredShareCount)
+                    .setPrime(prime)
+                    .build(),
+                shares)));
+  }
+}
\ No newline at end of file
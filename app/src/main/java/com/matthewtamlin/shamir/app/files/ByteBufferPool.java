@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.files;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A thread safe pool of equally sized byte buffers. Reusing buffers avoids repeatedly allocating and zeroing them,
+ * which matters most for direct buffers since they are expensive to allocate and are only freed by the garbage
+ * collector. Buffers are allocated on demand when the pool is empty, so acquiring a buffer never blocks, and released
+ * buffers are discarded once the pool is full.
+ */
+public class ByteBufferPool {
+  private final int bufferSize;
+  
+  private final boolean direct;
+  
+  private final Queue<ByteBuffer> buffers;
+  
+  /**
+   * Constructs a new ByteBufferPool.
+   *
+   * @param bufferSize
+   *     the capacity of each buffer in bytes, greater than zero
+   * @param maxPooledBuffers
+   *     the maximum number of released buffers to retain for reuse, greater than zero
+   * @param direct
+   *     true to allocate direct buffers, false to allocate heap buffers
+   *
+   * @throws IllegalArgumentException
+   *     if {@code bufferSize} or {@code maxPooledBuffers} is not greater than zero
+   */
+  public ByteBufferPool(final int bufferSize, final int maxPooledBuffers, final boolean direct) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("\'bufferSize\' must be greater than zero.");
+    }
+    
+    if (maxPooledBuffers <= 0) {
+      throw new IllegalArgumentException("\'maxPooledBuffers\' must be greater than zero.");
+    }
+    
+    this.bufferSize = bufferSize;
+    this.direct = direct;
+    this.buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+  }
+  
+  /**
+   * @return the capacity of each buffer in bytes
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+  
+  /**
+   * Takes a buffer from the pool, or allocates a new one if the pool is empty. The buffer is cleared before it is
+   * returned.
+   *
+   * @return the buffer, not null
+   */
+  @Nonnull
+  public ByteBuffer acquire() {
+    final ByteBuffer pooledBuffer = buffers.poll();
+    
+    if (pooledBuffer == null) {
+      return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+    }
+    
+    pooledBuffer.clear();
+    
+    return pooledBuffer;
+  }
+  
+  /**
+   * Returns a buffer to the pool so that it can be reused. The buffer must not be used by the caller after it is
+   * released. Buffers which were not allocated by an equivalent pool are ignored, as are buffers released while the
+   * pool is full.
+   *
+   * @param buffer
+   *     the buffer to release, not null
+   */
+  public void release(@Nonnull final ByteBuffer buffer) {
+    checkNotNull(buffer, "\'buffer\' must not be null.");
+    
+    if (buffer.capacity() == bufferSize && buffer.isDirect() == direct && !buffer.isReadOnly()) {
+      buffers.offer(buffer);
+    }
+  }
+}
\ No newline at end of file
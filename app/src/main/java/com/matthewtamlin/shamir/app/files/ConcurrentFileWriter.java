@@ -0,0 +1,284 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.files;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Runs groups of file writes concurrently on a dedicated I/O scheduler. The writes are grouped by the device (file
+ * store) of the directory containing each file, and each device gets its own concurrency limit, so writes to
+ * different devices proceed independently while no single device is flooded with more writes than it can usefully
+ * service at once.
+ * <p>
+ * In atomic mode each write goes to a temporary file in the same directory as its target. Once every write has
+ * finished, the temporary files are synced to disk as a single concurrent batch, renamed over their targets, and then
+ * each target directory is synced once. A crash therefore leaves every target either untouched or fully written, at
+ * roughly the cost of one sync per batch rather than one per file.
+ */
+public class ConcurrentFileWriter {
+  private final Scheduler ioScheduler;
+  
+  private final int maxConcurrentWritesPerDevice;
+  
+  private final boolean atomic;
+  
+  /**
+   * Constructs a new ConcurrentFileWriter which writes directly to the target files.
+   *
+   * @param ioScheduler
+   *     the scheduler to perform the writes on, not null
+   * @param maxConcurrentWritesPerDevice
+   *     the maximum number of writes to run at once on each device, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if {@code maxConcurrentWritesPerDevice} is not greater than zero
+   */
+  public ConcurrentFileWriter(@Nonnull final Scheduler ioScheduler, final int maxConcurrentWritesPerDevice) {
+    this(ioScheduler, maxConcurrentWritesPerDevice, false);
+  }
+  
+  /**
+   * Constructs a new ConcurrentFileWriter.
+   *
+   * @param ioScheduler
+   *     the scheduler to perform the writes on, not null
+   * @param maxConcurrentWritesPerDevice
+   *     the maximum number of writes to run at once on each device, greater than zero
+   * @param atomic
+   *     true to write each file atomically and durably, false to write directly to the target files
+   *
+   * @throws IllegalArgumentException
+   *     if {@code maxConcurrentWritesPerDevice} is not greater than zero
+   */
+  public ConcurrentFileWriter(
+      @Nonnull final Scheduler ioScheduler,
+      final int maxConcurrentWritesPerDevice,
+      final boolean atomic) {
+    
+    this.ioScheduler = checkNotNull(ioScheduler, "\'ioScheduler\' must not be null.");
+    
+    if (maxConcurrentWritesPerDevice <= 0) {
+      throw new IllegalArgumentException("\'maxConcurrentWritesPerDevice\' must be greater than zero.");
+    }
+    
+    this.maxConcurrentWritesPerDevice = maxConcurrentWritesPerDevice;
+    this.atomic = atomic;
+  }
+  
+  /**
+   * Performs the supplied writes. Each write is mapped from its target file to a function which receives the file to
+   * actually write to, which is the target itself unless this writer is in atomic mode. The file passed to each
+   * function always exists. The operation fails as soon as any write fails, and the remaining writes are cancelled.
+   * In atomic mode the targets are only replaced once every write has succeeded, and the temporary files are deleted
+   * before a failure is reported. Any temporary file which cannot be deleted is attached to the failure as a suppressed
+   * exception.
+   * <p>
+   * The returned completable operates on the I/O scheduler supplied at construction.
+   *
+   * @param writes
+   *     the writes to perform, each mapped from the file it targets, not null, not containing null
+   *
+   * @return a new completable that performs every write then completes
+   */
+  @Nonnull
+  public Completable writeAll(@Nonnull final Map<File, Function<File, Completable>> writes) {
+    checkNotNull(writes, "\'writes\' must not be null.");
+    checkEachElementIsNotNull(writes.keySet(), "\'writes\' must not contain null keys.");
+    checkEachElementIsNotNull(writes.values(), "\'writes\' must not contain null values.");
+    
+    return atomic ? writeAllAtomically(writes) : writeAllDirectly(writes);
+  }
+  
+  private Completable writeAllDirectly(final Map<File, Function<File, Completable>> writes) {
+    return Completable
+        .defer(() -> {
+          final Map<File, Completable> operations = new HashMap<>();
+          
+          for (final Map.Entry<File, Function<File, Completable>> write : writes.entrySet()) {
+            operations.put(write.getKey(), write.getValue().apply(write.getKey()));
+          }
+          
+          return runConcurrently(operations);
+        })
+        .subscribeOn(ioScheduler);
+  }
+  
+  private Completable writeAllAtomically(final Map<File, Function<File, Completable>> writes) {
+    return Completable
+        .defer(() -> {
+          // Maps each target to its temporary file, and is accessed from multiple I/O threads
+          final Map<File, File> temporaryFiles = new ConcurrentHashMap<>();
+          
+          final Completable createTemporaryFiles = Completable.fromAction(() -> {
+            for (final File target : writes.keySet()) {
+              final File directory = target.getAbsoluteFile().getParentFile();
+              
+              temporaryFiles.put(target, File.createTempFile("." + target.getName() + "-", ".tmp", directory));
+            }
+          });
+          
+          final Completable writeTemporaryFiles = Completable.defer(() -> {
+            final Map<File, Completable> operations = new HashMap<>();
+            
+            for (final Map.Entry<File, File> temporaryFile : temporaryFiles.entrySet()) {
+              operations.put(
+                  temporaryFile.getValue(),
+                  writes.get(temporaryFile.getKey()).apply(temporaryFile.getValue()));
+            }
+            
+            return runConcurrently(operations);
+          });
+          
+          // Syncing every file at once lets the device coalesce the flushes
+          final Completable syncTemporaryFiles = Completable.defer(() -> {
+            final Map<File, Completable> operations = new HashMap<>();
+            
+            for (final File temporaryFile : temporaryFiles.values()) {
+              operations.put(temporaryFile, Completable.fromAction(() -> sync(temporaryFile)));
+            }
+            
+            return runConcurrently(operations);
+          });
+          
+          final Completable replaceTargets = Completable.fromAction(() -> {
+            final Set<File> directories = new LinkedHashSet<>();
+            
+            for (final Map.Entry<File, File> temporaryFile : temporaryFiles.entrySet()) {
+              move(temporaryFile.getValue(), temporaryFile.getKey());
+              directories.add(temporaryFile.getKey().getAbsoluteFile().getParentFile());
+            }
+            
+            for (final File directory : directories) {
+              syncDirectory(directory);
+            }
+          });
+          
+          return createTemporaryFiles
+              .andThen(writeTemporaryFiles)
+              .andThen(syncTemporaryFiles)
+              .andThen(replaceTargets)
+              .onErrorResumeNext(error -> Completable
+                  .fromAction(() -> deleteEach(temporaryFiles.values(), error))
+                  .andThen(Completable.error(error)))
+              .doOnDispose(() -> deleteEach(temporaryFiles.values(), null));
+        })
+        .subscribeOn(ioScheduler);
+  }
+  
+  private Completable runConcurrently(final Map<File, Completable> operations) {
+    return Completable.defer(() -> {
+      // The files of a batch usually share a few directories, and looking up a file store can be slow
+      final Map<File, Object> devicesByDirectory = new HashMap<>();
+      
+      return Flowable
+          .fromIterable(operations.entrySet())
+          .groupBy(operation -> getDevice(operation.getKey(), devicesByDirectory))
+          .flatMapCompletable(operationsOnDevice -> operationsOnDevice.flatMapCompletable(
+              operation -> operation.getValue().subscribeOn(ioScheduler),
+              false,
+              maxConcurrentWritesPerDevice));
+    });
+  }
+  
+  /**
+   * Identifies the device containing the supplied file, using the cached device of its directory if there is one.
+   */
+  private static Object getDevice(final File file, final Map<File, Object> devicesByDirectory) {
+    final File directory = file.getAbsoluteFile().getParentFile();
+    
+    if (directory == null) {
+      return file.getAbsoluteFile();
+    }
+    
+    return devicesByDirectory.computeIfAbsent(directory, ConcurrentFileWriter::lookUpDevice);
+  }
+  
+  /**
+   * Identifies the device containing the supplied directory. If the device cannot be determined, the directory itself
+   * is used instead so that the writes are still grouped sensibly.
+   */
+  private static Object lookUpDevice(final File directory) {
+    try {
+      return Files.getFileStore(directory.toPath());
+    } catch (final IOException e) {
+      return directory;
+    }
+  }
+  
+  /**
+   * Deletes each of the supplied files if it exists. Every file is attempted even if some cannot be deleted, and each
+   * failure is added to {@code error} as a suppressed exception unless {@code error} is null.
+   */
+  private static void deleteEach(final Collection<File> files, final Throwable error) {
+    for (final File file : files) {
+      try {
+        Files.deleteIfExists(file.toPath());
+      } catch (final IOException | RuntimeException e) {
+        if (error != null) {
+          error.addSuppressed(e);
+        }
+      }
+    }
+  }
+  
+  private static void sync(final File file) throws IOException {
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+  
+  private static void move(final File source, final File target) throws IOException {
+    try {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+  
+  /**
+   * Syncs a directory so that renames within it are durable. Some platforms do not allow directories to be opened,
+   * and on those platforms the sync is skipped since renames cannot be synced this way.
+   */
+  private static void syncDirectory(final File directory) {
+    try (final FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (final IOException e) {
+      // Not supported on this platform
+    }
+  }
+}
\ No newline at end of file
@@ -17,16 +17,19 @@
 package com.matthewtamlin.shamir.app.files;
 
 import com.matthewtamlin.shamir.app.AppScope;
+import com.matthewtamlin.shamir.app.rxutilities.SharedSchedulers;
 import dagger.Module;
 import dagger.Provides;
 import javafx.stage.Window;
 
 @Module
 public class FilesModule {
+  private static final int MAX_CONCURRENT_WRITES_PER_DEVICE = 8;
+  
   @Provides
   @AppScope
   public RxFiles provideRxFiles() {
-    return new RxFiles();
+    return new NioRxFiles();
   }
   
   @Provides
@@ -34,4 +37,10 @@ public class FilesModule {
   public RxFilePicker provideRxFilePicker(final Window window) {
     return new RxFilePicker(window);
   }
+  
+  @Provides
+  @AppScope
+  public ConcurrentFileWriter provideConcurrentFileWriter() {
+    return new ConcurrentFileWriter(SharedSchedulers.fileWriter(), MAX_CONCURRENT_WRITES_PER_DEVICE, true);
+  }
 }
\ No newline at end of file
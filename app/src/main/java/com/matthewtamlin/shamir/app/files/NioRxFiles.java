@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.files;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * An {@link RxFiles} which performs reads and writes with positional asynchronous I/O through an
+ * {@link AsynchronousFileChannel}, instead of blocking streams. In addition to the whole-file operations of RxFiles,
+ * files can be streamed as a sequence of byte buffers so that large files can be processed without holding their
+ * entire contents in memory. Streamed reads honour backpressure, so no more than one buffer is read ahead of the
+ * consumer.
+ */
+public class NioRxFiles extends RxFiles {
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  
+  private static final int DEFAULT_MAX_POOLED_BUFFERS = 16;
+  
+  private final ByteBufferPool bufferPool;
+  
+  /**
+   * Constructs a new NioRxFiles which streams reads through a pool of 64KiB direct buffers.
+   */
+  public NioRxFiles() {
+    this(new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS, true));
+  }
+  
+  /**
+   * Constructs a new NioRxFiles.
+   *
+   * @param bufferPool
+   *     the pool to take buffers from when streaming reads, not null
+   */
+  public NioRxFiles(@Nonnull final ByteBufferPool bufferPool) {
+    this.bufferPool = checkNotNull(bufferPool, "\'bufferPool\' must not be null.");
+  }
+  
+  @Override
+  @Nonnull
+  public Single<byte[]> readBytesFromFile(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return Single.using(
+        () -> AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ),
+        channel -> Single
+            .fromCallable(channel::size)
+            .flatMap(size -> size > Integer.MAX_VALUE ?
+                Single.error(new IOException(format("File \'%1$s\' is too large to read at once.", file))) :
+                readFully(channel, ByteBuffer.allocate(size.intValue()), 0))
+            .map(buffer -> buffer.position() == buffer.capacity() ?
+                buffer.array() :
+                Arrays.copyOf(buffer.array(), buffer.position())),
+        AsynchronousFileChannel::close);
+  }
+  
+  @Override
+  @Nonnull
+  public Completable writeBytesToFile(@Nonnull final byte[] data, @Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    checkNotNull(data, "\'data\' must not be null.");
+    
+    return writeBuffersToFile(Flowable.just(ByteBuffer.wrap(data)), file);
+  }
+  
+  /**
+   * Reads the contents of the supplied file as a sequence of buffers. Each buffer is taken from the buffer pool, is
+   * flipped ready for reading, and should be returned to the pool with {@link #releaseBuffer(ByteBuffer)} once it has
+   * been consumed. Buffers which are not released are simply garbage collected. The operation will fail if the file
+   * does not exist, cannot be read from, or is actually a directory.
+   * <p>
+   * The returned flowable does not operate by default on a particular scheduler, however the reads complete on the
+   * default thread pool of the asynchronous channel.
+   *
+   * @param file
+   *     the file to read from, not null
+   *
+   * @return a new flowable that emits the contents of the file then completes
+   */
+  @Nonnull
+  public Flowable<ByteBuffer> readBuffersFromFile(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    final int bufferSize = bufferPool.getBufferSize();
+    
+    return Flowable.using(
+        () -> AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ),
+        channel -> Single
+            .fromCallable(channel::size)
+            .flatMapPublisher(size -> Flowable.rangeLong(0, (size + bufferSize - 1) / bufferSize))
+            .concatMap(chunk -> readChunk(channel, chunk * bufferSize).toFlowable(), 1),
+        AsynchronousFileChannel::close);
+  }
+  
+  /**
+   * Writes a sequence of buffers to the supplied file, in order. The remaining bytes of each buffer are written, and
+   * the buffers are not released to the buffer pool. The operation will fail if the file does not exist, cannot be
+   * written to, or is actually a directory. This operation will override any existing content in the file.
+   * <p>
+   * The returned completable does not operate by default on a particular scheduler, however the writes complete on the
+   * default thread pool of the asynchronous channel.
+   *
+   * @param data
+   *     the buffers to write, not null
+   * @param file
+   *     the file to write to, not null
+   *
+   * @return a new completable that writes the data then completes
+   */
+  @Nonnull
+  public Completable writeBuffersToFile(@Nonnull final Flowable<ByteBuffer> data, @Nonnull final File file) {
+    checkNotNull(data, "\'data\' must not be null.");
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    final Completable writeBuffers = Completable.defer(() -> {
+      final AtomicLong position = new AtomicLong(0);
+      
+      return Flowable
+          .using(
+              () -> AsynchronousFileChannel.open(
+                  file.toPath(),
+                  StandardOpenOption.WRITE,
+                  StandardOpenOption.TRUNCATE_EXISTING),
+              channel -> data.concatMap(buffer -> writeFully(
+                  channel,
+                  buffer,
+                  position.getAndAdd(buffer.remaining())).toFlowable()),
+              AsynchronousFileChannel::close)
+          .ignoreElements();
+    });
+    
+    return exists(file)
+        .flatMapCompletable(exists -> exists ?
+            writeBuffers :
+            Completable.error(new IOException("File does not exist.")));
+  }
+  
+  /**
+   * Returns a buffer emitted by {@link #readBuffersFromFile(File)} to the buffer pool so that it can be reused. The
+   * buffer must not be used after it is released.
+   *
+   * @param buffer
+   *     the buffer to release, not null
+   */
+  public void releaseBuffer(@Nonnull final ByteBuffer buffer) {
+    checkNotNull(buffer, "\'buffer\' must not be null.");
+    
+    bufferPool.release(buffer);
+  }
+  
+  private Single<ByteBuffer> readChunk(final AsynchronousFileChannel channel, final long position) {
+    return Single.defer(() -> {
+      final ByteBuffer buffer = bufferPool.acquire();
+      
+      return readFully(channel, buffer, position)
+          .doOnError(error -> bufferPool.release(buffer))
+          .map(filledBuffer -> {
+            filledBuffer.flip();
+            return filledBuffer;
+          });
+    });
+  }
+  
+  /**
+   * Reads from the channel until the buffer is full or the end of the file is reached.
+   */
+  private static Single<ByteBuffer> readFully(
+      final AsynchronousFileChannel channel,
+      final ByteBuffer buffer,
+      final long position) {
+    
+    if (!buffer.hasRemaining()) {
+      return Single.just(buffer);
+    }
+    
+    return Single
+        .<Integer>create(emitter -> channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+          @Override
+          public void completed(final Integer bytesRead, final Void attachment) {
+            emitter.onSuccess(bytesRead);
+          }
+          
+          @Override
+          public void failed(final Throwable error, final Void attachment) {
+            emitter.tryOnError(error);
+          }
+        }))
+        .flatMap(bytesRead -> bytesRead < 0 ?
+            Single.just(buffer) :
+            readFully(channel, buffer, position + bytesRead));
+  }
+  
+  /**
+   * Writes the remaining bytes of the buffer to the channel.
+   */
+  private static Single<ByteBuffer> writeFully(
+      final AsynchronousFileChannel channel,
+      final ByteBuffer buffer,
+      final long position) {
+    
+    if (!buffer.hasRemaining()) {
+      return Single.just(buffer);
+    }
+    
+    return Single
+        .<Integer>create(emitter -> channel.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+          @Override
+          public void completed(final Integer bytesWritten, final Void attachment) {
+            emitter.onSuccess(bytesWritten);
+          }
+          
+          @Override
+          public void failed(final Throwable error, final Void attachment) {
+            emitter.tryOnError(error);
+          }
+        }))
+        .flatMap(bytesWritten -> writeFully(channel, buffer, position + bytesWritten));
+  }
+}
\ No newline at end of file
@@ -22,9 +22,17 @@ import io.reactivex.Single;
 import org.apache.commons.io.FileUtils;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -129,6 +137,39 @@ public class RxFiles {
         Observable.error(makeError("Failed to get files in", directory, "The directory does not exist")));
   }
   
+  /**
+   * Lists the files in the supplied directory whose names match the supplied glob pattern. The pattern syntax is
+   * described in {@link java.nio.file.FileSystem#getPathMatcher(String)}, without the "glob:" prefix. Unlike
+   * {@link #getFilesInDirectory(File)}, the directory is read lazily as the files are emitted and only matching files
+   * are emitted, so operators such as {@code take} and {@code any} stop the scan as soon as they have an answer. The
+   * operation will fail if the directory does not exist, cannot be accessed, or is actually a file.
+   * <p>
+   * The returned observable does not operate by default on a particular scheduler.
+   *
+   * @param directory
+   *     the directory to list files from, not null
+   * @param glob
+   *     the pattern to match against the file names, not null
+   *
+   * @return a new observable that emits the matching files then completes
+   */
+  @Nonnull
+  public Observable<File> getFilesInDirectory(@Nonnull final File directory, @Nonnull final String glob) {
+    checkNotNull(directory, "\'directory\' must not be null.");
+    checkNotNull(glob, "\'glob\' must not be null.");
+    
+    return Observable
+        .using(
+            () -> Files.newDirectoryStream(directory.toPath(), glob),
+            stream -> Observable
+                .fromIterable(stream)
+                .map(Path::toFile),
+            DirectoryStream::close)
+        .onErrorResumeNext((Throwable error) -> Observable.error(error instanceof DirectoryIteratorException ?
+            error.getCause() :
+            error));
+  }
+  
   /**
    * Rads the contents of the supplied file and converts it to a string using the supplied charset. The operation will
    * fail if the file does not exist, cannot be read from, or is actually a directory.
@@ -227,6 +268,46 @@ public class RxFiles {
         .andThen(Completable.fromAction(() -> FileUtils.writeByteArrayToFile(file, data)));
   }
   
+  /**
+   * Opens a buffered stream for reading the contents of the supplied file. The operation will fail if the file does
+   * not exist, cannot be read from, or is actually a directory. The caller is responsible for closing the stream.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param file
+   *     the file to read from, not null
+   *
+   * @return a new single that emits the open stream then completes
+   */
+  @Nonnull
+  public Single<InputStream> openInputStream(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return Single.fromCallable(() -> new BufferedInputStream(FileUtils.openInputStream(file)));
+  }
+  
+  /**
+   * Opens a buffered stream for writing to the supplied file. The operation will fail if the file does not exist,
+   * cannot be written to, or is actually a directory. Any existing content in the file is discarded when the stream is
+   * opened. The caller is responsible for closing the stream.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param file
+   *     the file to write to, not null
+   *
+   * @return a new single that emits the open stream then completes
+   */
+  @Nonnull
+  public Single<OutputStream> openOutputStream(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return exists(file)
+        .flatMap(exists -> exists ?
+            Single.fromCallable(() -> new BufferedOutputStream(FileUtils.openOutputStream(file))) :
+            Single.error(new IOException("File does not exist.")));
+  }
+  
   /**
    * Determines if the supplied file/directory exists.
    * <p>
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.auto.value.AutoValue;
+import io.reactivex.Completable;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A job which splits every file in an input directory into shares. The shares and recovery scheme for each file are
+ * saved to their own subdirectory of the output directory, alongside a manifest which records the outcome for each
+ * file.
+ */
+@AutoValue
+public abstract class BatchCreationJob implements Job {
+  public abstract File getInputDirectory();
+  
+  public abstract int getRequiredShareCount();
+  
+  public abstract int getTotalShareCount();
+  
+  public abstract File getOutputDirectory();
+  
+  @Nonnull
+  @Override
+  public Completable run(@Nonnull final HeadlessComponent component) {
+    checkNotNull(component, "\'component\' must not be null.");
+    
+    return component.getBatchCreator().createShares(this);
+  }
+  
+  /**
+   * Creates a new BatchCreationJob.
+   *
+   * @param inputDirectory
+   *     the directory containing the secret files, not null
+   * @param requiredShareCount
+   *     the number of shares needed to recover each secret, at least 2
+   * @param totalShareCount
+   *     the number of shares to create for each secret, at least {@code requiredShareCount}
+   * @param outputDirectory
+   *     the directory to save the shares, recovery schemes and manifest to, not null
+   *
+   * @return the new job, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code requiredShareCount} is less than 2, or if {@code totalShareCount} is less than
+   *     {@code requiredShareCount}
+   */
+  @Nonnull
+  public static BatchCreationJob create(
+      @Nonnull final File inputDirectory,
+      final int requiredShareCount,
+      final int totalShareCount,
+      @Nonnull final File outputDirectory) {
+    
+    checkNotNull(inputDirectory, "\'inputDirectory\' must not be null.");
+    checkNotNull(outputDirectory, "\'outputDirectory\' must not be null.");
+    
+    if (requiredShareCount < 2) {
+      throw new IllegalArgumentException("\'requiredShareCount\' must be at least 2.");
+    }
+    
+    if (totalShareCount < requiredShareCount) {
+      throw new IllegalArgumentException("\'totalShareCount\' must be at least \'requiredShareCount\'.");
+    }
+    
+    return new AutoValue_BatchCreationJob(inputDirectory, requiredShareCount, totalShareCount, outputDirectory);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.gson.Gson;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import org.apache.commons.io.FileUtils;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Runs batch creation jobs. Every regular file in the input directory (including subdirectories) is shared on a
+ * bounded pool of workers, and the shares and recovery scheme for each file are saved to a subdirectory of the output
+ * directory with the same relative path as the file. The outcome and duration for each file are appended to a
+ * manifest in the output directory as soon as the file is done.
+ * <p>
+ * Running the same job again resumes it: files which the manifest records as succeeded are skipped, and any output
+ * left behind by files which failed or were interrupted is deleted before they are shared again. A file whose output
+ * subdirectory would have the same path as the manifest fails without being shared.
+ */
+public class BatchCreator {
+  /**
+   * The name of the manifest file in the output directory.
+   */
+  public static final String MANIFEST_FILE_NAME = "manifest.jsonl";
+  
+  private final ShareCreator shareCreator;
+  
+  private final Gson gson;
+  
+  private final Scheduler workerScheduler;
+  
+  private final int workerCount;
+  
+  /**
+   * Constructs a new BatchCreator.
+   *
+   * @param shareCreator
+   *     the creator to share each file with, not null
+   * @param gson
+   *     the gson to read and write the manifest with, not null
+   * @param workerScheduler
+   *     the scheduler to share the files on, not null
+   * @param workerCount
+   *     the maximum number of files to share at once, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if {@code workerCount} is not greater than zero
+   */
+  public BatchCreator(
+      @Nonnull final ShareCreator shareCreator,
+      @Nonnull final Gson gson,
+      @Nonnull final Scheduler workerScheduler,
+      final int workerCount) {
+    
+    this.shareCreator = checkNotNull(shareCreator, "\'shareCreator\' must not be null.");
+    this.gson = checkNotNull(gson, "\'gson\' must not be null.");
+    this.workerScheduler = checkNotNull(workerScheduler, "\'workerScheduler\' must not be null.");
+    
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("\'workerCount\' must be greater than zero.");
+    }
+    
+    this.workerCount = workerCount;
+  }
+  
+  /**
+   * Shares every file in the job's input directory that has not already succeeded. A file which fails does not stop
+   * the other files, but the operation fails with a {@link JobException} once every file is done if any file failed.
+   * The operation also fails if the input directory does not exist, if the output directory is inside the input
+   * directory, or if the manifest cannot be read or written.
+   * <p>
+   * The returned completable shares the files on the worker scheduler supplied at construction.
+   *
+   * @param job
+   *     the job to run, not null
+   *
+   * @return a new completable that shares the files then completes
+   */
+  @Nonnull
+  public Completable createShares(@Nonnull final BatchCreationJob job) {
+    checkNotNull(job, "\'job\' must not be null.");
+    
+    return checkDirectories(job)
+        .andThen(Completable.fromAction(() -> FileUtils.forceMkdir(job.getOutputDirectory())))
+        .andThen(Completable.using(
+            () -> BatchManifest.open(new File(job.getOutputDirectory(), MANIFEST_FILE_NAME), gson),
+            manifest -> createShares(job, manifest),
+            BatchManifest::close));
+  }
+  
+  private Completable checkDirectories(final BatchCreationJob job) {
+    return Completable.defer(() -> {
+      final File inputDirectory = job.getInputDirectory();
+      
+      if (!inputDirectory.isDirectory()) {
+        return Completable.error(new JobException(format(
+            "Input directory \'%1$s\' does not exist.",
+            inputDirectory)));
+      }
+      
+      final Path input = inputDirectory.getCanonicalFile().toPath();
+      final Path output = job.getOutputDirectory().getCanonicalFile().toPath();
+      
+      if (output.startsWith(input)) {
+        return Completable.error(new JobException(format(
+            "Output directory \'%1$s\' must not be inside input directory \'%2$s\'.",
+            job.getOutputDirectory(),
+            inputDirectory)));
+      }
+      
+      return Completable.complete();
+    });
+  }
+  
+  private Completable createShares(final BatchCreationJob job, final BatchManifest manifest) {
+    final Path input = job.getInputDirectory().toPath();
+    
+    return Single
+        .fromCallable(() -> listFiles(input))
+        .flattenAsFlowable(files -> files)
+        .filter(file -> !manifest.hasSucceeded(input.relativize(file).toString()))
+        .flatMapSingle(
+            file -> createShares(job, input.relativize(file).toString(), manifest).subscribeOn(workerScheduler),
+            false,
+            workerCount)
+        .filter(succeeded -> !succeeded)
+        .count()
+        .flatMapCompletable(failures -> failures == 0 ?
+            Completable.complete() :
+            Completable.error(new JobException(format(
+                "%1$s file(s) failed. See the manifest for details.",
+                failures))));
+  }
+  
+  private Single<Boolean> createShares(
+      final BatchCreationJob job,
+      final String relativePath,
+      final BatchManifest manifest) {
+    
+    return Single.defer(() -> {
+      final long startTime = System.nanoTime();
+      final File outputSubdirectory = new File(job.getOutputDirectory(), relativePath);
+      
+      final CreationJob creationJob = CreationJob.create(
+          new File(job.getInputDirectory(), relativePath),
+          job.getRequiredShareCount(),
+          job.getTotalShareCount(),
+          outputSubdirectory);
+      
+      // The cleanup is part of the file's own work, so a file which cannot be cleaned up only fails itself
+      final Completable createShares = Completable
+          .fromAction(() -> {
+            if (outputSubdirectory.equals(new File(job.getOutputDirectory(), MANIFEST_FILE_NAME))) {
+              throw new JobException(format(
+                  "Input file \'%1$s\' has the same path as the manifest file.",
+                  relativePath));
+            }
+            
+            // Clears any output left by a previous attempt which failed or was interrupted
+            FileUtils.deleteDirectory(outputSubdirectory);
+          })
+          .andThen(Completable.defer(() -> shareCreator.createShares(creationJob)));
+      
+      return createShares
+          .toSingleDefault(Optional.<Throwable>empty())
+          .onErrorReturn(Optional::of)
+          .map(error -> {
+            final long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            
+            if (error.isPresent()) {
+              manifest.record(relativePath, BatchManifest.STATUS_FAILED, durationMillis, describe(error.get()));
+              return false;
+              
+            } else {
+              manifest.record(relativePath, BatchManifest.STATUS_SUCCEEDED, durationMillis, null);
+              return true;
+            }
+          });
+    });
+  }
+  
+  private static List<Path> listFiles(final Path directory) throws IOException {
+    try (final Stream<Path> paths = Files.walk(directory)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+  
+  private static String describe(final Throwable error) {
+    return error.getMessage() != null ? error.getMessage() : error.toString();
+  }
+}
\ No newline at end of file
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A record of the outcome of each file in a batch. The manifest is stored as JSON lines, and each entry is appended
+ * and synced to the storage device as soon as it is recorded, so the manifest survives the batch being interrupted. A
+ * file can be recorded more than once, in which case the last entry for the file is the current one.
+ */
+public class BatchManifest implements Closeable {
+  public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+  
+  public static final String STATUS_FAILED = "FAILED";
+  
+  private final Gson gson;
+  
+  private final Set<String> succeededFiles;
+  
+  private final FileChannel channel;
+  
+  private final BufferedWriter writer;
+  
+  private BatchManifest(final Gson gson, final Set<String> succeededFiles, final FileChannel channel) {
+    this.gson = gson;
+    this.succeededFiles = succeededFiles;
+    this.channel = channel;
+    this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.name()));
+  }
+  
+  /**
+   * Opens a manifest file, creating it if it does not exist. The entries already in the file are read so that files
+   * which already succeeded can be skipped. If the batch was interrupted while an entry was being appended, the
+   * unterminated final line is kept if it is a complete entry and otherwise removed from the file.
+   *
+   * @param file
+   *     the manifest file, not null
+   * @param gson
+   *     the gson to read and write entries with, not null
+   *
+   * @return the open manifest, not null
+   *
+   * @throws IOException
+   *     if the manifest file cannot be read or opened for writing, or if any line other than the unterminated final
+   *     line is malformed
+   */
+  @Nonnull
+  public static BatchManifest open(@Nonnull final File file, @Nonnull final Gson gson) throws IOException {
+    checkNotNull(file, "\'file\' must not be null.");
+    checkNotNull(gson, "\'gson\' must not be null.");
+    
+    final Set<String> succeededFiles = new HashSet<>();
+    boolean lastLineIsUnterminated = false;
+    
+    if (file.exists()) {
+      final byte[] content = Files.readAllBytes(file.toPath());
+      final int terminatedLength = lastIndexOfNewline(content) + 1;
+      
+      for (final String line : new String(content, 0, terminatedLength, StandardCharsets.UTF_8).split("\n")) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        
+        final Entry entry = parseEntry(gson, line);
+        
+        if (entry == null) {
+          throw new IOException("Malformed manifest entry.");
+        }
+        
+        applyEntry(entry, succeededFiles);
+      }
+      
+      // Entries are written with their newline last, so only the unterminated tail can have been torn
+      final String lastLine = new String(
+          content,
+          terminatedLength,
+          content.length - terminatedLength,
+          StandardCharsets.UTF_8);
+      
+      if (!lastLine.trim().isEmpty()) {
+        final Entry entry = parseEntry(gson, lastLine);
+        
+        if (entry != null) {
+          applyEntry(entry, succeededFiles);
+          lastLineIsUnterminated = true;
+          
+        } else {
+          try (final FileChannel truncatingChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            truncatingChannel.truncate(terminatedLength);
+            truncatingChannel.force(false);
+          }
+        }
+      }
+    }
+    
+    final FileChannel channel = FileChannel.open(
+        file.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    
+    final BatchManifest manifest = new BatchManifest(gson, succeededFiles, channel);
+    
+    if (lastLineIsUnterminated) {
+      try {
+        manifest.appendLine("");
+        
+      } catch (final IOException e) {
+        manifest.close();
+        throw e;
+      }
+    }
+    
+    return manifest;
+  }
+  
+  /**
+   * Determines whether the most recent entry for a file records success.
+   *
+   * @param file
+   *     the path of the file relative to the input directory, not null
+   *
+   * @return true if the file has succeeded, false otherwise
+   */
+  public synchronized boolean hasSucceeded(@Nonnull final String file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return succeededFiles.contains(file);
+  }
+  
+  /**
+   * Appends an entry to the manifest and syncs it to the storage device.
+   *
+   * @param file
+   *     the path of the file relative to the input directory, not null
+   * @param status
+   *     the outcome for the file, not null
+   * @param durationMillis
+   *     the time taken to process the file, in milliseconds
+   * @param error
+   *     a description of the error if the file failed, null otherwise
+   *
+   * @throws IOException
+   *     if the entry cannot be written
+   */
+  public synchronized void record(
+      @Nonnull final String file,
+      @Nonnull final String status,
+      final long durationMillis,
+      @Nullable final String error) throws IOException {
+    
+    checkNotNull(file, "\'file\' must not be null.");
+    checkNotNull(status, "\'status\' must not be null.");
+    
+    final Entry entry = new Entry(file, status, durationMillis, error);
+    
+    appendLine(gson.toJson(entry));
+    applyEntry(entry, succeededFiles);
+  }
+  
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+  
+  private void appendLine(final String line) throws IOException {
+    writer.write(line);
+    writer.newLine();
+    writer.flush();
+    channel.force(false);
+  }
+  
+  @Nullable
+  private static Entry parseEntry(final Gson gson, final String line) {
+    final Entry entry;
+    
+    try {
+      entry = gson.fromJson(line, Entry.class);
+      
+    } catch (final JsonParseException e) {
+      return null;
+    }
+    
+    return entry == null || entry.file == null ? null : entry;
+  }
+  
+  private static void applyEntry(final Entry entry, final Set<String> succeededFiles) {
+    if (STATUS_SUCCEEDED.equals(entry.status)) {
+      succeededFiles.add(entry.file);
+      
+    } else {
+      succeededFiles.remove(entry.file);
+    }
+  }
+  
+  private static int lastIndexOfNewline(final byte[] content) {
+    for (int i = content.length - 1; i >= 0; i--) {
+      if (content[i] == '\n') {
+        return i;
+      }
+    }
+    
+    return -1;
+  }
+  
+  private static class Entry {
+    private final String file;
+    
+    private final String status;
+    
+    private final long durationMillis;
+    
+    private final String error;
+    
+    private Entry(final String file, final String status, final long durationMillis, final String error) {
+      this.file = file;
+      this.status = status;
+      this.durationMillis = durationMillis;
+      this.error = error;
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PrimeSelection;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.SerialisationFormat;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Entry point for running creation and recovery jobs without a user interface. Unlike the main app, this never
+ * loads JavaFX, so it starts quickly and works on machines without a display.
+ * <p>
+ * Usage: {@code [--format json|binary] [--workers <count>] [--primes smallest|fixed] (--job-file <file> | <command>)},
+ * where the commands and the job file format are described in {@link JobParser}. The worker count limits how many
+ * files a batch shares at once, and defaults to the number of available processors. By default every secret is shared
+ * with the 4096 bit prime of the app, so the shares do not reveal how long the secret is. {@code --primes smallest}
+ * shares each secret with the smallest sufficient prime from the {@link PrimeCatalogue} instead, which gives smaller
+ * shares for short secrets but lets anyone holding a share infer a range for the length of the secret from the prime.
+ * Jobs run one at a time in order, and a failed job does not stop the jobs after it.
+ * The exit status is 0 if every job succeeds, 1 if any job fails, and 2 if the arguments are invalid.
+ */
+public class HeadlessApp {
+  private static final int EXIT_STATUS_SUCCESS = 0;
+  
+  private static final int EXIT_STATUS_JOB_FAILED = 1;
+  
+  private static final int EXIT_STATUS_INVALID_ARGUMENTS = 2;
+  
+  private static final String USAGE = "Usage: [--format json|binary] [--workers <count>] [--primes smallest|fixed] " +
+      "(--job-file <file> | <command>)\n" +
+      "Commands:\n" +
+      "  create <secret-file> <required-share-count> <total-share-count> <output-directory>\n" +
+      "  recover <recovery-scheme-file> <output-directory> <share-file>...\n" +
+      "  batch-create <input-directory> <required-share-count> <total-share-count> <output-directory>";
+  
+  private HeadlessApp() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  public static void main(final String[] args) {
+    System.exit(run(Arrays.asList(args), System.out, System.err));
+  }
+  
+  static int run(final List<String> args, final PrintStream out, final PrintStream err) {
+    SerialisationFormat format = SerialisationFormat.JSON;
+    int workerCount = Runtime.getRuntime().availableProcessors();
+    PrimeSelection primeSelection = PrimeSelection.FIXED;
+    String jobFile = null;
+    int position = 0;
+    
+    while (position < args.size() && args.get(position).startsWith("--")) {
+      final String option = args.get(position);
+      
+      if (position + 1 >= args.size()) {
+        return invalidArguments(err, format("Option \'%1$s\' requires a value.", option));
+      }
+      
+      final String value = args.get(position + 1);
+      
+      if (option.equals("--format")) {
+        try {
+          format = SerialisationFormat.valueOf(value.toUpperCase());
+          
+        } catch (final IllegalArgumentException e) {
+          return invalidArguments(err, format("Unknown format \'%1$s\'.", value));
+        }
+        
+      } else if (option.equals("--workers")) {
+        try {
+          workerCount = Integer.parseInt(value);
+          
+        } catch (final NumberFormatException e) {
+          return invalidArguments(err, format("\'%1$s\' is not a valid worker count.", value));
+        }
+        
+        if (workerCount <= 0) {
+          return invalidArguments(err, "The worker count must be greater than zero.");
+        }
+        
+      } else if (option.equals("--primes")) {
+        if (value.equals("fixed")) {
+          primeSelection = PrimeSelection.FIXED;
+          
+        } else if (value.equals("smallest")) {
+          primeSelection = PrimeSelection.SMALLEST_SUFFICIENT;
+          
+        } else {
+          return invalidArguments(err, format("Unknown prime selection \'%1$s\'.", value));
+        }
+        
+      } else if (option.equals("--job-file")) {
+        jobFile = value;
+        
+      } else {
+        return invalidArguments(err, format("Unknown option \'%1$s\'.", option));
+      }
+      
+      position += 2;
+    }
+    
+    final List<String> command = args.subList(position, args.size());
+    final List<Job> jobs;
+    
+    try {
+      if (jobFile != null && !command.isEmpty()) {
+        return invalidArguments(err, "A job file and a command cannot both be specified.");
+      }
+      
+      jobs = jobFile != null ?
+          JobParser.parseJobFile(Files.readAllLines(Paths.get(jobFile), StandardCharsets.UTF_8)) :
+          Collections.singletonList(JobParser.parseCommand(command));
+      
+    } catch (final IllegalArgumentException e) {
+      return invalidArguments(err, e.getMessage());
+      
+    } catch (final IOException e) {
+      return invalidArguments(err, format("Cannot read job file \'%1$s\'.", jobFile));
+    }
+    
+    final HeadlessComponent component = DaggerHeadlessComponent
+        .builder()
+        .setHeadlessModule(new HeadlessModule(format, workerCount, primeSelection))
+        .build();
+    
+    return runJobs(jobs, component, out, err);
+  }
+  
+  private static int runJobs(
+      final List<Job> jobs,
+      final HeadlessComponent component,
+      final PrintStream out,
+      final PrintStream err) {
+    
+    int exitStatus = EXIT_STATUS_SUCCESS;
+    
+    for (int i = 0; i < jobs.size(); i++) {
+      final Throwable error = jobs.get(i).run(component).blockingGet();
+      
+      if (error == null) {
+        out.println(format("Job %1$s succeeded.", i + 1));
+        
+      } else {
+        err.println(format("Job %1$s failed: %2$s", i + 1, error.getMessage() != null ? error.getMessage() : error));
+        exitStatus = EXIT_STATUS_JOB_FAILED;
+      }
+    }
+    
+    return exitStatus;
+  }
+  
+  private static int invalidArguments(final PrintStream err, final String message) {
+    err.println(message);
+    err.println(USAGE);
+    
+    return EXIT_STATUS_INVALID_ARGUMENTS;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import dagger.Component;
+
+@Component(modules = {
+    HeadlessModule.class,
+    HeadlessCreationModule.class,
+    HeadlessRecoveryModule.class})
+@HeadlessScope
+public interface HeadlessComponent {
+  public ShareCreator getShareCreator();
+  
+  public SecretRecoverer getSecretRecoverer();
+  
+  public BatchCreator getBatchCreator();
+  
+  @Component.Builder
+  public interface Builder {
+    public Builder setHeadlessModule(HeadlessModule module);
+    
+    public HeadlessComponent build();
+  }
+}
\ No newline at end of file
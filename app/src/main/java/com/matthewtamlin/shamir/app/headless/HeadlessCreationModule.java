@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
+import com.matthewtamlin.shamir.app.files.RxFiles;
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PersistenceOperations;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.RecoverySchemeSerialiser;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareSerialiser;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * Provides the headless share creation classes. This is kept separate from {@link HeadlessRecoveryModule} because
+ * creation and recovery each have their own PersistenceOperations class.
+ */
+@Module
+public class HeadlessCreationModule {
+  @Provides
+  @HeadlessScope
+  public PersistenceOperations providePersistenceOperations(
+      final ShareSerialiser shareSerialiser,
+      final RecoverySchemeSerialiser recoverySchemeSerialiser,
+      final RxFiles rxFiles) {
+    
+    return new PersistenceOperations(shareSerialiser, recoverySchemeSerialiser, rxFiles);
+  }
+  
+  @Provides
+  @HeadlessScope
+  public ShareCreator provideShareCreator(
+      final RxShamir rxShamir,
+      final CryptoConstants cryptoConstants,
+      final SecretEncoder secretEncoder,
+      final PersistenceOperations persistenceOperations,
+      final RxFiles rxFiles,
+      final ConcurrentFileWriter concurrentFileWriter) {
+    
+    return new ShareCreator(
+        rxShamir,
+        cryptoConstants,
+        secretEncoder,
+        persistenceOperations,
+        rxFiles,
+        concurrentFileWriter);
+  }
+}
\ No newline at end of file
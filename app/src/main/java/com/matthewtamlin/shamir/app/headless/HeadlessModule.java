@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
+import com.matthewtamlin.shamir.app.files.NioRxFiles;
+import com.matthewtamlin.shamir.app.files.RxFiles;
+import com.matthewtamlin.shamir.app.rxutilities.SharedSchedulers;
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PrimeSelection;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.RecoverySchemeSerialiser;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.SerialisationFormat;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareSerialiser;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import dagger.Module;
+import dagger.Provides;
+import io.reactivex.schedulers.Schedulers;
+
+import javax.annotation.Nonnull;
+import java.security.SecureRandom;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Provides the non-UI parts of the app for headless use. Nothing provided by this module depends on JavaFX, so the
+ * JavaFX runtime is never loaded.
+ */
+@Module
+public class HeadlessModule {
+  private static final int MAX_CONCURRENT_WRITES_PER_DEVICE = 8;
+  
+  private final SerialisationFormat format;
+  
+  private final int batchWorkerCount;
+  
+  private final PrimeSelection primeSelection;
+  
+  /**
+   * Constructs a new HeadlessModule which provides serialisers for the {@link SerialisationFormat#JSON} format, runs
+   * batches with one worker per available processor, and shares every secret with the fixed prime.
+   */
+  public HeadlessModule() {
+    this(SerialisationFormat.JSON, Runtime.getRuntime().availableProcessors(), PrimeSelection.FIXED);
+  }
+  
+  /**
+   * Constructs a new HeadlessModule.
+   *
+   * @param format
+   *     the format to serialise to, not null
+   * @param batchWorkerCount
+   *     the maximum number of files to share at once in a batch, greater than zero
+   * @param primeSelection
+   *     the way to choose the prime for each secret, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code batchWorkerCount} is not greater than zero
+   */
+  public HeadlessModule(
+      @Nonnull final SerialisationFormat format,
+      final int batchWorkerCount,
+      @Nonnull final PrimeSelection primeSelection) {
+    
+    this.format = checkNotNull(format, "\'format\' must not be null.");
+    this.primeSelection = checkNotNull(primeSelection, "\'primeSelection\' must not be null.");
+    
+    if (batchWorkerCount <= 0) {
+      throw new IllegalArgumentException("\'batchWorkerCount\' must be greater than zero.");
+    }
+    
+    this.batchWorkerCount = batchWorkerCount;
+  }
+  
+  @Provides
+  @HeadlessScope
+  public RxShamir provideRxShamir() {
+    return new RxShamir(new SecureRandom());
+  }
+  
+  @Provides
+  @HeadlessScope
+  public SecretEncoder provideSecretEncoder() {
+    return new SecretEncoder();
+  }
+  
+  @Provides
+  @HeadlessScope
+  public CryptoConstants provideCryptoConstants() {
+    return CryptoConstants.createDefault(primeSelection);
+  }
+  
+  @Provides
+  @HeadlessScope
+  public RxFiles provideRxFiles() {
+    return new NioRxFiles();
+  }
+  
+  @Provides
+  @HeadlessScope
+  public ConcurrentFileWriter provideConcurrentFileWriter() {
+    return new ConcurrentFileWriter(SharedSchedulers.fileWriter(), MAX_CONCURRENT_WRITES_PER_DEVICE, true);
+  }
+  
+  @Provides
+  @HeadlessScope
+  public ShareSerialiser provideShareSerialiser() {
+    return format.createShareSerialiser();
+  }
+  
+  @Provides
+  @HeadlessScope
+  public RecoverySchemeSerialiser provideRecoverySchemeSerialiser() {
+    return format.createRecoverySchemeSerialiser();
+  }
+  
+  @Provides
+  @HeadlessScope
+  public Gson provideGson() {
+    return new GsonBuilder()
+        .disableHtmlEscaping()
+        .create();
+  }
+  
+  @Provides
+  @HeadlessScope
+  public BatchCreator provideBatchCreator(final ShareCreator shareCreator, final Gson gson) {
+    // The shared I/O scheduler grows as needed, and the creator limits how many of its threads are used at once
+    return new BatchCreator(shareCreator, gson, Schedulers.io(), batchWorkerCount);
+  }
+}
\ No newline at end of file
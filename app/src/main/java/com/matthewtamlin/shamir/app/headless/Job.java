@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import io.reactivex.Completable;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A unit of work for the headless app.
+ */
+public interface Job {
+  /**
+   * Runs this job.
+   *
+   * @param component
+   *     the component to get the objects needed to run the job from, not null
+   *
+   * @return a new completable that runs the job then completes
+   */
+  @Nonnull
+  public Completable run(@Nonnull HeadlessComponent component);
+}
\ No newline at end of file
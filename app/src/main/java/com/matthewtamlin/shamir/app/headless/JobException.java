@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import javax.annotation.Nullable;
+
+/**
+ * Thrown to indicate that a headless job cannot be completed because its inputs or outputs are unsuitable.
+ */
+public class JobException extends Exception {
+  public JobException() {
+    super();
+  }
+  
+  public JobException(@Nullable final String message) {
+    super(message);
+  }
+  
+  public JobException(@Nullable final String message, @Nullable final Throwable cause) {
+    super(message, cause);
+  }
+  
+  public JobException(@Nullable final Throwable cause) {
+    super(cause);
+  }
+}
\ No newline at end of file
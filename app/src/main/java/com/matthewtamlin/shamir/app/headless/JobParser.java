@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Parses headless jobs from commands. Three commands are supported:
+ * <ul>
+ * <li>{@code create <secret-file> <required-share-count> <total-share-count> <output-directory>}</li>
+ * <li>{@code recover <recovery-scheme-file> <output-directory> <share-file>...}</li>
+ * <li>{@code batch-create <input-directory> <required-share-count> <total-share-count> <output-directory>}</li>
+ * </ul>
+ * A job file contains one command per line. Blank lines and lines starting with {@code #} are ignored, and arguments
+ * containing whitespace can be enclosed in double quotes.
+ */
+public class JobParser {
+  private JobParser() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  /**
+   * Parses a single command.
+   *
+   * @param arguments
+   *     the command name followed by its arguments, not null, not containing null
+   *
+   * @return the job described by the command, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the command is not valid
+   */
+  @Nonnull
+  public static Job parseCommand(@Nonnull final List<String> arguments) {
+    checkNotNull(arguments, "\'arguments\' must not be null.");
+    checkEachElementIsNotNull(arguments, "\'arguments\' must not contain null.");
+    
+    if (arguments.isEmpty()) {
+      throw new IllegalArgumentException("No command specified.");
+    }
+    
+    final String command = arguments.get(0);
+    
+    if (command.equals("create")) {
+      return parseCreationCommand(arguments.subList(1, arguments.size()));
+    }
+    
+    if (command.equals("recover")) {
+      return parseRecoveryCommand(arguments.subList(1, arguments.size()));
+    }
+    
+    if (command.equals("batch-create")) {
+      return parseBatchCreationCommand(arguments.subList(1, arguments.size()));
+    }
+    
+    throw new IllegalArgumentException(format("Unknown command \'%1$s\'.", command));
+  }
+  
+  /**
+   * Parses the lines of a job file.
+   *
+   * @param lines
+   *     the lines of the job file, not null, not containing null
+   *
+   * @return the jobs described by the file, in the same order as the lines, not null
+   *
+   * @throws IllegalArgumentException
+   *     if any line is not a valid command
+   */
+  @Nonnull
+  public static List<Job> parseJobFile(@Nonnull final List<String> lines) {
+    checkNotNull(lines, "\'lines\' must not be null.");
+    checkEachElementIsNotNull(lines, "\'lines\' must not contain null.");
+    
+    final List<Job> jobs = new ArrayList<>();
+    
+    for (int i = 0; i < lines.size(); i++) {
+      final String line = lines.get(i).trim();
+      
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      
+      try {
+        jobs.add(parseCommand(tokenise(line)));
+        
+      } catch (final IllegalArgumentException e) {
+        throw new IllegalArgumentException(format("Line %1$s: %2$s", i + 1, e.getMessage()), e);
+      }
+    }
+    
+    return jobs;
+  }
+  
+  private static Job parseCreationCommand(final List<String> arguments) {
+    if (arguments.size() != 4) {
+      throw new IllegalArgumentException(
+          "Usage: create <secret-file> <required-share-count> <total-share-count> <output-directory>");
+    }
+    
+    return CreationJob.create(
+        new File(arguments.get(0)),
+        parseCount(arguments.get(1)),
+        parseCount(arguments.get(2)),
+        new File(arguments.get(3)));
+  }
+  
+  private static Job parseRecoveryCommand(final List<String> arguments) {
+    if (arguments.size() < 3) {
+      throw new IllegalArgumentException("Usage: recover <recovery-scheme-file> <output-directory> <share-file>...");
+    }
+    
+    final Set<File> shareFiles = new LinkedHashSet<>();
+    
+    for (final String path : arguments.subList(2, arguments.size())) {
+      shareFiles.add(new File(path));
+    }
+    
+    return RecoveryJob.create(shareFiles, new File(arguments.get(0)), new File(arguments.get(1)));
+  }
+  
+  private static Job parseBatchCreationCommand(final List<String> arguments) {
+    if (arguments.size() != 4) {
+      throw new IllegalArgumentException(
+          "Usage: batch-create <input-directory> <required-share-count> <total-share-count> <output-directory>");
+    }
+    
+    return BatchCreationJob.create(
+        new File(arguments.get(0)),
+        parseCount(arguments.get(1)),
+        parseCount(arguments.get(2)),
+        new File(arguments.get(3)));
+  }
+  
+  private static int parseCount(final String count) {
+    try {
+      return Integer.parseInt(count);
+      
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(format("\'%1$s\' is not a valid share count.", count), e);
+    }
+  }
+  
+  private static List<String> tokenise(final String line) {
+    final List<String> tokens = new ArrayList<>();
+    final StringBuilder token = new StringBuilder();
+    
+    boolean inQuotes = false;
+    boolean inToken = false;
+    
+    for (final char c : line.toCharArray()) {
+      if (c == '"') {
+        inQuotes = !inQuotes;
+        inToken = true;
+        
+      } else if (Character.isWhitespace(c) && !inQuotes) {
+        if (inToken) {
+          tokens.add(token.toString());
+          token.setLength(0);
+          inToken = false;
+        }
+        
+      } else {
+        token.append(c);
+        inToken = true;
+      }
+    }
+    
+    if (inQuotes) {
+      throw new IllegalArgumentException("Unterminated quote.");
+    }
+    
+    if (inToken) {
+      tokens.add(token.toString());
+    }
+    
+    return tokens;
+  }
+}
\ No newline at end of file
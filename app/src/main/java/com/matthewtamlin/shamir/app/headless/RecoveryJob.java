@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.auto.value.AutoValue;
+import io.reactivex.Completable;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A job which recovers a secret from share files and a recovery scheme file, and saves the secret to a directory.
+ */
+@AutoValue
+public abstract class RecoveryJob implements Job {
+  public abstract Set<File> getShareFiles();
+  
+  public abstract File getRecoverySchemeFile();
+  
+  public abstract File getOutputDirectory();
+  
+  @Nonnull
+  @Override
+  public Completable run(@Nonnull final HeadlessComponent component) {
+    checkNotNull(component, "\'component\' must not be null.");
+    
+    return component.getSecretRecoverer().recoverSecret(this);
+  }
+  
+  /**
+   * Creates a new RecoveryJob.
+   *
+   * @param shareFiles
+   *     the files containing the shares, not null, not empty, not containing null
+   * @param recoverySchemeFile
+   *     the file containing the recovery scheme, not null
+   * @param outputDirectory
+   *     the directory to save the recovered secret to, not null
+   *
+   * @return the new job, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code shareFiles} is empty
+   */
+  @Nonnull
+  public static RecoveryJob create(
+      @Nonnull final Set<File> shareFiles,
+      @Nonnull final File recoverySchemeFile,
+      @Nonnull final File outputDirectory) {
+    
+    checkNotNull(shareFiles, "\'shareFiles\' must not be null.");
+    checkEachElementIsNotNull(shareFiles, "\'shareFiles\' must not contain null.");
+    checkNotNull(recoverySchemeFile, "\'recoverySchemeFile\' must not be null.");
+    checkNotNull(outputDirectory, "\'outputDirectory\' must not be null.");
+    
+    if (shareFiles.isEmpty()) {
+      throw new IllegalArgumentException("\'shareFiles\' must not be empty.");
+    }
+    
+    return new AutoValue_RecoveryJob(
+        Collections.unmodifiableSet(new LinkedHashSet<>(shareFiles)),
+        recoverySchemeFile,
+        outputDirectory);
+  }
+}
\ No newline at end of file
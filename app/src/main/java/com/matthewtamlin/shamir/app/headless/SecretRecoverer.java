@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.matthewtamlin.shamir.app.files.RxFiles;
+import com.matthewtamlin.shamir.app.secretsharing.BlockShamir;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.app.secretsharing.recovery.PersistenceOperations;
+import com.matthewtamlin.shamir.app.secretsharing.recovery.ShareLoader;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Runs recovery jobs without a user interface. Each job is validated the same way as a request in the app: the share
+ * files and the recovery scheme file must exist, and the output directory is created if necessary and must not
+ * already contain a recovered secret. Only as many shares as the recovery scheme requires are loaded.
+ */
+public class SecretRecoverer {
+  private final BlockShamir blockShamir;
+  
+  private final PersistenceOperations persistenceOperations;
+  
+  private final ShareLoader shareLoader;
+  
+  private final RxFiles rxFiles;
+  
+  public SecretRecoverer(
+      @Nonnull final RxShamir rxShamir,
+      @Nonnull final SecretEncoder secretEncoder,
+      @Nonnull final PersistenceOperations persistenceOperations,
+      @Nonnull final ShareLoader shareLoader,
+      @Nonnull final RxFiles rxFiles) {
+    
+    this.blockShamir = new BlockShamir(
+        checkNotNull(rxShamir, "\'rxShamir\' must not be null."),
+        checkNotNull(secretEncoder, "\'secretEncoder\' must not be null."));
+    this.persistenceOperations = checkNotNull(persistenceOperations, "\'persistenceOperations\' must not be null.");
+    this.shareLoader = checkNotNull(shareLoader, "\'shareLoader\' must not be null.");
+    this.rxFiles = checkNotNull(rxFiles, "\'rxFiles\' must not be null.");
+  }
+  
+  /**
+   * Recovers the secret from the job's share files and recovery scheme file, and saves it to the job's output
+   * directory. The operation fails with a {@link JobException} if any input file or the output directory is
+   * unsuitable, or if the share files do not contain enough valid shares.
+   * <p>
+   * The returned completable does not operate by default on a particular scheduler.
+   *
+   * @param job
+   *     the job to run, not null
+   *
+   * @return a new completable that recovers and saves the secret then completes
+   */
+  @Nonnull
+  public Completable recoverSecret(@Nonnull final RecoveryJob job) {
+    checkNotNull(job, "\'job\' must not be null.");
+    
+    return checkFilesExist(job.getShareFiles(), "Share")
+        .andThen(checkFileExists(job.getRecoverySchemeFile(), "Recovery scheme"))
+        .andThen(prepareOutputDirectory(job.getOutputDirectory()))
+        .andThen(persistenceOperations.loadRecoverySchemeFromFile(job.getRecoverySchemeFile()))
+        .flatMap(recoveryScheme -> recoverSecret(job.getShareFiles(), recoveryScheme))
+        .flatMapCompletable(secret -> saveSecret(secret, job.getOutputDirectory()));
+  }
+  
+  private Completable checkFilesExist(final Set<File> files, final String description) {
+    return Observable
+        .fromIterable(files)
+        .flatMapCompletable(file -> checkFileExists(file, description));
+  }
+  
+  private Completable checkFileExists(final File file, final String description) {
+    return rxFiles
+        .exists(file)
+        .flatMapCompletable(exists -> exists ?
+            Completable.complete() :
+            Completable.error(new JobException(format("%1$s file \'%2$s\' does not exist.", description, file))));
+  }
+  
+  private Completable prepareOutputDirectory(final File outputDirectory) {
+    return rxFiles
+        .exists(outputDirectory)
+        .flatMapCompletable(exists -> exists ? Completable.complete() : rxFiles.createDirectory(outputDirectory))
+        .andThen(persistenceOperations.directoryContainsRecoveredSecretFile(outputDirectory))
+        .flatMapCompletable(containsSecret -> containsSecret ?
+            Completable.error(new JobException(format(
+                "Output directory \'%1$s\' already contains a recovered secret.",
+                outputDirectory))) :
+            Completable.complete());
+  }
+  
+  private Single<byte[]> recoverSecret(final Set<File> shareFiles, final RecoveryScheme recoveryScheme) {
+    return shareLoader
+        .loadShareBlocks(shareFiles, recoveryScheme.getRequiredShareCount())
+        .flatMap(shareBlocks -> {
+          // Every block has a share from each loaded file, so the first block shows how many shares were found
+          final int shareCount = shareBlocks.isEmpty() ? 0 : shareBlocks.get(0).size();
+          
+          return shareCount < recoveryScheme.getRequiredShareCount() ?
+              Single.error(new JobException(format(
+                  "Found %1$s valid shares but %2$s are required.",
+                  shareCount,
+                  recoveryScheme.getRequiredShareCount()))) :
+              blockShamir.recoverSecret(shareBlocks, recoveryScheme);
+        });
+  }
+  
+  private Completable saveSecret(final byte[] secret, final File outputDirectory) {
+    return persistenceOperations
+        .defineNewRecoveredSecretFile(outputDirectory)
+        .flatMapCompletable(file -> rxFiles
+            .createNewFile(file)
+            .andThen(rxFiles
+                .writeBytesToFile(secret, file)
+                .onErrorResumeNext(error -> rxFiles.delete(file).andThen(Completable.error(error)))));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.common.collect.ImmutableMap;
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
+import com.matthewtamlin.shamir.app.files.RxFiles;
+import com.matthewtamlin.shamir.app.secretsharing.BlockShamir;
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.creation.OffHeapShareStore;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PersistenceOperations;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
+import com.matthewtamlin.shamir.commonslibrary.util.Pair;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Runs creation jobs without a user interface. Each job is validated the same way as a request in the app: the secret
+ * file must exist and be small enough to share, and the output directory is created if necessary and must not
+ * already contain shares or a recovery scheme.
+ * <p>
+ * Jobs with a large total share count keep their shares in a memory-mapped {@link OffHeapShareStore} between
+ * creation and persistence, and write them out in chunks, so the heap usage of a job does not grow with its size.
+ * <p>
+ * Secrets too long to share as a single value are shared as blocks with the prime of the crypto constants, and each
+ * holder's shares are saved to one bundle file. The shares of every block are kept in a memory-mapped store, and each
+ * holder's shares are only read back onto the heap while their bundle is written.
+ */
+public class ShareCreator {
+  /**
+   * The default total share count at which shares are held off the heap rather than in memory.
+   */
+  public static final int DEFAULT_OFF_HEAP_SHARE_THRESHOLD = 1 << 14;
+  
+  /**
+   * The number of shares written out at once when shares are held off the heap.
+   */
+  private static final int WRITE_CHUNK_SIZE = 1024;
+  
+  private final RxShamir rxShamir;
+  
+  private final CryptoConstants cryptoConstants;
+  
+  private final SecretEncoder secretEncoder;
+  
+  private final BlockShamir blockShamir;
+  
+  private final PersistenceOperations persistenceOperations;
+  
+  private final RxFiles rxFiles;
+  
+  private final ConcurrentFileWriter concurrentFileWriter;
+  
+  private final int offHeapShareThreshold;
+  
+  public ShareCreator(
+      @Nonnull final RxShamir rxShamir,
+      @Nonnull final CryptoConstants cryptoConstants,
+      @Nonnull final SecretEncoder secretEncoder,
+      @Nonnull final PersistenceOperations persistenceOperations,
+      @Nonnull final RxFiles rxFiles,
+      @Nonnull final ConcurrentFileWriter concurrentFileWriter) {
+    
+    this(
+        rxShamir,
+        cryptoConstants,
+        secretEncoder,
+        persistenceOperations,
+        rxFiles,
+        concurrentFileWriter,
+        DEFAULT_OFF_HEAP_SHARE_THRESHOLD);
+  }
+  
+  public ShareCreator(
+      @Nonnull final RxShamir rxShamir,
+      @Nonnull final CryptoConstants cryptoConstants,
+      @Nonnull final SecretEncoder secretEncoder,
+      @Nonnull final PersistenceOperations persistenceOperations,
+      @Nonnull final RxFiles rxFiles,
+      @Nonnull final ConcurrentFileWriter concurrentFileWriter,
+      final int offHeapShareThreshold) {
+    
+    this.rxShamir = checkNotNull(rxShamir, "\'rxShamir\' must not be null.");
+    this.cryptoConstants = checkNotNull(cryptoConstants, "\'cryptoConstants\' must not be null.");
+    this.secretEncoder = checkNotNull(secretEncoder, "\'secretEncoder\' must not be null.");
+    this.blockShamir = new BlockShamir(rxShamir, secretEncoder);
+    this.persistenceOperations = checkNotNull(persistenceOperations, "\'persistenceOperations\' must not be null.");
+    this.rxFiles = checkNotNull(rxFiles, "\'rxFiles\' must not be null.");
+    this.concurrentFileWriter = checkNotNull(concurrentFileWriter, "\'concurrentFileWriter\' must not be null.");
+    
+    if (offHeapShareThreshold <= 0) {
+      throw new IllegalArgumentException("\'offHeapShareThreshold\' must be greater than zero.");
+    }
+    
+    this.offHeapShareThreshold = offHeapShareThreshold;
+  }
+  
+  /**
+   * Splits the secret in the job's secret file into shares, and saves the shares and the recovery scheme to the job's
+   * output directory. The operation fails with a {@link JobException} if the secret file or the output directory is
+   * unsuitable.
+   * <p>
+   * The returned completable does not operate by default on a particular scheduler.
+   *
+   * @param job
+   *     the job to run, not null
+   *
+   * @return a new completable that creates and saves the shares then completes
+   */
+  @Nonnull
+  public Completable createShares(@Nonnull final CreationJob job) {
+    checkNotNull(job, "\'job\' must not be null.");
+    
+    return checkSecretFile(job.getSecretFile())
+        .andThen(prepareOutputDirectory(job.getOutputDirectory()))
+        .andThen(rxFiles.readBytesFromFile(job.getSecretFile()))
+        .flatMapCompletable(secret -> secret.length > SecretEncoder.getMaxBlockSizeBytes(cryptoConstants.getPrime()) ?
+            saveShareBlocks(job, secret) :
+            secretEncoder.encodeSecret(secret).flatMapCompletable(encodedSecret -> saveShares(job, encodedSecret)));
+  }
+  
+  private Completable checkSecretFile(final File secretFile) {
+    return rxFiles
+        .exists(secretFile)
+        .flatMapCompletable(exists -> {
+          if (!exists) {
+            return Completable.error(new JobException(format("Secret file \'%1$s\' does not exist.", secretFile)));
+          }
+          
+          return rxFiles
+              .sizeInBytes(secretFile)
+              .flatMapCompletable(size -> size <= cryptoConstants.getMaxFileSizeBytes() ?
+                  Completable.complete() :
+                  Completable.error(new JobException(format(
+                      "Secret file \'%1$s\' is larger than %2$s bytes.",
+                      secretFile,
+                      cryptoConstants.getMaxFileSizeBytes()))));
+        });
+  }
+  
+  private Completable prepareOutputDirectory(final File outputDirectory) {
+    final Completable createIfMissing = rxFiles
+        .exists(outputDirectory)
+        .flatMapCompletable(exists -> exists ? Completable.complete() : rxFiles.createDirectory(outputDirectory));
+    
+    final Single<Boolean> isClean = Single.zip(
+        persistenceOperations.directoryContainsShareFiles(outputDirectory),
+        persistenceOperations.directoryContainsRecoverySchemeFiles(outputDirectory),
+        (containsShares, containsRecoveryScheme) -> !containsShares && !containsRecoveryScheme);
+    
+    return createIfMissing
+        .andThen(isClean)
+        .flatMapCompletable(clean -> clean ?
+            Completable.complete() :
+            Completable.error(new JobException(format(
+                "Output directory \'%1$s\' already contains shares or a recovery scheme.",
+                outputDirectory))));
+  }
+  
+  private Completable saveShares(final CreationJob job, final BigInteger secret) {
+    final File outputDirectory = job.getOutputDirectory();
+    final BigInteger prime = cryptoConstants.selectPrime(secret, job.getTotalShareCount());
+    
+    final CreationScheme creationScheme = CreationScheme
+        .builder()
+        .setRequiredShareCount(job.getRequiredShareCount())
+        .setTotalShareCount(job.getTotalShareCount())
+        .setPrime(prime)
+        .build();
+    
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(job.getRequiredShareCount())
+        .setPrime(prime)
+        .build();
+    
+    return createRecoverySchemeWrite(outputDirectory, recoveryScheme)
+        .flatMapCompletable(recoverySchemeWrite -> job.getTotalShareCount() < offHeapShareThreshold ?
+            writeShares(
+                rxShamir.createShares(secret, creationScheme).map(Collections::singletonList),
+                outputDirectory,
+                recoverySchemeWrite) :
+            writeSharesThroughStore(secret, creationScheme, outputDirectory, recoverySchemeWrite));
+  }
+  
+  private Completable saveShareBlocks(final CreationJob job, final byte[] secret) {
+    final File outputDirectory = job.getOutputDirectory();
+    final BigInteger prime = cryptoConstants.getPrime();
+    
+    final CreationScheme creationScheme = CreationScheme
+        .builder()
+        .setRequiredShareCount(job.getRequiredShareCount())
+        .setTotalShareCount(job.getTotalShareCount())
+        .setPrime(prime)
+        .build();
+    
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(job.getRequiredShareCount())
+        .setPrime(prime)
+        .build();
+    
+    return Completable.using(
+        () -> OffHeapShareStore.createMapped(null, ShareBatch.getValueWidth(prime)),
+        store -> createRecoverySchemeWrite(outputDirectory, recoveryScheme)
+            .flatMapCompletable(recoverySchemeWrite -> writeShares(
+                blockShamir
+                    .createShares(secret, creationScheme, store::appendBatch)
+                    .flattenAsObservable(holders -> holders),
+                outputDirectory,
+                recoverySchemeWrite)),
+        OffHeapShareStore::close);
+  }
+  
+  /**
+   * Creates the recovery scheme file and defines the write which saves the recovery scheme to it. The write is made
+   * in the same batch as the shares so that they are committed together.
+   */
+  private Single<Map<File, Function<File, Completable>>> createRecoverySchemeWrite(
+      final File outputDirectory,
+      final RecoveryScheme recoveryScheme) {
+    
+    return persistenceOperations
+        .defineNewRecoverySchemeFile(outputDirectory)
+        .flatMap(file -> rxFiles
+            .createNewFile(file)
+            .toSingle(() -> file))
+        .map(file -> ImmutableMap.<File, Function<File, Completable>>of(
+            file,
+            target -> persistenceOperations.saveRecoverySchemeToFile(recoveryScheme, target)));
+  }
+  
+  /**
+   * Creates a file for each holder then writes every holder's shares, along with the other writes, as a single batch.
+   * A holder with one share gets a share file, and a holder with a share of each block gets a bundle file named after
+   * the index the shares have in common. Each holder's shares are only read when their write starts, so lists which
+   * read shares from a store on demand are not all read at once.
+   */
+  private Completable writeShares(
+      final Observable<List<Share>> holders,
+      final File outputDirectory,
+      final Map<File, Function<File, Completable>> otherWrites) {
+    
+    return holders
+        .flatMapSingle(holderShares -> persistenceOperations
+            .defineNewShareFile(holderShares.get(0), outputDirectory)
+            .flatMap(file -> rxFiles
+                .createNewFile(file)
+                .toSingle(() -> Pair.create(holderShares, file))))
+        .collect(
+            () -> new HashMap<File, Function<File, Completable>>(otherWrites),
+            (map, pair) -> map.put(pair.getValue(), file -> Completable.defer(() -> pair.getKey().size() == 1 ?
+                persistenceOperations.saveShareToFile(pair.getKey().get(0), file) :
+                persistenceOperations.saveShareBundleToFile(pair.getKey(), file))))
+        .flatMapCompletable(concurrentFileWriter::writeAll);
+  }
+  
+  /**
+   * Creates the shares directly in a segment of a mapped store, then writes the shares out one chunk at a time. The
+   * other writes are included in the batch of the last chunk, so they are only committed once every share has been
+   * written.
+   */
+  private Completable writeSharesThroughStore(
+      final BigInteger secret,
+      final CreationScheme creationScheme,
+      final File outputDirectory,
+      final Map<File, Function<File, Completable>> otherWrites) {
+    
+    return Completable.using(
+        () -> OffHeapShareStore.createMapped(null, ShareBatch.getValueWidth(creationScheme.getPrime())),
+        store -> Single
+            .fromCallable(() -> store.appendBatch(creationScheme.getTotalShareCount()))
+            .flatMapCompletable(batch -> rxShamir.createSharesInto(secret, creationScheme, batch))
+            .andThen(Completable.defer(() -> {
+              final long chunkCount = (store.size() + WRITE_CHUNK_SIZE - 1) / WRITE_CHUNK_SIZE;
+              
+              return store
+                  .readChunks(WRITE_CHUNK_SIZE)
+                  .zipWith(Flowable.rangeLong(1, chunkCount), Pair::create)
+                  .concatMap(chunk -> writeShares(
+                      Observable.fromIterable(chunk.getKey()).map(Collections::singletonList),
+                      outputDirectory,
+                      chunk.getValue() == chunkCount ?
+                          otherWrites :
+                          Collections.<File, Function<File, Completable>>emptyMap())
+                      .toFlowable())
+                  .ignoreElements();
+            })),
+        OffHeapShareStore::close);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.rxutilities;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated schedulers which are shared by the whole process, so that creating several components never creates
+ * several thread pools. Each scheduler is created the first time it is used. Its threads are daemon threads, so they
+ * never keep the process alive, and idle threads exit after a minute, so a scheduler which is not in use holds no
+ * threads.
+ */
+public final class SharedSchedulers {
+  private static final int FILE_WRITER_THREAD_COUNT = 16;
+  
+  private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+  
+  private SharedSchedulers() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  /**
+   * @return the scheduler for writing files, backed by a pool of 16 threads, not null
+   */
+  @Nonnull
+  public static Scheduler fileWriter() {
+    return FileWriterHolder.SCHEDULER;
+  }
+  
+  private static Scheduler createScheduler(final int threadCount, final String threadName) {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        threadCount,
+        threadCount,
+        IDLE_THREAD_TIMEOUT_SECONDS,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        runnable -> {
+          final Thread thread = new Thread(runnable, threadName);
+          thread.setDaemon(true);
+          return thread;
+        });
+    
+    executor.allowCoreThreadTimeOut(true);
+    
+    return Schedulers.from(executor);
+  }
+  
+  private static class FileWriterHolder {
+    private static final Scheduler SCHEDULER = createScheduler(FILE_WRITER_THREAD_COUNT, "file-writer");
+  }
+}
\ No newline at end of file
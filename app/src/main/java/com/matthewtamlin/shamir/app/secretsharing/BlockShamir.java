@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.matthewtamlin.shamir.app.secretsharing;
+
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Shares secrets of any length, by encoding them with a {@link SecretEncoder} and sharing the encoded values with an
+ * {@link RxShamir}. A secret which encodes to a single value less than the prime is shared as that value, so its shares
+ * are the same as they were before secrets could be split. A larger secret is encoded as a sequence of blocks, and
+ * every block is shared with the same scheme, so each holder receives one share per block and all of a holder's shares
+ * have the same index.
+ * <p>
+ * The shares of each block are added to a {@link ShareBatch} as they are created, so the values can be held outside
+ * the heap, and a holder's shares are only created as {@link Share} objects when the holder's list is read. This keeps
+ * the heap usage of a long secret to roughly one holder's shares per list being read, rather than every share of every
+ * block.
+ */
+public class BlockShamir {
+  private final RxShamir rxShamir;
+  
+  private final SecretEncoder secretEncoder;
+  
+  public BlockShamir(@Nonnull final RxShamir rxShamir, @Nonnull final SecretEncoder secretEncoder) {
+    this.rxShamir = checkNotNull(rxShamir, "\'rxShamir\' must not be null.");
+    this.secretEncoder = checkNotNull(secretEncoder, "\'secretEncoder\' must not be null.");
+  }
+  
+  /**
+   * Splits a secret into shares, holding the shares of each block in a direct {@link ShareBatch}. See
+   * {@link #createShares(byte[], CreationScheme, Function)}.
+   *
+   * @param secret
+   *     the secret to share, not null
+   * @param creationScheme
+   *     the sharing configuration, not null
+   *
+   * @return a new single which emits the group of shares for each holder, in order of index
+   */
+  @Nonnull
+  public Single<List<List<Share>>> createShares(
+      @Nonnull final byte[] secret,
+      @Nonnull final CreationScheme creationScheme) {
+    
+    checkNotNull(creationScheme, "\'creationScheme\' must not be null.");
+    
+    final int valueWidth = ShareBatch.getValueWidth(creationScheme.getPrime());
+    
+    return createShares(secret, creationScheme, capacity -> ShareBatch.allocateDirect(capacity, valueWidth));
+  }
+  
+  /**
+   * Splits a secret into shares. The shares are grouped by holder, and each group contains the holder's share of every
+   * block in block order. A secret which is shared as a single value therefore gives a group of one share per holder.
+   * <p>
+   * The shares of each block of a longer secret are added to a new batch from {@code batchFactory}, which receives the
+   * number of shares in a block and must return an empty batch with room for them and a sufficient value width. The
+   * groups are read-only views of the batches which create each share as it is accessed, so the batches must remain
+   * usable for as long as the groups are read.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param secret
+   *     the secret to share, not null
+   * @param creationScheme
+   *     the sharing configuration, not null
+   * @param batchFactory
+   *     creates the batch for each block, not null
+   *
+   * @return a new single which emits the group of shares for each holder, in order of index
+   */
+  @Nonnull
+  public Single<List<List<Share>>> createShares(
+      @Nonnull final byte[] secret,
+      @Nonnull final CreationScheme creationScheme,
+      @Nonnull final Function<Integer, ShareBatch> batchFactory) {
+    
+    checkNotNull(secret, "\'secret\' must not be null.");
+    checkNotNull(creationScheme, "\'creationScheme\' must not be null.");
+    checkNotNull(batchFactory, "\'batchFactory\' must not be null.");
+    
+    final BigInteger prime = creationScheme.getPrime();
+    
+    final Single<List<List<Share>>> blockShares = Single.defer(() -> createBlockShares(
+        secret,
+        creationScheme,
+        batchFactory));
+    
+    // The framed secret is at least 2^(8 * length), so a secret this long cannot be less than the prime
+    if ((long) secret.length * Byte.SIZE >= prime.bitLength()) {
+      return blockShares;
+    }
+    
+    return secretEncoder
+        .encodeSecret(secret)
+        .flatMap(encodedSecret -> encodedSecret.compareTo(prime) < 0 ?
+            rxShamir
+                .createShares(encodedSecret, creationScheme)
+                .map(Collections::singletonList)
+                .toSortedList((first, second) -> first.get(0).getIndex().compareTo(second.get(0).getIndex())) :
+            blockShares);
+  }
+  
+  /**
+   * Recovers a secret from the shares of each block. A single block is decoded as a secret which was shared as a single
+   * value. The operation fails with an {@link IllegalStateException} if there are no blocks, if the shares of any block
+   * are not suitable for the recovery scheme, or if any recovered block is not framed correctly.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param shareBlocks
+   *     the shares of each block in block order, not null, not containing null
+   * @param recoveryScheme
+   *     the recovery configuration, not null
+   *
+   * @return a new single which emits the recovered secret
+   */
+  @Nonnull
+  public Single<byte[]> recoverSecret(
+      @Nonnull final List<Set<Share>> shareBlocks,
+      @Nonnull final RecoveryScheme recoveryScheme) {
+    
+    checkNotNull(shareBlocks, "\'shareBlocks\' must not be null.");
+    checkEachElementIsNotNull(shareBlocks, "\'shareBlocks\' must not contain null.");
+    checkNotNull(recoveryScheme, "\'recoveryScheme\' must not be null.");
+    
+    if (shareBlocks.isEmpty()) {
+      return Single.error(new IllegalStateException("There are no shares to recover the secret from."));
+    }
+    
+    if (shareBlocks.size() == 1) {
+      return rxShamir
+          .recoverSecret(shareBlocks.get(0), recoveryScheme)
+          .flatMap(secretEncoder::decodeSecret);
+    }
+    
+    final Flowable<BigInteger> blocks = Flowable
+        .fromIterable(shareBlocks)
+        .concatMap(shares -> rxShamir.recoverSecret(shares, recoveryScheme).toFlowable());
+    
+    return secretEncoder
+        .decodeSecretBlocks(blocks)
+        .collect(ByteArrayOutputStream::new, ByteArrayOutputStream::write)
+        .map(ByteArrayOutputStream::toByteArray);
+  }
+  
+  private Single<List<List<Share>>> createBlockShares(
+      final byte[] secret,
+      final CreationScheme creationScheme,
+      final Function<Integer, ShareBatch> batchFactory) {
+    
+    return secretEncoder
+        .encodeSecretBlocks(secret, creationScheme.getPrime())
+        .concatMap(block -> Single
+            .fromCallable(() -> batchFactory.apply(creationScheme.getTotalShareCount()))
+            .flatMap(batch -> rxShamir
+                .createSharesInto(block, creationScheme, batch)
+                .toSingleDefault(batch))
+            .toFlowable())
+        .toList()
+        .map(batches -> new HolderList(batches, creationScheme.getTotalShareCount()));
+  }
+  
+  /**
+   * Views the batches of every block as a list of holders. The shares of each block are added to its batch in order
+   * of index, so a holder's shares are at the same position in every batch.
+   */
+  private static class HolderList extends AbstractList<List<Share>> {
+    private final List<ShareBatch> batches;
+    
+    private final int holderCount;
+    
+    private HolderList(final List<ShareBatch> batches, final int holderCount) {
+      this.batches = batches;
+      this.holderCount = holderCount;
+    }
+    
+    @Override
+    public List<Share> get(final int holder) {
+      if (holder < 0 || holder >= holderCount) {
+        throw new IndexOutOfBoundsException(format("No holder at position %1$s.", holder));
+      }
+      
+      return new AbstractList<Share>() {
+        @Override
+        public Share get(final int block) {
+          return batches.get(block).getShare(holder);
+        }
+        
+        @Override
+        public int size() {
+          return batches.size();
+        }
+      };
+    }
+    
+    @Override
+    public int size() {
+      return holderCount;
+    }
+  }
+}
\ No newline at end of file
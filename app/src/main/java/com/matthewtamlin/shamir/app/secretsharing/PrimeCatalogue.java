@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.math.BigInteger.ONE;
+
+/**
+ * A catalogue of well-known primes at standard bit lengths, which allows the smallest prime that suits a secret to be
+ * used instead of always using the largest. Smaller primes make every share smaller and every operation faster. Each
+ * prime has a short ID, so that serialised schemes can refer to a catalogued prime instead of containing it.
+ * <p>
+ * The catalogue contains the Mersenne primes 2^127 - 1 and 2^521 - 1, the prime 2^255 - 19 (from Curve25519), the
+ * 1024 bit prime of the second Oakley group (RFC 2409), the 2048 and 3072 bit primes of the MODP groups (RFC 3526),
+ * and the 4096 bit prime used by the app since its first release.
+ */
+public class PrimeCatalogue {
+  private static final BigInteger MERSENNE_127 = ONE.shiftLeft(127).subtract(ONE);
+  
+  private static final BigInteger CURVE_25519 = ONE.shiftLeft(255).subtract(BigInteger.valueOf(19));
+  
+  private static final BigInteger MERSENNE_521 = ONE.shiftLeft(521).subtract(ONE);
+  
+  private static final BigInteger OAKLEY_1024 = new BigInteger(
+      "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74020BBEA63B139B22514A08798E3404DDEF9519B3" +
+      "CD3A431B302B0A6DF25F14374FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7EDEE386BFB5A899FA5" +
+      "AE9F24117C4B1FE649286651ECE65381FFFFFFFFFFFFFFFF",
+      16);
+  
+  private static final BigInteger MODP_2048 = new BigInteger(
+      "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74020BBEA63B139B22514A08798E3404DDEF9519B3" +
+      "CD3A431B302B0A6DF25F14374FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7EDEE386BFB5A899FA5" +
+      "AE9F24117C4B1FE649286651ECE45B3DC2007CB8A163BF0598DA48361C55D39A69163FA8FD24CF5F83655D23DCA3AD961C62F356" +
+      "208552BB9ED529077096966D670C354E4ABC9804F1746C08CA18217C32905E462E36CE3BE39E772C180E86039B2783A2EC07A28F" +
+      "B5C55DF06F4C52C9DE2BCBF6955817183995497CEA956AE515D2261898FA051015728E5A8AACAA68FFFFFFFFFFFFFFFF",
+      16);
+  
+  private static final BigInteger MODP_3072 = new BigInteger(
+      "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74020BBEA63B139B22514A08798E3404DDEF9519B3" +
+      "CD3A431B302B0A6DF25F14374FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7EDEE386BFB5A899FA5" +
+      "AE9F24117C4B1FE649286651ECE45B3DC2007CB8A163BF0598DA48361C55D39A69163FA8FD24CF5F83655D23DCA3AD961C62F356" +
+      "208552BB9ED529077096966D670C354E4ABC9804F1746C08CA18217C32905E462E36CE3BE39E772C180E86039B2783A2EC07A28F" +
+      "B5C55DF06F4C52C9DE2BCBF6955817183995497CEA956AE515D2261898FA051015728E5A8AAAC42DAD33170D04507A33A85521AB" +
+      "DF1CBA64ECFB850458DBEF0A8AEA71575D060C7DB3970F85A6E1E4C7ABF5AE8CDB0933D71E8C94E04A25619DCEE3D2261AD2EE6B" +
+      "F12FFA06D98A0864D87602733EC86A64521F2B18177B200CBBE117577A615D6C770988C0BAD946E208E24FA074E5AB3143DB5BFC" +
+      "E0FD108E4B82D120A93AD2CAFFFFFFFFFFFFFFFF",
+      16);
+  
+  private static final BigInteger SHAMIR_4096 = new BigInteger(
+      "831426846410154605386922901726808670880783103996883772230399966068386871907041816489060005" +
+      "27799288728855880111103377007922967366161011597498072387315104504855641800875825141399655351374242211" +
+      "02640655880680115748995410017045951348022716465674400664240682989080942842040331300731868850831823212" +
+      "97176247422905505876644242586681485091495201732838184079148765801093563549632370787548898672178085941" +
+      "48931910213313072454114172034721028874167039083069192484620215858208438664130153913817224353255594640" +
+      "39059904225725188761608908718490445613910044707300816838520494549724473799877085897105174794579281260" +
+      "89055308747182507684423837176668262585656715744728730335208351405109459528795218416475284753503568524" +
+      "53009173059514706648174101429185314963398066638155251028889786831567575124977146088137897074060865756" +
+      "50084719656546172913917915730123417159335007310843071961069197533573160243595281569561571985956991252" +
+      "63379118887495039169420827396890031942183480242704937111215690501814534768777771783720131912867854978" +
+      "76526331081457059933987997910714583229222312327587635958740461519260782362303706434716587523748907865" +
+      "20735904007315131394404101606911181117420995892696727406577923082177709569281057231604329943024228305" +
+      "41364818201423822419315834566813");
+  
+  /**
+   * The ID of the prime used by {@link com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants} by
+   * default.
+   */
+  public static final String DEFAULT_PRIME_ID = "shamir-4096";
+  
+  /**
+   * The primes in ascending order, keyed by ID.
+   */
+  private static final Map<String, BigInteger> PRIMES_BY_ID = ImmutableMap
+      .<String, BigInteger>builder()
+      .put("mersenne-127", MERSENNE_127)
+      .put("curve25519-255", CURVE_25519)
+      .put("mersenne-521", MERSENNE_521)
+      .put("rfc2409-1024", OAKLEY_1024)
+      .put("rfc3526-2048", MODP_2048)
+      .put("rfc3526-3072", MODP_3072)
+      .put(DEFAULT_PRIME_ID, SHAMIR_4096)
+      .build();
+  
+  private static final Map<BigInteger, String> IDS_BY_PRIME = ImmutableMap.copyOf(
+      PRIMES_BY_ID
+          .entrySet()
+          .stream()
+          .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey)));
+  
+  private static final List<BigInteger> PRIMES = ImmutableList.copyOf(PRIMES_BY_ID.values());
+  
+  private PrimeCatalogue() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  /**
+   * @return every prime in the catalogue in ascending order, not null
+   */
+  @Nonnull
+  public static List<BigInteger> getPrimes() {
+    return PRIMES;
+  }
+  
+  /**
+   * Looks up a prime by ID. The same instance is returned for every lookup of the same ID.
+   *
+   * @param id
+   *     the ID of the prime, not null
+   *
+   * @return the prime, or null if the catalogue does not contain a prime with the ID
+   */
+  @Nullable
+  public static BigInteger getPrime(@Nonnull final String id) {
+    checkNotNull(id, "\'id\' must not be null.");
+    
+    return PRIMES_BY_ID.get(id);
+  }
+  
+  /**
+   * Looks up the ID of a prime.
+   *
+   * @param prime
+   *     the prime, not null
+   *
+   * @return the ID of the prime, or null if the catalogue does not contain the prime
+   */
+  @Nullable
+  public static String getId(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    return IDS_BY_PRIME.get(prime);
+  }
+  
+  /**
+   * Replaces a prime with the equal instance from the catalogue, if there is one. Interning primes as they are loaded
+   * means every scheme which uses a catalogued prime shares one instance, so repeated copies of large primes are not
+   * kept in memory and comparisons between them short-circuit on identity.
+   *
+   * @param prime
+   *     the prime to intern, not null
+   *
+   * @return the catalogued instance of the prime, or the prime itself if it is not in the catalogue, not null
+   */
+  @Nonnull
+  public static BigInteger intern(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    final String id = IDS_BY_PRIME.get(prime);
+    
+    return id != null ? PRIMES_BY_ID.get(id) : prime;
+  }
+  
+  /**
+   * Finds the smallest prime in the catalogue which is greater than a value.
+   *
+   * @param value
+   *     the value the prime must exceed, not null
+   *
+   * @return the smallest prime greater than the value, or null if the value is not less than every prime
+   */
+  @Nullable
+  public static BigInteger findSmallestPrimeGreaterThan(@Nonnull final BigInteger value) {
+    checkNotNull(value, "\'value\' must not be null.");
+    
+    for (final BigInteger prime : PRIMES) {
+      if (prime.compareTo(value) > 0) {
+        return prime;
+      }
+    }
+    
+    return null;
+  }
+}
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.creation;
 
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
 import com.matthewtamlin.shamir.app.files.RxFilePicker;
 import com.matthewtamlin.shamir.app.files.RxFiles;
 import com.matthewtamlin.shamir.app.resources.Resources;
@@ -31,7 +32,6 @@ import io.reactivex.rxjavafx.schedulers.JavaFxScheduler;
 import io.reactivex.schedulers.Schedulers;
 
 import javax.inject.Named;
-import java.math.BigInteger;
 
 @Module
 public class CreationModule {
@@ -68,24 +68,7 @@ public class CreationModule {
   @Provides
   @SecretSharingScope
   public CryptoConstants provideCryptoConstants() {
-    return CryptoConstants
-        .builder()
-        .setMaxFileSizeBytes(510)
-        .setPrime(
-            new BigInteger("831426846410154605386922901726808670880783103996883772230399966068386871907041816489060005" +
-                "27799288728855880111103377007922967366161011597498072387315104504855641800875825141399655351374242211" +
-                "02640655880680115748995410017045951348022716465674400664240682989080942842040331300731868850831823212" +
-                "97176247422905505876644242586681485091495201732838184079148765801093563549632370787548898672178085941" +
-                "48931910213313072454114172034721028874167039083069192484620215858208438664130153913817224353255594640" +
-                "39059904225725188761608908718490445613910044707300816838520494549724473799877085897105174794579281260" +
-                "89055308747182507684423837176668262585656715744728730335208351405109459528795218416475284753503568524" +
-                "53009173059514706648174101429185314963398066638155251028889786831567575124977146088137897074060865756" +
-                "50084719656546172913917915730123417159335007310843071961069197533573160243595281569561571985956991252" +
-                "63379118887495039169420827396890031942183480242704937111215690501814534768777771783720131912867854978" +
-                "76526331081457059933987997910714583229222312327587635958740461519260782362303706434716587523748907865" +
-                "20735904007315131394404101606911181117420995892696727406577923082177709569281057231604329943024228305" +
-                "41364818201423822419315834566813"))
-        .build();
+    return CryptoConstants.createDefault();
   }
   
   @Provides
@@ -98,7 +81,8 @@ public class CreationModule {
       final CryptoConstants cryptoConstants,
       final SecretEncoder secretEncoder,
       final PersistenceOperations persistenceOperations,
-      final RxFiles rxFiles) {
+      final RxFiles rxFiles,
+      final ConcurrentFileWriter concurrentFileWriter) {
     
     return new CreationPresenter(
         creationView,
@@ -108,6 +92,7 @@ public class CreationModule {
         cryptoConstants,
         secretEncoder,
         persistenceOperations,
-        rxFiles);
+        rxFiles,
+        concurrentFileWriter);
   }
 }
\ No newline at end of file
@@ -18,8 +18,10 @@ package com.matthewtamlin.shamir.app.secretsharing.creation;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
 import com.matthewtamlin.shamir.app.files.RxFiles;
 import com.matthewtamlin.shamir.app.rxutilities.None;
+import com.matthewtamlin.shamir.app.secretsharing.BlockShamir;
 import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
 import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
@@ -31,12 +33,12 @@ import io.reactivex.Observable;
 import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Function;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.ReplaySubject;
 
 import javax.annotation.Nonnull;
 import java.io.File;
-import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -60,16 +62,16 @@ public class CreationPresenter {
   
   private final Scheduler viewScheduler;
   
-  private final RxShamir rxShamir;
-  
   private final CryptoConstants cryptoConstants;
   
-  private final SecretEncoder secretEncoder;
+  private final BlockShamir blockShamir;
   
   private final PersistenceOperations persistenceOperations;
   
   private final RxFiles rxFiles;
   
+  private final ConcurrentFileWriter concurrentFileWriter;
+  
   public CreationPresenter(
       @Nonnull final CreationView view,
       @Nonnull final Scheduler presentationScheduler,
@@ -78,16 +80,21 @@ public class CreationPresenter {
       @Nonnull final CryptoConstants cryptoConstants,
       @Nonnull final SecretEncoder secretEncoder,
       @Nonnull final PersistenceOperations persistenceOperations,
-      @Nonnull final RxFiles rxFiles) {
+      @Nonnull final RxFiles rxFiles,
+      @Nonnull final ConcurrentFileWriter concurrentFileWriter) {
     
     this.view = checkNotNull(view, "\'view\' must not be null.");
     this.presentationScheduler = checkNotNull(presentationScheduler, "\'presentationScheduler\' must not be null.");
     this.viewScheduler = checkNotNull(viewScheduler, "\'viewScheduler\' must not be null.");
-    this.rxShamir = checkNotNull(rxShamir, "\'rxShamir\' must not be null.");
     this.cryptoConstants = checkNotNull(cryptoConstants, "\'cryptoConstants\' must not be null.");
-    this.secretEncoder = checkNotNull(secretEncoder, "\'secretEncoder\' must not be null.");
+    
+    this.blockShamir = new BlockShamir(
+        checkNotNull(rxShamir, "\'rxShamir\' must not be null."),
+        checkNotNull(secretEncoder, "\'secretEncoder\' must not be null."));
+    
     this.persistenceOperations = checkNotNull(persistenceOperations, "\'persistenceOperations\' must not be null.");
     this.rxFiles = checkNotNull(rxFiles, "\'rxFiles\' must not be null.");
+    this.concurrentFileWriter = checkNotNull(concurrentFileWriter, "\'concurrentFileWriter\' must not be null.");
   }
   
   @Nonnull
@@ -131,7 +138,7 @@ public class CreationPresenter {
     final ReplaySubject<Boolean> inputPreconditionsPass = ReplaySubject.createWithSize(1);
     final ReplaySubject<InputModel> inputModel = ReplaySubject.createWithSize(1);
     final PublishSubject<InputModel> validRequest = PublishSubject.create();
-    final PublishSubject<Optional<BigInteger>> secret = PublishSubject.create();
+    final PublishSubject<Optional<byte[]>> secret = PublishSubject.create();
     final PublishSubject<Optional<SharingResult>> sharingResult = PublishSubject.create();
     final PublishSubject<Optional<? extends Map<Share, File>>> shareFiles = PublishSubject.create();
     final PublishSubject<Optional<File>> recoverySchemeFile = PublishSubject.create();
@@ -310,7 +317,6 @@ public class CreationPresenter {
     validRequest
         .flatMapSingle(model -> rxFiles
             .readBytesFromFile(model.getSecretFile())
-            .flatMap(secretEncoder::encodeSecret)
             .map(Optional::of)
             .observeOn(viewScheduler)
             .onErrorResumeNext(
@@ -326,7 +332,13 @@ public class CreationPresenter {
                 return Single.just(Optional.<SharingResult>empty());
               }
               
-              return shareSecret(model, secretVal.get()).map(Optional::of);
+              return shareSecret(model, secretVal.get())
+                  .map(Optional::of)
+                  .observeOn(viewScheduler)
+                  .onErrorResumeNext(error -> view
+                      .showDismissibleError(FILESYSTEM_ERROR)
+                      .andThen(Single.just(Optional.<SharingResult>empty())))
+                  .observeOn(presentationScheduler);
             })
         .flatMapSingle(wrappedSingle -> wrappedSingle)
         .subscribe(sharingResult);
@@ -339,14 +351,16 @@ public class CreationPresenter {
                 return Single.just(Optional.<Map<Share, File>>empty());
               }
               
+              // Each holder's file is named after and keyed by their share of the first block, since all their shares
+              // have its index
               return Observable
                   .fromIterable(result.get().getShares())
-                  .flatMapSingle(share -> persistenceOperations
-                      .defineNewShareFile(share, request.getOutputDirectory())
+                  .flatMapSingle(holderShares -> persistenceOperations
+                      .defineNewShareFile(holderShares.get(0), request.getOutputDirectory())
                       .flatMap(file -> rxFiles
                           .createNewFile(file)
                           .toSingle(() -> file))
-                      .map(file -> Pair.create(share, file)))
+                      .map(file -> Pair.create(holderShares.get(0), file)))
                   .collectInto(
                       new HashMap<Share, File>(),
                       (map, pair) -> map.put(pair.getKey(), pair.getValue()))
@@ -404,30 +418,34 @@ public class CreationPresenter {
                 return Completable.complete();
               }
               
-              final Completable saveShares = Observable
-                  .fromIterable(result.get().getShares())
-                  .flatMapCompletable(share -> persistenceOperations.saveShareToFile(
-                      share,
-                      shareFilesVal.get().get(share)))
-                  .observeOn(viewScheduler)
-                  .onErrorResumeNext(error -> view
-                      .showDismissibleError(CANNOT_WRITE_TO_SHARE_FILE)
-                      .andThen(view.showShareCreationNotInProgress())
-                      .andThen(Completable.complete()))
-                  .observeOn(presentationScheduler);
+              final Map<File, Function<File, Completable>> writes = new HashMap<>();
+              
+              for (final List<Share> holderShares : result.get().getShares()) {
+                // Deferred so that shares held in batches are only read once the holder's write starts
+                writes.put(
+                    shareFilesVal.get().get(holderShares.get(0)),
+                    file -> Completable.defer(() -> holderShares.size() == 1 ?
+                        persistenceOperations.saveShareToFile(holderShares.get(0), file) :
+                        persistenceOperations.saveShareBundleToFile(holderShares, file)));
+              }
               
-              final Completable saveRecoveryScheme = persistenceOperations
-                  .saveRecoverySchemeToFile(
-                      result.get().getRecoveryScheme(),
-                      recoverySchemeFileVal.get())
+              writes.put(
+                  recoverySchemeFileVal.get(),
+                  file -> persistenceOperations
+                      .saveRecoverySchemeToFile(result.get().getRecoveryScheme(), file)
+                      .onErrorResumeNext(error -> Completable.error(new RecoverySchemeWriteException(error))));
+              
+              // A single batch so that the shares and the recovery scheme are committed together
+              return concurrentFileWriter
+                  .writeAll(writes)
                   .observeOn(viewScheduler)
                   .onErrorResumeNext(error -> view
-                      .showDismissibleError(CANNOT_WRITE_TO_RECOVERY_SCHEME_FILE)
+                      .showDismissibleError(error instanceof RecoverySchemeWriteException ?
+                          CANNOT_WRITE_TO_RECOVERY_SCHEME_FILE :
+                          CANNOT_WRITE_TO_SHARE_FILE)
                       .andThen(view.showShareCreationNotInProgress())
                       .andThen(Completable.complete()))
                   .observeOn(presentationScheduler);
-              
-              return saveShares.andThen(saveRecoveryScheme);
             })
         .flatMap(wrappedCompletable -> wrappedCompletable.andThen(Observable.just(None.getInstance())))
         .subscribe(sharingOperationComplete);
@@ -595,15 +613,15 @@ public class CreationPresenter {
         .observeOn(presentationScheduler);
   }
   
-  private Single<SharingResult> shareSecret(final InputModel model, final BigInteger secret) {
-    final Observable<Share> shares = Single
+  private Single<SharingResult> shareSecret(final InputModel model, final byte[] secret) {
+    final Single<List<List<Share>>> shares = Single
         .just(CreationScheme
             .builder()
             .setRequiredShareCount(model.getRequiredShareCount())
             .setTotalShareCount(model.getTotalShareCount())
             .setPrime(cryptoConstants.getPrime())
             .build())
-        .flatMapObservable(scheme -> rxShamir.createShares(secret, scheme));
+        .flatMap(scheme -> blockShamir.createShares(secret, scheme));
     
     final Single<RecoveryScheme> recoveryScheme = Single
         .just(RecoveryScheme
@@ -612,10 +630,17 @@ public class CreationPresenter {
             .setPrime(cryptoConstants.getPrime())
             .build());
     
-    return Single.zip(
-        shares.collectInto(new HashSet<>(), Set::add),
-        recoveryScheme,
-        SharingResult::create);
+    return Single.zip(shares, recoveryScheme, SharingResult::create);
+  }
+  
+  /**
+   * Marks a failure to write the recovery scheme, so that it can be told apart from a failure to write a share when
+   * both are written in the same batch.
+   */
+  private static class RecoverySchemeWriteException extends Exception {
+    private RecoverySchemeWriteException(final Throwable cause) {
+      super(cause);
+    }
   }
   
   @AutoValue
@@ -648,11 +673,14 @@ public class CreationPresenter {
   
   @AutoValue
   protected static abstract class SharingResult {
-    public abstract Set<Share> getShares();
+    /**
+     * @return the shares grouped by holder, each group containing the holder's share of every block in block order
+     */
+    public abstract List<List<Share>> getShares();
     
     public abstract RecoveryScheme getRecoveryScheme();
     
-    public static SharingResult create(final Set<Share> shares, final RecoveryScheme recoveryScheme) {
+    public static SharingResult create(final List<List<Share>> shares, final RecoveryScheme recoveryScheme) {
       return new AutoValue_CreationPresenter_SharingResult(shares, recoveryScheme);
     }
   }
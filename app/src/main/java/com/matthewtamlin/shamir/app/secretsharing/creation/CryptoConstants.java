@@ -17,18 +17,84 @@
 package com.matthewtamlin.shamir.app.secretsharing.creation;
 
 import com.google.auto.value.AutoValue;
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
 import com.matthewtamlin.shamir.app.secretsharing.creation.AutoValue_CryptoConstants;
 
+import javax.annotation.Nonnull;
 import java.math.BigInteger;
 
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
 @AutoValue
 public abstract class CryptoConstants {
   public abstract BigInteger getPrime();
   
   public abstract int getMaxFileSizeBytes();
   
+  public abstract PrimeSelection getPrimeSelection();
+  
+  /**
+   * Chooses the prime to create shares with according to the prime selection. When no prime in the catalogue is large
+   * enough, the prime of these constants is used instead.
+   *
+   * @param encodedSecret
+   *     the encoded secret which will be shared, not null
+   * @param totalShareCount
+   *     the number of shares which will be created
+   *
+   * @return the prime to use, not null
+   */
+  @Nonnull
+  public BigInteger selectPrime(@Nonnull final BigInteger encodedSecret, final int totalShareCount) {
+    checkNotNull(encodedSecret, "\'encodedSecret\' must not be null.");
+    
+    if (getPrimeSelection() == PrimeSelection.FIXED) {
+      return getPrime();
+    }
+    
+    final BigInteger catalogued = PrimeCatalogue.findSmallestPrimeGreaterThan(
+        encodedSecret.max(BigInteger.valueOf(totalShareCount)));
+    
+    return catalogued != null ? catalogued : getPrime();
+  }
+  
+  /**
+   * The largest secret the app will share. Secrets longer than the prime can hold as a single value are shared as a
+   * sequence of blocks. The shares of the blocks are held outside the heap, taking about the secret length times the
+   * total share count in bytes, so the heap only holds the shares of the bundles being written.
+   */
+  private static final int DEFAULT_MAX_FILE_SIZE_BYTES = 1024 * 1024;
+  
+  /**
+   * Creates the constants used by the app, which support secrets of up to 1 MiB and always use the same prime.
+   *
+   * @return the default constants, not null
+   */
+  public static CryptoConstants createDefault() {
+    return createDefault(PrimeSelection.FIXED);
+  }
+  
+  /**
+   * Creates the constants used by the app, which support secrets of up to 1 MiB.
+   *
+   * @param primeSelection
+   *     the way to choose the prime for each secret, not null
+   *
+   * @return the default constants, not null
+   */
+  public static CryptoConstants createDefault(@Nonnull final PrimeSelection primeSelection) {
+    checkNotNull(primeSelection, "\'primeSelection\' must not be null.");
+    
+    return CryptoConstants
+        .builder()
+        .setMaxFileSizeBytes(DEFAULT_MAX_FILE_SIZE_BYTES)
+        .setPrimeSelection(primeSelection)
+        .setPrime(PrimeCatalogue.getPrime(PrimeCatalogue.DEFAULT_PRIME_ID))
+        .build();
+  }
+  
   public static Builder builder() {
-    return new AutoValue_CryptoConstants.Builder();
+    return new AutoValue_CryptoConstants.Builder().setPrimeSelection(PrimeSelection.FIXED);
   }
   
   @AutoValue.Builder
@@ -37,6 +103,8 @@ public abstract class CryptoConstants {
     
     public abstract Builder setMaxFileSizeBytes(int maxFileSizeBytes);
     
+    public abstract Builder setPrimeSelection(PrimeSelection primeSelection);
+    
     public abstract CryptoConstants build();
   }
 }
\ No newline at end of file
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.creation;
+
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
+import io.reactivex.Flowable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An append-only store of shares with the values held outside the heap, so that large numbers of shares can be kept
+ * between creation and persistence without adding to garbage collection pressure.
+ * <p>
+ * The shares are stored in a sequence of {@link ShareBatch} segments, so the encoding of each share is the same as in
+ * a batch. Segments are allocated as the store grows. The first segment is small and each subsequent segment is twice
+ * the size of the previous one, up to a limit, so small stores stay small and large stores need few segments. A
+ * segment of a particular size can also be appended with {@link #appendBatch(int)} and filled directly, for example
+ * by {@code RxShamir.createSharesInto}. The values of each segment are either held in a direct buffer (see
+ * {@link #createDirect(int)}) or in a region of a memory-mapped temporary file (see {@link #createMapped(File, int)}).
+ * Mapped stores are limited by disk space rather than the direct memory limit of the JVM, and the operating system
+ * pages them out as needed. The indices are held on the heap, at four bytes per share.
+ * <p>
+ * Shares are read back with a {@link Cursor}, or in chunks with {@link #readChunks(int)}. Stores are not thread safe,
+ * and must be closed to release the temporary file of a mapped store.
+ */
+public class OffHeapShareStore implements Closeable {
+  private static final int INITIAL_SEGMENT_SIZE_BYTES = 1 << 16;
+  
+  private static final int MAX_SEGMENT_SIZE_BYTES = 1 << 28;
+  
+  private final int valueWidth;
+  
+  private final List<ShareBatch> segments = new ArrayList<>();
+  
+  @Nullable
+  private final File file;
+  
+  @Nullable
+  private final FileChannel channel;
+  
+  private long mappedBytes = 0;
+  
+  private boolean closed = false;
+  
+  private OffHeapShareStore(final int valueWidth, @Nullable final File file, @Nullable final FileChannel channel) {
+    if (valueWidth < 1) {
+      throw new IllegalArgumentException("\'valueWidth\' must be at least 1.");
+    }
+    
+    this.valueWidth = valueWidth;
+    this.file = file;
+    this.channel = channel;
+  }
+  
+  /**
+   * Creates a new empty store with the values held in direct buffers.
+   *
+   * @param valueWidth
+   *     the number of bytes used to store each value, at least 1
+   *
+   * @return the new store, not null
+   */
+  @Nonnull
+  public static OffHeapShareStore createDirect(final int valueWidth) {
+    return new OffHeapShareStore(valueWidth, null, null);
+  }
+  
+  /**
+   * Creates a new empty store with the values held in a memory-mapped temporary file. The file is deleted when the
+   * store is closed.
+   *
+   * @param directory
+   *     the directory to create the temporary file in, or null to use the default temporary directory
+   * @param valueWidth
+   *     the number of bytes used to store each value, at least 1
+   *
+   * @return the new store, not null
+   *
+   * @throws IOException
+   *     if the temporary file cannot be created
+   */
+  @Nonnull
+  public static OffHeapShareStore createMapped(@Nullable final File directory, final int valueWidth)
+      throws IOException {
+    
+    final File file = File.createTempFile("shares-", ".tmp", directory);
+    
+    try {
+      return new OffHeapShareStore(valueWidth, file, new RandomAccessFile(file, "rw").getChannel());
+      
+    } catch (final IOException | RuntimeException e) {
+      Files.deleteIfExists(file.toPath());
+      throw e;
+    }
+  }
+  
+  /**
+   * @return the number of shares in the store, at least 0
+   */
+  public long size() {
+    long size = 0;
+    
+    for (final ShareBatch segment : segments) {
+      size += segment.size();
+    }
+    
+    return size;
+  }
+  
+  /**
+   * @return the number of bytes used to store each value, at least 1
+   */
+  public int getValueWidth() {
+    return valueWidth;
+  }
+  
+  /**
+   * Adds a share to the end of the store.
+   *
+   * @param share
+   *     the share to add, not null, with an index which fits in an int and a value which fits in the value width
+   *
+   * @throws IllegalArgumentException
+   *     if the index or the value does not fit
+   * @throws IllegalStateException
+   *     if the store is closed
+   * @throws IOException
+   *     if a mapped store cannot be extended
+   */
+  public void add(@Nonnull final Share share) throws IOException {
+    checkNotNull(share, "\'share\' must not be null.");
+    
+    if (share.getIndex().bitLength() >= 32) {
+      throw new IllegalArgumentException("The index of \'share\' must fit in an int.");
+    }
+    
+    add(share.getIndex().intValue(), share.getValue());
+  }
+  
+  /**
+   * Adds a share to the end of the store.
+   *
+   * @param index
+   *     the index of the share, at least 1
+   * @param value
+   *     the value of the share, not null, not negative, and small enough to fit in the value width
+   *
+   * @throws IllegalArgumentException
+   *     if the index is less than 1, or if the value is negative or too large
+   * @throws IllegalStateException
+   *     if the store is closed
+   * @throws IOException
+   *     if a mapped store cannot be extended
+   */
+  public void add(final int index, @Nonnull final BigInteger value) throws IOException {
+    checkNotNull(value, "\'value\' must not be null.");
+    checkOpen();
+    
+    ShareBatch segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    
+    if (segment == null || segment.size() == segment.getCapacity()) {
+      final int previousCapacity = segment == null ? 0 : segment.getCapacity();
+      
+      final long targetCapacity = previousCapacity == 0 ?
+          INITIAL_SEGMENT_SIZE_BYTES / valueWidth :
+          Math.min(MAX_SEGMENT_SIZE_BYTES / valueWidth, previousCapacity * 2L);
+      
+      segment = appendBatch((int) Math.max(1, targetCapacity));
+    }
+    
+    segment.add(index, value);
+  }
+  
+  /**
+   * Appends a new empty segment with room for a particular number of shares, and returns it so that it can be filled
+   * directly. The shares added to the segment become part of the store, after the shares already in the store.
+   * Shares added to the store with {@link #add(int, BigInteger)} go into the segment while it has room, so it should
+   * be filled before anything else is added.
+   *
+   * @param capacity
+   *     the number of shares the segment has room for, at least 0, and no more than {@code Integer.MAX_VALUE} divided
+   *     by the value width
+   *
+   * @return the segment, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the capacity is negative, or if the values would not fit in a single segment
+   * @throws IllegalStateException
+   *     if the store is closed
+   * @throws IOException
+   *     if a mapped store cannot be extended
+   */
+  @Nonnull
+  public ShareBatch appendBatch(final int capacity) throws IOException {
+    checkOpen();
+    
+    if (capacity < 0) {
+      throw new IllegalArgumentException("\'capacity\' must not be negative.");
+    }
+    
+    if ((long) capacity * valueWidth > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The values would not fit in a single segment.");
+    }
+    
+    final ShareBatch segment;
+    
+    if (channel == null) {
+      segment = ShareBatch.allocateDirect(capacity, valueWidth);
+      
+    } else {
+      final int segmentSize = capacity * valueWidth;
+      
+      segment = ShareBatch.wrap(
+          capacity,
+          valueWidth,
+          channel.map(FileChannel.MapMode.READ_WRITE, mappedBytes, segmentSize));
+      
+      mappedBytes += segmentSize;
+    }
+    
+    segments.add(segment);
+    
+    return segment;
+  }
+  
+  /**
+   * Creates a cursor positioned before the first share. The cursor sees the shares in the store when it is created,
+   * and must not be used after the store is closed.
+   *
+   * @return the new cursor, not null
+   *
+   * @throws IllegalStateException
+   *     if the store is closed
+   */
+  @Nonnull
+  public Cursor cursor() {
+    checkOpen();
+    
+    return new Cursor(size());
+  }
+  
+  /**
+   * Reads the shares in the order they were added, in lists of at most {@code chunkSize} shares. The chunks are read
+   * as they are requested, so no more than a few chunks of shares are on the heap at once regardless of the size of
+   * the store. This allows the shares to be written out in bulk without loading them all.
+   * <p>
+   * The returned flowable does not operate by default on a particular scheduler.
+   *
+   * @param chunkSize
+   *     the maximum number of shares in each chunk, greater than zero
+   *
+   * @return a new flowable which emits the chunks then completes, not null
+   */
+  @Nonnull
+  public Flowable<List<Share>> readChunks(final int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("\'chunkSize\' must be greater than zero.");
+    }
+    
+    return Flowable.generate(
+        this::cursor,
+        (cursor, emitter) -> {
+          final List<Share> chunk = new ArrayList<>(chunkSize);
+          
+          while (chunk.size() < chunkSize && cursor.moveToNext()) {
+            chunk.add(cursor.getShare());
+          }
+          
+          if (chunk.isEmpty()) {
+            emitter.onComplete();
+            
+          } else {
+            emitter.onNext(chunk);
+          }
+        });
+  }
+  
+  /**
+   * Releases the storage. The temporary file of a mapped store is deleted. Closing a closed store has no effect.
+   *
+   * @throws IOException
+   *     if the temporary file cannot be closed or deleted
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    
+    closed = true;
+    segments.clear();
+    
+    if (channel != null) {
+      channel.close();
+    }
+    
+    if (file != null) {
+      // The mappings are only released by the garbage collector, which prevents deletion on some platforms
+      if (!file.delete()) {
+        file.deleteOnExit();
+      }
+    }
+  }
+  
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The store is closed.");
+    }
+  }
+  
+  /**
+   * Iterates over the shares in a store without copying them onto the heap. The index and value of the current share
+   * are read directly from the segment holding it each time they are requested.
+   */
+  public class Cursor {
+    private final long limit;
+    
+    private long position = -1;
+    
+    private int segmentIndex = 0;
+    
+    private int segmentPosition = -1;
+    
+    private Cursor(final long limit) {
+      this.limit = limit;
+    }
+    
+    /**
+     * Moves to the next share.
+     *
+     * @return true if the cursor moved to a share, false if there are no more shares
+     */
+    public boolean moveToNext() {
+      if (position + 1 >= limit) {
+        position = limit;
+        return false;
+      }
+      
+      position++;
+      segmentPosition++;
+      
+      while (segmentPosition >= segments.get(segmentIndex).size()) {
+        segmentIndex++;
+        segmentPosition = 0;
+      }
+      
+      return true;
+    }
+    
+    /**
+     * @return the index of the current share
+     *
+     * @throws IllegalStateException
+     *     if the cursor is not positioned on a share
+     */
+    public int getIndex() {
+      checkPositioned();
+      
+      return segments.get(segmentIndex).getIndex(segmentPosition);
+    }
+    
+    /**
+     * @return the value of the current share, not null
+     *
+     * @throws IllegalStateException
+     *     if the cursor is not positioned on a share
+     */
+    @Nonnull
+    public BigInteger getValue() {
+      checkPositioned();
+      
+      return segments.get(segmentIndex).getValue(segmentPosition);
+    }
+    
+    /**
+     * Copies the fixed width bytes of the current value into an array without creating any objects.
+     *
+     * @param destination
+     *     the array to copy into, not null
+     * @param destinationOffset
+     *     the position in the array to copy the first byte to
+     *
+     * @throws IllegalStateException
+     *     if the cursor is not positioned on a share
+     */
+    public void copyValue(@Nonnull final byte[] destination, final int destinationOffset) {
+      checkNotNull(destination, "\'destination\' must not be null.");
+      checkPositioned();
+      
+      segments.get(segmentIndex).copyValue(segmentPosition, destination, destinationOffset);
+    }
+    
+    /**
+     * @return a new share containing the index and value of the current share, not null
+     *
+     * @throws IllegalStateException
+     *     if the cursor is not positioned on a share
+     */
+    @Nonnull
+    public Share getShare() {
+      checkPositioned();
+      
+      return segments.get(segmentIndex).getShare(segmentPosition);
+    }
+    
+    private void checkPositioned() {
+      checkOpen();
+      
+      if (position < 0 || position >= limit) {
+        throw new IllegalStateException("The cursor is not positioned on a share.");
+      }
+    }
+  }
+}
\ No newline at end of file
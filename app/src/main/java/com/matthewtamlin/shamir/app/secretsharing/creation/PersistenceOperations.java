@@ -17,8 +17,8 @@
 package com.matthewtamlin.shamir.app.secretsharing.creation;
 
 import com.matthewtamlin.shamir.app.files.RxFiles;
-import com.matthewtamlin.shamir.app.secretsharing.CharsetConstants;
 import com.matthewtamlin.shamir.app.secretsharing.serialisation.RecoverySchemeSerialiser;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareBundleSerialiser;
 import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareSerialiser;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
@@ -27,13 +27,17 @@ import io.reactivex.Single;
 
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.util.List;
 
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 import static java.lang.String.format;
 
 public class PersistenceOperations {
   private final ShareSerialiser shareSerialiser;
   
+  private final ShareBundleSerialiser shareBundleSerialiser;
+  
   private final RecoverySchemeSerialiser recoverySchemeSerialiser;
   
   private final RxFiles rxFiles;
@@ -44,6 +48,7 @@ public class PersistenceOperations {
       @Nonnull final RxFiles rxFiles) {
     
     this.shareSerialiser = checkNotNull(shareSerialiser, "\'shareSerialiser\' must not be null.");
+    this.shareBundleSerialiser = new ShareBundleSerialiser(shareSerialiser);
     
     this.recoverySchemeSerialiser = checkNotNull(
         recoverySchemeSerialiser,
@@ -57,11 +62,34 @@ public class PersistenceOperations {
     checkNotNull(share, "\'share\' must not be null.");
     checkNotNull(file, "\'file\' must not be null.");
     
-    return shareSerialiser
-        .serialise(share)
-        .flatMapCompletable(serialisedShare -> rxFiles.writeStringToFile(
-            serialisedShare, file,
-            CharsetConstants.SHARE_FILE_CHARSET));
+    return rxFiles
+        .openOutputStream(file)
+        .flatMapCompletable(output -> shareSerialiser
+            .writeTo(share, output)
+            .doOnError(error -> output.close())
+            .andThen(Completable.fromAction(output::close)));
+  }
+  
+  /**
+   * Saves a holder's share of every block of a secret to a single bundle file, in block order. Each share is serialised
+   * with the same serialiser as single shares.
+   * <p>
+   * The returned completable does not operate by default on a particular scheduler.
+   *
+   * @param shares
+   *     the holder's shares in block order, not null, not containing null
+   * @param file
+   *     the file to save the shares to, not null
+   *
+   * @return a new completable that saves the shares then completes
+   */
+  @Nonnull
+  public Completable saveShareBundleToFile(@Nonnull final List<Share> shares, @Nonnull final File file) {
+    checkNotNull(shares, "\'shares\' must not be null.");
+    checkEachElementIsNotNull(shares, "\'shares\' must not contain null.");
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return shareBundleSerialiser.writeToFile(shares, file);
   }
   
   @Nonnull
@@ -69,11 +97,12 @@ public class PersistenceOperations {
     checkNotNull(recoveryScheme, "\'recoveryScheme\' must not be null.");
     checkNotNull(file, "\'file\' must not be null.");
     
-    return recoverySchemeSerialiser
-        .serialise(recoveryScheme)
-        .flatMapCompletable(serialisedShare -> rxFiles.writeStringToFile(
-            serialisedShare, file,
-            CharsetConstants.RECOVERY_SCHEME_CHARSET));
+    return rxFiles
+        .openOutputStream(file)
+        .flatMapCompletable(output -> recoverySchemeSerialiser
+            .writeTo(recoveryScheme, output)
+            .doOnError(error -> output.close())
+            .andThen(Completable.fromAction(output::close)));
   }
   
   @Nonnull
@@ -95,23 +124,18 @@ public class PersistenceOperations {
   public Single<Boolean> directoryContainsShareFiles(@Nonnull final File directory) {
     checkNotNull(directory, "\'directory\' must not be null.");
     
+    // The glob narrows the scan, and the regex enforces the exact name on case-insensitive file systems
     return rxFiles
-        .getFilesInDirectory(directory)
+        .getFilesInDirectory(directory, "share-[0-9]*")
         .map(File::getName)
-        .map(name -> name.matches("share-\\d+"))
-        .reduce(true, (noPreviousMatches, thisMatches) -> noPreviousMatches && !thisMatches)
-        .map(noMatches -> !noMatches);
+        .any(name -> name.matches("share-\\d+"));
   }
   
   @Nonnull
   public Single<Boolean> directoryContainsRecoverySchemeFiles(@Nonnull final File directory) {
     checkNotNull(directory, "\'directory\' must not be null.");
     
-    return rxFiles
-        .getFilesInDirectory(directory)
-        .map(File::getName)
-        .map(name -> name.matches("recovery-scheme"))
-        .reduce(true, (noPreviousMatches, thisMatches) -> noPreviousMatches && !thisMatches)
-        .map(noMatches -> !noMatches);
+    // The name is fixed, so a single lookup is enough
+    return rxFiles.exists(new File(directory, "recovery-scheme"));
   }
 }
\ No newline at end of file
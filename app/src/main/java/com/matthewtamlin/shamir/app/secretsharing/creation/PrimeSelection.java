@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.creation;
+
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
+
+/**
+ * The ways of choosing the prime to create shares with.
+ */
+public enum PrimeSelection {
+  /**
+   * Always uses the prime of the crypto constants.
+   */
+  FIXED,
+  
+  /**
+   * Uses the smallest prime in the {@link PrimeCatalogue} which exceeds both the encoded secret and the total share
+   * count, so that short secrets produce small shares. The prime is recorded in the recovery scheme and bounds the
+   * size of every share, so it reveals a range for the length of the secret. It should therefore only be used when
+   * the length of the secret is not sensitive.
+   */
+  SMALLEST_SUFFICIENT
+}
\ No newline at end of file
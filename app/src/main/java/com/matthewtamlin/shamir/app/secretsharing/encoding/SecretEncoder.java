@@ -16,13 +16,30 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.encoding;
 
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
 
+/**
+ * Converts secrets to and from the integers which are shared. A secret is framed by prefixing it with a single 0x01
+ * byte, so that leading zeros survive the conversion and the length of the secret is implied by the integer.
+ * <p>
+ * A secret encoded as a single integer must be small enough for the integer to be less than the prime. Larger secrets
+ * can be encoded as a sequence of blocks, where each block holds as many bytes as the prime allows and is framed the
+ * same way as a whole secret. The last block holds the remaining bytes, and an empty secret is encoded as a single
+ * empty block. A secret small enough to fit in one block therefore encodes to the same integer either way.
+ */
 public class SecretEncoder {
   @Nonnull
   public Single<BigInteger> encodeSecret(@Nonnull final byte[] secret) {
@@ -52,4 +69,173 @@ public class SecretEncoder {
       return secretWithoutLeading1;
     });
   }
+  
+  /**
+   * Encodes a secret held in memory as a sequence of blocks which are each less than the prime. See
+   * {@link #encodeSecretBlocks(Callable, BigInteger)} for details.
+   *
+   * @param secret
+   *     the secret to encode, not null
+   * @param prime
+   *     the prime which every block must be less than, not null, at least 17 bits long
+   *
+   * @return a new flowable which emits the blocks then completes, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the prime is too small to hold any bytes of the secret
+   */
+  @Nonnull
+  public Flowable<BigInteger> encodeSecretBlocks(@Nonnull final byte[] secret, @Nonnull final BigInteger prime) {
+    checkNotNull(secret, "\'secret\' must not be null.");
+    
+    return encodeSecretBlocks(() -> new ByteArrayInputStream(secret), prime);
+  }
+  
+  /**
+   * Encodes a secret as a sequence of blocks which are each less than the prime. The secret is read lazily as blocks
+   * are requested, so at most one block of the secret is held in memory at a time regardless of its length. The
+   * stream is opened once per subscription and closed when the flowable terminates or is cancelled.
+   * <p>
+   * The returned flowable does not operate by default on a particular scheduler.
+   *
+   * @param secretSource
+   *     supplies a new stream of the secret to encode, not null
+   * @param prime
+   *     the prime which every block must be less than, not null, at least 17 bits long
+   *
+   * @return a new flowable which emits the blocks then completes, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the prime is too small to hold any bytes of the secret
+   */
+  @Nonnull
+  public Flowable<BigInteger> encodeSecretBlocks(
+      @Nonnull final Callable<? extends InputStream> secretSource,
+      @Nonnull final BigInteger prime) {
+    
+    checkNotNull(secretSource, "\'secretSource\' must not be null.");
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    final int maxBlockSizeBytes = getMaxBlockSizeBytes(prime);
+    
+    return Flowable.generate(
+        () -> new BlockReader(secretSource.call(), maxBlockSizeBytes),
+        (reader, emitter) -> {
+          final BigInteger block = reader.readBlock();
+          
+          if (block != null) {
+            emitter.onNext(block);
+            
+          } else {
+            emitter.onComplete();
+          }
+        },
+        BlockReader::close);
+  }
+  
+  /**
+   * Decodes a sequence of blocks produced by one of the {@code encodeSecretBlocks} methods. Each block is decoded as
+   * it arrives, so the secret can be written out incrementally. The operation fails with an
+   * {@link IllegalStateException} if any block is not framed correctly.
+   * <p>
+   * The returned flowable does not operate by default on a particular scheduler.
+   *
+   * @param blocks
+   *     the blocks to decode, in the order they were encoded, not null
+   *
+   * @return a new flowable which emits the bytes of each block in order, not null
+   */
+  @Nonnull
+  public Flowable<byte[]> decodeSecretBlocks(@Nonnull final Flowable<BigInteger> blocks) {
+    checkNotNull(blocks, "\'blocks\' must not be null.");
+    
+    return blocks.map(block -> {
+      final byte[] blockWithLeading1 = block.toByteArray();
+      
+      if (blockWithLeading1[0] != 1) {
+        throw new IllegalStateException(format("Block %1$s does not start with the framing byte.", block));
+      }
+      
+      return Arrays.copyOfRange(blockWithLeading1, 1, blockWithLeading1.length);
+    });
+  }
+  
+  /**
+   * Calculates the number of bytes of a secret which each block holds. One byte of each block is used for framing, and
+   * the framed block must have fewer bits than the prime so that it is always less than the prime.
+   *
+   * @param prime
+   *     the prime which every block must be less than, not null
+   *
+   * @return the number of bytes per block, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if the prime is too small to hold any bytes of the secret
+   */
+  public static int getMaxBlockSizeBytes(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    final int maxBlockSizeBytes = (prime.bitLength() - 1) / 8 - 1;
+    
+    if (maxBlockSizeBytes <= 0) {
+      throw new IllegalArgumentException("\'prime\' must be at least 17 bits long.");
+    }
+    
+    return maxBlockSizeBytes;
+  }
+  
+  private static class BlockReader implements Closeable {
+    private final InputStream in;
+    
+    private final byte[] buffer;
+    
+    /**
+     * The first byte of the next block, which is read ahead to find out whether a full block is the last one.
+     */
+    private int nextByte = -1;
+    
+    private boolean finished;
+    
+    private BlockReader(final InputStream in, final int maxBlockSizeBytes) {
+      this.in = in;
+      this.buffer = new byte[maxBlockSizeBytes + 1];
+      this.buffer[0] = 1;
+    }
+    
+    /**
+     * Reads the next block, or returns null if every block has been read.
+     */
+    private BigInteger readBlock() throws IOException {
+      if (finished) {
+        return null;
+      }
+      
+      int length = 1;
+      
+      if (nextByte != -1) {
+        buffer[length++] = (byte) nextByte;
+      }
+      
+      int count;
+      
+      while (length < buffer.length && (count = in.read(buffer, length, buffer.length - length)) != -1) {
+        length += count;
+      }
+      
+      if (length < buffer.length) {
+        finished = true;
+        
+      } else {
+        nextByte = in.read();
+        finished = nextByte == -1;
+      }
+      
+      return new BigInteger(Arrays.copyOf(buffer, length));
+    }
+    
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
 }
\ No newline at end of file
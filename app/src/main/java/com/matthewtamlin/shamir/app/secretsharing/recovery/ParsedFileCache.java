@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.recovery;
+
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A bounded cache of objects parsed from files. Each entry is keyed by the canonical path of the file it was parsed
+ * from, and records the length and last-modified time of the file at the time of parsing. An entry is only used if the
+ * file still has the same length and last-modified time, so a file which is modified on disk is parsed again. When the
+ * cache is full the least recently used entry is evicted.
+ * <p>
+ * Changes which preserve both the length and the last-modified time of a file cannot be detected, so callers which
+ * rewrite files should invalidate them explicitly.
+ *
+ * @param <T>
+ *     the type of object parsed from the files
+ */
+public class ParsedFileCache<T> {
+  private final Map<String, Entry<T>> entries;
+  
+  /**
+   * Constructs a new ParsedFileCache.
+   *
+   * @param maxEntries
+   *     the maximum number of entries to hold at once, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if {@code maxEntries} is not greater than zero
+   */
+  public ParsedFileCache(final int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("\'maxEntries\' must be greater than zero.");
+    }
+    
+    entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry<T>> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+  
+  /**
+   * Gets the object parsed from a file, using the cached object if the file is unchanged since it was cached and
+   * otherwise parsing the file with the supplied single and caching the result. Files which do not exist are never
+   * cached.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param file
+   *     the file to get the object for, not null
+   * @param parse
+   *     a single which parses the file, not null
+   *
+   * @return a new single that emits the cached or parsed object
+   */
+  @Nonnull
+  public Single<T> get(@Nonnull final File file, @Nonnull final Single<T> parse) {
+    checkNotNull(file, "\'file\' must not be null.");
+    checkNotNull(parse, "\'parse\' must not be null.");
+    
+    return Single.defer(() -> {
+      final String path = file.getCanonicalPath();
+      final long length = file.length();
+      final long lastModified = file.lastModified();
+      
+      // A last-modified time of zero means the file does not exist or cannot be accessed
+      if (lastModified == 0) {
+        return parse;
+      }
+      
+      final Entry<T> cached = getEntry(path);
+      
+      if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+        return Single.just(cached.value);
+      }
+      
+      return parse.doOnSuccess(value -> putEntry(path, new Entry<>(length, lastModified, value)));
+    });
+  }
+  
+  /**
+   * Determines whether this cache holds an up-to-date object for a file.
+   *
+   * @param file
+   *     the file to check, not null
+   *
+   * @return true if the cache holds an object for the file and the file is unchanged since it was cached, false
+   * otherwise
+   *
+   * @throws IOException
+   *     if the canonical path of the file cannot be determined
+   */
+  public boolean contains(@Nonnull final File file) throws IOException {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    final Entry<T> cached = getEntry(file.getCanonicalPath());
+    
+    return cached != null && cached.length == file.length() && cached.lastModified == file.lastModified();
+  }
+  
+  /**
+   * Removes the cached object for a file, if there is one.
+   *
+   * @param file
+   *     the file to remove the cached object for, not null
+   *
+   * @throws IOException
+   *     if the canonical path of the file cannot be determined
+   */
+  public void invalidate(@Nonnull final File file) throws IOException {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    final String path = file.getCanonicalPath();
+    
+    synchronized (entries) {
+      entries.remove(path);
+    }
+  }
+  
+  /**
+   * Removes every cached object.
+   */
+  public void invalidateAll() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+  
+  private Entry<T> getEntry(final String path) {
+    synchronized (entries) {
+      return entries.get(path);
+    }
+  }
+  
+  private void putEntry(final String path, final Entry<T> entry) {
+    synchronized (entries) {
+      entries.put(path, entry);
+    }
+  }
+  
+  private static class Entry<T> {
+    private final long length;
+    
+    private final long lastModified;
+    
+    private final T value;
+    
+    private Entry(final long length, final long lastModified, final T value) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.value = value;
+    }
+  }
+}
\ No newline at end of file
@@ -17,73 +17,228 @@
 package com.matthewtamlin.shamir.app.secretsharing.recovery;
 
 import com.matthewtamlin.shamir.app.files.RxFiles;
-import com.matthewtamlin.shamir.app.secretsharing.CharsetConstants;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.DeserialisationException;
 import com.matthewtamlin.shamir.app.secretsharing.serialisation.RecoverySchemeSerialiser;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareBundleSerialiser;
 import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareSerialiser;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class PersistenceOperations {
+  private static final int DEFAULT_MAX_CACHED_FILES = 256;
+  
+  private static final int BUNDLE_CHECK_READ_LIMIT = 64;
+  
   private final ShareSerialiser shareSerialiser;
   
+  private final ShareBundleSerialiser shareBundleSerialiser;
+  
   private final RecoverySchemeSerialiser recoverySchemeSerialiser;
   
   private final RxFiles rxFiles;
   
+  private final ParsedFileCache<List<Share>> shareCache;
+  
+  private final ParsedFileCache<RecoveryScheme> recoverySchemeCache;
+  
   public PersistenceOperations(
       @Nonnull final ShareSerialiser shareSerialiser,
       @Nonnull final RecoverySchemeSerialiser recoverySchemeSerialiser,
       @Nonnull final RxFiles rxFiles) {
     
+    this(shareSerialiser, recoverySchemeSerialiser, rxFiles, DEFAULT_MAX_CACHED_FILES);
+  }
+  
+  /**
+   * Constructs a new PersistenceOperations. Parsed shares and recovery schemes are cached by file, so loading an
+   * unchanged file again skips reading and parsing it.
+   *
+   * @param shareSerialiser
+   *     the serialiser to read shares with, not null
+   * @param recoverySchemeSerialiser
+   *     the serialiser to read recovery schemes with, not null
+   * @param rxFiles
+   *     the files to read with, not null
+   * @param maxCachedFiles
+   *     the maximum number of shares and the maximum number of recovery schemes to cache, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if {@code maxCachedFiles} is not greater than zero
+   */
+  public PersistenceOperations(
+      @Nonnull final ShareSerialiser shareSerialiser,
+      @Nonnull final RecoverySchemeSerialiser recoverySchemeSerialiser,
+      @Nonnull final RxFiles rxFiles,
+      final int maxCachedFiles) {
+    
     this.shareSerialiser = checkNotNull(shareSerialiser, "\'shareSerialiser\' must not be null.");
+    this.shareBundleSerialiser = new ShareBundleSerialiser(shareSerialiser);
     
     this.recoverySchemeSerialiser = checkNotNull(
         recoverySchemeSerialiser,
         "\'recoverySchemeSerialiser\' must not be null.");
     
     this.rxFiles = checkNotNull(rxFiles, "\'rxFiles\' must not be null.");
+    this.shareCache = new ParsedFileCache<>(maxCachedFiles);
+    this.recoverySchemeCache = new ParsedFileCache<>(maxCachedFiles);
   }
   
+  /**
+   * Loads a share from a file which contains a single share. The operation fails with a
+   * {@link DeserialisationException} if the file contains the shares of several blocks.
+   *
+   * @param file
+   *     the file to load from, not null
+   *
+   * @return a new single that emits the share then completes
+   */
   @Nonnull
   public Single<Share> loadShareFromFile(@Nonnull final File file) {
     checkNotNull(file, "\'file\' cannot be null.");
     
-    return rxFiles
-        .readStringFromFile(file, CharsetConstants.SHARE_FILE_CHARSET)
-        .flatMap(shareSerialiser::deserialise);
+    return loadShareBlocksFromFile(file).flatMap(shares -> shares.size() == 1 ?
+        Single.just(shares.get(0)) :
+        Single.error(new DeserialisationException("The file contains the shares of several blocks.")));
+  }
+  
+  /**
+   * Loads a holder's share of every block of a secret from a file, in block order. A file containing a single share
+   * gives a list of that one share, and a share bundle gives the shares in the bundle.
+   *
+   * @param file
+   *     the file to load from, not null
+   *
+   * @return a new single that emits the shares then completes
+   */
+  @Nonnull
+  public Single<List<Share>> loadShareBlocksFromFile(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' cannot be null.");
+    
+    final Single<List<Share>> loadBundle = shareBundleSerialiser
+        .readFromFile(file)
+        .flatMap(bundle -> bundle.getShares().toList());
+    
+    return shareCache.get(file, rxFiles
+        .openInputStream(file)
+        .flatMap(input -> {
+          final InputStream bufferedInput = new BufferedInputStream(input);
+          bufferedInput.mark(BUNDLE_CHECK_READ_LIMIT);
+          
+          return shareBundleSerialiser
+              .isLikelyBundle(bufferedInput)
+              .flatMap(isBundle -> {
+                if (isBundle) {
+                  return loadBundle;
+                }
+                
+                bufferedInput.reset();
+                
+                return shareSerialiser.readFrom(bufferedInput).map(Collections::singletonList);
+              })
+              .doFinally(input::close);
+        }));
   }
   
+  /**
+   * Checks whether a file appears to contain a share or a share bundle. Only the start of the file is read, so a true
+   * result does not guarantee that the file can be loaded. Files which are already cached are not read at all.
+   *
+   * @param file
+   *     the file to check, not null
+   *
+   * @return a new single that emits true if the file appears to contain shares, false otherwise
+   */
   @Nonnull
   public Single<Boolean> fileContainsShare(@Nonnull final File file) {
     checkNotNull(file, "\'file\' cannot be null.");
     
-    return rxFiles
-        .readStringFromFile(file, CharsetConstants.SHARE_FILE_CHARSET)
-        .flatMap(shareSerialiser::isValidSerialisation);
+    final Single<Boolean> checkFile = rxFiles
+        .openInputStream(file)
+        .flatMap(input -> {
+          final InputStream bufferedInput = new BufferedInputStream(input);
+          bufferedInput.mark(BUNDLE_CHECK_READ_LIMIT);
+          
+          return shareBundleSerialiser
+              .isLikelyBundle(bufferedInput)
+              .flatMap(isBundle -> {
+                if (isBundle) {
+                  return Single.just(true);
+                }
+                
+                bufferedInput.reset();
+                
+                return shareSerialiser.isLikelySerialisation(bufferedInput);
+              })
+              .doFinally(input::close);
+        });
+    
+    return Single.defer(() -> shareCache.contains(file) ? Single.just(true) : checkFile);
   }
   
   @Nonnull
   public Single<RecoveryScheme> loadRecoverySchemeFromFile(@Nonnull final File file) {
     checkNotNull(file, "\'directory\' cannot be null.");
     
-    return rxFiles
-        .readStringFromFile(file, CharsetConstants.RECOVERY_SCHEME_CHARSET)
-        .flatMap(recoverySchemeSerialiser::deserialise);
+    return recoverySchemeCache.get(file, rxFiles
+        .openInputStream(file)
+        .flatMap(input -> recoverySchemeSerialiser
+            .readFrom(input)
+            .doFinally(input::close)));
   }
   
   @Nonnull
   public Single<Boolean> fileContainsRecoveryScheme(@Nonnull final File file) {
     checkNotNull(file, "\file\' must not be null.");
     
-    return rxFiles
-        .readStringFromFile(file, CharsetConstants.RECOVERY_SCHEME_CHARSET)
-        .flatMap(recoverySchemeSerialiser::isValidSerialisation);
+    final Single<Boolean> checkFile = rxFiles
+        .openInputStream(file)
+        .flatMap(input -> recoverySchemeSerialiser
+            .isLikelySerialisation(input)
+            .doFinally(input::close));
+    
+    return Single.defer(() -> recoverySchemeCache.contains(file) ? Single.just(true) : checkFile);
+  }
+  
+  /**
+   * Removes any cached share or recovery scheme for a file, so that the next load reads the file again.
+   *
+   * @param file
+   *     the file to invalidate, not null
+   *
+   * @return a new completable that performs the invalidation then completes
+   */
+  @Nonnull
+  public Completable invalidateCachedFile(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return Completable.fromAction(() -> {
+      shareCache.invalidate(file);
+      recoverySchemeCache.invalidate(file);
+    });
+  }
+  
+  /**
+   * Removes every cached share and recovery scheme.
+   *
+   * @return a new completable that performs the invalidation then completes
+   */
+  @Nonnull
+  public Completable invalidateCache() {
+    return Completable.fromAction(() -> {
+      shareCache.invalidateAll();
+      recoverySchemeCache.invalidateAll();
+    });
   }
   
   @Nonnull
@@ -93,10 +248,7 @@ public class PersistenceOperations {
   
   @Nonnull
   public Single<Boolean> directoryContainsRecoveredSecretFile(@Nonnull final File directory) {
-    return rxFiles
-        .getFilesInDirectory(directory)
-        .filter(file -> file.getName().equals("recovered-secret"))
-        .count()
-        .map(count -> count > 0);
+    // The name is fixed, so a single lookup is enough
+    return rxFiles.exists(new File(directory, "recovered-secret"));
   }
 }
\ No newline at end of file
@@ -34,6 +34,8 @@ import javax.inject.Named;
 
 @Module
 public class RecoveryModule {
+  private static final int MAX_CONCURRENT_SHARE_READS = 8;
+  
   @Provides
   @SecretSharingScope
   public RecoveryView provideRecoveryView(final Resources resources, final RxFilePicker rxFilePicker) {
@@ -64,6 +66,12 @@ public class RecoveryModule {
     return new PersistenceOperations(shareSerialiser, recoverySchemeSerialiser, rxFiles);
   }
   
+  @Provides
+  @SecretSharingScope
+  public ShareLoader provideShareLoader(final PersistenceOperations persistenceOperations) {
+    return new ShareLoader(persistenceOperations, Schedulers.io(), MAX_CONCURRENT_SHARE_READS);
+  }
+  
   @Provides
   @SecretSharingScope
   public RecoveryPresenter provideRecoveryPresenter(
@@ -73,7 +81,8 @@ public class RecoveryModule {
       final RxShamir rxShamir,
       final SecretEncoder secretEncoder,
       final PersistenceOperations persistenceOperations,
-      final RxFiles rxFiles) {
+      final RxFiles rxFiles,
+      final ShareLoader shareLoader) {
     
     return new RecoveryPresenter(
         recoveryView,
@@ -82,6 +91,7 @@ public class RecoveryModule {
         rxShamir,
         secretEncoder,
         persistenceOperations,
-        rxFiles);
+        rxFiles,
+        shareLoader);
   }
 }
\ No newline at end of file
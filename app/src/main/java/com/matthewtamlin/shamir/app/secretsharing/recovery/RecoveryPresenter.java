@@ -19,7 +19,9 @@ package com.matthewtamlin.shamir.app.secretsharing.recovery;
 import com.google.auto.value.AutoValue;
 import com.matthewtamlin.shamir.app.files.RxFiles;
 import com.matthewtamlin.shamir.app.rxutilities.None;
+import com.matthewtamlin.shamir.app.secretsharing.BlockShamir;
 import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.DeserialisationException;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
 import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
@@ -34,6 +36,7 @@ import io.reactivex.subjects.ReplaySubject;
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -58,14 +61,14 @@ public class RecoveryPresenter {
   
   private final Scheduler viewScheduler;
   
-  private final RxShamir rxShamir;
-  
-  private final SecretEncoder secretEncoder;
+  private final BlockShamir blockShamir;
   
   private final PersistenceOperations persistenceOperations;
   
   private final RxFiles rxFiles;
   
+  private final ShareLoader shareLoader;
+  
   public RecoveryPresenter(
       @Nonnull final RecoveryView view,
       @Nonnull final Scheduler presentationScheduler,
@@ -73,15 +76,18 @@ public class RecoveryPresenter {
       @Nonnull final RxShamir rxShamir,
       @Nonnull final SecretEncoder secretEncoder,
       @Nonnull final PersistenceOperations persistenceOperations,
-      @Nonnull final RxFiles rxFiles) {
+      @Nonnull final RxFiles rxFiles,
+      @Nonnull final ShareLoader shareLoader) {
     
     this.view = checkNotNull(view, "\'view\' must not be null.");
     this.presentationScheduler = checkNotNull(presentationScheduler, "\'presentationScheduler\' must not be null.");
     this.viewScheduler = checkNotNull(viewScheduler, "\'viewScheduler\' must not be null.");
-    this.rxShamir = checkNotNull(rxShamir, "\'rxShamir\' must not be null.");
-    this.secretEncoder = checkNotNull(secretEncoder, "\'secretEncoder\' must not be null.");
+    this.blockShamir = new BlockShamir(
+        checkNotNull(rxShamir, "\'rxShamir\' must not be null."),
+        checkNotNull(secretEncoder, "\'secretEncoder\' must not be null."));
     this.persistenceOperations = checkNotNull(persistenceOperations, "\'persistenceOperations\' must not be null.");
     this.rxFiles = checkNotNull(rxFiles, "\'rxFiles\' must not be null.");
+    this.shareLoader = checkNotNull(shareLoader, "\'shareLoader\' must not be null.");
   }
   
   @Nonnull
@@ -123,7 +129,7 @@ public class RecoveryPresenter {
     final ReplaySubject<InputModel> inputModel = ReplaySubject.createWithSize(1);
     final PublishSubject<InputModel> validRequest = PublishSubject.create();
     final PublishSubject<Optional<RecoveryModel>> recoveryModel = PublishSubject.create();
-    final PublishSubject<Optional<Set<Share>>> shares = PublishSubject.create();
+    final PublishSubject<Optional<List<Set<Share>>>> shares = PublishSubject.create();
     final PublishSubject<Optional<RecoveryScheme>> recoveryScheme = PublishSubject.create();
     final PublishSubject<Optional<File>> recoveredSecretFile = PublishSubject.create();
     final PublishSubject<Optional<byte[]>> recoveredSecret = PublishSubject.create();
@@ -238,18 +244,6 @@ public class RecoveryPresenter {
             })
         .subscribe(recoveryModel);
     
-    validRequest
-        .observeOn(presentationScheduler)
-        .flatMapSingle(model -> loadSharesFromFiles(model.getShareFiles())
-            .map(Optional::of)
-            .observeOn(viewScheduler)
-            .onErrorResumeNext(error -> view
-                .showDismissibleError(FILESYSTEM_ERROR)
-                .andThen(view.showRecoveryNotInProgress())
-                .andThen(Single.just(Optional.empty()))))
-        .observeOn(presentationScheduler)
-        .subscribe(shares);
-    
     validRequest
         .observeOn(presentationScheduler)
         .flatMapSingle(model -> loadRecoveryScheme(model.getRecoverySchemeFile())
@@ -262,6 +256,33 @@ public class RecoveryPresenter {
         .observeOn(presentationScheduler)
         .subscribe(recoveryScheme);
     
+    // The shares are only loaded once the recovery scheme is known, so that loading can stop at the required
+    // count, and the share files are only parsed here, so a malformed file is reported when loading reaches it
+    Observable
+        .zip(
+            validRequest,
+            recoveryScheme,
+            (model, optionalRecoveryScheme) -> {
+              if (!optionalRecoveryScheme.isPresent()) {
+                return Single.just(Optional.<List<Set<Share>>>empty());
+              }
+              
+              return loadSharesFromFiles(
+                  model.getShareFiles(),
+                  optionalRecoveryScheme.get().getRequiredShareCount())
+                  .map(Optional::of)
+                  .observeOn(viewScheduler)
+                  .onErrorResumeNext(error -> view
+                      .showDismissibleError(error instanceof DeserialisationException ?
+                          SHARE_FILE_IS_MALFORMED :
+                          FILESYSTEM_ERROR)
+                      .andThen(view.showRecoveryNotInProgress())
+                      .andThen(Single.just(Optional.<List<Set<Share>>>empty())));
+            })
+        .flatMapSingle(wrappedSingle -> wrappedSingle)
+        .observeOn(presentationScheduler)
+        .subscribe(shares);
+    
     validRequest
         .observeOn(presentationScheduler)
         .flatMapSingle(model -> createRecoveredSecretFile(model.getOutputDirectory())
@@ -461,11 +482,8 @@ public class RecoveryPresenter {
         .observeOn(presentationScheduler);
   }
   
-  private Single<Set<Share>> loadSharesFromFiles(final Set<File> files) {
-    return Observable
-        .fromIterable(files)
-        .flatMapSingle(persistenceOperations::loadShareFromFile)
-        .collectInto(new HashSet<>(), Set::add);
+  private Single<List<Set<Share>>> loadSharesFromFiles(final Set<File> files, final int requiredShareCount) {
+    return shareLoader.loadShareBlocks(files, requiredShareCount);
   }
   
   private Single<RecoveryScheme> loadRecoveryScheme(final File file) {
@@ -473,9 +491,7 @@ public class RecoveryPresenter {
   }
   
   private Single<byte[]> recoverSecret(final RecoveryModel recoveryModel) {
-    return rxShamir
-        .recoverSecret(recoveryModel.getShares(), recoveryModel.getRecoveryScheme())
-        .flatMap(secretEncoder::decodeSecret);
+    return blockShamir.recoverSecret(recoveryModel.getShares(), recoveryModel.getRecoveryScheme());
   }
   
   private Single<File> createRecoveredSecretFile(final File outputDirectory) {
@@ -505,14 +521,14 @@ public class RecoveryPresenter {
   
   @AutoValue
   protected static abstract class RecoveryModel {
-    public abstract Set<Share> getShares();
+    public abstract List<Set<Share>> getShares();
     
     public abstract RecoveryScheme getRecoveryScheme();
     
     public abstract File getRecoveredSecretFile();
     
     public static RecoveryModel create(
-        final Set<Share> shares,
+        final List<Set<Share>> shares,
         final RecoveryScheme recoveryScheme,
         final File recoveredSecretFile) {
       
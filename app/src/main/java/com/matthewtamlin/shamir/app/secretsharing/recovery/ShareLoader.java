@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.recovery;
+
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.DeserialisationException;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Loads shares from files concurrently, stopping as soon as enough shares have been loaded to recover the secret.
+ * Each file is read and parsed at most once, and the reads still in progress when the last required share arrives
+ * are cancelled, so the time taken depends on the number of shares required rather than the number of files.
+ */
+public class ShareLoader {
+  private final PersistenceOperations persistenceOperations;
+  
+  private final Scheduler ioScheduler;
+  
+  private final int maxConcurrentReads;
+  
+  /**
+   * Constructs a new ShareLoader.
+   *
+   * @param persistenceOperations
+   *     the operations to load each share with, not null
+   * @param ioScheduler
+   *     the scheduler to perform the reads on, not null
+   * @param maxConcurrentReads
+   *     the maximum number of files to read at once, greater than zero
+   *
+   * @throws IllegalArgumentException
+   *     if {@code maxConcurrentReads} is not greater than zero
+   */
+  public ShareLoader(
+      @Nonnull final PersistenceOperations persistenceOperations,
+      @Nonnull final Scheduler ioScheduler,
+      final int maxConcurrentReads) {
+    
+    this.persistenceOperations = checkNotNull(persistenceOperations, "\'persistenceOperations\' must not be null.");
+    this.ioScheduler = checkNotNull(ioScheduler, "\'ioScheduler\' must not be null.");
+    
+    if (maxConcurrentReads <= 0) {
+      throw new IllegalArgumentException("\'maxConcurrentReads\' must be greater than zero.");
+    }
+    
+    this.maxConcurrentReads = maxConcurrentReads;
+  }
+  
+  /**
+   * Loads shares from the supplied files until the required number of holders with distinct indices have been loaded.
+   * Each file contains one holder's share of every block of the secret, and the loaded shares are regrouped by block.
+   * Files with the same index as a file that has already been loaded are skipped. If the files do not contain enough
+   * distinct shares, the shares of every file are returned. Files are only checked as they are read, so the operation
+   * fails with a {@link DeserialisationException} when it reaches a file which does not contain any valid shares, and
+   * with an IOException when it reaches a file which cannot be read. Files which are not reached because enough
+   * shares have already been loaded are not checked. The operation fails with an {@link IllegalStateException} if the
+   * loaded files do not all contain the same number of blocks.
+   * <p>
+   * The returned single operates on the I/O scheduler supplied at construction.
+   *
+   * @param files
+   *     the files to load shares from, not null, not containing null
+   * @param requiredShareCount
+   *     the number of holders to stop loading after, greater than zero
+   *
+   * @return a new single that emits the loaded shares of each block, in block order
+   *
+   * @throws IllegalArgumentException
+   *     if {@code requiredShareCount} is not greater than zero
+   */
+  @Nonnull
+  public Single<List<Set<Share>>> loadShareBlocks(@Nonnull final Set<File> files, final int requiredShareCount) {
+    checkNotNull(files, "\'files\' must not be null.");
+    checkEachElementIsNotNull(files, "\'files\' must not contain null.");
+    
+    if (requiredShareCount <= 0) {
+      throw new IllegalArgumentException("\'requiredShareCount\' must be greater than zero.");
+    }
+    
+    return Flowable
+        .fromIterable(files)
+        .flatMapSingle(this::loadShareBlocksFromFile, false, maxConcurrentReads)
+        .distinct(holderShares -> holderShares.get(0).getIndex())
+        .take(requiredShareCount)
+        .toList()
+        .map(ShareLoader::groupByBlock);
+  }
+  
+  private Single<List<Share>> loadShareBlocksFromFile(final File file) {
+    return persistenceOperations
+        .loadShareBlocksFromFile(file)
+        .flatMap(holderShares -> holderShares.isEmpty() ?
+            Single.<List<Share>>error(new DeserialisationException("The file does not contain any shares.")) :
+            Single.just(holderShares))
+        .subscribeOn(ioScheduler);
+  }
+  
+  private static List<Set<Share>> groupByBlock(final List<List<Share>> holders) {
+    final List<Set<Share>> blocks = new ArrayList<>();
+    
+    for (final List<Share> holderShares : holders) {
+      if (holderShares.size() != holders.get(0).size()) {
+        throw new IllegalStateException("The share files do not all contain the same number of blocks.");
+      }
+      
+      for (int i = 0; i < holderShares.size(); i++) {
+        if (i == blocks.size()) {
+          blocks.add(new HashSet<>());
+        }
+        
+        blocks.get(i).add(holderShares.get(i));
+      }
+    }
+    
+    return blocks;
+  }
+}
\ No newline at end of file
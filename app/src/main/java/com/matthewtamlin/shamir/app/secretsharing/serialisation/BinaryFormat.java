@@ -0,0 +1,279 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+
+/**
+ * The building blocks shared by the binary serialisation formats. Every binary serialisation starts with a fixed size
+ * header containing the magic number "SHMR", a type byte identifying the kind of model, a format version byte, the
+ * length of the payload as a four byte integer, and the CRC32 checksum of the payload as a four byte integer. The
+ * header is self-describing, so the kind of a serialisation can be detected by reading only the header. In the
+ * payload, non-negative integers are written as varints (seven bits per byte, least significant group first, with the
+ * high bit set on every byte except the last), and byte arrays are written as a varint length followed by the raw
+ * bytes. All fixed size integers are big-endian.
+ */
+final class BinaryFormat {
+  /**
+   * The maximum number of bytes in a single varint. This bounds the work done when reading malformed input.
+   */
+  private static final int MAX_VARINT_BYTES = 1024;
+  
+  private static final byte[] MAGIC = {'S', 'H', 'M', 'R'};
+  
+  /**
+   * The size of the header in bytes.
+   */
+  static final int HEADER_SIZE = MAGIC.length + 1 + 1 + 4 + 4;
+  
+  /**
+   * The type byte of serialised shares.
+   */
+  static final int TYPE_SHARE = 1;
+  
+  /**
+   * The type byte of serialised recovery schemes.
+   */
+  static final int TYPE_RECOVERY_SCHEME = 2;
+  
+  private BinaryFormat() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  /**
+   * Prepends a header to the payload written to the supplied stream.
+   */
+  static byte[] frame(final int type, final int version, final ByteArrayOutputStream payload) {
+    final byte[] payloadBytes = payload.toByteArray();
+    final CRC32 checksum = new CRC32();
+    
+    checksum.update(payloadBytes);
+    
+    return ByteBuffer
+        .allocate(HEADER_SIZE + payloadBytes.length)
+        .put(MAGIC)
+        .put((byte) type)
+        .put((byte) version)
+        .putInt(payloadBytes.length)
+        .putInt((int) checksum.getValue())
+        .put(payloadBytes)
+        .array();
+  }
+  
+  /**
+   * Checks whether the supplied header has the magic number, type and version of a serialisation. The header must be
+   * exactly {@link #HEADER_SIZE} bytes long to match. The length and checksum are not verified, since doing so
+   * requires the payload.
+   */
+  static boolean isHeaderOf(final byte[] header, final int type, final int version) {
+    return isHeaderOf(header, type, version, version);
+  }
+  
+  /**
+   * Checks whether the supplied header has the magic number and type of a serialisation, and a version between
+   * {@code minVersion} and {@code maxVersion} inclusive. The header must be exactly {@link #HEADER_SIZE} bytes long to
+   * match. The length and checksum are not verified, since doing so requires the payload.
+   */
+  static boolean isHeaderOf(final byte[] header, final int type, final int minVersion, final int maxVersion) {
+    if (header.length != HEADER_SIZE) {
+      return false;
+    }
+    
+    final ByteBuffer buffer = ByteBuffer.wrap(header);
+    final byte[] magic = new byte[MAGIC.length];
+    
+    buffer.get(magic);
+    
+    if (!Arrays.equals(magic, MAGIC) || (buffer.get() & 0xFF) != type) {
+      return false;
+    }
+    
+    final int version = buffer.get() & 0xFF;
+    
+    return version >= minVersion && version <= maxVersion && buffer.getInt() >= 0;
+  }
+  
+  /**
+   * Reads the header from the supplied stream and checks whether it is the header of a serialisation of the supplied
+   * type and version. At most {@link #HEADER_SIZE} bytes are read.
+   */
+  static boolean startsWithHeaderOf(final InputStream input, final int type, final int version) throws IOException {
+    return startsWithHeaderOf(input, type, version, version);
+  }
+  
+  /**
+   * Reads the header from the supplied stream and checks whether it is the header of a serialisation of the supplied
+   * type, with a version between {@code minVersion} and {@code maxVersion} inclusive. At most {@link #HEADER_SIZE}
+   * bytes are read.
+   */
+  static boolean startsWithHeaderOf(
+      final InputStream input,
+      final int type,
+      final int minVersion,
+      final int maxVersion) throws IOException {
+    
+    final byte[] header = new byte[HEADER_SIZE];
+    final int bytesRead = IOUtils.read(input, header);
+    
+    return bytesRead == HEADER_SIZE && isHeaderOf(header, type, minVersion, maxVersion);
+  }
+  
+  static void writeVarInt(final ByteArrayOutputStream output, final BigInteger value) {
+    if (value.signum() < 0) {
+      throw new IllegalArgumentException("\'value\' must not be negative.");
+    }
+    
+    BigInteger remaining = value;
+    
+    while (remaining.bitLength() > 7) {
+      output.write((remaining.intValue() & 0x7F) | 0x80);
+      remaining = remaining.shiftRight(7);
+    }
+    
+    output.write(remaining.intValue());
+  }
+  
+  static void writeLengthPrefixedBytes(final ByteArrayOutputStream output, final byte[] bytes) {
+    writeVarInt(output, BigInteger.valueOf(bytes.length));
+    output.write(bytes, 0, bytes.length);
+  }
+  
+  /**
+   * Reads the components of a binary serialisation in order. Every read is checked against the bounds of the data, and
+   * fails with a {@link DeserialisationException} rather than reading past the end.
+   */
+  static class Reader {
+    private final byte[] data;
+    
+    private int position = 0;
+    
+    Reader(@Nonnull final byte[] data) {
+      this.data = data;
+    }
+    
+    /**
+     * Reads and verifies the header, leaving the reader positioned at the start of the payload. The payload length
+     * must match the number of remaining bytes and the payload must match the checksum.
+     */
+    void readHeader(final int type, final int version) throws DeserialisationException {
+      readHeader(type, version, version);
+    }
+    
+    /**
+     * Reads and verifies the header, accepting any format version between {@code minVersion} and {@code maxVersion}
+     * inclusive. The reader is left positioned at the start of the payload. The payload length must match the number
+     * of remaining bytes and the payload must match the checksum.
+     *
+     * @return the format version of the data
+     */
+    int readHeader(final int type, final int minVersion, final int maxVersion) throws DeserialisationException {
+      if (data.length < HEADER_SIZE || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+        throw new DeserialisationException("The data does not start with the expected magic number.");
+      }
+      
+      final ByteBuffer header = ByteBuffer.wrap(data, MAGIC.length, HEADER_SIZE - MAGIC.length);
+      
+      final int actualType = header.get() & 0xFF;
+      
+      if (actualType != type) {
+        throw new DeserialisationException(format("Expected type %1$s but found %2$s.", type, actualType));
+      }
+      
+      final int actualVersion = header.get() & 0xFF;
+      
+      if (actualVersion < minVersion || actualVersion > maxVersion) {
+        throw new DeserialisationException(format("Unsupported format version %1$s.", actualVersion));
+      }
+      
+      final int length = header.getInt();
+      final int expectedChecksum = header.getInt();
+      
+      position = HEADER_SIZE;
+      
+      if (length != remaining()) {
+        throw new DeserialisationException(format("Expected %1$s bytes but found %2$s.", length, remaining()));
+      }
+      
+      final CRC32 checksum = new CRC32();
+      checksum.update(data, position, length);
+      
+      if ((int) checksum.getValue() != expectedChecksum) {
+        throw new DeserialisationException("The payload does not match the checksum.");
+      }
+      
+      return actualVersion;
+    }
+    
+    BigInteger readVarInt() throws DeserialisationException {
+      BigInteger value = BigInteger.ZERO;
+      
+      for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+        checkAvailable(1);
+        
+        final int currentByte = data[position++] & 0xFF;
+        
+        value = value.or(BigInteger.valueOf(currentByte & 0x7F).shiftLeft(7 * i));
+        
+        if ((currentByte & 0x80) == 0) {
+          return value;
+        }
+      }
+      
+      throw new DeserialisationException("Varint is too long.");
+    }
+    
+    byte[] readLengthPrefixedBytes() throws DeserialisationException {
+      final BigInteger length = readVarInt();
+      
+      if (length.compareTo(BigInteger.valueOf(data.length - position)) > 0) {
+        throw new DeserialisationException(format("Expected %1$s bytes but only %2$s remain.", length, remaining()));
+      }
+      
+      final byte[] bytes = Arrays.copyOfRange(data, position, position + length.intValue());
+      position += bytes.length;
+      
+      return bytes;
+    }
+    
+    void checkFullyRead() throws DeserialisationException {
+      if (remaining() != 0) {
+        throw new DeserialisationException(format("Found %1$s unexpected trailing bytes.", remaining()));
+      }
+    }
+    
+    private void checkAvailable(final int count) throws DeserialisationException {
+      if (remaining() < count) {
+        throw new DeserialisationException("Unexpected end of data.");
+      }
+    }
+    
+    private int remaining() {
+      return data.length - position;
+    }
+  }
+}
\ No newline at end of file
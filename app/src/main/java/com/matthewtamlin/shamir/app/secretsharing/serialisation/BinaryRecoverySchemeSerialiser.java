@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link RecoverySchemeSerialiser} which uses a compact binary format. The format consists of the binary header with
+ * the recovery scheme type, followed by the required share count as a varint, and a reference to the prime. The
+ * reference is a varint tag followed by either the UTF-8 bytes of a {@link PrimeCatalogue} ID, or the two's complement
+ * bytes of the prime, in both cases prefixed with a varint length. Catalogued primes are always written by ID.
+ * Version 1 serialisations, which contain the prime bytes without a tag, can still be read. See {@link BinaryFormat}
+ * for details of the encoding.
+ */
+public class BinaryRecoverySchemeSerialiser implements RecoverySchemeSerialiser {
+  private static final int VERSION_EXPLICIT_PRIME = 1;
+  
+  private static final int VERSION = 2;
+  
+  private static final int PRIME_TAG_EXPLICIT = 0;
+  
+  private static final int PRIME_TAG_CATALOGUE_ID = 1;
+  
+  @Override
+  @Nonnull
+  public Single<byte[]> serialise(@Nonnull final RecoveryScheme scheme) {
+    checkNotNull(scheme, "\'scheme\' must not be null.");
+    
+    return Single.fromCallable(() -> {
+      final String primeId = PrimeCatalogue.getId(scheme.getPrime());
+      final ByteArrayOutputStream output = new ByteArrayOutputStream(64);
+      
+      BinaryFormat.writeVarInt(output, BigInteger.valueOf(scheme.getRequiredShareCount()));
+      
+      if (primeId != null) {
+        BinaryFormat.writeVarInt(output, BigInteger.valueOf(PRIME_TAG_CATALOGUE_ID));
+        BinaryFormat.writeLengthPrefixedBytes(output, primeId.getBytes(UTF_8));
+      } else {
+        BinaryFormat.writeVarInt(output, BigInteger.valueOf(PRIME_TAG_EXPLICIT));
+        BinaryFormat.writeLengthPrefixedBytes(output, scheme.getPrime().toByteArray());
+      }
+      
+      return BinaryFormat.frame(BinaryFormat.TYPE_RECOVERY_SCHEME, VERSION, output);
+    });
+  }
+  
+  @Override
+  @Nonnull
+  public Single<RecoveryScheme> deserialise(@Nonnull final byte[] serialisedScheme) {
+    checkNotNull(serialisedScheme, "\'serialisedScheme\' must not be null.");
+    
+    return Single
+        .fromCallable(() -> {
+          final BinaryFormat.Reader reader = new BinaryFormat.Reader(serialisedScheme);
+          
+          final int version = reader.readHeader(BinaryFormat.TYPE_RECOVERY_SCHEME, VERSION_EXPLICIT_PRIME, VERSION);
+          
+          final int requiredShareCount = reader.readVarInt().intValueExact();
+          final BigInteger prime = version == VERSION_EXPLICIT_PRIME ?
+              PrimeCatalogue.intern(new BigInteger(reader.readLengthPrefixedBytes())) :
+              readPrime(reader);
+          
+          reader.checkFullyRead();
+          
+          return RecoveryScheme
+              .builder()
+              .setRequiredShareCount(requiredShareCount)
+              .setPrime(prime)
+              .build();
+        })
+        .onErrorResumeNext(error -> Single.error(
+            new DeserialisationException("Cannot deserialise recovery scheme.", error)));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Boolean> isValidSerialisation(@Nonnull final byte[] serialisedScheme) {
+    checkNotNull(serialisedScheme, "\'serialisedScheme\' must not be null.");
+    
+    return deserialise(serialisedScheme)
+        .flatMap(result -> Single.just(true))
+        .onErrorResumeNext(Single.just(false));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Boolean> isLikelySerialisation(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single.fromCallable(() -> BinaryFormat.startsWithHeaderOf(
+        input,
+        BinaryFormat.TYPE_RECOVERY_SCHEME,
+        VERSION_EXPLICIT_PRIME,
+        VERSION));
+  }
+  
+  private static BigInteger readPrime(final BinaryFormat.Reader reader) throws DeserialisationException {
+    final BigInteger tag = reader.readVarInt();
+    
+    if (tag.equals(BigInteger.valueOf(PRIME_TAG_EXPLICIT))) {
+      return PrimeCatalogue.intern(new BigInteger(reader.readLengthPrefixedBytes()));
+    }
+    
+    if (tag.equals(BigInteger.valueOf(PRIME_TAG_CATALOGUE_ID))) {
+      final String id = new String(reader.readLengthPrefixedBytes(), UTF_8);
+      final BigInteger prime = PrimeCatalogue.getPrime(id);
+      
+      if (prime == null) {
+        throw new DeserialisationException(format("Unknown prime ID \'%1$s\'.", id));
+      }
+      
+      return prime;
+    }
+    
+    throw new DeserialisationException(format("Unknown prime tag %1$s.", tag));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A {@link ShareSerialiser} which uses a compact binary format. The format consists of the binary header with the share
+ * type, followed by the index as a varint, and the value as a varint length followed by the two's complement bytes of
+ * the value. See {@link BinaryFormat} for details of the encoding.
+ */
+public class BinaryShareSerialiser implements ShareSerialiser {
+  private static final int VERSION = 1;
+  
+  @Override
+  @Nonnull
+  public Single<byte[]> serialise(@Nonnull final Share share) {
+    checkNotNull(share, "\'share\' must not be null.");
+    
+    return Single.fromCallable(() -> {
+      final byte[] value = share.getValue().toByteArray();
+      final ByteArrayOutputStream output = new ByteArrayOutputStream(value.length + 16);
+      
+      BinaryFormat.writeVarInt(output, share.getIndex());
+      BinaryFormat.writeLengthPrefixedBytes(output, value);
+      
+      return BinaryFormat.frame(BinaryFormat.TYPE_SHARE, VERSION, output);
+    });
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Share> deserialise(@Nonnull final byte[] serialisedShare) {
+    checkNotNull(serialisedShare, "\'serialisedShare\' must not be null.");
+    
+    return Single
+        .fromCallable(() -> {
+          final BinaryFormat.Reader reader = new BinaryFormat.Reader(serialisedShare);
+          
+          reader.readHeader(BinaryFormat.TYPE_SHARE, VERSION);
+          
+          final BigInteger index = reader.readVarInt();
+          final BigInteger value = new BigInteger(reader.readLengthPrefixedBytes());
+          
+          reader.checkFullyRead();
+          
+          return Share
+              .builder()
+              .setIndex(index)
+              .setValue(value)
+              .build();
+        })
+        .onErrorResumeNext(error -> Single.error(new DeserialisationException("Cannot deserialise share.", error)));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Boolean> isValidSerialisation(@Nonnull final byte[] serialisedShare) {
+    checkNotNull(serialisedShare, "\'serialisedShare\' must not be null.");
+    
+    return deserialise(serialisedShare)
+        .flatMap(result -> Single.just(true))
+        .onErrorResumeNext(Single.just(false));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Boolean> isLikelySerialisation(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single.fromCallable(() -> BinaryFormat.startsWithHeaderOf(input, BinaryFormat.TYPE_SHARE, VERSION));
+  }
+}
\ No newline at end of file
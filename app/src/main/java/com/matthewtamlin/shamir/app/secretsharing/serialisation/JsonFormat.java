@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Set;
+
+/**
+ * The building blocks shared by the JSON serialisation formats. JSON has no fixed size header, so a serialisation is
+ * detected by reading the start of the top level object and checking the name of its first property. This reads at
+ * most {@link #PREFIX_CHECK_READ_LIMIT} bytes regardless of the size of the serialisation.
+ */
+final class JsonFormat {
+  /**
+   * The maximum number of bytes read when checking the start of a serialisation. This leaves room for leading
+   * whitespace and the longest property name of the formats.
+   */
+  static final int PREFIX_CHECK_READ_LIMIT = 256;
+  
+  private JsonFormat() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  /**
+   * Checks whether the supplied stream starts with a JSON object whose first property has one of the supplied names.
+   * At most {@link #PREFIX_CHECK_READ_LIMIT} bytes are read. Input which is not JSON, or which ends before the first
+   * property name, gives false rather than an error.
+   *
+   * @throws IOException
+   *     if the stream cannot be read
+   */
+  static boolean startsWithPropertyOf(
+      final InputStream input,
+      final Charset charset,
+      final Set<String> propertyNames) throws IOException {
+    
+    final BoundedInputStream boundedInput = new BoundedInputStream(input, PREFIX_CHECK_READ_LIMIT);
+    boundedInput.setPropagateClose(false);
+    
+    final JsonReader reader = new JsonReader(new InputStreamReader(boundedInput, charset));
+    
+    // Matches the leniency of the serialisers when reading
+    reader.setLenient(true);
+    
+    try {
+      reader.beginObject();
+      
+      return reader.peek() == JsonToken.NAME && propertyNames.contains(reader.nextName());
+      
+    } catch (final MalformedJsonException | EOFException | IllegalStateException e) {
+      return false;
+    }
+  }
+}
\ No newline at end of file
@@ -16,64 +16,177 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.serialisation;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.matthewtamlin.shamir.app.secretsharing.CharsetConstants;
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.math.BigInteger;
 import java.util.Base64;
+import java.util.Set;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 import static java.lang.String.format;
 
+/**
+ * A {@link RecoverySchemeSerialiser} which uses JSON. Primes in the {@link PrimeCatalogue} are written as a
+ * {@code primeId} property, and all other primes are written Base64 encoded as a {@code prime} property. Both forms
+ * are accepted when reading, so files written before the catalogue existed remain readable. The JSON is read and
+ * written as a stream of tokens, so no document tree is built and the whole serialisation is never held as a string.
+ * Detection only reads the start of the stream, up to the name of the first property.
+ */
 public class JsonRecoverySchemeSerialiser implements RecoverySchemeSerialiser {
+  /**
+   * The names of the properties which can come first in a serialisation.
+   */
+  private static final Set<String> PROPERTY_NAMES = ImmutableSet.of("requiredShareCount", "prime", "primeId");
+  
   @Override
   @Nonnull
-  public Single<String> serialise(@Nonnull final RecoveryScheme scheme) {
+  public Single<byte[]> serialise(@Nonnull final RecoveryScheme scheme) {
     checkNotNull(scheme, "\'scheme\' must not be null.");
     
     return Single.fromCallable(() -> {
-      final String primeBase64Encoded = Base64.getEncoder().encodeToString(scheme.getPrime().toByteArray());
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
       
-      final JsonObject json = new JsonObject();
-      json.addProperty("requiredShareCount", scheme.getRequiredShareCount());
-      json.addProperty("prime", primeBase64Encoded);
+      write(scheme, output);
       
-      return json.toString();
+      return output.toByteArray();
     });
   }
   
   @Override
   @Nonnull
-  public Single<RecoveryScheme> deserialise(@Nonnull final String serialisedScheme) {
+  public Single<RecoveryScheme> deserialise(@Nonnull final byte[] serialisedScheme) {
     checkNotNull(serialisedScheme, "\'serialisedScheme\' must not be null.");
     
     return Single
-        .just(serialisedScheme)
-        .map(scheme -> {
-          final JsonObject jsonObject = new JsonParser().parse(serialisedScheme).getAsJsonObject();
-          
-          final byte[] primeBase64Decoded = Base64.getDecoder().decode(jsonObject.get("prime").getAsString());
-          
-          return RecoveryScheme
-              .builder()
-              .setRequiredShareCount(jsonObject.get("requiredShareCount").getAsInt())
-              .setPrime(new BigInteger(primeBase64Decoded))
-              .build();
-        })
+        .fromCallable(() -> read(new ByteArrayInputStream(serialisedScheme)))
         .onErrorResumeNext(error -> Single.error(
-            new DeserialisationException(format("Cannot deserialise \'%1$s.\'", serialisedScheme), error)));
+            new DeserialisationException(format(
+                "Cannot deserialise \'%1$s.\'",
+                new String(serialisedScheme, CharsetConstants.RECOVERY_SCHEME_CHARSET)), error)));
   }
   
   @Override
   @Nonnull
-  public Single<Boolean> isValidSerialisation(@Nonnull final String serialisedScheme) {
+  public Single<Boolean> isValidSerialisation(@Nonnull final byte[] serialisedScheme) {
     checkNotNull(serialisedScheme, "\'serialisedScheme\' must not be null.");
     
     return deserialise(serialisedScheme)
         .flatMap(result -> Single.just(true))
         .onErrorResumeNext(Single.just(false));
   }
+  
+  @Override
+  @Nonnull
+  public Completable writeTo(@Nonnull final RecoveryScheme scheme, @Nonnull final OutputStream output) {
+    checkNotNull(scheme, "\'scheme\' must not be null.");
+    checkNotNull(output, "\'output\' must not be null.");
+    
+    return Completable.fromAction(() -> write(scheme, output));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<RecoveryScheme> readFrom(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single
+        .fromCallable(() -> read(input))
+        .onErrorResumeNext(error -> Single.error(
+            new DeserialisationException("Cannot deserialise recovery scheme.", error)));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Boolean> isLikelySerialisation(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single.fromCallable(() -> JsonFormat.startsWithPropertyOf(
+        input,
+        CharsetConstants.RECOVERY_SCHEME_CHARSET,
+        PROPERTY_NAMES));
+  }
+  
+  private void write(final RecoveryScheme scheme, final OutputStream output) throws Exception {
+    final JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+        output,
+        CharsetConstants.RECOVERY_SCHEME_CHARSET));
+    
+    final String primeId = PrimeCatalogue.getId(scheme.getPrime());
+    
+    writer
+        .beginObject()
+        .name("requiredShareCount").value(scheme.getRequiredShareCount());
+    
+    if (primeId != null) {
+      writer.name("primeId").value(primeId);
+    } else {
+      writer.name("prime").value(Base64.getEncoder().encodeToString(scheme.getPrime().toByteArray()));
+    }
+    
+    writer
+        .endObject()
+        .flush();
+  }
+  
+  private RecoveryScheme read(final InputStream input) throws Exception {
+    final JsonReader reader = new JsonReader(new InputStreamReader(input, CharsetConstants.RECOVERY_SCHEME_CHARSET));
+    
+    // Matches the leniency of the tree parser used to read the original files
+    reader.setLenient(true);
+    
+    Integer requiredShareCount = null;
+    BigInteger prime = null;
+    
+    reader.beginObject();
+    
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      
+      if (name.equals("requiredShareCount")) {
+        requiredShareCount = reader.nextInt();
+        
+      } else if (name.equals("prime")) {
+        prime = PrimeCatalogue.intern(new BigInteger(Base64.getDecoder().decode(reader.nextString())));
+        
+      } else if (name.equals("primeId")) {
+        final String id = reader.nextString();
+        
+        prime = PrimeCatalogue.getPrime(id);
+        
+        if (prime == null) {
+          throw new DeserialisationException(format("Unknown prime ID \'%1$s\'.", id));
+        }
+        
+      } else {
+        reader.skipValue();
+      }
+    }
+    
+    reader.endObject();
+    
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new DeserialisationException("Unexpected content after the recovery scheme.");
+    }
+    
+    return RecoveryScheme
+        .builder()
+        .setRequiredShareCount(checkNotNull(requiredShareCount, "The required share count is missing."))
+        .setPrime(checkNotNull(prime, "The prime is missing."))
+        .build();
+  }
 }
\ No newline at end of file
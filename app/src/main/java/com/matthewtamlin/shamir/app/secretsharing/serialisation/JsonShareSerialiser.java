@@ -16,66 +16,153 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.serialisation;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.matthewtamlin.shamir.app.secretsharing.CharsetConstants;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.math.BigInteger;
 import java.util.Base64;
+import java.util.Set;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 import static java.lang.String.format;
 
+/**
+ * A {@link ShareSerialiser} which uses JSON with Base64 encoded numbers. The JSON is read and written as a stream of
+ * tokens, so no document tree is built and the whole serialisation is never held as a string. Detection only reads
+ * the start of the stream, up to the name of the first property.
+ */
 public class JsonShareSerialiser implements ShareSerialiser {
+  /**
+   * The names of the properties which can come first in a serialisation.
+   */
+  private static final Set<String> PROPERTY_NAMES = ImmutableSet.of("index", "value");
+  
   @Override
   @Nonnull
-  public Single<String> serialise(@Nonnull final Share share) {
+  public Single<byte[]> serialise(@Nonnull final Share share) {
     checkNotNull(share, "\'share\' must not be null.");
     
     return Single.fromCallable(() -> {
-      final String indexBase64Encoded = Base64.getEncoder().encodeToString(share.getIndex().toByteArray());
-      final String valueBase64Encoded = Base64.getEncoder().encodeToString(share.getValue().toByteArray());
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
       
-      final JsonObject json = new JsonObject();
-      json.addProperty("index", indexBase64Encoded);
-      json.addProperty("value", valueBase64Encoded);
+      write(share, output);
       
-      return json.toString();
+      return output.toByteArray();
     });
   }
   
   @Override
   @Nonnull
-  public Single<Share> deserialise(@Nonnull final String serialisedShare) {
+  public Single<Share> deserialise(@Nonnull final byte[] serialisedShare) {
     checkNotNull(serialisedShare, "\'serialisedShare\' must not be null.");
     
     return Single
-        .just(serialisedShare)
-        .map(share -> {
-          final JsonObject jsonObject = new JsonParser().parse(serialisedShare).getAsJsonObject();
-          
-          final byte[] indexBase64Decoded = Base64.getDecoder().decode(jsonObject.get("index").getAsString());
-          final byte[] valueBase64Decoded = Base64.getDecoder().decode(jsonObject.get("value").getAsString());
-          
-          return Share
-              .builder()
-              .setIndex(new BigInteger(indexBase64Decoded))
-              .setValue(new BigInteger(valueBase64Decoded))
-              .build();
-        })
+        .fromCallable(() -> read(new ByteArrayInputStream(serialisedShare)))
         .onErrorResumeNext(error -> Single.error(
-            new DeserialisationException(format("Cannot deserialise \'%1$s\'.", serialisedShare), error)));
+            new DeserialisationException(format(
+                "Cannot deserialise \'%1$s\'.",
+                new String(serialisedShare, CharsetConstants.SHARE_FILE_CHARSET)), error)));
   }
   
   @Override
   @Nonnull
-  public Single<Boolean> isValidSerialisation(@Nonnull final String serialisedShare) {
+  public Single<Boolean> isValidSerialisation(@Nonnull final byte[] serialisedShare) {
     checkNotNull(serialisedShare, "\'serialisedShare\' must not be null.");
     
     return deserialise(serialisedShare)
         .flatMap(result -> Single.just(true))
         .onErrorResumeNext(Single.just(false));
   }
+  
+  @Override
+  @Nonnull
+  public Completable writeTo(@Nonnull final Share share, @Nonnull final OutputStream output) {
+    checkNotNull(share, "\'share\' must not be null.");
+    checkNotNull(output, "\'output\' must not be null.");
+    
+    return Completable.fromAction(() -> write(share, output));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Share> readFrom(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single
+        .fromCallable(() -> read(input))
+        .onErrorResumeNext(error -> Single.error(new DeserialisationException("Cannot deserialise share.", error)));
+  }
+  
+  @Override
+  @Nonnull
+  public Single<Boolean> isLikelySerialisation(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single.fromCallable(() -> JsonFormat.startsWithPropertyOf(
+        input,
+        CharsetConstants.SHARE_FILE_CHARSET,
+        PROPERTY_NAMES));
+  }
+  
+  private void write(final Share share, final OutputStream output) throws Exception {
+    final JsonWriter writer = new JsonWriter(new OutputStreamWriter(output, CharsetConstants.SHARE_FILE_CHARSET));
+    
+    writer
+        .beginObject()
+        .name("index").value(Base64.getEncoder().encodeToString(share.getIndex().toByteArray()))
+        .name("value").value(Base64.getEncoder().encodeToString(share.getValue().toByteArray()))
+        .endObject()
+        .flush();
+  }
+  
+  private Share read(final InputStream input) throws Exception {
+    final JsonReader reader = new JsonReader(new InputStreamReader(input, CharsetConstants.SHARE_FILE_CHARSET));
+    
+    // Matches the leniency of the tree parser used to read the original files
+    reader.setLenient(true);
+    
+    BigInteger index = null;
+    BigInteger value = null;
+    
+    reader.beginObject();
+    
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      
+      if (name.equals("index")) {
+        index = new BigInteger(Base64.getDecoder().decode(reader.nextString()));
+        
+      } else if (name.equals("value")) {
+        value = new BigInteger(Base64.getDecoder().decode(reader.nextString()));
+        
+      } else {
+        reader.skipValue();
+      }
+    }
+    
+    reader.endObject();
+    
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new DeserialisationException("Unexpected content after the share.");
+    }
+    
+    return Share
+        .builder()
+        .setIndex(checkNotNull(index, "The index is missing."))
+        .setValue(checkNotNull(value, "The value is missing."))
+        .build();
+  }
 }
\ No newline at end of file
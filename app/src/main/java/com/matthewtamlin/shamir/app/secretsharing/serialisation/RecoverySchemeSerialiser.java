@@ -17,17 +17,93 @@
 package com.matthewtamlin.shamir.app.secretsharing.serialisation;
 
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import io.reactivex.Completable;
 import io.reactivex.Single;
+import org.apache.commons.io.IOUtils;
 
 import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public interface RecoverySchemeSerialiser {
   @Nonnull
-  public Single<String> serialise(@Nonnull final RecoveryScheme scheme);
+  public Single<byte[]> serialise(@Nonnull final RecoveryScheme scheme);
+  
+  @Nonnull
+  public Single<RecoveryScheme> deserialise(@Nonnull final byte[] serialisedScheme);
+  
+  @Nonnull
+  public Single<Boolean> isValidSerialisation(@Nonnull final byte[] serialisedScheme);
+  
+  /**
+   * Serialises the supplied recovery scheme directly to the supplied stream. The stream is flushed but not closed. By
+   * default the recovery scheme is serialised to an array and then written, but implementations may write
+   * incrementally instead.
+   * <p>
+   * The returned completable does not operate by default on a particular scheduler.
+   *
+   * @param scheme
+   *     the recovery scheme to serialise, not null
+   * @param output
+   *     the stream to write to, not null
+   *
+   * @return a new completable that writes the recovery scheme then completes
+   */
+  @Nonnull
+  public default Completable writeTo(@Nonnull final RecoveryScheme scheme, @Nonnull final OutputStream output) {
+    checkNotNull(scheme, "\'scheme\' must not be null.");
+    checkNotNull(output, "\'output\' must not be null.");
+    
+    return serialise(scheme).flatMapCompletable(serialisedScheme -> Completable.fromAction(() -> {
+      output.write(serialisedScheme);
+      output.flush();
+    }));
+  }
   
+  /**
+   * Deserialises a recovery scheme directly from the supplied stream. The stream is not closed. By default the stream
+   * is read into an array and then deserialised, but implementations may read incrementally instead. The operation
+   * fails with a {@link DeserialisationException} if the stream does not contain a valid serialisation.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param input
+   *     the stream to read from, not null
+   *
+   * @return a new single that emits the recovery scheme then completes
+   */
   @Nonnull
-  public Single<RecoveryScheme> deserialise(@Nonnull final String serialisedScheme);
+  public default Single<RecoveryScheme> readFrom(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single
+        .fromCallable(() -> IOUtils.toByteArray(input))
+        .flatMap(this::deserialise);
+  }
   
+  /**
+   * Checks whether the supplied stream appears to contain a recovery scheme serialised by this serialiser, reading as
+   * little of the stream as possible. The stream is not closed. A true result does not guarantee that deserialisation
+   * will succeed, since formats with a self-describing header only check the header. By default the whole stream is
+   * read and deserialised.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param input
+   *     the stream to read from, not null
+   *
+   * @return a new single that emits true if the stream appears to contain a recovery scheme, false otherwise
+   */
   @Nonnull
-  public Single<Boolean> isValidSerialisation(@Nonnull final String serialisedScheme);
+  public default Single<Boolean> isLikelySerialisation(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return readFrom(input)
+        .map(result -> true)
+        .onErrorResumeNext(error -> error instanceof DeserialisationException ?
+            Single.just(false) :
+            Single.error(error));
+  }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+/**
+ * The formats that shares and recovery schemes can be serialised to.
+ */
+public enum SerialisationFormat {
+  /**
+   * Human readable JSON with Base64 encoded numbers. This is the original format. There is no header, so files are
+   * detected by the name of the first property of the top level object, which is found within the first few hundred
+   * bytes.
+   */
+  JSON,
+  
+  /**
+   * A compact binary format. Each file starts with a fixed size header containing the magic number, a type byte
+   * identifying whether the file holds a share or a recovery scheme, a version byte, the payload length and a CRC32
+   * checksum of the payload. Shares are written at version 1. Recovery schemes are written at version 2, which can
+   * refer to a catalogued prime by ID, and version 1 recovery schemes can still be read.
+   */
+  BINARY;
+  
+  /**
+   * Creates a new serialiser which serialises shares to this format.
+   *
+   * @return the new serialiser, not null
+   */
+  public ShareSerialiser createShareSerialiser() {
+    return this == BINARY ? new BinaryShareSerialiser() : new JsonShareSerialiser();
+  }
+  
+  /**
+   * Creates a new serialiser which serialises recovery schemes to this format.
+   *
+   * @return the new serialiser, not null
+   */
+  public RecoverySchemeSerialiser createRecoverySchemeSerialiser() {
+    return this == BINARY ? new BinaryRecoverySchemeSerialiser() : new JsonRecoverySchemeSerialiser();
+  }
+}
\ No newline at end of file
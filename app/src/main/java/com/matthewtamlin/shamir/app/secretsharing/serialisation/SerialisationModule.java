@@ -23,8 +23,31 @@ import com.matthewtamlin.shamir.commonslibrary.model.ModelTypeAdapterFactory;
 import dagger.Module;
 import dagger.Provides;
 
+import javax.annotation.Nonnull;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
 @Module
 public class SerialisationModule {
+  private final SerialisationFormat format;
+  
+  /**
+   * Constructs a new SerialisationModule which provides serialisers for the {@link SerialisationFormat#JSON} format.
+   */
+  public SerialisationModule() {
+    this(SerialisationFormat.JSON);
+  }
+  
+  /**
+   * Constructs a new SerialisationModule which provides serialisers for the supplied format.
+   *
+   * @param format
+   *     the format to serialise to, not null
+   */
+  public SerialisationModule(@Nonnull final SerialisationFormat format) {
+    this.format = checkNotNull(format, "\'format\' must not be null.");
+  }
+  
   @Provides
   @SecretSharingScope
   public ModelTypeAdapterFactory provideModelTypeAdapterFactory() {
@@ -42,12 +65,18 @@ public class SerialisationModule {
   @Provides
   @SecretSharingScope
   public ShareSerialiser provideShareSerialiser() {
-    return new JsonShareSerialiser();
+    return format.createShareSerialiser();
   }
   
   @Provides
   @SecretSharingScope
   public RecoverySchemeSerialiser provideRecoverySchemeSerialiser() {
-    return new JsonRecoverySchemeSerialiser();
+    return format.createRecoverySchemeSerialiser();
+  }
+  
+  @Provides
+  @SecretSharingScope
+  public ShareBundleSerialiser provideShareBundleSerialiser(final ShareSerialiser shareSerialiser) {
+    return new ShareBundleSerialiser(shareSerialiser);
   }
 }
\ No newline at end of file
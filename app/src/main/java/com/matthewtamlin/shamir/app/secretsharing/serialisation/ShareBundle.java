@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+
+import static java.lang.String.format;
+
+/**
+ * A read only view of a bundle file produced by a {@link ShareBundleSerialiser}. The file is memory mapped, so any
+ * share can be read without reading the rest of the file, and only the pages that are accessed are loaded.
+ */
+public class ShareBundle {
+  private final ByteBuffer contents;
+  
+  private final long[] offsets;
+  
+  private final int[] lengths;
+  
+  private final ShareSerialiser shareSerialiser;
+  
+  ShareBundle(
+      final ByteBuffer contents,
+      final long[] offsets,
+      final int[] lengths,
+      final ShareSerialiser shareSerialiser) {
+    
+    this.contents = contents;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    this.shareSerialiser = shareSerialiser;
+  }
+  
+  /**
+   * @return the number of shares in this bundle
+   */
+  public int getShareCount() {
+    return offsets.length;
+  }
+  
+  /**
+   * Reads a single share from this bundle. The operation will fail if the position is out of range or if the share
+   * cannot be deserialised.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param position
+   *     the position of the share in the bundle, between 0 (inclusive) and the share count (exclusive)
+   *
+   * @return a new single that emits the share then completes
+   */
+  @Nonnull
+  public Single<Share> getShare(final int position) {
+    return Single
+        .fromCallable(() -> {
+          if (position < 0 || position >= offsets.length) {
+            throw new IndexOutOfBoundsException(format(
+                "Position %1$s is out of range for a bundle of %2$s shares.",
+                position,
+                offsets.length));
+          }
+          
+          // Each read uses its own view of the buffer so that concurrent reads do not share a position
+          final ByteBuffer view = contents.duplicate();
+          final byte[] serialisedShare = new byte[lengths[position]];
+          
+          view.position((int) offsets[position]);
+          view.get(serialisedShare);
+          
+          return serialisedShare;
+        })
+        .flatMap(shareSerialiser::deserialise);
+  }
+  
+  /**
+   * Reads every share in this bundle in order.
+   * <p>
+   * The returned observable does not operate by default on a particular scheduler.
+   *
+   * @return a new observable that emits the shares then completes
+   */
+  @Nonnull
+  public Observable<Share> getShares() {
+    return Observable
+        .range(0, offsets.length)
+        .concatMap(position -> getShare(position).toObservable());
+  }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Stores many shares in a single bundle file, so that large share sets do not need one file per share. The bundle
+ * starts with the magic number "SHBN", a format version byte and the share count as a four byte integer. An offset
+ * table follows, containing the eight byte offset and four byte length of each share, and then the shares themselves,
+ * each serialised with the {@link ShareSerialiser} supplied at construction. All integers are big-endian.
+ * <p>
+ * Bundles are read by memory mapping the file, so they are limited to 2GB. The app stores the shares of a secret which
+ * was split into several blocks in bundles, one bundle per holder with the holder's share of each block in block order.
+ */
+public class ShareBundleSerialiser {
+  private static final byte[] MAGIC = {'S', 'H', 'B', 'N'};
+  
+  private static final int VERSION = 1;
+  
+  private static final int HEADER_SIZE = MAGIC.length + 1 + 4;
+  
+  private static final int TABLE_ENTRY_SIZE = 8 + 4;
+  
+  private final ShareSerialiser shareSerialiser;
+  
+  /**
+   * Constructs a new ShareBundleSerialiser.
+   *
+   * @param shareSerialiser
+   *     serialises the individual shares in each bundle, not null
+   */
+  public ShareBundleSerialiser(@Nonnull final ShareSerialiser shareSerialiser) {
+    this.shareSerialiser = checkNotNull(shareSerialiser, "\'shareSerialiser\' must not be null.");
+  }
+  
+  /**
+   * Writes the supplied shares to a bundle file, replacing any existing content in the file. The operation will fail
+   * if the file cannot be written to or is actually a directory.
+   * <p>
+   * The returned completable does not operate by default on a particular scheduler.
+   *
+   * @param shares
+   *     the shares to write, not null, not containing null
+   * @param file
+   *     the file to write to, not null
+   *
+   * @return a new completable that writes the bundle then completes
+   */
+  @Nonnull
+  public Completable writeToFile(@Nonnull final List<Share> shares, @Nonnull final File file) {
+    checkNotNull(shares, "\'shares\' must not be null.");
+    checkEachElementIsNotNull(shares, "\'shares\' must not contain null.");
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return Observable
+        .fromIterable(shares)
+        .concatMap(share -> shareSerialiser.serialise(share).toObservable())
+        .toList()
+        .flatMapCompletable(serialisedShares -> Completable.fromAction(() -> {
+          try (final DataOutputStream output = new DataOutputStream(
+              new BufferedOutputStream(new FileOutputStream(file)))) {
+            
+            output.write(MAGIC);
+            output.writeByte(VERSION);
+            output.writeInt(serialisedShares.size());
+            
+            long offset = HEADER_SIZE + (long) TABLE_ENTRY_SIZE * serialisedShares.size();
+            
+            for (final byte[] serialisedShare : serialisedShares) {
+              output.writeLong(offset);
+              output.writeInt(serialisedShare.length);
+              
+              offset += serialisedShare.length;
+            }
+            
+            for (final byte[] serialisedShare : serialisedShares) {
+              output.write(serialisedShare);
+            }
+          }
+        }));
+  }
+  
+  /**
+   * Checks whether the supplied stream starts with the bundle magic number. Only the magic number is read, and the
+   * stream is not closed. A true result does not guarantee that the rest of the bundle is well formed.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param input
+   *     the stream to read from, not null
+   *
+   * @return a new single that emits true if the stream starts with the magic number, false otherwise
+   */
+  @Nonnull
+  public Single<Boolean> isLikelyBundle(@Nonnull final InputStream input) {
+    checkNotNull(input, "\'input\' must not be null.");
+    
+    return Single.fromCallable(() -> {
+      final byte[] magic = new byte[MAGIC.length];
+      int length = 0;
+      int count;
+      
+      while (length < magic.length && (count = input.read(magic, length, magic.length - length)) != -1) {
+        length += count;
+      }
+      
+      return length == magic.length && Arrays.equals(magic, MAGIC);
+    });
+  }
+  
+  /**
+   * Opens a bundle file for reading. Only the header and offset table are read, and the shares are read on demand
+   * from the returned bundle. The operation will fail with a {@link DeserialisationException} if the file is not a
+   * well formed bundle, and with an IOException if the file cannot be read.
+   * <p>
+   * The returned single does not operate by default on a particular scheduler.
+   *
+   * @param file
+   *     the file to read from, not null
+   *
+   * @return a new single that emits the bundle then completes
+   */
+  @Nonnull
+  public Single<ShareBundle> readFromFile(@Nonnull final File file) {
+    checkNotNull(file, "\'file\' must not be null.");
+    
+    return Single.fromCallable(() -> {
+      final MappedByteBuffer contents;
+      
+      // The mapping remains valid after the channel is closed
+      try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      
+      if (contents.limit() < HEADER_SIZE) {
+        throw new DeserialisationException("The file is too short to be a bundle.");
+      }
+      
+      final byte[] magic = new byte[MAGIC.length];
+      contents.get(magic);
+      
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new DeserialisationException("The file does not start with the bundle magic number.");
+      }
+      
+      final int version = contents.get() & 0xFF;
+      
+      if (version != VERSION) {
+        throw new DeserialisationException(format("Unsupported bundle version %1$s.", version));
+      }
+      
+      final int shareCount = contents.getInt();
+      
+      if (shareCount < 0 || shareCount > (contents.limit() - HEADER_SIZE) / TABLE_ENTRY_SIZE) {
+        throw new DeserialisationException(format("The offset table of %1$s entries does not fit.", shareCount));
+      }
+      
+      final long[] offsets = new long[shareCount];
+      final int[] lengths = new int[shareCount];
+      
+      for (int i = 0; i < shareCount; i++) {
+        offsets[i] = contents.getLong();
+        lengths[i] = contents.getInt();
+        
+        if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > contents.limit()) {
+          throw new DeserialisationException(format("Share %1$s lies outside the file.", i));
+        }
+      }
+      
+      return new ShareBundle(contents, offsets, lengths, shareSerialiser);
+    });
+  }
+}
\ No newline at end of file
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.ModelTypeAdapterFactory;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.Single;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("ConstantConditions")
+public class TestDaemonServer {
+  private static final String SECRET = "c2VjcmV0";
+  
+  private final Gson gson = new GsonBuilder()
+      .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+      .create();
+  
+  private SecretSharingService service;
+  
+  private DaemonServer server;
+  
+  private InetSocketAddress address;
+  
+  @Before
+  public void setup() throws IOException {
+    service = new SecretSharingService(
+        new RxShamir(new SecureRandom()),
+        CryptoConstants.createDefault(),
+        new SecretEncoder());
+    
+    server = new DaemonServer(service, gson, 2, 4);
+    address = server.start(0);
+  }
+  
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullService() {
+    new DaemonServer(null, gson, 1, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullGson() {
+    new DaemonServer(service, null, 1, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_workerCountNotGreaterThanZero() {
+    new DaemonServer(service, gson, 0, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_queueCapacityNotGreaterThanZero() {
+    new DaemonServer(service, gson, 1, 0);
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testStart_alreadyStarted() throws IOException {
+    server.start(0);
+  }
+  
+  @Test
+  public void testStart_listensOnLoopback() {
+    assertThat(address.getAddress().isLoopbackAddress(), is(true));
+  }
+  
+  @Test
+  public void testCreateThenRecover() throws IOException {
+    final JsonObject creation = post("/create", createRequest(2, 3)).body;
+    
+    assertThat(creation.getAsJsonArray("shares").size(), is(3));
+    
+    final JsonObject recoverRequest = new JsonObject();
+    recoverRequest.add("recoveryScheme", creation.get("recoveryScheme"));
+    recoverRequest.add("shares", firstShares(creation, 2));
+    
+    final Result recovery = post("/recover", recoverRequest);
+    
+    assertThat(recovery.status, is(200));
+    assertThat(recovery.body.get("secret").getAsString(), is(SECRET));
+  }
+  
+  @Test
+  public void testRegenerateThenRecover() throws IOException {
+    final JsonObject creation = post("/create", createRequest(2, 3)).body;
+    
+    final JsonObject regenerateRequest = new JsonObject();
+    regenerateRequest.add("recoveryScheme", creation.get("recoveryScheme"));
+    regenerateRequest.add("shares", firstShares(creation, 2));
+    regenerateRequest.addProperty("requiredShareCount", 3);
+    regenerateRequest.addProperty("totalShareCount", 4);
+    
+    final JsonObject regeneration = post("/regenerate", regenerateRequest).body;
+    
+    assertThat(regeneration.getAsJsonArray("shares").size(), is(4));
+    
+    final JsonObject recoverRequest = new JsonObject();
+    recoverRequest.add("recoveryScheme", regeneration.get("recoveryScheme"));
+    recoverRequest.add("shares", firstShares(regeneration, 3));
+    
+    assertThat(post("/recover", recoverRequest).body.get("secret").getAsString(), is(SECRET));
+  }
+  
+  @Test
+  public void testCreate_secretNotSpecified() throws IOException {
+    final JsonObject request = createRequest(2, 3);
+    request.remove("secret");
+    
+    assertThat(post("/create", request).status, is(400));
+  }
+  
+  @Test
+  public void testCreate_invalidShareCounts() throws IOException {
+    assertThat(post("/create", createRequest(4, 3)).status, is(400));
+  }
+  
+  @Test
+  public void testCreate_tooManyShares() throws IOException {
+    assertThat(post("/create", createRequest(2, DaemonServer.MAX_TOTAL_SHARE_COUNT + 1)).status, is(400));
+  }
+  
+  @Test
+  public void testCreate_malformedJson() throws IOException {
+    assertThat(post("/create", "{\"secret\":").status, is(400));
+  }
+  
+  @Test
+  public void testCreate_requestTooLarge() throws IOException {
+    final StringBuilder request = new StringBuilder();
+    
+    while (request.length() <= DaemonServer.MAX_REQUEST_BYTES) {
+      request.append("          ");
+    }
+    
+    assertThat(post("/create", request.toString()).status, is(413));
+  }
+  
+  @Test
+  public void testCreate_notPost() throws IOException {
+    final HttpURLConnection connection = open("/create");
+    connection.setRequestMethod("GET");
+    
+    assertThat(connection.getResponseCode(), is(405));
+  }
+  
+  @Test
+  public void testBatch_eachRequestHasItsOwnResponse() throws IOException {
+    final JsonArray requests = new JsonArray();
+    requests.add(batchItem("create", createRequest(2, 3)));
+    requests.add(batchItem("create", createRequest(4, 3)));
+    requests.add(batchItem("unknown", new JsonObject()));
+    
+    final JsonObject batch = new JsonObject();
+    batch.add("requests", requests);
+    
+    final Result result = post("/batch", batch);
+    final JsonArray responses = result.body.getAsJsonArray("responses");
+    
+    assertThat(result.status, is(200));
+    assertThat(responses.size(), is(3));
+    assertThat(responses.get(0).getAsJsonObject().get("status").getAsInt(), is(200));
+    assertThat(responses.get(1).getAsJsonObject().get("status").getAsInt(), is(400));
+    assertThat(responses.get(2).getAsJsonObject().get("status").getAsInt(), is(400));
+    
+    final JsonObject firstResponse = responses.get(0).getAsJsonObject().getAsJsonObject("response");
+    
+    assertThat(firstResponse.getAsJsonArray("shares").size(), is(3));
+  }
+  
+  @Test
+  public void testBatch_tooManyRequests() throws IOException {
+    final JsonArray requests = new JsonArray();
+    
+    for (int i = 0; i <= DaemonServer.MAX_BATCH_SIZE; i++) {
+      requests.add(batchItem("create", createRequest(2, 3)));
+    }
+    
+    final JsonObject batch = new JsonObject();
+    batch.add("requests", requests);
+    
+    assertThat(post("/batch", batch).status, is(400));
+  }
+  
+  @Test
+  public void testBatch_tooManySharesInTotal() throws IOException {
+    final JsonArray requests = new JsonArray();
+    
+    for (int i = 0; i <= DaemonServer.MAX_BATCH_SHARE_COUNT / DaemonServer.MAX_TOTAL_SHARE_COUNT; i++) {
+      requests.add(batchItem("create", createRequest(2, DaemonServer.MAX_TOTAL_SHARE_COUNT)));
+    }
+    
+    final JsonObject batch = new JsonObject();
+    batch.add("requests", requests);
+    
+    assertThat(post("/batch", batch).status, is(400));
+  }
+  
+  @Test
+  public void testCreate_queueFull() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final SecretSharingService blockingService = mock(SecretSharingService.class);
+    
+    when(blockingService.createShares(any(), anyInt(), anyInt())).thenReturn(Single.fromCallable(() -> {
+      release.await(10, SECONDS);
+      return service.createShares(new byte[]{1}, 2, 2).blockingGet();
+    }));
+    
+    final DaemonServer singleWorkerServer = new DaemonServer(blockingService, gson, 1, 1);
+    final InetSocketAddress singleWorkerAddress = singleWorkerServer.start(0);
+    
+    try {
+      // Occupies the worker, then the only place in the queue
+      final Thread first = new Thread(() -> postQuietly(singleWorkerAddress));
+      final Thread second = new Thread(() -> postQuietly(singleWorkerAddress));
+      
+      first.start();
+      Thread.sleep(200);
+      second.start();
+      Thread.sleep(200);
+      
+      final Result rejected = post(singleWorkerAddress, "/create", gson.toJson(createRequest(2, 2)));
+      
+      assertThat(rejected.status, is(503));
+      
+      release.countDown();
+      first.join(5000);
+      second.join(5000);
+      
+    } finally {
+      release.countDown();
+      singleWorkerServer.stop(0);
+    }
+  }
+  
+  private void postQuietly(final InetSocketAddress address) {
+    try {
+      post(address, "/create", gson.toJson(createRequest(2, 2)));
+      
+    } catch (final IOException e) {
+      // The test only depends on the rejected request
+    }
+  }
+  
+  private static JsonObject createRequest(final int requiredShareCount, final int totalShareCount) {
+    final JsonObject request = new JsonObject();
+    request.addProperty("secret", SECRET);
+    request.addProperty("requiredShareCount", requiredShareCount);
+    request.addProperty("totalShareCount", totalShareCount);
+    
+    return request;
+  }
+  
+  private static JsonObject batchItem(final String operation, final JsonObject request) {
+    final JsonObject item = new JsonObject();
+    item.addProperty("operation", operation);
+    item.add("request", request);
+    
+    return item;
+  }
+  
+  private static JsonArray firstShares(final JsonObject creation, final int count) {
+    final JsonArray shares = new JsonArray();
+    
+    for (int i = 0; i < count; i++) {
+      shares.add(creation.getAsJsonArray("shares").get(i));
+    }
+    
+    return shares;
+  }
+  
+  private Result post(final String path, final JsonObject body) throws IOException {
+    return post(address, path, gson.toJson(body));
+  }
+  
+  private Result post(final String path, final String body) throws IOException {
+    return post(address, path, body);
+  }
+  
+  private HttpURLConnection open(final String path) throws IOException {
+    return open(address, path);
+  }
+  
+  private static HttpURLConnection open(final InetSocketAddress address, final String path) throws IOException {
+    final URL url = new URL("http", address.getHostString(), address.getPort(), path);
+    
+    return (HttpURLConnection) url.openConnection();
+  }
+  
+  private static Result post(final InetSocketAddress address, final String path, final String body)
+      throws IOException {
+    
+    final HttpURLConnection connection = open(address, path);
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    
+    try (final OutputStream out = connection.getOutputStream()) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+      
+    } catch (final IOException e) {
+      // The server may stop reading an oversized body before it has all been written
+    }
+    
+    final int status = connection.getResponseCode();
+    
+    try (final InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+      return new Result(status, new JsonParser().parse(IOUtils.toString(in, StandardCharsets.UTF_8)).getAsJsonObject());
+    }
+  }
+  
+  private static class Result {
+    private final int status;
+    
+    private final JsonObject body;
+    
+    private Result(final int status, final JsonObject body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+}
\ No newline at end of file
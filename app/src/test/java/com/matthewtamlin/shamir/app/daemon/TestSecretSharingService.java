@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.daemon;
+
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PrimeSelection;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@SuppressWarnings("ConstantConditions")
+public class TestSecretSharingService {
+  private static final byte[] SECRET = "secret".getBytes(StandardCharsets.UTF_8);
+  
+  private SecretSharingService service;
+  
+  @Before
+  public void setup() {
+    service = new SecretSharingService(
+        new RxShamir(new SecureRandom()),
+        CryptoConstants.createDefault(),
+        new SecretEncoder());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullRxShamir() {
+    new SecretSharingService(null, CryptoConstants.createDefault(), new SecretEncoder());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullCryptoConstants() {
+    new SecretSharingService(new RxShamir(new SecureRandom()), null, new SecretEncoder());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullSecretEncoder() {
+    new SecretSharingService(new RxShamir(new SecureRandom()), CryptoConstants.createDefault(), null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShares_nullSecret() {
+    service.createShares(null, 2, 3);
+  }
+  
+  @Test
+  public void testCreateShares_secretTooLarge() {
+    final int maxSecretSizeBytes = SecretEncoder.getMaxBlockSizeBytes(CryptoConstants.createDefault().getPrime());
+    
+    service
+        .createShares(new byte[maxSecretSizeBytes + 1], 2, 3)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(InvalidRequestException.class);
+  }
+  
+  @Test
+  public void testCreateShares_invalidShareCounts() {
+    service
+        .createShares(SECRET, 4, 3)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateShares_validRequest() {
+    final CreationResult result = service.createShares(SECRET, 2, 3).blockingGet();
+    
+    assertThat(result.getShares().size(), is(3));
+    assertThat(result.getShares().get(0).getIndex(), is(BigInteger.ONE));
+    assertThat(result.getRecoveryScheme().getRequiredShareCount(), is(2));
+    assertThat(result.getRecoveryScheme().getPrime(), is(CryptoConstants.createDefault().getPrime()));
+  }
+  
+  @Test
+  public void testCreateShares_smallestSufficientPrime() {
+    final SecretSharingService smallestPrimeService = new SecretSharingService(
+        new RxShamir(new SecureRandom()),
+        CryptoConstants.createDefault(PrimeSelection.SMALLEST_SUFFICIENT),
+        new SecretEncoder());
+    
+    final CreationResult result = smallestPrimeService.createShares(SECRET, 2, 3).blockingGet();
+    
+    assertThat(result.getRecoveryScheme().getPrime().bitLength(), is(127));
+    assertThat(
+        smallestPrimeService.recoverSecret(firstShares(result, 2), result.getRecoveryScheme()).blockingGet(),
+        is(SECRET));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecret_nullShares() {
+    final CreationResult result = service.createShares(SECRET, 2, 3).blockingGet();
+    
+    service.recoverSecret(null, result.getRecoveryScheme());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecret_nullRecoveryScheme() {
+    service.recoverSecret(new HashSet<>(), null);
+  }
+  
+  @Test
+  public void testRecoverSecret_tooFewShares() {
+    final CreationResult result = service.createShares(SECRET, 2, 3).blockingGet();
+    
+    service
+        .recoverSecret(firstShares(result, 1), result.getRecoveryScheme())
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testRecoverSecret_enoughShares() {
+    final CreationResult result = service.createShares(SECRET, 2, 3).blockingGet();
+    
+    assertThat(service.recoverSecret(firstShares(result, 2), result.getRecoveryScheme()).blockingGet(), is(SECRET));
+  }
+  
+  @Test
+  public void testRegenerateShares_newSharesRecoverTheSameSecret() {
+    final CreationResult original = service.createShares(SECRET, 2, 3).blockingGet();
+    
+    final CreationResult regenerated = service
+        .regenerateShares(firstShares(original, 2), original.getRecoveryScheme(), 3, 5)
+        .blockingGet();
+    
+    assertThat(regenerated.getShares().size(), is(5));
+    assertThat(regenerated.getRecoveryScheme().getRequiredShareCount(), is(3));
+    assertThat(regenerated.getShares().get(0), is(not(original.getShares().get(0))));
+    
+    final byte[] recovered = service
+        .recoverSecret(firstShares(regenerated, 3), regenerated.getRecoveryScheme())
+        .blockingGet();
+    
+    assertThat(recovered, is(SECRET));
+  }
+  
+  private static Set<Share> firstShares(final CreationResult result, final int count) {
+    return new HashSet<>(result.getShares().subList(0, count));
+  }
+}
\ No newline at end of file
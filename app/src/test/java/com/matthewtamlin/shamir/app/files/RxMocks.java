@@ -36,7 +36,12 @@ public class RxMocks {
     when(rxFiles.delete(any())).thenReturn(Completable.complete());
     when(rxFiles.readStringFromFile(any(), any())).thenReturn(Single.never());
     when(rxFiles.writeStringToFile(any(), any(), any())).thenReturn(Completable.never());
+    when(rxFiles.readBytesFromFile(any())).thenReturn(Single.never());
+    when(rxFiles.writeBytesToFile(any(), any())).thenReturn(Completable.never());
+    when(rxFiles.openInputStream(any())).thenReturn(Single.never());
+    when(rxFiles.openOutputStream(any())).thenReturn(Single.never());
     when(rxFiles.getFilesInDirectory(any())).thenReturn(Observable.never());
+    when(rxFiles.getFilesInDirectory(any(), any())).thenReturn(Observable.never());
     
     return rxFiles;
   }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.files;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+@SuppressWarnings("ConstantConditions")
+public class TestByteBufferPool {
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_bufferSizeNotGreaterThanZero() {
+    new ByteBufferPool(0, 1, false);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_maxPooledBuffersNotGreaterThanZero() {
+    new ByteBufferPool(1, 0, false);
+  }
+  
+  @Test
+  public void testAcquire_emptyPool() {
+    final ByteBuffer buffer = new ByteBufferPool(16, 1, true).acquire();
+    
+    assertThat(buffer.capacity(), is(16));
+    assertThat(buffer.isDirect(), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRelease_nullBuffer() {
+    new ByteBufferPool(16, 1, false).release(null);
+  }
+  
+  @Test
+  public void testRelease_thenAcquire() {
+    final ByteBufferPool pool = new ByteBufferPool(16, 1, false);
+    final ByteBuffer buffer = pool.acquire();
+    
+    buffer.put((byte) 1);
+    pool.release(buffer);
+    
+    final ByteBuffer reusedBuffer = pool.acquire();
+    
+    assertThat(reusedBuffer, is(sameInstance(buffer)));
+    assertThat(reusedBuffer.remaining(), is(16));
+  }
+  
+  @Test
+  public void testRelease_bufferFromDifferentPool() {
+    final ByteBufferPool pool = new ByteBufferPool(16, 1, false);
+    final ByteBuffer foreignBuffer = ByteBuffer.allocate(32);
+    
+    pool.release(foreignBuffer);
+    
+    assertThat(pool.acquire(), is(not(sameInstance(foreignBuffer))));
+  }
+  
+  @Test
+  public void testRelease_poolIsFull() {
+    final ByteBufferPool pool = new ByteBufferPool(16, 1, false);
+    final ByteBuffer first = pool.acquire();
+    final ByteBuffer second = pool.acquire();
+    
+    pool.release(first);
+    pool.release(second);
+    
+    assertThat(pool.acquire(), is(sameInstance(first)));
+    assertThat(pool.acquire(), is(not(sameInstance(second))));
+  }
+}
\ No newline at end of file
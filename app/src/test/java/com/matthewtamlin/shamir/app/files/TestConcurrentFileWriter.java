@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.files;
+
+import com.google.common.collect.ImmutableMap;
+import io.reactivex.Completable;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+@SuppressWarnings("ConstantConditions")
+public class TestConcurrentFileWriter {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullIoScheduler() {
+    new ConcurrentFileWriter(null, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_maxConcurrentWritesNotGreaterThanZero() {
+    new ConcurrentFileWriter(Schedulers.trampoline(), 0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteAll_nullWrites() {
+    new ConcurrentFileWriter(Schedulers.trampoline(), 1).writeAll(null);
+  }
+  
+  @Test
+  public void testWriteAll_noWrites() {
+    new ConcurrentFileWriter(Schedulers.trampoline(), 1)
+        .writeAll(ImmutableMap.of())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+  }
+  
+  @Test
+  public void testWriteAll_oneWriteFails() {
+    final Map<File, Function<File, Completable>> writes = ImmutableMap.of(
+        new File("a"), file -> Completable.complete(),
+        new File("b"), file -> Completable.error(new IOException()));
+    
+    new ConcurrentFileWriter(Schedulers.trampoline(), 1)
+        .writeAll(writes)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testWriteAll_concurrencyIsBounded() {
+    final AtomicInteger completedWrites = new AtomicInteger();
+    final AtomicInteger currentWrites = new AtomicInteger();
+    final AtomicInteger maxCurrentWrites = new AtomicInteger();
+    
+    final Map<File, Function<File, Completable>> writes = new HashMap<>();
+    
+    for (int i = 0; i < 20; i++) {
+      writes.put(new File("file-" + i), file -> Completable.fromAction(() -> {
+        maxCurrentWrites.accumulateAndGet(currentWrites.incrementAndGet(), Math::max);
+        Thread.sleep(20);
+        currentWrites.decrementAndGet();
+        completedWrites.incrementAndGet();
+      }));
+    }
+    
+    new ConcurrentFileWriter(Schedulers.io(), 3)
+        .writeAll(writes)
+        .test()
+        .awaitDone(2000, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(completedWrites.get(), is(20));
+    assertThat(maxCurrentWrites.get(), is(lessThanOrEqualTo(3)));
+    assertThat(maxCurrentWrites.get(), is(greaterThan(1)));
+  }
+  
+  @Test
+  public void testWriteAll_directMode_writesToTargets() throws IOException {
+    final File target = temporaryFolder.newFile("target");
+    
+    new ConcurrentFileWriter(Schedulers.trampoline(), 1)
+        .writeAll(ImmutableMap.of(target, file -> write(file, file.getName())))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(FileUtils.readFileToString(target, StandardCharsets.UTF_8), is("target"));
+  }
+  
+  @Test
+  public void testWriteAll_atomicMode_replacesTargets() throws IOException {
+    final File first = temporaryFolder.newFile("first");
+    final File second = new File(temporaryFolder.newFolder("subdirectory"), "second");
+    
+    FileUtils.writeStringToFile(first, "old content", StandardCharsets.UTF_8);
+    
+    final Map<File, Function<File, Completable>> writes = ImmutableMap.of(
+        first, file -> write(file, "first"),
+        second, file -> write(file, "second"));
+    
+    new ConcurrentFileWriter(Schedulers.io(), 2, true)
+        .writeAll(writes)
+        .test()
+        .awaitDone(2000, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(FileUtils.readFileToString(first, StandardCharsets.UTF_8), is("first"));
+    assertThat(FileUtils.readFileToString(second, StandardCharsets.UTF_8), is("second"));
+    
+    // No temporary files should be left behind
+    assertThat(temporaryFolder.getRoot().list().length, is(2));
+    assertThat(second.getParentFile().list(), is(arrayContaining("second")));
+  }
+  
+  @Test
+  public void testWriteAll_atomicMode_writesDoNotTouchTargets() throws IOException {
+    final File target = temporaryFolder.newFile("target");
+    
+    new ConcurrentFileWriter(Schedulers.trampoline(), 1, true)
+        .writeAll(ImmutableMap.of(target, file -> {
+          assertThat(file.equals(target), is(false));
+          assertThat(file.getParentFile(), is(target.getAbsoluteFile().getParentFile()));
+          
+          return write(file, "new content");
+        }))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+  }
+  
+  @Test
+  public void testWriteAll_atomicMode_oneWriteFails() throws IOException {
+    final File first = temporaryFolder.newFile("first");
+    final File second = temporaryFolder.newFile("second");
+    
+    FileUtils.writeStringToFile(first, "old content", StandardCharsets.UTF_8);
+    
+    final Map<File, Function<File, Completable>> writes = ImmutableMap.of(
+        first, file -> write(file, "new content"),
+        second, file -> Completable.error(new IOException()));
+    
+    new ConcurrentFileWriter(Schedulers.trampoline(), 1, true)
+        .writeAll(writes)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+    
+    // The targets must be untouched and the temporary files removed
+    assertThat(FileUtils.readFileToString(first, StandardCharsets.UTF_8), is("old content"));
+    assertThat(temporaryFolder.getRoot().list().length, is(2));
+  }
+  
+  @Test
+  public void testWriteAll_atomicMode_temporaryFileCannotBeDeleted() throws IOException {
+    final File first = temporaryFolder.newFile("first");
+    final File second = temporaryFolder.newFile("second");
+    
+    // Replacing the temporary file with a non-empty directory prevents it from being deleted
+    final Map<File, Function<File, Completable>> writes = ImmutableMap.of(
+        first, file -> write(file, "new content"),
+        second, file -> Completable.fromAction(() -> {
+          Files.delete(file.toPath());
+          Files.createDirectory(file.toPath());
+          Files.createFile(new File(file, "child").toPath());
+          
+          throw new IOException();
+        }));
+    
+    final Throwable error = new ConcurrentFileWriter(Schedulers.trampoline(), 1, true)
+        .writeAll(writes)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .errors()
+        .get(0);
+    
+    // The other temporary file must still be removed
+    assertThat(error.getSuppressed().length, is(1));
+    assertThat(temporaryFolder.getRoot().list().length, is(3));
+  }
+  
+  private static Completable write(final File file, final String content) {
+    return Completable.fromAction(() -> FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.files;
+
+import io.reactivex.Flowable;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestNioRxFiles {
+  private static final int BUFFER_SIZE = 1024;
+  
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private NioRxFiles rxFiles;
+  
+  private File file;
+  
+  @Before
+  public void setup() throws IOException {
+    rxFiles = new NioRxFiles(new ByteBufferPool(BUFFER_SIZE, 4, true));
+    file = temporaryFolder.newFile("test");
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullBufferPool() {
+    new NioRxFiles(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadBytesFromFile_nullFile() {
+    rxFiles.readBytesFromFile(null);
+  }
+  
+  @Test
+  public void testReadBytesFromFile_fileDoesNotExist() {
+    rxFiles
+        .readBytesFromFile(new File(temporaryFolder.getRoot(), "missing"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testReadBytesFromFile_fileIsActuallyADirectory() {
+    rxFiles
+        .readBytesFromFile(temporaryFolder.getRoot())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testReadBytesFromFile_emptyFile() {
+    final byte[] contents = rxFiles
+        .readBytesFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .values()
+        .get(0);
+    
+    assertThat(contents.length, is(0));
+  }
+  
+  @Test
+  public void testReadBytesFromFile_nonEmptyFile() throws IOException {
+    final byte[] data = createData(10 * BUFFER_SIZE + 1);
+    FileUtils.writeByteArrayToFile(file, data);
+    
+    final byte[] contents = rxFiles
+        .readBytesFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .values()
+        .get(0);
+    
+    assertThat(contents, is(data));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteBytesToFile_nullData() {
+    rxFiles.writeBytesToFile(null, file);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteBytesToFile_nullFile() {
+    rxFiles.writeBytesToFile(new byte[0], null);
+  }
+  
+  @Test
+  public void testWriteBytesToFile_fileDoesNotExist() {
+    final File missingFile = new File(temporaryFolder.getRoot(), "missing");
+    
+    rxFiles
+        .writeBytesToFile(new byte[]{1, 2, 3}, missingFile)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+    
+    assertThat(missingFile.exists(), is(false));
+  }
+  
+  @Test
+  public void testWriteBytesToFile_fileAlreadyContainsLongerContent() throws IOException {
+    FileUtils.writeByteArrayToFile(file, createData(BUFFER_SIZE));
+    
+    rxFiles
+        .writeBytesToFile(new byte[]{1, 2, 3}, file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(FileUtils.readFileToByteArray(file), is(new byte[]{1, 2, 3}));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadBuffersFromFile_nullFile() {
+    rxFiles.readBuffersFromFile(null);
+  }
+  
+  @Test
+  public void testReadBuffersFromFile_fileDoesNotExist() {
+    rxFiles
+        .readBuffersFromFile(new File(temporaryFolder.getRoot(), "missing"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testReadBuffersFromFile_emptyFile() {
+    rxFiles
+        .readBuffersFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertNoValues()
+        .assertComplete();
+  }
+  
+  @Test
+  public void testReadBuffersFromFile_fileSpansManyBuffers() throws IOException {
+    final byte[] data = createData(10 * BUFFER_SIZE + 1);
+    FileUtils.writeByteArrayToFile(file, data);
+    
+    final List<ByteBuffer> buffers = rxFiles
+        .readBuffersFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete()
+        .values();
+    
+    assertThat(buffers.size(), is(11));
+    assertThat(concatenate(buffers), is(data));
+  }
+  
+  @Test
+  public void testReadBuffersFromFile_backpressure() throws IOException {
+    FileUtils.writeByteArrayToFile(file, createData(10 * BUFFER_SIZE));
+    
+    rxFiles
+        .readBuffersFromFile(file)
+        .test(2)
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertNotComplete()
+        .assertValueCount(2)
+        .cancel();
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteBuffersToFile_nullData() {
+    rxFiles.writeBuffersToFile(null, file);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteBuffersToFile_nullFile() {
+    rxFiles.writeBuffersToFile(Flowable.empty(), null);
+  }
+  
+  @Test
+  public void testWriteBuffersToFile_fileDoesNotExist() {
+    rxFiles
+        .writeBuffersToFile(Flowable.just(ByteBuffer.wrap(new byte[]{1})), new File(temporaryFolder.getRoot(), "x"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testWriteBuffersToFileAndReadBuffersFromFile() throws IOException {
+    final File copy = temporaryFolder.newFile("copy");
+    final byte[] data = createData(10 * BUFFER_SIZE + 1);
+    
+    FileUtils.writeByteArrayToFile(file, data);
+    
+    rxFiles
+        .writeBuffersToFile(rxFiles.readBuffersFromFile(file), copy)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(FileUtils.readFileToByteArray(copy), is(data));
+  }
+  
+  private static byte[] createData(final int length) {
+    final byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    
+    return data;
+  }
+  
+  private static byte[] concatenate(final List<ByteBuffer> buffers) {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    for (final ByteBuffer buffer : buffers) {
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      output.write(bytes, 0, bytes.length);
+    }
+    
+    return output.toByteArray();
+  }
+}
\ No newline at end of file
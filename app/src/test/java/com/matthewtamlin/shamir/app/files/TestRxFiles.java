@@ -16,7 +16,9 @@
 
 package com.matthewtamlin.shamir.app.files;
 
+import io.reactivex.Completable;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -333,6 +335,69 @@ public class TestRxFiles {
         .assertValues(file1, file2);
   }
   
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetFilesInDirectoryMatchingGlob_nullDirectory() {
+    rxFiles.getFilesInDirectory(null, "*");
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetFilesInDirectoryMatchingGlob_nullGlob() {
+    rxFiles.getFilesInDirectory(testDirectory, null);
+  }
+  
+  @Test
+  public void testGetFilesInDirectoryMatchingGlob_directoryIsActuallyAFile() throws IOException {
+    final File file = new File(testDirectory, "test");
+    file.createNewFile();
+    
+    rxFiles
+        .getFilesInDirectory(file, "*")
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testGetFilesInDirectoryMatchingGlob_directoryDoesNotExist() {
+    rxFiles
+        .getFilesInDirectory(new File(testDirectory, "test"), "*")
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testGetFilesInDirectoryMatchingGlob_someFilesMatch() throws IOException {
+    final File match = new File(testDirectory, "share-1");
+    match.createNewFile();
+    new File(testDirectory, "recovery-scheme").createNewFile();
+    
+    rxFiles
+        .getFilesInDirectory(testDirectory, "share-*")
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValues(match);
+  }
+  
+  @Test
+  public void testGetFilesInDirectoryMatchingGlob_stopsEarly() throws IOException {
+    for (int i = 0; i < 100; i++) {
+      new File(testDirectory, "share-" + i).createNewFile();
+    }
+    
+    rxFiles
+        .getFilesInDirectory(testDirectory, "share-*")
+        .take(1)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValueCount(1)
+        .assertComplete();
+  }
+  
   @Test(expected = IllegalArgumentException.class)
   public void testReadStringFromFile_fileIsNull() {
     rxFiles.readStringFromFile(null, Charset.defaultCharset());
@@ -767,6 +832,113 @@ public class TestRxFiles {
         .assertComplete();
   }
   
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenInputStream_nullFile() {
+    rxFiles.openInputStream(null);
+  }
+  
+  @Test
+  public void testOpenInputStream_fileDoesNotExist() {
+    final File file = new File(testDirectory, "test.txt");
+    
+    rxFiles
+        .openInputStream(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testOpenInputStream_fileIsActuallyADirectory() throws IOException {
+    final File file = new File(testDirectory, "test");
+    FileUtils.forceMkdir(file);
+    
+    rxFiles
+        .openInputStream(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testOpenInputStream_fileContainsMultipleBytes() throws IOException {
+    final File file = new File(testDirectory, "test.txt");
+    file.createNewFile();
+    
+    final byte[] data = new byte[]{0, 127};
+    
+    FileUtils.writeByteArrayToFile(file, data);
+    
+    rxFiles
+        .openInputStream(file)
+        .map(input -> {
+          try {
+            return IOUtils.toByteArray(input);
+          } finally {
+            input.close();
+          }
+        })
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(value -> Arrays.equals(data, value));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenOutputStream_nullFile() {
+    rxFiles.openOutputStream(null);
+  }
+  
+  @Test
+  public void testOpenOutputStream_fileDoesNotExist() {
+    final File file = new File(testDirectory, "test.txt");
+    
+    rxFiles
+        .openOutputStream(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testOpenOutputStream_fileIsActuallyADirectory() throws IOException {
+    final File file = new File(testDirectory, "test");
+    FileUtils.forceMkdir(file);
+    
+    rxFiles
+        .openOutputStream(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class)
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testOpenOutputStream_replacesExistingContent() throws IOException {
+    final File file = new File(testDirectory, "test.txt");
+    file.createNewFile();
+    
+    FileUtils.writeByteArrayToFile(file, new byte[]{1, 2, 3});
+    
+    final byte[] data = new byte[]{0, 127};
+    
+    rxFiles
+        .openOutputStream(file)
+        .flatMapCompletable(output -> Completable.fromAction(() -> {
+          output.write(data);
+          output.close();
+        }))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(Arrays.equals(FileUtils.readFileToByteArray(file), data), is(true));
+  }
+  
   @Test(expected = IllegalArgumentException.class)
   public void testExists_nullFile() {
     rxFiles.exists(null);
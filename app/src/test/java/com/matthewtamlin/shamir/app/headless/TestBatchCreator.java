@@ -0,0 +1,286 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.gson.Gson;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("ConstantConditions")
+public class TestBatchCreator {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private ShareCreator mockShareCreator;
+  
+  private File inputDirectory;
+  
+  private File outputDirectory;
+  
+  private BatchCreationJob job;
+  
+  @Before
+  public void setup() throws IOException {
+    mockShareCreator = mock(ShareCreator.class);
+    when(mockShareCreator.createShares(any())).thenReturn(Completable.complete());
+    
+    inputDirectory = temporaryFolder.newFolder("input");
+    outputDirectory = new File(temporaryFolder.getRoot(), "output");
+    
+    FileUtils.writeStringToFile(new File(inputDirectory, "a"), "a", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(inputDirectory, "b"), "b", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(inputDirectory, "nested/c"), "c", StandardCharsets.UTF_8);
+    
+    job = BatchCreationJob.create(inputDirectory, 2, 3, outputDirectory);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullShareCreator() {
+    new BatchCreator(null, new Gson(), Schedulers.trampoline(), 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullGson() {
+    new BatchCreator(mockShareCreator, null, Schedulers.trampoline(), 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullWorkerScheduler() {
+    new BatchCreator(mockShareCreator, new Gson(), null, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_workerCountNotGreaterThanZero() {
+    new BatchCreator(mockShareCreator, new Gson(), Schedulers.trampoline(), 0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShares_nullJob() {
+    createBatchCreator(1).createShares(null);
+  }
+  
+  @Test
+  public void testCreateShares_inputDirectoryDoesNotExist() {
+    createBatchCreator(1)
+        .createShares(BatchCreationJob.create(new File(inputDirectory, "missing"), 2, 3, outputDirectory))
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(JobException.class);
+  }
+  
+  @Test
+  public void testCreateShares_outputDirectoryInsideInputDirectory() {
+    createBatchCreator(1)
+        .createShares(BatchCreationJob.create(inputDirectory, 2, 3, new File(inputDirectory, "output")))
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(JobException.class);
+  }
+  
+  @Test
+  public void testCreateShares_everyFileSucceeds() throws IOException {
+    createBatchCreator(1)
+        .createShares(job)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    verify(mockShareCreator).createShares(CreationJob.create(
+        new File(inputDirectory, "a"),
+        2,
+        3,
+        new File(outputDirectory, "a")));
+    
+    verify(mockShareCreator).createShares(CreationJob.create(
+        new File(inputDirectory, "nested/c"),
+        2,
+        3,
+        new File(outputDirectory, "nested/c")));
+    
+    assertThat(readManifest().size(), is(3));
+  }
+  
+  @Test
+  public void testCreateShares_oneFileFails() throws IOException {
+    when(mockShareCreator.createShares(argThat(creationJob -> creationJob.getSecretFile().getName().equals("b"))))
+        .thenReturn(Completable.error(new JobException("Failed.")));
+    
+    createBatchCreator(1)
+        .createShares(job)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(JobException.class);
+    
+    verify(mockShareCreator, times(3)).createShares(any());
+    
+    final List<String> manifest = readManifest();
+    
+    assertThat(manifest.size(), is(3));
+    assertThat(manifest.stream().filter(line -> line.contains(BatchManifest.STATUS_FAILED)).count(), is(1L));
+  }
+  
+  @Test
+  public void testCreateShares_leftoverOutputCannotBeDeleted() throws IOException {
+    // A regular file where the output subdirectory belongs cannot be cleaned up as a directory
+    FileUtils.writeStringToFile(new File(outputDirectory, "a"), "blocking", StandardCharsets.UTF_8);
+    
+    createBatchCreator(1)
+        .createShares(job)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(JobException.class);
+    
+    verify(mockShareCreator, times(2)).createShares(any());
+    
+    final List<String> manifest = readManifest();
+    
+    assertThat(manifest.size(), is(3));
+    assertThat(manifest.stream().filter(line -> line.contains(BatchManifest.STATUS_FAILED)).count(), is(1L));
+  }
+  
+  @Test
+  public void testCreateShares_inputFileHasSamePathAsManifest() throws IOException {
+    FileUtils.writeStringToFile(
+        new File(inputDirectory, BatchCreator.MANIFEST_FILE_NAME),
+        "x",
+        StandardCharsets.UTF_8);
+    
+    createBatchCreator(1)
+        .createShares(job)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(JobException.class);
+    
+    verify(mockShareCreator, times(3)).createShares(any());
+    
+    verify(mockShareCreator, never()).createShares(argThat(creationJob ->
+        creationJob.getSecretFile().getName().equals(BatchCreator.MANIFEST_FILE_NAME)));
+    
+    final List<String> manifest = readManifest();
+    
+    assertThat(manifest.size(), is(4));
+    assertThat(manifest.stream().filter(line -> line.contains(BatchManifest.STATUS_FAILED)).count(), is(1L));
+  }
+  
+  @Test
+  public void testCreateShares_resumesAfterPreviousRun() throws IOException {
+    when(mockShareCreator.createShares(argThat(creationJob -> creationJob.getSecretFile().getName().equals("b"))))
+        .thenReturn(Completable.error(new JobException("Failed.")));
+    
+    createBatchCreator(1).createShares(job).test().awaitDone(5, SECONDS);
+    
+    // Simulates output left behind by the failed file
+    final File leftover = new File(outputDirectory, "b/share-1");
+    FileUtils.writeStringToFile(leftover, "partial", StandardCharsets.UTF_8);
+    
+    doReturn(Completable.complete()).when(mockShareCreator).createShares(any());
+    
+    createBatchCreator(1)
+        .createShares(job)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    verify(mockShareCreator, times(2)).createShares(argThat(creationJob ->
+        creationJob.getSecretFile().getName().equals("b")));
+    
+    verify(mockShareCreator, times(1)).createShares(argThat(creationJob ->
+        creationJob.getSecretFile().getName().equals("a")));
+    
+    assertThat(leftover.exists(), is(false));
+    assertThat(readManifest().size(), is(4));
+  }
+  
+  @Test
+  public void testCreateShares_everyFileAlreadySucceeded() throws IOException {
+    createBatchCreator(1).createShares(job).test().awaitDone(5, SECONDS);
+    
+    final ShareCreator otherShareCreator = mock(ShareCreator.class);
+    
+    new BatchCreator(otherShareCreator, new Gson(), Schedulers.trampoline(), 1)
+        .createShares(job)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    verify(otherShareCreator, never()).createShares(any());
+  }
+  
+  @Test
+  public void testCreateShares_concurrencyIsBounded() throws IOException {
+    for (int i = 0; i < 50; i++) {
+      FileUtils.writeStringToFile(new File(inputDirectory, "many/" + i), "x", StandardCharsets.UTF_8);
+    }
+    
+    final AtomicInteger currentCreations = new AtomicInteger();
+    final AtomicInteger maxCurrentCreations = new AtomicInteger();
+    
+    when(mockShareCreator.createShares(any())).thenReturn(Completable
+        .fromAction(() -> {
+          maxCurrentCreations.accumulateAndGet(currentCreations.incrementAndGet(), Math::max);
+          Thread.sleep(5);
+          currentCreations.decrementAndGet();
+        }));
+    
+    new BatchCreator(mockShareCreator, new Gson(), Schedulers.io(), 4)
+        .createShares(job)
+        .test()
+        .awaitDone(10, SECONDS)
+        .assertNoErrors()
+        .assertComplete();
+    
+    assertThat(maxCurrentCreations.get(), greaterThan(1));
+    assertThat(maxCurrentCreations.get(), lessThanOrEqualTo(4));
+    assertThat(readManifest().size(), is(53));
+  }
+  
+  private BatchCreator createBatchCreator(final int workerCount) {
+    return new BatchCreator(mockShareCreator, new Gson(), Schedulers.trampoline(), workerCount);
+  }
+  
+  private List<String> readManifest() throws IOException {
+    return FileUtils.readLines(new File(outputDirectory, BatchCreator.MANIFEST_FILE_NAME), StandardCharsets.UTF_8);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.gson.Gson;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestBatchManifest {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private File file;
+  
+  @Before
+  public void setup() {
+    file = new File(temporaryFolder.getRoot(), "manifest.jsonl");
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpen_nullFile() throws IOException {
+    BatchManifest.open(null, new Gson());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpen_nullGson() throws IOException {
+    BatchManifest.open(file, null);
+  }
+  
+  @Test
+  public void testOpen_fileDoesNotExist() throws IOException {
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      assertThat(manifest.hasSucceeded("a"), is(false));
+    }
+    
+    assertThat(file.exists(), is(true));
+  }
+  
+  @Test(expected = IOException.class)
+  public void testOpen_fileContainsMalformedEntry() throws IOException {
+    FileUtils.writeStringToFile(file, "{\"file\":\"a\",\n", StandardCharsets.UTF_8);
+    
+    BatchManifest.open(file, new Gson());
+  }
+  
+  @Test
+  public void testOpen_finalEntryIsTorn() throws IOException {
+    FileUtils.writeStringToFile(
+        file,
+        "{\"file\":\"a\",\"status\":\"SUCCEEDED\"}\n{\"file\":\"b\",\"sta",
+        StandardCharsets.UTF_8);
+    
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      assertThat(manifest.hasSucceeded("a"), is(true));
+      assertThat(manifest.hasSucceeded("b"), is(false));
+      
+      manifest.record("b", BatchManifest.STATUS_SUCCEEDED, 10, null);
+    }
+    
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      assertThat(manifest.hasSucceeded("a"), is(true));
+      assertThat(manifest.hasSucceeded("b"), is(true));
+    }
+    
+    assertThat(FileUtils.readLines(file, StandardCharsets.UTF_8).size(), is(2));
+  }
+  
+  @Test
+  public void testOpen_finalEntryIsCompleteButUnterminated() throws IOException {
+    FileUtils.writeStringToFile(file, "{\"file\":\"a\",\"status\":\"SUCCEEDED\"}", StandardCharsets.UTF_8);
+    
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      assertThat(manifest.hasSucceeded("a"), is(true));
+      
+      manifest.record("b", BatchManifest.STATUS_SUCCEEDED, 10, null);
+    }
+    
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      assertThat(manifest.hasSucceeded("a"), is(true));
+      assertThat(manifest.hasSucceeded("b"), is(true));
+    }
+  }
+  
+  @Test
+  public void testRecord_entriesAreVisibleImmediately() throws IOException {
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      manifest.record("a", BatchManifest.STATUS_SUCCEEDED, 10, null);
+      manifest.record("b", BatchManifest.STATUS_FAILED, 20, "error");
+      
+      assertThat(manifest.hasSucceeded("a"), is(true));
+      assertThat(manifest.hasSucceeded("b"), is(false));
+      assertThat(FileUtils.readLines(file, StandardCharsets.UTF_8).size(), is(2));
+    }
+  }
+  
+  @Test
+  public void testOpen_entriesFromPreviousRunAreRead() throws IOException {
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      manifest.record("a", BatchManifest.STATUS_SUCCEEDED, 10, null);
+      manifest.record("b", BatchManifest.STATUS_FAILED, 20, "error");
+      manifest.record("c", BatchManifest.STATUS_FAILED, 30, "error");
+      manifest.record("c", BatchManifest.STATUS_SUCCEEDED, 40, null);
+      manifest.record("d", BatchManifest.STATUS_SUCCEEDED, 50, null);
+      manifest.record("d", BatchManifest.STATUS_FAILED, 60, "error");
+    }
+    
+    try (final BatchManifest manifest = BatchManifest.open(file, new Gson())) {
+      assertThat(manifest.hasSucceeded("a"), is(true));
+      assertThat(manifest.hasSucceeded("b"), is(false));
+      assertThat(manifest.hasSucceeded("c"), is(true));
+      assertThat(manifest.hasSucceeded("d"), is(false));
+      
+      manifest.record("e", BatchManifest.STATUS_SUCCEEDED, 70, null);
+    }
+    
+    assertThat(FileUtils.readLines(file, StandardCharsets.UTF_8).size(), is(7));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TestHeadlessApp {
+  private static final byte[] SECRET = "secret".getBytes(StandardCharsets.UTF_8);
+  
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private File secretFile;
+  
+  private File sharesDirectory;
+  
+  private File recoveredSecretDirectory;
+  
+  private PrintStream out;
+  
+  private PrintStream err;
+  
+  @Before
+  public void setup() throws IOException {
+    secretFile = temporaryFolder.newFile("secret");
+    sharesDirectory = new File(temporaryFolder.getRoot(), "shares");
+    recoveredSecretDirectory = new File(temporaryFolder.getRoot(), "recovered");
+    
+    FileUtils.writeByteArrayToFile(secretFile, SECRET);
+    
+    out = new PrintStream(new ByteArrayOutputStream());
+    err = new PrintStream(new ByteArrayOutputStream());
+  }
+  
+  @Test
+  public void testRun_noArguments() {
+    assertThat(HeadlessApp.run(ImmutableList.of(), out, err), is(2));
+  }
+  
+  @Test
+  public void testRun_unknownOption() {
+    assertThat(HeadlessApp.run(ImmutableList.of("--verbose", "true"), out, err), is(2));
+  }
+  
+  @Test
+  public void testRun_unknownFormat() {
+    assertThat(HeadlessApp.run(ImmutableList.of("--format", "xml", "create", "a", "2", "2", "b"), out, err), is(2));
+  }
+  
+  @Test
+  public void testRun_unknownPrimeSelection() {
+    assertThat(HeadlessApp.run(ImmutableList.of("--primes", "largest", "create", "a", "2", "2", "b"), out, err), is(2));
+  }
+  
+  @Test
+  public void testRun_jobFileAndCommand() throws IOException {
+    final File jobFile = temporaryFolder.newFile("jobs");
+    
+    assertThat(
+        HeadlessApp.run(ImmutableList.of("--job-file", jobFile.getPath(), "create", "a", "2", "2", "b"), out, err),
+        is(2));
+  }
+  
+  @Test
+  public void testRun_secretFileDoesNotExist() {
+    final List<String> args = ImmutableList.of(
+        "create",
+        new File(temporaryFolder.getRoot(), "missing").getPath(),
+        "2",
+        "3",
+        sharesDirectory.getPath());
+    
+    assertThat(HeadlessApp.run(args, out, err), is(1));
+  }
+  
+  @Test
+  public void testRun_createThenRecover_jsonFormat() throws IOException {
+    checkCreateThenRecover("json");
+  }
+  
+  @Test
+  public void testRun_createThenRecover_binaryFormat() throws IOException {
+    checkCreateThenRecover("binary");
+  }
+  
+  @Test
+  public void testRun_createThenRecover_secretLongerThanOneBlock() throws IOException {
+    final byte[] longSecret = new byte[4000];
+    new Random(0).nextBytes(longSecret);
+    
+    FileUtils.writeByteArrayToFile(secretFile, longSecret);
+    
+    checkCreateThenRecover("binary");
+  }
+  
+  @Test
+  public void testRun_smallestPrimesGiveSmallerShares() throws IOException {
+    final File fixedSharesDirectory = new File(temporaryFolder.getRoot(), "fixed-shares");
+    
+    HeadlessApp.run(
+        ImmutableList.of("--primes", "smallest", "create", secretFile.getPath(), "2", "2", sharesDirectory.getPath()),
+        out,
+        err);
+    
+    HeadlessApp.run(
+        ImmutableList.of("--primes", "fixed", "create", secretFile.getPath(), "2", "2", fixedSharesDirectory.getPath()),
+        out,
+        err);
+    
+    assertThat(
+        new File(sharesDirectory, "share-1").length() * 4 < new File(fixedSharesDirectory, "share-1").length(),
+        is(true));
+  }
+  
+  @Test
+  public void testRun_fixedPrimeByDefault() throws IOException {
+    final File fixedSharesDirectory = new File(temporaryFolder.getRoot(), "fixed-shares");
+    
+    HeadlessApp.run(ImmutableList.of("create", secretFile.getPath(), "2", "2", sharesDirectory.getPath()), out, err);
+    
+    HeadlessApp.run(
+        ImmutableList.of("--primes", "fixed", "create", secretFile.getPath(), "2", "2", fixedSharesDirectory.getPath()),
+        out,
+        err);
+    
+    assertThat(
+        FileUtils.readFileToByteArray(new File(sharesDirectory, "recovery-scheme")),
+        is(FileUtils.readFileToByteArray(new File(fixedSharesDirectory, "recovery-scheme"))));
+  }
+  
+  @Test
+  public void testRun_jobFile() throws IOException {
+    final File jobFile = temporaryFolder.newFile("jobs");
+    
+    FileUtils.writeLines(jobFile, ImmutableList.of(
+        "# Split then recover",
+        String.format("create \"%1$s\" 2 3 \"%2$s\"", secretFile, sharesDirectory),
+        String.format(
+            "recover \"%1$s\" \"%2$s\" \"%3$s\" \"%4$s\"",
+            new File(sharesDirectory, "recovery-scheme"),
+            recoveredSecretDirectory,
+            new File(sharesDirectory, "share-1"),
+            new File(sharesDirectory, "share-3"))));
+    
+    assertThat(HeadlessApp.run(ImmutableList.of("--job-file", jobFile.getPath()), out, err), is(0));
+    
+    assertThat(FileUtils.readFileToByteArray(new File(recoveredSecretDirectory, "recovered-secret")), is(SECRET));
+  }
+  
+  @Test
+  public void testRun_notEnoughShares() {
+    HeadlessApp.run(ImmutableList.of("create", secretFile.getPath(), "3", "3", sharesDirectory.getPath()), out, err);
+    
+    final List<String> recoverArgs = ImmutableList.of(
+        "recover",
+        new File(sharesDirectory, "recovery-scheme").getPath(),
+        recoveredSecretDirectory.getPath(),
+        new File(sharesDirectory, "share-1").getPath(),
+        new File(sharesDirectory, "share-2").getPath());
+    
+    assertThat(HeadlessApp.run(recoverArgs, out, err), is(1));
+    assertThat(new File(recoveredSecretDirectory, "recovered-secret").exists(), is(false));
+  }
+  
+  private void checkCreateThenRecover(final String format) throws IOException {
+    final List<String> createArgs = ImmutableList.of(
+        "--format",
+        format,
+        "create",
+        secretFile.getPath(),
+        "3",
+        "5",
+        sharesDirectory.getPath());
+    
+    assertThat(HeadlessApp.run(createArgs, out, err), is(0));
+    
+    final List<String> recoverArgs = ImmutableList.of(
+        "--format",
+        format,
+        "recover",
+        new File(sharesDirectory, "recovery-scheme").getPath(),
+        recoveredSecretDirectory.getPath(),
+        new File(sharesDirectory, "share-1").getPath(),
+        new File(sharesDirectory, "share-2").getPath(),
+        new File(sharesDirectory, "share-4").getPath(),
+        new File(sharesDirectory, "share-5").getPath());
+    
+    assertThat(HeadlessApp.run(recoverArgs, out, err), is(0));
+    
+    assertThat(
+        FileUtils.readFileToByteArray(new File(recoveredSecretDirectory, "recovered-secret")),
+        is(FileUtils.readFileToByteArray(secretFile)));
+    
+    // The output directories must be clean, so repeating either job fails
+    assertThat(HeadlessApp.run(createArgs, out, err), is(1));
+    assertThat(HeadlessApp.run(recoverArgs, out, err), is(1));
+  }
+}
\ No newline at end of file
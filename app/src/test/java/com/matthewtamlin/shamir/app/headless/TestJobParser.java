@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestJobParser {
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_nullArguments() {
+    JobParser.parseCommand(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_argumentsContainsNull() {
+    JobParser.parseCommand(Arrays.asList("create", null));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_noCommand() {
+    JobParser.parseCommand(ImmutableList.of());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_unknownCommand() {
+    JobParser.parseCommand(ImmutableList.of("split", "secret"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_createWithMissingArguments() {
+    JobParser.parseCommand(ImmutableList.of("create", "secret", "2", "3"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_createWithInvalidCount() {
+    JobParser.parseCommand(ImmutableList.of("create", "secret", "two", "3", "output"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_createWithRequiredCountGreaterThanTotalCount() {
+    JobParser.parseCommand(ImmutableList.of("create", "secret", "4", "3", "output"));
+  }
+  
+  @Test
+  public void testParseCommand_validCreate() {
+    final Job job = JobParser.parseCommand(ImmutableList.of("create", "secret", "2", "3", "output"));
+    
+    assertThat(job, is(CreationJob.create(new File("secret"), 2, 3, new File("output"))));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_recoverWithNoShareFiles() {
+    JobParser.parseCommand(ImmutableList.of("recover", "recovery-scheme", "output"));
+  }
+  
+  @Test
+  public void testParseCommand_validRecover() {
+    final Job job = JobParser.parseCommand(
+        ImmutableList.of("recover", "recovery-scheme", "output", "share-1", "share-2"));
+    
+    assertThat(job, is(RecoveryJob.create(
+        ImmutableSet.of(new File("share-1"), new File("share-2")),
+        new File("recovery-scheme"),
+        new File("output"))));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseCommand_batchCreateWithMissingArguments() {
+    JobParser.parseCommand(ImmutableList.of("batch-create", "input", "2", "3"));
+  }
+  
+  @Test
+  public void testParseCommand_validBatchCreate() {
+    final Job job = JobParser.parseCommand(ImmutableList.of("batch-create", "input", "2", "3", "output"));
+    
+    assertThat(job, is(BatchCreationJob.create(new File("input"), 2, 3, new File("output"))));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseJobFile_nullLines() {
+    JobParser.parseJobFile(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseJobFile_linesContainsNull() {
+    JobParser.parseJobFile(Arrays.asList("create secret 2 3 output", null));
+  }
+  
+  @Test
+  public void testParseJobFile_blankLinesAndComments() {
+    final List<Job> jobs = JobParser.parseJobFile(ImmutableList.of("", "  ", "# create secret 2 3 output"));
+    
+    assertThat(jobs, is(ImmutableList.of()));
+  }
+  
+  @Test
+  public void testParseJobFile_multipleCommands() {
+    final List<Job> jobs = JobParser.parseJobFile(ImmutableList.of(
+        "create secret 2 3 output",
+        "",
+        "  recover \"recovery scheme\"   output \"share 1\" share-2  "));
+    
+    assertThat(jobs, is(ImmutableList.of(
+        CreationJob.create(new File("secret"), 2, 3, new File("output")),
+        RecoveryJob.create(
+            ImmutableSet.of(new File("share 1"), new File("share-2")),
+            new File("recovery scheme"),
+            new File("output")))));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseJobFile_unterminatedQuote() {
+    JobParser.parseJobFile(ImmutableList.of("create \"secret 2 3 output"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseJobFile_invalidCommand() {
+    JobParser.parseJobFile(ImmutableList.of("create secret 2 3 output", "recover"));
+  }
+}
\ No newline at end of file
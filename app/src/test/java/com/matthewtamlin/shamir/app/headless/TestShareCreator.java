@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.headless;
+
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
+import com.matthewtamlin.shamir.app.files.NioRxFiles;
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PersistenceOperations;
+import com.matthewtamlin.shamir.app.secretsharing.creation.PrimeSelection;
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.JsonRecoverySchemeSerialiser;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.JsonShareSerialiser;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.schedulers.Schedulers;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestShareCreator {
+  private static final byte[] SECRET = "secret".getBytes();
+  
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private RxShamir rxShamir;
+  
+  private CryptoConstants cryptoConstants;
+  
+  private SecretEncoder secretEncoder;
+  
+  private PersistenceOperations persistenceOperations;
+  
+  private NioRxFiles rxFiles;
+  
+  private ConcurrentFileWriter concurrentFileWriter;
+  
+  private File secretFile;
+  
+  @Before
+  public void setup() throws IOException {
+    rxShamir = new RxShamir(new SecureRandom());
+    cryptoConstants = CryptoConstants.createDefault(PrimeSelection.SMALLEST_SUFFICIENT);
+    secretEncoder = new SecretEncoder();
+    rxFiles = new NioRxFiles();
+    persistenceOperations = new PersistenceOperations(
+        new JsonShareSerialiser(),
+        new JsonRecoverySchemeSerialiser(),
+        rxFiles);
+    concurrentFileWriter = new ConcurrentFileWriter(Schedulers.io(), 4, true);
+    
+    secretFile = temporaryFolder.newFile("secret");
+    FileUtils.writeByteArrayToFile(secretFile, SECRET);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_zeroOffHeapShareThreshold() {
+    createShareCreator(0);
+  }
+  
+  @Test
+  public void testCreateShares_belowOffHeapThreshold() throws Exception {
+    createSharesAndRecoverSecret(createShareCreator(ShareCreator.DEFAULT_OFF_HEAP_SHARE_THRESHOLD));
+  }
+  
+  @Test
+  public void testCreateShares_aboveOffHeapThreshold() throws Exception {
+    createSharesAndRecoverSecret(createShareCreator(1));
+  }
+  
+  private void createSharesAndRecoverSecret(final ShareCreator shareCreator) throws Exception {
+    final File outputDirectory = new File(temporaryFolder.getRoot(), "output");
+    
+    shareCreator
+        .createShares(CreationJob.create(secretFile, 3, 2500, outputDirectory))
+        .blockingAwait();
+    
+    assertThat(outputDirectory.listFiles().length, is(2501));
+    
+    final RecoveryScheme recoveryScheme = new JsonRecoverySchemeSerialiser()
+        .deserialise(Files.readAllBytes(new File(outputDirectory, "recovery-scheme").toPath()))
+        .blockingGet();
+    
+    final Set<Share> shares = new HashSet<>();
+    
+    for (final int index : new int[]{1, 1250, 2500}) {
+      shares.add(new JsonShareSerialiser()
+          .deserialise(Files.readAllBytes(new File(outputDirectory, "share-" + index).toPath()))
+          .blockingGet());
+    }
+    
+    final BigInteger secret = rxShamir.recoverSecret(shares, recoveryScheme).blockingGet();
+    
+    assertThat(secretEncoder.decodeSecret(secret).blockingGet(), is(SECRET));
+  }
+  
+  private ShareCreator createShareCreator(final int offHeapShareThreshold) {
+    return new ShareCreator(
+        rxShamir,
+        cryptoConstants,
+        secretEncoder,
+        persistenceOperations,
+        rxFiles,
+        concurrentFileWriter,
+        offHeapShareThreshold);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing;
+
+import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
+import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestBlockShamir {
+  private static final BigInteger PRIME = PrimeCatalogue.getPrime(PrimeCatalogue.DEFAULT_PRIME_ID);
+  
+  private static final CreationScheme CREATION_SCHEME = CreationScheme
+      .builder()
+      .setRequiredShareCount(3)
+      .setTotalShareCount(5)
+      .setPrime(PRIME)
+      .build();
+  
+  private static final RecoveryScheme RECOVERY_SCHEME = RecoveryScheme
+      .builder()
+      .setRequiredShareCount(3)
+      .setPrime(PRIME)
+      .build();
+  
+  private RxShamir rxShamir;
+  
+  private SecretEncoder secretEncoder;
+  
+  private BlockShamir blockShamir;
+  
+  @Before
+  public void setup() {
+    rxShamir = new RxShamir(new SecureRandom());
+    secretEncoder = new SecretEncoder();
+    blockShamir = new BlockShamir(rxShamir, secretEncoder);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullRxShamir() {
+    new BlockShamir(null, secretEncoder);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullSecretEncoder() {
+    new BlockShamir(rxShamir, null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShares_nullSecret() {
+    blockShamir.createShares(null, CREATION_SCHEME);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShares_nullCreationScheme() {
+    blockShamir.createShares(new byte[1], null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShares_nullBatchFactory() {
+    blockShamir.createShares(new byte[1], CREATION_SCHEME, null);
+  }
+  
+  @Test
+  public void testCreateShares_sharesOfEachBlockAreAddedToABatch() {
+    final List<ShareBatch> batches = new ArrayList<>();
+    
+    final List<List<Share>> holders = blockShamir
+        .createShares(createSecret(2000), CREATION_SCHEME, capacity -> {
+          final ShareBatch batch = ShareBatch.allocate(capacity, ShareBatch.getValueWidth(PRIME));
+          batches.add(batch);
+          
+          return batch;
+        })
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .values()
+        .get(0);
+    
+    assertThat(batches.size(), is(holders.get(0).size()));
+    
+    for (int block = 0; block < batches.size(); block++) {
+      assertThat(batches.get(block).size(), is(5));
+      
+      for (int holder = 0; holder < 5; holder++) {
+        assertThat(holders.get(holder).get(block), is(batches.get(block).getShare(holder)));
+      }
+    }
+  }
+  
+  @Test
+  public void testCreateShares_batchFactoryFails() {
+    blockShamir
+        .createShares(createSecret(2000), CREATION_SCHEME, capacity -> {
+          throw new IOException();
+        })
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testCreateShares_secretFitsInOneValue() {
+    final byte[] secret = createSecret(SecretEncoder.getMaxBlockSizeBytes(PRIME));
+    final List<List<Share>> holders = createShares(secret);
+    
+    assertThat(holders.size(), is(5));
+    
+    for (final List<Share> holderShares : holders) {
+      assertThat(holderShares.size(), is(1));
+    }
+    
+    // A single value is shared exactly as it was before secrets could be split into blocks
+    final Set<Share> shares = new HashSet<>();
+    
+    for (int i = 0; i < 3; i++) {
+      shares.add(holders.get(i).get(0));
+    }
+    
+    final BigInteger encodedSecret = rxShamir.recoverSecret(shares, RECOVERY_SCHEME).blockingGet();
+    
+    assertThat(secretEncoder.decodeSecret(encodedSecret).blockingGet(), is(secret));
+  }
+  
+  @Test
+  public void testCreateShares_secretNeedsSeveralBlocks() {
+    final List<List<Share>> holders = createShares(createSecret(2000));
+    
+    assertThat(holders.size(), is(5));
+    assertThat(holders.get(0).size(), greaterThan(1));
+    
+    for (final List<Share> holderShares : holders) {
+      assertThat(holderShares.size(), is(holders.get(0).size()));
+      
+      for (final Share share : holderShares) {
+        assertThat(share.getIndex(), is(holderShares.get(0).getIndex()));
+      }
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecret_nullShareBlocks() {
+    blockShamir.recoverSecret(null, RECOVERY_SCHEME);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecret_nullRecoveryScheme() {
+    blockShamir.recoverSecret(Collections.emptyList(), null);
+  }
+  
+  @Test
+  public void testRecoverSecret_noBlocks() {
+    blockShamir
+        .recoverSecret(Collections.emptyList(), RECOVERY_SCHEME)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateSharesThenRecoverSecret_secretFitsInOneValue() {
+    checkCreateSharesThenRecoverSecret(createSecret(32));
+  }
+  
+  @Test
+  public void testCreateSharesThenRecoverSecret_secretNeedsSeveralBlocks() {
+    checkCreateSharesThenRecoverSecret(createSecret(2000));
+  }
+  
+  @Test
+  public void testCreateSharesThenRecoverSecret_emptySecret() {
+    checkCreateSharesThenRecoverSecret(new byte[0]);
+  }
+  
+  private void checkCreateSharesThenRecoverSecret(final byte[] secret) {
+    final List<List<Share>> holders = createShares(secret);
+    final List<Set<Share>> shareBlocks = new ArrayList<>();
+    
+    // Any three holders are enough, so skip the first two
+    for (int block = 0; block < holders.get(0).size(); block++) {
+      final Set<Share> shares = new HashSet<>();
+      
+      for (int holder = 2; holder < 5; holder++) {
+        shares.add(holders.get(holder).get(block));
+      }
+      
+      shareBlocks.add(shares);
+    }
+    
+    blockShamir
+        .recoverSecret(shareBlocks, RECOVERY_SCHEME)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .assertValue(recovered -> Arrays.equals(recovered, secret));
+  }
+  
+  private List<List<Share>> createShares(final byte[] secret) {
+    return blockShamir
+        .createShares(secret, CREATION_SCHEME)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .values()
+        .get(0);
+  }
+  
+  private static byte[] createSecret(final int length) {
+    final byte[] secret = new byte[length];
+    new Random(length).nextBytes(secret);
+    
+    return secret;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing;
+
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static java.math.BigInteger.ONE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@SuppressWarnings("ConstantConditions")
+public class TestPrimeCatalogue {
+  @Test
+  public void testGetPrimes_bitLengthsAreStandard() {
+    final List<BigInteger> primes = PrimeCatalogue.getPrimes();
+    final int[] bitLengths = {127, 255, 521, 1024, 2048, 3072, 4096};
+    
+    assertThat(primes.size(), is(bitLengths.length));
+    
+    for (int i = 0; i < bitLengths.length; i++) {
+      assertThat(primes.get(i).bitLength(), is(bitLengths[i]));
+    }
+  }
+  
+  @Test
+  public void testGetPrimes_everyEntryIsPrime() {
+    for (final BigInteger prime : PrimeCatalogue.getPrimes()) {
+      assertThat(prime.isProbablePrime(64), is(true));
+    }
+  }
+  
+  @Test
+  public void testGetPrimes_largestIsTheDefaultPrime() {
+    final List<BigInteger> primes = PrimeCatalogue.getPrimes();
+    
+    assertThat(primes.get(primes.size() - 1), is(CryptoConstants.createDefault().getPrime()));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindSmallestPrimeGreaterThan_nullValue() {
+    PrimeCatalogue.findSmallestPrimeGreaterThan(null);
+  }
+  
+  @Test
+  public void testFindSmallestPrimeGreaterThan_valueIsSmall() {
+    assertThat(PrimeCatalogue.findSmallestPrimeGreaterThan(ONE), is(ONE.shiftLeft(127).subtract(ONE)));
+  }
+  
+  @Test
+  public void testFindSmallestPrimeGreaterThan_valueEqualsPrime() {
+    final BigInteger mersenne127 = ONE.shiftLeft(127).subtract(ONE);
+    
+    assertThat(PrimeCatalogue.findSmallestPrimeGreaterThan(mersenne127).bitLength(), is(255));
+  }
+  
+  @Test
+  public void testFindSmallestPrimeGreaterThan_valueExceedsEveryPrime() {
+    assertThat(PrimeCatalogue.findSmallestPrimeGreaterThan(ONE.shiftLeft(4096)), is(nullValue()));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPrime_nullId() {
+    PrimeCatalogue.getPrime(null);
+  }
+  
+  @Test
+  public void testGetPrime_unknownId() {
+    assertThat(PrimeCatalogue.getPrime("unknown"), is(nullValue()));
+  }
+  
+  @Test
+  public void testGetPrime_defaultId() {
+    final BigInteger prime = PrimeCatalogue.getPrime(PrimeCatalogue.DEFAULT_PRIME_ID);
+    
+    assertThat(prime, is(CryptoConstants.createDefault().getPrime()));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetId_nullPrime() {
+    PrimeCatalogue.getId(null);
+  }
+  
+  @Test
+  public void testGetId_uncataloguedPrime() {
+    assertThat(PrimeCatalogue.getId(BigInteger.valueOf(7)), is(nullValue()));
+  }
+  
+  @Test
+  public void testGetIdAndGetPrime_everyPrimeRoundTrips() {
+    for (final BigInteger prime : PrimeCatalogue.getPrimes()) {
+      assertThat(PrimeCatalogue.getPrime(PrimeCatalogue.getId(prime)) == prime, is(true));
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIntern_nullPrime() {
+    PrimeCatalogue.intern(null);
+  }
+  
+  @Test
+  public void testIntern_cataloguedPrime() {
+    final BigInteger prime = PrimeCatalogue.getPrime("rfc3526-2048");
+    final BigInteger copy = new BigInteger(prime.toByteArray());
+    
+    assertThat(PrimeCatalogue.intern(copy) == prime, is(true));
+  }
+  
+  @Test
+  public void testIntern_uncataloguedPrime() {
+    final BigInteger prime = BigInteger.valueOf(7);
+    
+    assertThat(PrimeCatalogue.intern(prime) == prime, is(true));
+  }
+}
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.creation;
 
+import com.matthewtamlin.shamir.app.files.ConcurrentFileWriter;
 import com.matthewtamlin.shamir.app.files.RxFiles;
 import com.matthewtamlin.shamir.app.rxutilities.None;
 import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
@@ -79,6 +80,8 @@ public class TestCreationPresenter {
   
   private RxFiles mockRxFiles;
   
+  private ConcurrentFileWriter concurrentFileWriter;
+  
   private File secretFile;
   
   private File outputDirectory;
@@ -113,6 +116,7 @@ public class TestCreationPresenter {
     mockSecretEncoder = createMockSecretEncoder();
     mockPersistenceOperations = createMockPersistenceOperations();
     mockRxFiles = createMockRxFiles();
+    concurrentFileWriter = new ConcurrentFileWriter(Schedulers.trampoline(), 4);
     
     when(mockView.observeRequiredShareCount()).thenReturn(requiredShareCountObservable);
     when(mockView.observeTotalShareCount()).thenReturn(totalShareCountObservable);
@@ -134,7 +138,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
     
     secretFile = temporaryFolder.newFile("input.txt");
     outputDirectory = temporaryFolder.newFolder("outputdir");
@@ -184,7 +189,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -197,7 +203,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -210,7 +217,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -223,7 +231,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -236,7 +245,8 @@ public class TestCreationPresenter {
         null,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -249,7 +259,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         null,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -262,7 +273,8 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         null,
-        mockRxFiles);
+        mockRxFiles,
+        concurrentFileWriter);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -275,6 +287,21 @@ public class TestCreationPresenter {
         mockCryptoConstants,
         mockSecretEncoder,
         mockPersistenceOperations,
+        null,
+        concurrentFileWriter);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullConcurrentFileWriter() {
+    new CreationPresenter(
+        mockView,
+        Schedulers.trampoline(),
+        Schedulers.trampoline(),
+        mockRxShamir,
+        mockCryptoConstants,
+        mockSecretEncoder,
+        mockPersistenceOperations,
+        mockRxFiles,
         null);
   }
   
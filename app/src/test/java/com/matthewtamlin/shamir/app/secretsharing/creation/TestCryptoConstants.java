@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.creation;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static java.math.BigInteger.ONE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestCryptoConstants {
+  @Test(expected = IllegalArgumentException.class)
+  public void testSelectPrime_nullEncodedSecret() {
+    CryptoConstants.createDefault().selectPrime(null, 3);
+  }
+  
+  @Test
+  public void testSelectPrime_fixedSelection() {
+    final CryptoConstants cryptoConstants = CryptoConstants.createDefault(PrimeSelection.FIXED);
+    
+    assertThat(cryptoConstants.selectPrime(ONE, 3), is(cryptoConstants.getPrime()));
+  }
+  
+  @Test
+  public void testSelectPrime_smallestSufficientSelection() {
+    final CryptoConstants cryptoConstants = CryptoConstants.createDefault(PrimeSelection.SMALLEST_SUFFICIENT);
+    
+    assertThat(cryptoConstants.selectPrime(ONE, 3).bitLength(), is(127));
+    assertThat(cryptoConstants.selectPrime(ONE.shiftLeft(200), 3).bitLength(), is(255));
+    assertThat(cryptoConstants.selectPrime(ONE.shiftLeft(4000), 3), is(cryptoConstants.getPrime()));
+  }
+  
+  @Test
+  public void testSelectPrime_smallestSufficientSelectionWithLargeShareCount() {
+    final CryptoConstants cryptoConstants = CryptoConstants
+        .builder()
+        .setPrime(BigInteger.valueOf(7))
+        .setMaxFileSizeBytes(0)
+        .setPrimeSelection(PrimeSelection.SMALLEST_SUFFICIENT)
+        .build();
+    
+    assertThat(cryptoConstants.selectPrime(ONE, Integer.MAX_VALUE).bitLength(), is(127));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.creation;
+
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestOffHeapShareStore {
+  /**
+   * Enough shares to fill several segments.
+   */
+  private static final int LARGE_SHARE_COUNT = 100_000;
+  
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateDirect_zeroValueWidth() {
+    OffHeapShareStore.createDirect(0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_nullShare() throws IOException {
+    OffHeapShareStore.createDirect(1).add(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_indexLessThan1() throws IOException {
+    OffHeapShareStore.createDirect(1).add(0, BigInteger.ONE);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_valueTooWide() throws IOException {
+    OffHeapShareStore.createDirect(1).add(1, BigInteger.valueOf(256));
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testAdd_closedStore() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createDirect(1);
+    
+    store.close();
+    store.add(1, BigInteger.ONE);
+  }
+  
+  @Test
+  public void testCursor_emptyStore() {
+    assertThat(OffHeapShareStore.createDirect(1).cursor().moveToNext(), is(false));
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testCursor_getIndexBeforeMoving() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createDirect(1);
+    
+    store.add(1, BigInteger.ONE);
+    store.cursor().getIndex();
+  }
+  
+  @Test
+  public void testCursor_ignoresLaterAdditions() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createDirect(1);
+    
+    store.add(1, BigInteger.ONE);
+    
+    final OffHeapShareStore.Cursor cursor = store.cursor();
+    
+    store.add(2, BigInteger.ONE);
+    
+    assertThat(cursor.moveToNext(), is(true));
+    assertThat(cursor.moveToNext(), is(false));
+  }
+  
+  @Test
+  public void testCursor_copyValue() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createDirect(3);
+    final byte[] destination = new byte[4];
+    
+    store.add(1, BigInteger.valueOf(0x0102));
+    
+    final OffHeapShareStore.Cursor cursor = store.cursor();
+    
+    cursor.moveToNext();
+    cursor.copyValue(destination, 1);
+    
+    assertThat(destination, is(new byte[]{0, 0, 1, 2}));
+  }
+  
+  @Test
+  public void testAddAndIterate_direct() throws IOException {
+    try (final OffHeapShareStore store = OffHeapShareStore.createDirect(32)) {
+      addAndIterate(store);
+    }
+  }
+  
+  @Test
+  public void testAddAndIterate_mapped() throws IOException {
+    try (final OffHeapShareStore store = OffHeapShareStore.createMapped(temporaryFolder.getRoot(), 32)) {
+      addAndIterate(store);
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAppendBatch_negativeCapacity() throws IOException {
+    OffHeapShareStore.createDirect(1).appendBatch(-1);
+  }
+  
+  @Test
+  public void testAppendBatch_direct() throws IOException {
+    try (final OffHeapShareStore store = OffHeapShareStore.createDirect(4)) {
+      final ShareBatch batch = appendBatchAndIterate(store);
+      
+      assertThat(batch.isDirect(), is(true));
+    }
+  }
+  
+  @Test
+  public void testAppendBatch_mapped() throws IOException {
+    try (final OffHeapShareStore store = OffHeapShareStore.createMapped(temporaryFolder.getRoot(), 4)) {
+      appendBatchAndIterate(store);
+    }
+  }
+  
+  @Test
+  public void testClose_mappedStoreDeletesFile() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createMapped(temporaryFolder.getRoot(), 32);
+    
+    store.add(1, BigInteger.ONE);
+    
+    assertThat(temporaryFolder.getRoot().listFiles().length, is(1));
+    
+    store.close();
+    store.close();
+    
+    assertThat(temporaryFolder.getRoot().listFiles().length, is(0));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadChunks_zeroChunkSize() {
+    OffHeapShareStore.createDirect(1).readChunks(0);
+  }
+  
+  @Test
+  public void testReadChunks() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createDirect(1);
+    
+    for (int i = 1; i <= 5; i++) {
+      store.add(i, BigInteger.valueOf(i * 10));
+    }
+    
+    final List<List<Share>> chunks = store
+        .readChunks(2)
+        .toList()
+        .blockingGet();
+    
+    assertThat(chunks.size(), is(3));
+    assertThat(chunks.get(0).size(), is(2));
+    assertThat(chunks.get(2).size(), is(1));
+    assertThat(chunks.get(2).get(0), is(Share.builder().setIndex(5).setValue(50).build()));
+  }
+  
+  @Test
+  public void testReadChunks_honoursBackpressure() throws IOException {
+    final OffHeapShareStore store = OffHeapShareStore.createDirect(1);
+    
+    for (int i = 1; i <= 5; i++) {
+      store.add(i, BigInteger.ONE);
+    }
+    
+    store
+        .readChunks(1)
+        .test(2)
+        .awaitDone(1, SECONDS)
+        .assertValueCount(2)
+        .assertNotComplete();
+  }
+  
+  private static void addAndIterate(final OffHeapShareStore store) throws IOException {
+    final List<BigInteger> values = new ArrayList<>(LARGE_SHARE_COUNT);
+    
+    for (int i = 1; i <= LARGE_SHARE_COUNT; i++) {
+      final BigInteger value = BigInteger.valueOf(i).pow(13);
+      
+      values.add(value);
+      store.add(i, value);
+    }
+    
+    assertThat(store.size(), is((long) LARGE_SHARE_COUNT));
+    
+    final OffHeapShareStore.Cursor cursor = store.cursor();
+    
+    for (int i = 1; i <= LARGE_SHARE_COUNT; i++) {
+      assertThat(cursor.moveToNext(), is(true));
+      assertThat(cursor.getIndex(), is(i));
+      assertThat(cursor.getValue(), is(values.get(i - 1)));
+    }
+    
+    assertThat(cursor.moveToNext(), is(false));
+  }
+  
+  private static ShareBatch appendBatchAndIterate(final OffHeapShareStore store) throws IOException {
+    store.add(1, BigInteger.ONE);
+    
+    final ShareBatch batch = store.appendBatch(2);
+    
+    batch.add(2, BigInteger.valueOf(2));
+    batch.add(3, BigInteger.valueOf(3));
+    store.add(4, BigInteger.valueOf(4));
+    
+    assertThat(store.size(), is(4L));
+    
+    final OffHeapShareStore.Cursor cursor = store.cursor();
+    
+    for (int i = 1; i <= 4; i++) {
+      assertThat(cursor.moveToNext(), is(true));
+      assertThat(cursor.getShare(), is(Share.builder().setIndex(i).setValue(i).build()));
+    }
+    
+    assertThat(cursor.moveToNext(), is(false));
+    
+    return batch;
+  }
+}
\ No newline at end of file
@@ -19,7 +19,9 @@ package com.matthewtamlin.shamir.app.secretsharing.creation;
 
 import com.google.common.collect.ImmutableList;
 import com.matthewtamlin.shamir.app.files.RxFiles;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.JsonShareSerialiser;
 import com.matthewtamlin.shamir.app.secretsharing.serialisation.RecoverySchemeSerialiser;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareBundleSerialiser;
 import com.matthewtamlin.shamir.app.secretsharing.serialisation.ShareSerialiser;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
@@ -27,11 +29,15 @@ import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.matthewtamlin.shamir.app.files.RxMocks.createMockRxFiles;
@@ -44,6 +50,9 @@ import static org.mockito.Mockito.*;
 
 @SuppressWarnings("ConstantConditions")
 public class TestPersistenceOperations {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
   private static final Share SHARE = Share
       .builder()
       .setIndex(1)
@@ -56,9 +65,7 @@ public class TestPersistenceOperations {
       .setPrime(3)
       .build();
   
-  private static final String SERIALISED_SHARE = "serialised share";
-  
-  private static final String SERIALISED_RECOVERY_SCHEME = "serialised recovery scheme";
+  private static final byte[] SERIALISED_RECOVERY_SCHEME = "serialised recovery scheme".getBytes();
   
   private ShareSerialiser shareSerialiser;
   
@@ -76,8 +83,8 @@ public class TestPersistenceOperations {
     
     persistenceOperations = new PersistenceOperations(shareSerialiser, recoverySchemeSerialiser, rxFiles);
     
-    when(shareSerialiser.serialise(SHARE)).thenReturn(Single.just(SERIALISED_SHARE));
-    when(recoverySchemeSerialiser.serialise(RECOVERY_SCHEME)).thenReturn(Single.just(SERIALISED_RECOVERY_SCHEME));
+    when(shareSerialiser.writeTo(eq(SHARE), any())).thenReturn(Completable.complete());
+    when(recoverySchemeSerialiser.writeTo(eq(RECOVERY_SCHEME), any())).thenReturn(Completable.complete());
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -115,8 +122,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.empty());
     
     when(rxFiles.exists(child)).thenReturn(Single.just(false));
@@ -124,8 +131,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.error(new IOException()));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.complete());
     when(rxFiles.createDirectory(child)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -146,8 +153,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.just(child));
     
     when(rxFiles.exists(child)).thenReturn(Single.just(true));
@@ -155,8 +162,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(child)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -177,8 +184,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.just(child));
     
     when(rxFiles.exists(child)).thenReturn(Single.just(true));
@@ -186,8 +193,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.just(false));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.complete());
     when(rxFiles.createDirectory(child)).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.just(""));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.just(new ByteArrayInputStream(new byte[0])));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -197,7 +204,7 @@ public class TestPersistenceOperations {
         .assertError(IOException.class)
         .assertNotComplete();
     
-    verify(rxFiles, times(1)).writeStringToFile(SERIALISED_SHARE, child, Charset.defaultCharset());
+    verify(rxFiles, times(1)).openOutputStream(child);
   }
   
   @Test
@@ -210,8 +217,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.just(child));
     
     when(rxFiles.exists(child)).thenReturn(Single.just(true));
@@ -219,8 +226,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.just(false));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.complete());
     when(rxFiles.createDirectory(child)).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.complete());
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.just(""));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.just(new ByteArrayOutputStream()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.just(new ByteArrayInputStream(new byte[0])));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -230,7 +237,42 @@ public class TestPersistenceOperations {
         .assertNoErrors()
         .assertComplete();
     
-    verify(rxFiles, times(1)).writeStringToFile(SERIALISED_SHARE, child, Charset.defaultCharset());
+    verify(rxFiles, times(1)).openOutputStream(child);
+    verify(shareSerialiser, times(1)).writeTo(eq(SHARE), any());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveShareBundleToFile_nullShares() {
+    persistenceOperations.saveShareBundleToFile(null, new File("test"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveShareBundleToFile_sharesContainsNull() {
+    persistenceOperations.saveShareBundleToFile(Arrays.asList(SHARE, null), new File("test"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveShareBundleToFile_nullFile() {
+    persistenceOperations.saveShareBundleToFile(ImmutableList.of(SHARE), null);
+  }
+  
+  @Test
+  public void testSaveShareBundleToFile_writeSuccessful() throws IOException {
+    final File file = temporaryFolder.newFile("bundle");
+    final List<Share> shares = ImmutableList.of(SHARE, Share.builder().setIndex(1).setValue(2).build());
+    
+    new PersistenceOperations(new JsonShareSerialiser(), recoverySchemeSerialiser, rxFiles)
+        .saveShareBundleToFile(shares, file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertComplete();
+    
+    new ShareBundleSerialiser(new JsonShareSerialiser())
+        .readFromFile(file)
+        .flatMap(bundle -> bundle.getShares().toList())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertValue(shares);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -253,8 +295,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.empty());
     
     when(rxFiles.exists(child)).thenReturn(Single.just(false));
@@ -262,8 +304,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.error(new IOException()));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.complete());
     when(rxFiles.createDirectory(child)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -284,8 +326,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.just(child));
     
     when(rxFiles.exists(child)).thenReturn(Single.just(true));
@@ -293,8 +335,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(child)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     
@@ -316,8 +358,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.just(child));
     
     when(rxFiles.exists(child)).thenReturn(Single.just(true));
@@ -325,8 +367,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.just(false));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.complete());
     when(rxFiles.createDirectory(child)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.just(SERIALISED_RECOVERY_SCHEME));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.just(new ByteArrayInputStream(SERIALISED_RECOVERY_SCHEME)));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -336,7 +378,7 @@ public class TestPersistenceOperations {
         .assertError(IOException.class)
         .assertNotComplete();
     
-    verify(rxFiles, times(1)).writeStringToFile(SERIALISED_RECOVERY_SCHEME, child, Charset.defaultCharset());
+    verify(rxFiles, times(1)).openOutputStream(child);
   }
   
   @Test
@@ -349,8 +391,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(parent)).thenReturn(Single.just(true));
     when(rxFiles.createNewFile(parent)).thenReturn(Completable.error(new IOException()));
     when(rxFiles.createDirectory(parent)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(parent), any())).thenReturn(Completable.error(new IOException()));
-    when(rxFiles.readStringFromFile(eq(parent), any())).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openOutputStream(parent)).thenReturn(Single.error(new IOException()));
+    when(rxFiles.openInputStream(parent)).thenReturn(Single.error(new IOException()));
     when(rxFiles.getFilesInDirectory(parent)).thenReturn(Observable.just(child));
     
     when(rxFiles.exists(child)).thenReturn(Single.just(true));
@@ -358,8 +400,8 @@ public class TestPersistenceOperations {
     when(rxFiles.isDirectory(child)).thenReturn(Single.just(false));
     when(rxFiles.createNewFile(child)).thenReturn(Completable.complete());
     when(rxFiles.createDirectory(child)).thenReturn(Completable.complete());
-    when(rxFiles.writeStringToFile(any(), eq(child), any())).thenReturn(Completable.complete());
-    when(rxFiles.readStringFromFile(eq(child), any())).thenReturn(Single.just(SERIALISED_RECOVERY_SCHEME));
+    when(rxFiles.openOutputStream(child)).thenReturn(Single.just(new ByteArrayOutputStream()));
+    when(rxFiles.openInputStream(child)).thenReturn(Single.just(new ByteArrayInputStream(SERIALISED_RECOVERY_SCHEME)));
     when(rxFiles.getFilesInDirectory(child)).thenReturn(Observable.error(new IOException()));
     
     persistenceOperations
@@ -369,7 +411,8 @@ public class TestPersistenceOperations {
         .assertNoErrors()
         .assertComplete();
     
-    verify(rxFiles, times(1)).writeStringToFile(SERIALISED_RECOVERY_SCHEME, child, Charset.defaultCharset());
+    verify(rxFiles, times(1)).openOutputStream(child);
+    verify(recoverySchemeSerialiser, times(1)).writeTo(eq(RECOVERY_SCHEME), any());
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -439,7 +482,7 @@ public class TestPersistenceOperations {
         new File("-"),
         new File("-1"));
     
-    when(rxFiles.getFilesInDirectory(directory)).thenReturn(Observable.fromIterable(files));
+    when(rxFiles.getFilesInDirectory(directory, "share-[0-9]*")).thenReturn(Observable.fromIterable(files));
     
     persistenceOperations
         .directoryContainsShareFiles(directory)
@@ -453,7 +496,7 @@ public class TestPersistenceOperations {
   public void testDirectoryContainsShareFile_directoryContainsOneShareFile() {
     final File directory = new File("test");
     
-    when(rxFiles.getFilesInDirectory(directory)).thenReturn(Observable.just(new File("share-1")));
+    when(rxFiles.getFilesInDirectory(directory, "share-[0-9]*")).thenReturn(Observable.just(new File("share-1")));
     
     persistenceOperations
         .directoryContainsShareFiles(directory)
@@ -469,7 +512,7 @@ public class TestPersistenceOperations {
     
     final List<File> files = ImmutableList.of(new File("share-1"), new File("share-2"));
     
-    when(rxFiles.getFilesInDirectory(directory)).thenReturn(Observable.fromIterable(files));
+    when(rxFiles.getFilesInDirectory(directory, "share-[0-9]*")).thenReturn(Observable.fromIterable(files));
     
     persistenceOperations
         .directoryContainsShareFiles(directory)
@@ -488,15 +531,7 @@ public class TestPersistenceOperations {
   public void testDirectoryContainsRecoverySchemeFile_directoryDoesNotContainsRecoverySchemeFile() {
     final File directory = new File("test");
     
-    final List<File> files = ImmutableList.of(
-        new File("recover-scheme"),
-        new File("recovery-schme"),
-        new File("recovery"),
-        new File("scheme"),
-        new File("-"),
-        new File("recovery--scheme"));
-    
-    when(rxFiles.getFilesInDirectory(directory)).thenReturn(Observable.fromIterable(files));
+    when(rxFiles.exists(new File(directory, "recovery-scheme"))).thenReturn(Single.just(false));
     
     persistenceOperations
         .directoryContainsRecoverySchemeFiles(directory)
@@ -510,7 +545,7 @@ public class TestPersistenceOperations {
   public void testDirectoryContainsRecoverySchemeFile_directoryContainsRecoverySchemeFile() {
     final File directory = new File("test");
     
-    when(rxFiles.getFilesInDirectory(directory)).thenReturn(Observable.just(new File("recovery-scheme")));
+    when(rxFiles.exists(new File(directory, "recovery-scheme"))).thenReturn(Single.just(true));
     
     persistenceOperations
         .directoryContainsRecoverySchemeFiles(directory)
@@ -16,15 +16,36 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.encoding;
 
+import com.matthewtamlin.shamir.app.secretsharing.creation.CryptoConstants;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 @SuppressWarnings("ConstantConditions")
 public class TestSecretEncoder {
+  private static final BigInteger PRIME_127_BITS = BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE);
+  
+  private static final BigInteger PRIME_4096_BITS = CryptoConstants.createDefault().getPrime();
+  
   private SecretEncoder secretEncoder;
   
   @Before
@@ -156,4 +177,158 @@ public class TestSecretEncoder {
         .assertNoErrors()
         .assertValue(reconstructedSecret -> Arrays.equals(secret, reconstructedSecret));
   }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncodeSecretBlocks_nullSecret() {
+    secretEncoder.encodeSecretBlocks((byte[]) null, PRIME_127_BITS);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncodeSecretBlocks_nullSecretSource() {
+    secretEncoder.encodeSecretBlocks((Callable<InputStream>) null, PRIME_127_BITS);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncodeSecretBlocks_nullPrime() {
+    secretEncoder.encodeSecretBlocks(new byte[]{1}, null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncodeSecretBlocks_primeTooSmall() {
+    secretEncoder.encodeSecretBlocks(new byte[]{1}, BigInteger.valueOf(65521));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeSecretBlocks_nullBlocks() {
+    secretEncoder.decodeSecretBlocks(null);
+  }
+  
+  @Test
+  public void testGetMaxBlockSizeBytes() {
+    assertThat(SecretEncoder.getMaxBlockSizeBytes(PRIME_127_BITS), is(14));
+    assertThat(SecretEncoder.getMaxBlockSizeBytes(PRIME_4096_BITS), is(510));
+  }
+  
+  @Test
+  public void testEncodeSecretBlocks_secretIsEmpty() {
+    secretEncoder
+        .encodeSecretBlocks(new byte[0], PRIME_127_BITS)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(BigInteger.ONE);
+  }
+  
+  @Test
+  public void testEncodeSecretBlocks_secretFitsInOneBlock() {
+    final byte[] secret = randomBytes(510);
+    
+    secretEncoder
+        .encodeSecretBlocks(secret, PRIME_4096_BITS)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(secretEncoder.encodeSecret(secret).blockingGet());
+  }
+  
+  @Test
+  public void testEncodeSecretBlocks_secretIsMultipleOfBlockSize() {
+    secretEncoder
+        .encodeSecretBlocks(randomBytes(14 * 3), PRIME_127_BITS)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValueCount(3);
+  }
+  
+  @Test
+  public void testEncodeSecretBlocks_everyBlockIsLessThanPrime() {
+    final byte[] secret = new byte[1000];
+    Arrays.fill(secret, (byte) -1);
+    
+    final List<BigInteger> blocks = secretEncoder.encodeSecretBlocks(secret, PRIME_127_BITS).toList().blockingGet();
+    
+    assertThat(blocks.size(), is(72));
+    
+    for (final BigInteger block : blocks) {
+      assertThat(block, lessThan(PRIME_127_BITS));
+    }
+  }
+  
+  @Test
+  public void testEncodeAndDecodeSecretBlocks_largeSecret() throws IOException {
+    doEncodeAndDecodeSecretBlocksTestWithSecret(randomBytes(100_000), PRIME_127_BITS);
+    doEncodeAndDecodeSecretBlocksTestWithSecret(randomBytes(100_000), PRIME_4096_BITS);
+  }
+  
+  @Test
+  public void testEncodeAndDecodeSecretBlocks_secretStartsAndEndsWithZeros() throws IOException {
+    final byte[] secret = new byte[40];
+    secret[20] = 5;
+    
+    doEncodeAndDecodeSecretBlocksTestWithSecret(secret, PRIME_127_BITS);
+  }
+  
+  @Test
+  public void testEncodeSecretBlocks_secretIsReadLazily() {
+    final AtomicInteger bytesRead = new AtomicInteger();
+    final AtomicBoolean closed = new AtomicBoolean();
+    
+    final InputStream secret = new ByteArrayInputStream(randomBytes(10_000)) {
+      @Override
+      public synchronized int read(final byte[] buffer, final int offset, final int length) {
+        final int count = super.read(buffer, offset, length);
+        bytesRead.addAndGet(Math.max(count, 0));
+        return count;
+      }
+      
+      @Override
+      public void close() {
+        closed.set(true);
+      }
+    };
+    
+    final TestSubscriber<BigInteger> subscriber = secretEncoder
+        .encodeSecretBlocks(() -> secret, PRIME_127_BITS)
+        .test(2);
+    
+    subscriber.assertValueCount(2);
+    assertThat(bytesRead.get(), lessThanOrEqualTo(14 * 2));
+    assertThat(closed.get(), is(false));
+    
+    subscriber.cancel();
+    
+    assertThat(closed.get(), is(true));
+  }
+  
+  @Test
+  public void testDecodeSecretBlocks_blockNotFramed() {
+    secretEncoder
+        .decodeSecretBlocks(Flowable.just(BigInteger.valueOf(2)))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  private void doEncodeAndDecodeSecretBlocksTestWithSecret(final byte[] secret, final BigInteger prime)
+      throws IOException {
+    
+    final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    
+    for (final byte[] bytes : secretEncoder
+        .decodeSecretBlocks(secretEncoder.encodeSecretBlocks(secret, prime))
+        .blockingIterable()) {
+      
+      decoded.write(bytes);
+    }
+    
+    assertThat(Arrays.equals(decoded.toByteArray(), secret), is(true));
+  }
+  
+  private static byte[] randomBytes(final int count) {
+    final byte[] bytes = new byte[count];
+    new Random(count).nextBytes(bytes);
+    
+    return bytes;
+  }
 }
\ No newline at end of file
@@ -51,6 +51,7 @@ public class RxMocks {
     
     
     when(persistenceOperations.loadShareFromFile(any())).thenReturn(Single.never());
+    when(persistenceOperations.loadShareBlocksFromFile(any())).thenReturn(Single.never());
     when(persistenceOperations.loadRecoverySchemeFromFile(any())).thenReturn(Single.never());
     when(persistenceOperations.defineNewRecoveredSecretFile(any())).thenReturn(Single.never());
     when(persistenceOperations.fileContainsShare(any())).thenReturn(Single.never());
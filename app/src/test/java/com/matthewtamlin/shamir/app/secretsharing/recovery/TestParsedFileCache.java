@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.recovery;
+
+import io.reactivex.Single;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestParsedFileCache {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private AtomicInteger parseCount;
+  
+  private File file;
+  
+  private Single<String> parse;
+  
+  @Before
+  public void setup() throws IOException {
+    parseCount = new AtomicInteger();
+    file = temporaryFolder.newFile("share");
+    
+    FileUtils.writeStringToFile(file, "share", StandardCharsets.UTF_8);
+    
+    parse = Single.fromCallable(() -> {
+      parseCount.incrementAndGet();
+      return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    });
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_maxEntriesNotGreaterThanZero() {
+    new ParsedFileCache<String>(0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGet_nullFile() {
+    new ParsedFileCache<String>(1).get(null, parse);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGet_nullParse() {
+    new ParsedFileCache<String>(1).get(file, null);
+  }
+  
+  @Test
+  public void testGet_fileUnchanged() throws IOException {
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    getAndAssertValue(cache, file, "share");
+    getAndAssertValue(cache, file, "share");
+    
+    assertThat(parseCount.get(), is(1));
+    assertThat(cache.contains(file), is(true));
+  }
+  
+  @Test
+  public void testGet_fileModified() throws IOException {
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    getAndAssertValue(cache, file, "share");
+    
+    FileUtils.writeStringToFile(file, "modified share", StandardCharsets.UTF_8);
+    
+    getAndAssertValue(cache, file, "modified share");
+    
+    assertThat(parseCount.get(), is(2));
+  }
+  
+  @Test
+  public void testGet_fileDoesNotExist() throws IOException {
+    final File missingFile = new File(temporaryFolder.getRoot(), "missing");
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    getAndAssertValue(cache, missingFile, "share");
+    getAndAssertValue(cache, missingFile, "share");
+    
+    assertThat(parseCount.get(), is(2));
+    assertThat(cache.contains(missingFile), is(false));
+  }
+  
+  @Test
+  public void testGet_parseFails() throws IOException {
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    cache
+        .get(file, Single.error(new IOException()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+    
+    assertThat(cache.contains(file), is(false));
+  }
+  
+  @Test
+  public void testGet_leastRecentlyUsedEntryIsEvicted() throws IOException {
+    final File otherFile = temporaryFolder.newFile("other-share");
+    final File anotherFile = temporaryFolder.newFile("another-share");
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(2);
+    
+    getAndAssertValue(cache, file, "share");
+    getAndAssertValue(cache, otherFile, "share");
+    getAndAssertValue(cache, file, "share");
+    getAndAssertValue(cache, anotherFile, "share");
+    
+    assertThat(cache.contains(file), is(true));
+    assertThat(cache.contains(otherFile), is(false));
+    assertThat(cache.contains(anotherFile), is(true));
+  }
+  
+  @Test
+  public void testGet_equivalentPathsShareAnEntry() {
+    final File equivalentFile = new File(new File(file.getParentFile(), "."), file.getName());
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    getAndAssertValue(cache, file, "share");
+    getAndAssertValue(cache, equivalentFile, "share");
+    
+    assertThat(parseCount.get(), is(1));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidate_nullFile() throws IOException {
+    new ParsedFileCache<String>(1).invalidate(null);
+  }
+  
+  @Test
+  public void testInvalidate() throws IOException {
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    getAndAssertValue(cache, file, "share");
+    cache.invalidate(file);
+    getAndAssertValue(cache, file, "share");
+    
+    assertThat(parseCount.get(), is(2));
+  }
+  
+  @Test
+  public void testInvalidateAll() throws IOException {
+    final ParsedFileCache<String> cache = new ParsedFileCache<>(1);
+    
+    getAndAssertValue(cache, file, "share");
+    cache.invalidateAll();
+    
+    assertThat(cache.contains(file), is(false));
+  }
+  
+  private void getAndAssertValue(final ParsedFileCache<String> cache, final File file, final String expectedValue) {
+    cache
+        .get(file, parse)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(expectedValue);
+  }
+}
\ No newline at end of file
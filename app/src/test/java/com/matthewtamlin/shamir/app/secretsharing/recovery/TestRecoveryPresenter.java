@@ -19,6 +19,7 @@ package com.matthewtamlin.shamir.app.secretsharing.recovery;
 import com.matthewtamlin.shamir.app.files.RxFiles;
 import com.matthewtamlin.shamir.app.rxutilities.None;
 import com.matthewtamlin.shamir.app.secretsharing.encoding.SecretEncoder;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.DeserialisationException;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
 import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
@@ -73,6 +74,8 @@ public class TestRecoveryPresenter {
   
   private RxFiles mockRxFiles;
   
+  private ShareLoader shareLoader;
+  
   private Set<File> shareFiles;
   
   private File recoverySchemeFile;
@@ -109,6 +112,7 @@ public class TestRecoveryPresenter {
     mockSecretEncoder = createMockSecretEncoder();
     mockPersistenceOperations = createMockPersistenceOperations();
     mockRxFiles = createMockRxFiles();
+    shareLoader = new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 4);
     
     when(mockView.observeShareFilePaths()).thenReturn(shareFilePathsObservable);
     when(mockView.observeRecoverySchemeFilePath()).thenReturn(recoverySchemeFilePathObservable);
@@ -126,7 +130,8 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
     
     shareFiles = new HashSet<>();
     rawShares = new HashMap<>();
@@ -168,7 +173,8 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -180,7 +186,8 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -192,7 +199,8 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -204,7 +212,8 @@ public class TestRecoveryPresenter {
         null,
         mockSecretEncoder,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -216,7 +225,8 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         null,
         mockPersistenceOperations,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -228,7 +238,8 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         mockSecretEncoder,
         null,
-        mockRxFiles);
+        mockRxFiles,
+        shareLoader);
   }
   
   @Test(expected = IllegalArgumentException.class)
@@ -240,6 +251,20 @@ public class TestRecoveryPresenter {
         mockRxShamir,
         mockSecretEncoder,
         mockPersistenceOperations,
+        null,
+        shareLoader);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullShareLoader() {
+    new RecoveryPresenter(
+        mockView,
+        Schedulers.trampoline(),
+        Schedulers.trampoline(),
+        mockRxShamir,
+        mockSecretEncoder,
+        mockPersistenceOperations,
+        mockRxFiles,
         null);
   }
   
@@ -657,7 +682,7 @@ public class TestRecoveryPresenter {
     for (final File shareFile : shareFiles) {
       when(mockRxFiles.readStringFromFile(eq(shareFile), any())).thenReturn(Single.error(new IOException()));
       when(mockRxFiles.readBytesFromFile(eq(shareFile))).thenReturn(Single.error(new IOException()));
-      when(mockPersistenceOperations.loadShareFromFile(shareFile)).thenReturn(Single.error(new IOException()));
+      when(mockPersistenceOperations.loadShareBlocksFromFile(shareFile)).thenReturn(Single.error(new IOException()));
     }
     
     presenter.startPresenting().blockingGet();
@@ -751,6 +776,26 @@ public class TestRecoveryPresenter {
     verify(mockView, once()).showDismissibleError(DismissibleError.SHARE_FILE_IS_MALFORMED);
   }
   
+  @Test
+  public void testEventResponse_recoverSecretRequested_shareFileIsMalformedWhenLoaded() {
+    setupMocksForPerfectSecretRecoveryScenario();
+    
+    for (final File shareFile : shareFiles) {
+      when(mockPersistenceOperations.loadShareBlocksFromFile(shareFile))
+          .thenReturn(Single.error(new DeserialisationException()));
+    }
+    
+    presenter.startPresenting().blockingGet();
+    
+    pushValidValuesToInputObservables();
+    pushRecoverSecretRequest();
+    
+    verify(mockView, once()).showRecoveryInProgress();
+    verify(mockView, once()).showRecoveryNotInProgress();
+    
+    verify(mockView, once()).showDismissibleError(DismissibleError.SHARE_FILE_IS_MALFORMED);
+  }
+  
   @Test
   public void testEventResponse_recoverSecretRequested_recoverySchemeFileIsMalformed() {
     setupMocksForPerfectSecretRecoveryScenario();
@@ -835,7 +880,8 @@ public class TestRecoveryPresenter {
       
       when(mockPersistenceOperations.fileContainsShare(file)).thenReturn(Single.just(true));
       when(mockPersistenceOperations.fileContainsRecoveryScheme(file)).thenReturn(Single.just(false));
-      when(mockPersistenceOperations.loadShareFromFile(file)).thenReturn(Single.just(shares.get(file)));
+      when(mockPersistenceOperations.loadShareBlocksFromFile(file))
+          .thenReturn(Single.just(Collections.singletonList(shares.get(file))));
       when(mockPersistenceOperations.loadRecoverySchemeFromFile(file))
           .thenReturn(Single.error(new IOException()));
     }
@@ -854,7 +900,7 @@ public class TestRecoveryPresenter {
     
     when(mockPersistenceOperations.fileContainsShare(recoverySchemeFile)).thenReturn(Single.just(false));
     when(mockPersistenceOperations.fileContainsRecoveryScheme(recoverySchemeFile)).thenReturn(Single.just(true));
-    when(mockPersistenceOperations.loadShareFromFile(recoverySchemeFile))
+    when(mockPersistenceOperations.loadShareBlocksFromFile(recoverySchemeFile))
         .thenReturn(Single.error(new IOException()));
     when(mockPersistenceOperations.loadRecoverySchemeFromFile(recoverySchemeFile))
         .thenReturn(Single.just(recoveryScheme));
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.recovery;
+
+import com.google.common.collect.ImmutableSet;
+import com.matthewtamlin.shamir.app.secretsharing.serialisation.DeserialisationException;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.matthewtamlin.shamir.app.secretsharing.recovery.RxMocks.createMockPersistenceOperations;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("ConstantConditions")
+public class TestShareLoader {
+  private PersistenceOperations mockPersistenceOperations;
+  
+  private File file1;
+  
+  private File file2;
+  
+  private File file3;
+  
+  private Share share1;
+  
+  private Share share2;
+  
+  private Share share3;
+  
+  @Before
+  public void setup() {
+    mockPersistenceOperations = createMockPersistenceOperations();
+    
+    file1 = new File("share-1");
+    file2 = new File("share-2");
+    file3 = new File("share-3");
+    
+    share1 = Share.builder().setIndex(1).setValue(10).build();
+    share2 = Share.builder().setIndex(2).setValue(20).build();
+    share3 = Share.builder().setIndex(3).setValue(30).build();
+    
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file1)).thenReturn(Single.just(singletonList(share1)));
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file2)).thenReturn(Single.just(singletonList(share2)));
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file3)).thenReturn(Single.just(singletonList(share3)));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullPersistenceOperations() {
+    new ShareLoader(null, Schedulers.trampoline(), 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullIoScheduler() {
+    new ShareLoader(mockPersistenceOperations, null, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_maxConcurrentReadsNotGreaterThanZero() {
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadShareBlocks_nullFiles() {
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1).loadShareBlocks(null, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadShareBlocks_filesContainsNull() {
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(new LinkedHashSet<>(Arrays.asList(file1, null)), 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadShareBlocks_requiredShareCountNotGreaterThanZero() {
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1).loadShareBlocks(ImmutableSet.of(file1), 0);
+  }
+  
+  @Test
+  public void testLoadShareBlocks_fewerFilesThanRequired() {
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2), 3)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(singletonList(ImmutableSet.of(share1, share2)));
+  }
+  
+  @Test
+  public void testLoadShareBlocks_moreFilesThanRequired() {
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2, file3), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(singletonList(ImmutableSet.of(share1, share2)));
+    
+    verify(mockPersistenceOperations, never()).loadShareBlocksFromFile(file3);
+  }
+  
+  @Test
+  public void testLoadShareBlocks_malformedFileIsReported() {
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file1))
+        .thenReturn(Single.error(new DeserialisationException("Malformed.")));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2, file3), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test
+  public void testLoadShareBlocks_malformedFileIsNotReachedOnceEnoughSharesAreLoaded() {
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file3))
+        .thenReturn(Single.error(new DeserialisationException("Malformed.")));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2, file3), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(singletonList(ImmutableSet.of(share1, share2)));
+  }
+  
+  @Test
+  public void testLoadShareBlocks_emptyBundleIsReported() {
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file1)).thenReturn(Single.just(emptyList()));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2, file3), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test
+  public void testLoadShareBlocks_duplicateIndexIsSkipped() {
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file2))
+        .thenReturn(Single.just(singletonList(Share.builder().setIndex(1).setValue(10).build())));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2, file3), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(singletonList(ImmutableSet.of(share1, share3)));
+  }
+  
+  @Test
+  public void testLoadShareBlocks_fileCannotBeRead() {
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file2)).thenReturn(Single.error(new IOException()));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2, file3), 3)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testLoadShareBlocks_readsAreConcurrentAndCancelledOnceEnoughSharesAreLoaded() {
+    final AtomicInteger completedReads = new AtomicInteger();
+    final Set<File> files = new LinkedHashSet<>();
+    
+    for (int i = 1; i <= 100; i++) {
+      final File file = new File("share-" + i);
+      final Share share = Share.builder().setIndex(i).setValue(i).build();
+      
+      files.add(file);
+      
+      when(mockPersistenceOperations.loadShareBlocksFromFile(file)).thenReturn(Single
+          .just(singletonList(share))
+          .delay(20, MILLISECONDS, Schedulers.io())
+          .doOnSuccess(loaded -> completedReads.incrementAndGet()));
+    }
+    
+    final List<Set<Share>> shareBlocks = new ShareLoader(mockPersistenceOperations, Schedulers.io(), 4)
+        .loadShareBlocks(files, 4)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertNoErrors()
+        .values()
+        .get(0);
+    
+    assertThat(shareBlocks.size(), is(1));
+    assertThat(shareBlocks.get(0).size(), is(4));
+    assertThat(completedReads.get(), lessThan(100));
+  }
+  
+  @Test
+  public void testLoadShareBlocks_sharesAreGroupedByBlock() {
+    final Share share1Block2 = Share.builder().setIndex(1).setValue(11).build();
+    final Share share2Block2 = Share.builder().setIndex(2).setValue(21).build();
+    
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file1))
+        .thenReturn(Single.just(Arrays.asList(share1, share1Block2)));
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file2))
+        .thenReturn(Single.just(Arrays.asList(share2, share2Block2)));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(Arrays.asList(ImmutableSet.of(share1, share2), ImmutableSet.of(share1Block2, share2Block2)));
+  }
+  
+  @Test
+  public void testLoadShareBlocks_filesContainDifferentNumbersOfBlocks() {
+    when(mockPersistenceOperations.loadShareBlocksFromFile(file1))
+        .thenReturn(Single.just(Arrays.asList(share1, Share.builder().setIndex(1).setValue(11).build())));
+    
+    new ShareLoader(mockPersistenceOperations, Schedulers.trampoline(), 1)
+        .loadShareBlocks(ImmutableSet.of(file1, file2), 2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+}
\ No newline at end of file
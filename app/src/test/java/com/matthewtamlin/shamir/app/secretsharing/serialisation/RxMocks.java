@@ -16,6 +16,7 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.serialisation;
 
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +30,9 @@ public class RxMocks {
     when(serialiser.isValidSerialisation(any())).thenReturn(Single.never());
     when(serialiser.serialise(any())).thenReturn(Single.never());
     when(serialiser.deserialise(any())).thenReturn(Single.never());
+    when(serialiser.writeTo(any(), any())).thenReturn(Completable.never());
+    when(serialiser.readFrom(any())).thenReturn(Single.never());
+    when(serialiser.isLikelySerialisation(any())).thenReturn(Single.never());
     
     return serialiser;
   }
@@ -39,6 +43,9 @@ public class RxMocks {
     when(serialiser.isValidSerialisation(any())).thenReturn(Single.never());
     when(serialiser.serialise(any())).thenReturn(Single.never());
     when(serialiser.deserialise(any())).thenReturn(Single.never());
+    when(serialiser.writeTo(any(), any())).thenReturn(Completable.never());
+    when(serialiser.readFrom(any())).thenReturn(Single.never());
+    when(serialiser.isLikelySerialisation(any())).thenReturn(Single.never());
     
     return serialiser;
   }
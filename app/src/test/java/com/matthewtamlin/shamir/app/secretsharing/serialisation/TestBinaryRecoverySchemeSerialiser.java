@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@SuppressWarnings("ConstantConditions")
+public class TestBinaryRecoverySchemeSerialiser {
+  private BinaryRecoverySchemeSerialiser serialiser;
+  
+  @Before
+  public void setup() {
+    serialiser = new BinaryRecoverySchemeSerialiser();
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSerialise_nullRecoveryScheme() {
+    serialiser.serialise(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testDeserialise_nullSerialisedRecoveryScheme() {
+    serialiser.deserialise(null);
+  }
+  
+  @Test
+  public void testSerialiseAndDeserialise() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    serialiser
+        .serialise(recoveryScheme)
+        .flatMap(serialiser::deserialise)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(recoveryScheme);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsValidSerialisation_nullSerialisedScheme() {
+    serialiser.isValidSerialisation(null);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_emptySerialisedScheme() {
+    serialiser
+        .isValidSerialisation(new byte[0])
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_malformedInput() {
+    serialiser
+        .isValidSerialisation("Hello, World!".getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_wellFormedInput() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    serialiser
+        .serialise(recoveryScheme)
+        .flatMap(serialiser::isValidSerialisation)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_truncatedInput() {
+    final byte[] serialisedScheme = serialiser
+        .serialise(RecoveryScheme.builder().setRequiredShareCount(2).setPrime(7).build())
+        .blockingGet();
+    
+    serialiser
+        .isValidSerialisation(Arrays.copyOf(serialisedScheme, serialisedScheme.length - 1))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_jsonInput() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    new JsonRecoverySchemeSerialiser()
+        .serialise(recoveryScheme)
+        .flatMap(serialiser::isValidSerialisation)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsLikelySerialisation_nullInput() {
+    serialiser.isLikelySerialisation(null);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_recoverySchemeInput() {
+    final RecoveryScheme scheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    serialiser
+        .serialise(scheme)
+        .flatMap(serialisedScheme -> serialiser.isLikelySerialisation(new ByteArrayInputStream(serialisedScheme)))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_shareInput() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    new BinaryShareSerialiser()
+        .serialise(share)
+        .flatMap(serialisedShare -> serialiser.isLikelySerialisation(new ByteArrayInputStream(serialisedShare)))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testSerialiseAndDeserialise_cataloguedPrime() {
+    final BigInteger prime = PrimeCatalogue.getPrime(PrimeCatalogue.DEFAULT_PRIME_ID);
+    
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(3)
+        .setPrime(prime)
+        .build();
+    
+    serialiser
+        .serialise(recoveryScheme)
+        .doOnSuccess(bytes -> {
+          if (bytes.length >= prime.toByteArray().length) {
+            throw new AssertionError("The prime was not referenced by ID.");
+          }
+        })
+        .flatMap(serialiser::deserialise)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(recoveryScheme)
+        .assertValue(scheme -> scheme.getPrime() == prime);
+  }
+  
+  @Test
+  public void testDeserialise_explicitPrimeVersion() {
+    final BigInteger prime = PrimeCatalogue.getPrime("mersenne-521");
+    final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    
+    BinaryFormat.writeVarInt(payload, BigInteger.valueOf(2));
+    BinaryFormat.writeLengthPrefixedBytes(payload, prime.toByteArray());
+    
+    final byte[] serialisedScheme = BinaryFormat.frame(BinaryFormat.TYPE_RECOVERY_SCHEME, 1, payload);
+    
+    serialiser
+        .deserialise(serialisedScheme)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(scheme -> scheme.getRequiredShareCount() == 2)
+        .assertValue(scheme -> scheme.getPrime() == prime);
+    
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream(serialisedScheme))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testDeserialise_unknownPrimeId() {
+    final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    
+    BinaryFormat.writeVarInt(payload, BigInteger.valueOf(2));
+    BinaryFormat.writeVarInt(payload, BigInteger.ONE);
+    BinaryFormat.writeLengthPrefixedBytes(payload, "unknown".getBytes());
+    
+    serialiser
+        .deserialise(BinaryFormat.frame(BinaryFormat.TYPE_RECOVERY_SCHEME, 2, payload))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+}
\ No newline at end of file
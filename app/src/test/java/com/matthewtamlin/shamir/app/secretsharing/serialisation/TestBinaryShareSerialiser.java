@@ -0,0 +1,301 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@SuppressWarnings("ConstantConditions")
+public class TestBinaryShareSerialiser {
+  private BinaryShareSerialiser serialiser;
+  
+  @Before
+  public void setup() {
+    serialiser = new BinaryShareSerialiser();
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSerialise_nullShare() {
+    serialiser.serialise(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testDeserialise_nullSerialisedShare() {
+    serialiser.deserialise(null);
+  }
+  
+  @Test
+  public void testSerialiseAndDeserialise() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    serialiser
+        .serialise(share)
+        .flatMap(serialiser::deserialise)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(share);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsValidSerialisation_nullSerialisedShare() {
+    serialiser.isValidSerialisation(null);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_emptySerialisedShare() {
+    serialiser
+        .isValidSerialisation(new byte[0])
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_malformedInput() {
+    serialiser
+        .isValidSerialisation("Hello, World!".getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_wellFormedInput() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    serialiser
+        .serialise(share)
+        .flatMap(serialiser::isValidSerialisation)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testSerialiseAndDeserialise_largeIndexAndNegativeValue() {
+    final Share share = Share
+        .builder()
+        .setIndex(BigInteger.ONE.shiftLeft(100))
+        .setValue(-12345)
+        .build();
+    
+    serialiser
+        .serialise(share)
+        .flatMap(serialiser::deserialise)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(share);
+  }
+  
+  @Test
+  public void testSerialise_smallerThanJson() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(BigInteger.ONE.shiftLeft(4095))
+        .build();
+    
+    final byte[] binary = serialiser.serialise(share).blockingGet();
+    final byte[] json = new JsonShareSerialiser().serialise(share).blockingGet();
+    
+    assertThat(binary.length, lessThan(json.length));
+  }
+  
+  @Test
+  public void testIsValidSerialisation_truncatedInput() {
+    final byte[] serialisedShare = serialiser
+        .serialise(Share.builder().setIndex(1).setValue(1000).build())
+        .blockingGet();
+    
+    serialiser
+        .isValidSerialisation(Arrays.copyOf(serialisedShare, serialisedShare.length - 1))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_trailingBytes() {
+    final byte[] serialisedShare = serialiser
+        .serialise(Share.builder().setIndex(1).setValue(1000).build())
+        .blockingGet();
+    
+    serialiser
+        .isValidSerialisation(Arrays.copyOf(serialisedShare, serialisedShare.length + 1))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_unsupportedVersion() {
+    final byte[] serialisedShare = serialiser
+        .serialise(Share.builder().setIndex(1).setValue(1000).build())
+        .blockingGet();
+    
+    serialisedShare[5]++;
+    
+    serialiser
+        .isValidSerialisation(serialisedShare)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_jsonInput() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    new JsonShareSerialiser()
+        .serialise(share)
+        .flatMap(serialiser::isValidSerialisation)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_corruptedPayload() {
+    final byte[] serialisedShare = serialiser
+        .serialise(Share.builder().setIndex(1).setValue(1000).build())
+        .blockingGet();
+    
+    serialisedShare[serialisedShare.length - 1]++;
+    
+    serialiser
+        .isValidSerialisation(serialisedShare)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsValidSerialisation_recoverySchemeInput() {
+    final RecoveryScheme scheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    new BinaryRecoverySchemeSerialiser()
+        .serialise(scheme)
+        .flatMap(serialiser::isValidSerialisation)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsLikelySerialisation_nullInput() {
+    serialiser.isLikelySerialisation(null);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_emptyInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream(new byte[0]))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_shareInput() {
+    final byte[] serialisedShare = serialiser
+        .serialise(Share.builder().setIndex(1).setValue(BigInteger.ONE.shiftLeft(4095)).build())
+        .blockingGet();
+    
+    final ByteArrayInputStream input = new ByteArrayInputStream(serialisedShare);
+    
+    serialiser
+        .isLikelySerialisation(input)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+    
+    // Only the header should have been read
+    assertThat(input.available(), is(serialisedShare.length - BinaryFormat.HEADER_SIZE));
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_recoverySchemeInput() {
+    final RecoveryScheme scheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    final byte[] serialisedScheme = new BinaryRecoverySchemeSerialiser().serialise(scheme).blockingGet();
+    
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream(serialisedScheme))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_jsonInput() {
+    final byte[] serialisedShare = new JsonShareSerialiser()
+        .serialise(Share.builder().setIndex(1).setValue(2).build())
+        .blockingGet();
+    
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream(serialisedShare))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+}
\ No newline at end of file
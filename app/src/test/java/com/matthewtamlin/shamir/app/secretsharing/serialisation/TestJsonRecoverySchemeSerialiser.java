@@ -16,10 +16,17 @@
 
 package com.matthewtamlin.shamir.app.secretsharing.serialisation;
 
+import com.matthewtamlin.shamir.app.secretsharing.PrimeCatalogue;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
+import io.reactivex.Single;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.Base64;
+
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 @SuppressWarnings("ConstantConditions")
@@ -66,7 +73,7 @@ public class TestJsonRecoverySchemeSerialiser {
   @Test
   public void testIsValidSerialisation_emptySerialisedScheme() {
     serialiser
-        .isValidSerialisation("")
+        .isValidSerialisation(new byte[0])
         .test()
         .awaitDone(200, MILLISECONDS)
         .assertNoErrors()
@@ -76,7 +83,7 @@ public class TestJsonRecoverySchemeSerialiser {
   @Test
   public void testIsValidSerialisation_malformedInput() {
     serialiser
-        .isValidSerialisation("Hello, World!")
+        .isValidSerialisation("Hello, World!".getBytes())
         .test()
         .awaitDone(200, MILLISECONDS)
         .assertNoErrors()
@@ -99,4 +106,160 @@ public class TestJsonRecoverySchemeSerialiser {
         .assertNoErrors()
         .assertValue(true);
   }
+  
+  @Test
+  public void testSerialise_matchesOriginalFormat() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    serialiser
+        .serialise(recoveryScheme)
+        .map(bytes -> new String(bytes, "UTF-8"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue("{\"requiredShareCount\":2,\"prime\":\"Bw==\"}");
+  }
+  
+  @Test
+  public void testDeserialise_originalFormat() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    serialiser
+        .deserialise("{\"requiredShareCount\":2,\"prime\":\"Bw==\"}".getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(recoveryScheme);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteTo_nullOutput() {
+    serialiser.writeTo(RecoveryScheme.builder().setRequiredShareCount(2).setPrime(7).build(), null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadFrom_nullInput() {
+    serialiser.readFrom(null);
+  }
+  
+  @Test
+  public void testWriteToAndReadFrom() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    serialiser
+        .writeTo(recoveryScheme, output)
+        .andThen(Single.defer(() -> serialiser.readFrom(new ByteArrayInputStream(output.toByteArray()))))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(recoveryScheme);
+  }
+  
+  @Test
+  public void testReadFrom_malformedInput() {
+    serialiser
+        .readFrom(new ByteArrayInputStream("Hello, World!".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsLikelySerialisation_nullInput() {
+    serialiser.isLikelySerialisation(null);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_malformedInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream("Hello, World!".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_wellFormedInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream("{\"requiredShareCount\":2,\"prime\":\"Aw==\"}".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_shareInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream("{\"index\":\"AQ==\",\"value\":\"Ag==\"}".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testSerialise_cataloguedPrime() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(PrimeCatalogue.getPrime("mersenne-127"))
+        .build();
+    
+    serialiser
+        .serialise(recoveryScheme)
+        .map(bytes -> new String(bytes, "UTF-8"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue("{\"requiredShareCount\":2,\"primeId\":\"mersenne-127\"}");
+  }
+  
+  @Test
+  public void testDeserialise_primeId() {
+    serialiser
+        .deserialise("{\"requiredShareCount\":2,\"primeId\":\"mersenne-127\"}".getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(scheme -> scheme.getRequiredShareCount() == 2)
+        .assertValue(scheme -> scheme.getPrime() == PrimeCatalogue.getPrime("mersenne-127"));
+  }
+  
+  @Test
+  public void testDeserialise_unknownPrimeId() {
+    serialiser
+        .deserialise("{\"requiredShareCount\":2,\"primeId\":\"unknown\"}".getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test
+  public void testDeserialise_explicitCataloguedPrime() {
+    final BigInteger prime = PrimeCatalogue.getPrime("mersenne-127");
+    final String encodedPrime = Base64.getEncoder().encodeToString(prime.toByteArray());
+    
+    serialiser
+        .deserialise(("{\"requiredShareCount\":2,\"prime\":\"" + encodedPrime + "\"}").getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(scheme -> scheme.getPrime() == prime);
+  }
 }
\ No newline at end of file
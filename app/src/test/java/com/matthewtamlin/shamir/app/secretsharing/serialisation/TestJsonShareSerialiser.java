@@ -17,10 +17,17 @@
 package com.matthewtamlin.shamir.app.secretsharing.serialisation;
 
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import io.reactivex.Single;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 
 @SuppressWarnings("ConstantConditions")
 public class TestJsonShareSerialiser {
@@ -66,7 +73,7 @@ public class TestJsonShareSerialiser {
   @Test
   public void testIsValidSerialisation_emptySerialisedShare() {
     serialiser
-        .isValidSerialisation("")
+        .isValidSerialisation(new byte[0])
         .test()
         .awaitDone(200, MILLISECONDS)
         .assertNoErrors()
@@ -76,7 +83,7 @@ public class TestJsonShareSerialiser {
   @Test
   public void testIsValidSerialisation_malformedInput() {
     serialiser
-        .isValidSerialisation("Hello, World!")
+        .isValidSerialisation("Hello, World!".getBytes())
         .test()
         .awaitDone(200, MILLISECONDS)
         .assertNoErrors()
@@ -99,4 +106,138 @@ public class TestJsonShareSerialiser {
         .assertNoErrors()
         .assertValue(true);
   }
+  
+  @Test
+  public void testSerialise_matchesOriginalFormat() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    serialiser
+        .serialise(share)
+        .map(bytes -> new String(bytes, "UTF-8"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue("{\"index\":\"AQ==\",\"value\":\"Ag==\"}");
+  }
+  
+  @Test
+  public void testDeserialise_originalFormat() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    serialiser
+        .deserialise("{\"index\":\"AQ==\",\"value\":\"Ag==\"}".getBytes())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(share);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteTo_nullOutput() {
+    serialiser.writeTo(Share.builder().setIndex(1).setValue(2).build(), null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadFrom_nullInput() {
+    serialiser.readFrom(null);
+  }
+  
+  @Test
+  public void testWriteToAndReadFrom() {
+    final Share share = Share
+        .builder()
+        .setIndex(1)
+        .setValue(2)
+        .build();
+    
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    
+    serialiser
+        .writeTo(share, output)
+        .andThen(Single.defer(() -> serialiser.readFrom(new ByteArrayInputStream(output.toByteArray()))))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(share);
+  }
+  
+  @Test
+  public void testReadFrom_malformedInput() {
+    serialiser
+        .readFrom(new ByteArrayInputStream("Hello, World!".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_malformedInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream("Hello, World!".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_wellFormedInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream("{\"index\":\"AQ==\",\"value\":\"Ag==\"}".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_largeShareInput() {
+    final byte[] serialisedShare = serialiser
+        .serialise(Share.builder().setIndex(1).setValue(BigInteger.ONE.shiftLeft(65535)).build())
+        .blockingGet();
+    
+    final ByteArrayInputStream input = new ByteArrayInputStream(serialisedShare);
+    
+    serialiser
+        .isLikelySerialisation(input)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+    
+    // Only the start of the object should have been read
+    assertThat(input.available(), is(serialisedShare.length - JsonFormat.PREFIX_CHECK_READ_LIMIT));
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_recoverySchemeInput() {
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream("{\"requiredShareCount\":2,\"prime\":\"Aw==\"}".getBytes()))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsLikelySerialisation_binaryInput() {
+    final byte[] serialisedShare = new BinaryShareSerialiser()
+        .serialise(Share.builder().setIndex(1).setValue(2).build())
+        .blockingGet();
+    
+    serialiser
+        .isLikelySerialisation(new ByteArrayInputStream(serialisedShare))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
 }
\ No newline at end of file
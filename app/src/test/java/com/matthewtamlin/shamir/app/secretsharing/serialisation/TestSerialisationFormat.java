@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class TestSerialisationFormat {
+  @Test
+  public void testCreateShareSerialiser_jsonFormat() {
+    assertThat(SerialisationFormat.JSON.createShareSerialiser(), instanceOf(JsonShareSerialiser.class));
+  }
+  
+  @Test
+  public void testCreateShareSerialiser_binaryFormat() {
+    assertThat(SerialisationFormat.BINARY.createShareSerialiser(), instanceOf(BinaryShareSerialiser.class));
+  }
+  
+  @Test
+  public void testCreateRecoverySchemeSerialiser_jsonFormat() {
+    assertThat(
+        SerialisationFormat.JSON.createRecoverySchemeSerialiser(),
+        instanceOf(JsonRecoverySchemeSerialiser.class));
+  }
+  
+  @Test
+  public void testCreateRecoverySchemeSerialiser_binaryFormat() {
+    assertThat(
+        SerialisationFormat.BINARY.createRecoverySchemeSerialiser(),
+        instanceOf(BinaryRecoverySchemeSerialiser.class));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.app.secretsharing.serialisation;
+
+import com.google.common.collect.ImmutableList;
+import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@SuppressWarnings("ConstantConditions")
+public class TestShareBundleSerialiser {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private ShareBundleSerialiser serialiser;
+  
+  private File file;
+  
+  @Before
+  public void setup() throws IOException {
+    serialiser = new ShareBundleSerialiser(new BinaryShareSerialiser());
+    file = temporaryFolder.newFile("bundle");
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullShareSerialiser() {
+    new ShareBundleSerialiser(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteToFile_nullShares() {
+    serialiser.writeToFile(null, file);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteToFile_sharesContainsNull() {
+    serialiser.writeToFile(Arrays.asList(createShare(1), null), file);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteToFile_nullFile() {
+    serialiser.writeToFile(ImmutableList.of(createShare(1)), null);
+  }
+  
+  @Test
+  public void testWriteToFile_fileIsADirectory() {
+    serialiser
+        .writeToFile(ImmutableList.of(createShare(1)), temporaryFolder.getRoot())
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadFromFile_nullFile() {
+    serialiser.readFromFile(null);
+  }
+  
+  @Test
+  public void testReadFromFile_fileDoesNotExist() {
+    serialiser
+        .readFromFile(new File(temporaryFolder.getRoot(), "missing"))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IOException.class);
+  }
+  
+  @Test
+  public void testReadFromFile_fileIsEmpty() {
+    serialiser
+        .readFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test
+  public void testReadFromFile_fileHasWrongMagicNumber() throws IOException {
+    FileUtils.writeByteArrayToFile(file, new byte[]{'S', 'H', 'S', 'H', 1, 0, 0, 0, 0});
+    
+    serialiser
+        .readFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test
+  public void testReadFromFile_fileIsTruncated() throws IOException {
+    serialiser
+        .writeToFile(ImmutableList.of(createShare(1), createShare(2)), file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors();
+    
+    final byte[] contents = FileUtils.readFileToByteArray(file);
+    FileUtils.writeByteArrayToFile(file, Arrays.copyOf(contents, contents.length - 1));
+    
+    serialiser
+        .readFromFile(file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(DeserialisationException.class);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsLikelyBundle_nullInput() {
+    serialiser.isLikelyBundle(null);
+  }
+  
+  @Test
+  public void testIsLikelyBundle_streamIsABundle() throws IOException {
+    serialiser
+        .writeToFile(ImmutableList.of(createShare(1)), file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors();
+    
+    serialiser
+        .isLikelyBundle(new ByteArrayInputStream(FileUtils.readFileToByteArray(file)))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(true);
+  }
+  
+  @Test
+  public void testIsLikelyBundle_streamIsASingleShare() {
+    new BinaryShareSerialiser()
+        .serialise(createShare(1))
+        .flatMap(serialisedShare -> serialiser.isLikelyBundle(new ByteArrayInputStream(serialisedShare)))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testIsLikelyBundle_streamIsShorterThanMagicNumber() {
+    serialiser
+        .isLikelyBundle(new ByteArrayInputStream(new byte[]{'S', 'H'}))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(false);
+  }
+  
+  @Test
+  public void testWriteAndRead_noShares() {
+    serialiser
+        .writeToFile(ImmutableList.of(), file)
+        .andThen(serialiser.readFromFile(file))
+        .flatMapObservable(ShareBundle::getShares)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertNoValues();
+  }
+  
+  @Test
+  public void testWriteAndRead_manyShares() {
+    final List<Share> shares = new ArrayList<>();
+    
+    for (int i = 1; i <= 100; i++) {
+      shares.add(createShare(i));
+    }
+    
+    serialiser
+        .writeToFile(shares, file)
+        .andThen(serialiser.readFromFile(file))
+        .flatMapObservable(ShareBundle::getShares)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValueSequence(shares);
+  }
+  
+  @Test
+  public void testWriteAndRead_jsonShares() {
+    final ShareBundleSerialiser jsonSerialiser = new ShareBundleSerialiser(new JsonShareSerialiser());
+    final List<Share> shares = ImmutableList.of(createShare(1), createShare(2));
+    
+    jsonSerialiser
+        .writeToFile(shares, file)
+        .andThen(jsonSerialiser.readFromFile(file))
+        .flatMapObservable(ShareBundle::getShares)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValueSequence(shares);
+  }
+  
+  @Test
+  public void testGetShare_randomAccess() {
+    final List<Share> shares = ImmutableList.of(createShare(1), createShare(2), createShare(3));
+    
+    serialiser
+        .writeToFile(shares, file)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors();
+    
+    final ShareBundle bundle = serialiser.readFromFile(file).blockingGet();
+    
+    assertThat(bundle.getShareCount(), is(3));
+    
+    bundle
+        .getShare(2)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(shares.get(2));
+    
+    bundle
+        .getShare(0)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(shares.get(0));
+  }
+  
+  @Test
+  public void testGetShare_positionOutOfRange() {
+    serialiser
+        .writeToFile(ImmutableList.of(createShare(1)), file)
+        .andThen(serialiser.readFromFile(file))
+        .flatMap(bundle -> bundle.getShare(1))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IndexOutOfBoundsException.class);
+  }
+  
+  private static Share createShare(final int index) {
+    return Share
+        .builder()
+        .setIndex(index)
+        .setValue(index * 1000L)
+        .build();
+  }
+}
\ No newline at end of file
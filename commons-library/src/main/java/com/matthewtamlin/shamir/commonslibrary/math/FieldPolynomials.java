@@ -0,0 +1,325 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static java.math.BigInteger.ZERO;
+
+/**
+ * Dense polynomial arithmetic in the finite field of integers modulo a prime. Each polynomial is represented as an
+ * array of coefficients in ascending order of exponent. Every coefficient must already be reduced modulo the prime,
+ * and the array must not have trailing zeros (the zero polynomial is the empty array).
+ */
+final class FieldPolynomials {
+  /**
+   * Below this many coefficients, schoolbook multiplication is faster than Kronecker substitution.
+   */
+  private static final int KRONECKER_THRESHOLD = 16;
+  
+  /**
+   * Below this many quotient coefficients, long division is faster than division by Newton iteration.
+   */
+  private static final int NEWTON_DIVISION_THRESHOLD = 32;
+  
+  private static final BigInteger[] ZERO_POLYNOMIAL = new BigInteger[0];
+  
+  private FieldPolynomials() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  static BigInteger[] add(final BigInteger[] a, final BigInteger[] b, final BigInteger prime) {
+    final BigInteger[] sum = new BigInteger[Math.max(a.length, b.length)];
+    
+    for (int i = 0; i < sum.length; i++) {
+      sum[i] = coefficient(a, i).add(coefficient(b, i)).mod(prime);
+    }
+    
+    return trim(sum);
+  }
+  
+  static BigInteger[] subtract(final BigInteger[] a, final BigInteger[] b, final BigInteger prime) {
+    final BigInteger[] difference = new BigInteger[Math.max(a.length, b.length)];
+    
+    for (int i = 0; i < difference.length; i++) {
+      difference[i] = coefficient(a, i).subtract(coefficient(b, i)).mod(prime);
+    }
+    
+    return trim(difference);
+  }
+  
+  static BigInteger[] multiply(final BigInteger[] a, final BigInteger[] b, final BigInteger prime) {
+    if (a.length == 0 || b.length == 0) {
+      return ZERO_POLYNOMIAL;
+    }
+    
+    return Math.min(a.length, b.length) < KRONECKER_THRESHOLD ?
+        multiplyBySchoolbook(a, b, prime) :
+        multiplyByKroneckerSubstitution(a, b, prime);
+  }
+  
+  /**
+   * Calculates the remainder of dividing {@code a} by {@code b}. The leading coefficient of {@code b} must be
+   * invertible, which is always the case for a non-zero polynomial in a prime field.
+   */
+  static BigInteger[] remainder(final BigInteger[] a, final BigInteger[] b, final BigInteger prime) {
+    if (a.length < b.length) {
+      return a;
+    }
+    
+    final int quotientLength = a.length - b.length + 1;
+    
+    final BigInteger[] quotient = quotientLength < NEWTON_DIVISION_THRESHOLD ?
+        quotientByLongDivision(a, b, prime) :
+        quotientByNewtonIteration(a, b, prime);
+    
+    return truncate(subtract(a, multiply(quotient, b, prime), prime), b.length - 1);
+  }
+  
+  static BigInteger[] derivative(final BigInteger[] a, final BigInteger prime) {
+    if (a.length <= 1) {
+      return ZERO_POLYNOMIAL;
+    }
+    
+    final BigInteger[] derivative = new BigInteger[a.length - 1];
+    
+    for (int i = 1; i < a.length; i++) {
+      derivative[i - 1] = a[i].multiply(BigInteger.valueOf(i)).mod(prime);
+    }
+    
+    return trim(derivative);
+  }
+  
+  static BigInteger evaluateAt(final BigInteger[] a, final BigInteger x, final BigInteger prime) {
+    BigInteger value = ZERO;
+    
+    for (int i = a.length - 1; i >= 0; i--) {
+      value = value.multiply(x).add(a[i]).mod(prime);
+    }
+    
+    return value;
+  }
+  
+  /**
+   * Inverts every value modulo the prime using a single modular inversion (Montgomery's trick). Every value must be
+   * non-zero modulo the prime.
+   */
+  static BigInteger[] invertAll(final BigInteger[] values, final BigInteger prime) {
+    final BigInteger[] inverses = new BigInteger[values.length];
+    
+    if (values.length == 0) {
+      return inverses;
+    }
+    
+    final BigInteger[] prefixProducts = new BigInteger[values.length];
+    prefixProducts[0] = values[0];
+    
+    for (int i = 1; i < values.length; i++) {
+      prefixProducts[i] = prefixProducts[i - 1].multiply(values[i]).mod(prime);
+    }
+    
+    BigInteger inverseOfPrefix = prefixProducts[values.length - 1].modInverse(prime);
+    
+    for (int i = values.length - 1; i > 0; i--) {
+      inverses[i] = inverseOfPrefix.multiply(prefixProducts[i - 1]).mod(prime);
+      inverseOfPrefix = inverseOfPrefix.multiply(values[i]).mod(prime);
+    }
+    
+    inverses[0] = inverseOfPrefix;
+    
+    return inverses;
+  }
+  
+  static BigInteger[] trim(final BigInteger[] a) {
+    int length = a.length;
+    
+    while (length > 0 && a[length - 1].signum() == 0) {
+      length--;
+    }
+    
+    return length == a.length ? a : Arrays.copyOf(a, length);
+  }
+  
+  private static BigInteger[] truncate(final BigInteger[] a, final int length) {
+    return a.length <= length ? a : trim(Arrays.copyOf(a, length));
+  }
+  
+  private static BigInteger coefficient(final BigInteger[] a, final int exponent) {
+    return exponent < a.length ? a[exponent] : ZERO;
+  }
+  
+  private static BigInteger[] multiplyBySchoolbook(final BigInteger[] a, final BigInteger[] b, final BigInteger prime) {
+    final BigInteger[] product = new BigInteger[a.length + b.length - 1];
+    Arrays.fill(product, ZERO);
+    
+    for (int i = 0; i < a.length; i++) {
+      for (int j = 0; j < b.length; j++) {
+        product[i + j] = product[i + j].add(a[i].multiply(b[j]));
+      }
+    }
+    
+    for (int i = 0; i < product.length; i++) {
+      product[i] = product[i].mod(prime);
+    }
+    
+    return trim(product);
+  }
+  
+  /**
+   * Multiplies two polynomials by packing the coefficients of each into a single large integer, multiplying the
+   * integers, and unpacking the result. Each coefficient is given enough space that the coefficients of the product
+   * never overflow into each other, so a single sub-quadratic integer multiplication replaces the quadratic number of
+   * coefficient multiplications.
+   */
+  private static BigInteger[] multiplyByKroneckerSubstitution(
+      final BigInteger[] a,
+      final BigInteger[] b,
+      final BigInteger prime) {
+    
+    final int maxTermsPerCoefficient = Math.min(a.length, b.length);
+    final int slotBits = 2 * prime.bitLength() + BigInteger.valueOf(maxTermsPerCoefficient).bitLength();
+    final int slotBytes = (slotBits + 7) / 8;
+    
+    final BigInteger product = pack(a, slotBytes).multiply(pack(b, slotBytes));
+    
+    return unpack(product, a.length + b.length - 1, slotBytes, prime);
+  }
+  
+  private static BigInteger pack(final BigInteger[] coefficients, final int slotBytes) {
+    // The extra leading byte keeps the packed value positive
+    final byte[] packed = new byte[coefficients.length * slotBytes + 1];
+    
+    for (int i = 0; i < coefficients.length; i++) {
+      final byte[] bytes = coefficients[i].toByteArray();
+      final int signBytes = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+      final int slotEnd = packed.length - i * slotBytes;
+      
+      System.arraycopy(bytes, signBytes, packed, slotEnd - (bytes.length - signBytes), bytes.length - signBytes);
+    }
+    
+    return new BigInteger(packed);
+  }
+  
+  private static BigInteger[] unpack(
+      final BigInteger packed,
+      final int coefficientCount,
+      final int slotBytes,
+      final BigInteger prime) {
+    
+    final byte[] bytes = packed.toByteArray();
+    final BigInteger[] coefficients = new BigInteger[coefficientCount];
+    
+    for (int i = 0; i < coefficientCount; i++) {
+      final int slotEnd = bytes.length - i * slotBytes;
+      final int slotStart = Math.max(0, slotEnd - slotBytes);
+      
+      coefficients[i] = slotEnd <= 0 ?
+          ZERO :
+          new BigInteger(1, Arrays.copyOfRange(bytes, slotStart, slotEnd)).mod(prime);
+    }
+    
+    return trim(coefficients);
+  }
+  
+  private static BigInteger[] quotientByLongDivision(
+      final BigInteger[] a,
+      final BigInteger[] b,
+      final BigInteger prime) {
+    
+    final BigInteger[] workingRemainder = Arrays.copyOf(a, a.length);
+    final BigInteger[] quotient = new BigInteger[a.length - b.length + 1];
+    final BigInteger leadingInverse = b[b.length - 1].modInverse(prime);
+    
+    for (int i = quotient.length - 1; i >= 0; i--) {
+      final BigInteger term = workingRemainder[i + b.length - 1].multiply(leadingInverse).mod(prime);
+      quotient[i] = term;
+      
+      if (term.signum() != 0) {
+        for (int j = 0; j < b.length; j++) {
+          workingRemainder[i + j] = workingRemainder[i + j].subtract(term.multiply(b[j])).mod(prime);
+        }
+      }
+    }
+    
+    return trim(quotient);
+  }
+  
+  /**
+   * Calculates the quotient of {@code a / b} from the power series inverse of the reversal of {@code b}, which reduces
+   * division to a logarithmic number of multiplications.
+   */
+  private static BigInteger[] quotientByNewtonIteration(
+      final BigInteger[] a,
+      final BigInteger[] b,
+      final BigInteger prime) {
+    
+    final int quotientLength = a.length - b.length + 1;
+    
+    final BigInteger[] reversedA = reverse(a, a.length);
+    final BigInteger[] reversedB = reverse(b, b.length);
+    
+    final BigInteger[] reversedQuotient = truncate(
+        multiply(truncate(reversedA, quotientLength), inverseSeries(reversedB, quotientLength, prime), prime),
+        quotientLength);
+    
+    return reverse(reversedQuotient, quotientLength);
+  }
+  
+  /**
+   * Calculates the power series inverse of {@code f} modulo {@code x^precision}. The constant term of {@code f} must
+   * be non-zero.
+   */
+  private static BigInteger[] inverseSeries(final BigInteger[] f, final int precision, final BigInteger prime) {
+    BigInteger[] inverse = new BigInteger[]{f[0].modInverse(prime)};
+    int currentPrecision = 1;
+    
+    while (currentPrecision < precision) {
+      currentPrecision = Math.min(2 * currentPrecision, precision);
+      
+      // Newton step: g = g * (2 - f * g) mod x^currentPrecision
+      final BigInteger[] error = truncate(
+          multiply(truncate(f, currentPrecision), inverse, prime),
+          currentPrecision);
+      
+      final BigInteger[] correction = new BigInteger[Math.max(error.length, 1)];
+      
+      for (int i = 0; i < correction.length; i++) {
+        correction[i] = coefficient(error, i).negate().mod(prime);
+      }
+      
+      correction[0] = correction[0].add(BigInteger.valueOf(2)).mod(prime);
+      
+      inverse = truncate(multiply(inverse, trim(correction), prime), currentPrecision);
+    }
+    
+    return inverse;
+  }
+  
+  /**
+   * Reverses the first {@code length} coefficients of {@code a}, treating any missing coefficients as zero.
+   */
+  private static BigInteger[] reverse(final BigInteger[] a, final int length) {
+    final BigInteger[] reversed = new BigInteger[length];
+    
+    for (int i = 0; i < length; i++) {
+      reversed[i] = coefficient(a, length - 1 - i);
+    }
+    
+    return trim(reversed);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import javax.annotation.Nonnull;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A mutable element of the finite field of integers modulo an odd prime. Arithmetic is performed in place on an array
+ * of 32 bit limbs (each held in a long so that products and carries fit), and uses Montgomery multiplication so that
+ * no division is needed to reduce a product. Once an element has been set, adding, subtracting and multiplying
+ * elements allocates no objects, which makes this class suitable for hot loops where the equivalent BigInteger
+ * arithmetic would allocate a new magnitude array at every step.
+ * <p>
+ * Values are converted into the internal representation by the {@code set} methods and out of it by
+ * {@link #toBigInteger()}, and only these conversions allocate. Elements created with {@link #newElement()} share the
+ * precomputed constants of the original element, so creating further elements in the same field is cheap.
+ * <p>
+ * Elements are not thread safe. Each thread uses its own scratch space for multiplication, so different elements may
+ * be used on different threads at the same time.
+ */
+public final class MutableFieldElement {
+  private static final long LIMB_MASK = 0xFFFFFFFFL;
+  
+  private static final int LIMB_BITS = 32;
+  
+  private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[0]);
+  
+  private final Modulus modulus;
+  
+  /**
+   * The value multiplied by 2^(32n) modulo the prime, least significant limb first.
+   */
+  private final long[] limbs;
+  
+  private MutableFieldElement(final Modulus modulus) {
+    this.modulus = modulus;
+    this.limbs = new long[modulus.size];
+  }
+  
+  /**
+   * Creates a new element with a value of zero.
+   *
+   * @param prime
+   *     the prime to use as the basis of the finite field, not null, odd, greater than 1
+   *
+   * @return the new element, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the prime is even or not greater than 1
+   */
+  @Nonnull
+  public static MutableFieldElement zero(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    if (prime.compareTo(BigInteger.ONE) <= 0 || !prime.testBit(0)) {
+      throw new IllegalArgumentException("\'prime\' must be odd and greater than 1.");
+    }
+    
+    return new MutableFieldElement(new Modulus(prime));
+  }
+  
+  /**
+   * Checks whether elements can be created for the supplied prime.
+   *
+   * @param prime
+   *     the prime to check, not null
+   *
+   * @return true if the prime is odd and greater than 1, false otherwise
+   */
+  public static boolean supports(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    return prime.compareTo(BigInteger.ONE) > 0 && prime.testBit(0);
+  }
+  
+  /**
+   * Creates a new element in the same field as this element, with a value of zero.
+   *
+   * @return the new element, not null
+   */
+  @Nonnull
+  public MutableFieldElement newElement() {
+    return new MutableFieldElement(modulus);
+  }
+  
+  /**
+   * @return the prime of the field, not null
+   */
+  @Nonnull
+  public BigInteger getPrime() {
+    return modulus.prime;
+  }
+  
+  /**
+   * Sets the value of this element to zero.
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement setZero() {
+    Arrays.fill(limbs, 0);
+    
+    return this;
+  }
+  
+  /**
+   * Sets the value of this element to the supplied value modulo the prime, without allocating.
+   *
+   * @param value
+   *     the value, not negative
+   *
+   * @return this element, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the value is negative
+   */
+  @Nonnull
+  public MutableFieldElement set(final long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("\'value\' must not be negative.");
+    }
+    
+    // Montgomery multiplication needs the input to fit in the limbs
+    final long fittedValue = modulus.size == 1 ? value % modulus.limbs[0] : value;
+    
+    Arrays.fill(limbs, 0);
+    limbs[0] = fittedValue & LIMB_MASK;
+    
+    if (modulus.size > 1) {
+      limbs[1] = fittedValue >>> LIMB_BITS;
+    }
+    
+    multiply(limbs, modulus.rSquared, limbs);
+    
+    return this;
+  }
+  
+  /**
+   * Sets the value of this element to the supplied value modulo the prime.
+   *
+   * @param value
+   *     the value, not null
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement set(@Nonnull final BigInteger value) {
+    checkNotNull(value, "\'value\' must not be null.");
+    
+    toLimbs(value.mod(modulus.prime), limbs);
+    multiply(limbs, modulus.rSquared, limbs);
+    
+    return this;
+  }
+  
+  /**
+   * Sets the value of this element to the value of another element, without allocating.
+   *
+   * @param other
+   *     the element to copy, not null, in the same field
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement set(@Nonnull final MutableFieldElement other) {
+    checkSameField(other);
+    
+    System.arraycopy(other.limbs, 0, limbs, 0, limbs.length);
+    
+    return this;
+  }
+  
+  /**
+   * Adds another element to this element, without allocating.
+   *
+   * @param other
+   *     the element to add, not null, in the same field
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement add(@Nonnull final MutableFieldElement other) {
+    checkSameField(other);
+    
+    add(limbs, other.limbs);
+    
+    return this;
+  }
+  
+  /**
+   * Subtracts another element from this element, without allocating.
+   *
+   * @param other
+   *     the element to subtract, not null, in the same field
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement subtract(@Nonnull final MutableFieldElement other) {
+    checkSameField(other);
+    
+    long borrow = 0;
+    
+    for (int i = 0; i < limbs.length; i++) {
+      final long difference = limbs[i] - other.limbs[i] - borrow;
+      
+      limbs[i] = difference & LIMB_MASK;
+      borrow = difference < 0 ? 1 : 0;
+    }
+    
+    if (borrow != 0) {
+      addWithoutReduction(limbs, modulus.limbs);
+    }
+    
+    return this;
+  }
+  
+  /**
+   * Multiplies this element by another element, without allocating.
+   *
+   * @param other
+   *     the element to multiply by, not null, in the same field
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement multiply(@Nonnull final MutableFieldElement other) {
+    checkSameField(other);
+    
+    multiply(limbs, other.limbs, limbs);
+    
+    return this;
+  }
+  
+  /**
+   * Adds the product of two elements to this element, without allocating. Either element may be this element.
+   *
+   * @param multiplicand
+   *     the first element of the product, not null, in the same field
+   * @param multiplier
+   *     the second element of the product, not null, in the same field
+   *
+   * @return this element, not null
+   */
+  @Nonnull
+  public MutableFieldElement multiplyAccumulate(
+      @Nonnull final MutableFieldElement multiplicand,
+      @Nonnull final MutableFieldElement multiplier) {
+    
+    checkSameField(multiplicand);
+    checkSameField(multiplier);
+    
+    final long[] product = scratch(2 * limbs.length + 2);
+    final int offset = limbs.length + 2;
+    
+    multiply(multiplicand.limbs, multiplier.limbs, product, offset);
+    addAt(limbs, product, offset);
+    
+    return this;
+  }
+  
+  /**
+   * Replaces this element with its multiplicative inverse. The inverse is found with {@link BigInteger#modInverse},
+   * so this operation allocates.
+   *
+   * @return this element, not null
+   *
+   * @throws ArithmeticException
+   *     if this element is zero
+   */
+  @Nonnull
+  public MutableFieldElement invert() {
+    return set(toBigInteger().modInverse(modulus.prime));
+  }
+  
+  /**
+   * @return true if the value of this element is zero, false otherwise
+   */
+  public boolean isZero() {
+    for (final long limb : limbs) {
+      if (limb != 0) {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  /**
+   * @return the value of this element, not null, at least zero and less than the prime
+   */
+  @Nonnull
+  public BigInteger toBigInteger() {
+    final long[] value = new long[limbs.length];
+    final byte[] bytes = new byte[limbs.length * 4];
+    
+    multiply(limbs, modulus.one, value);
+    
+    for (int i = 0; i < value.length; i++) {
+      final int position = bytes.length - 4 * (i + 1);
+      
+      bytes[position] = (byte) (value[i] >>> 24);
+      bytes[position + 1] = (byte) (value[i] >>> 16);
+      bytes[position + 2] = (byte) (value[i] >>> 8);
+      bytes[position + 3] = (byte) value[i];
+    }
+    
+    return new BigInteger(1, bytes);
+  }
+  
+  @Override
+  public String toString() {
+    return toBigInteger().toString();
+  }
+  
+  private void checkSameField(final MutableFieldElement other) {
+    checkNotNull(other, "The other element must not be null.");
+    
+    if (other.modulus != modulus && !other.modulus.prime.equals(modulus.prime)) {
+      throw new IllegalArgumentException("The elements must be in the same field.");
+    }
+  }
+  
+  private void multiply(final long[] multiplicand, final long[] multiplier, final long[] result) {
+    final long[] product = scratch(2 * limbs.length + 2);
+    
+    multiply(multiplicand, multiplier, product, limbs.length + 2);
+    System.arraycopy(product, limbs.length + 2, result, 0, limbs.length);
+  }
+  
+  /**
+   * Computes the Montgomery product of two values (the product divided by 2^(32n) modulo the prime) using the
+   * coarsely integrated operand scanning method. The first n + 2 limbs of the scratch array are used as working space,
+   * and the reduced product is written to the n limbs of the scratch array starting at the offset. The inputs may
+   * alias each other but must not alias the scratch array.
+   */
+  private void multiply(final long[] multiplicand, final long[] multiplier, final long[] scratch, final int offset) {
+    final int size = limbs.length;
+    final long[] prime = modulus.limbs;
+    
+    Arrays.fill(scratch, 0, size + 2, 0);
+    
+    for (int i = 0; i < size; i++) {
+      final long multiplierLimb = multiplier[i];
+      long carry = 0;
+      
+      // Each sum is at most (2^32 - 1)^2 + 2(2^32 - 1) = 2^64 - 1, so it fits in a long when treated as unsigned
+      for (int j = 0; j < size; j++) {
+        final long sum = scratch[j] + multiplicand[j] * multiplierLimb + carry;
+        
+        scratch[j] = sum & LIMB_MASK;
+        carry = sum >>> LIMB_BITS;
+      }
+      
+      long sum = scratch[size] + carry;
+      scratch[size] = sum & LIMB_MASK;
+      scratch[size + 1] = sum >>> LIMB_BITS;
+      
+      final long quotient = (scratch[0] * modulus.negativeInverse) & LIMB_MASK;
+      
+      sum = scratch[0] + quotient * prime[0];
+      carry = sum >>> LIMB_BITS;
+      
+      for (int j = 1; j < size; j++) {
+        sum = scratch[j] + quotient * prime[j] + carry;
+        scratch[j - 1] = sum & LIMB_MASK;
+        carry = sum >>> LIMB_BITS;
+      }
+      
+      sum = scratch[size] + carry;
+      scratch[size - 1] = sum & LIMB_MASK;
+      scratch[size] = scratch[size + 1] + (sum >>> LIMB_BITS);
+    }
+    
+    // The product is now less than twice the prime, so at most one subtraction is needed
+    final boolean subtract = scratch[size] != 0 || compare(scratch, 0, prime) >= 0;
+    long borrow = 0;
+    
+    for (int i = 0; i < size; i++) {
+      final long difference = scratch[i] - (subtract ? prime[i] : 0) - borrow;
+      
+      scratch[offset + i] = difference & LIMB_MASK;
+      borrow = difference < 0 ? 1 : 0;
+    }
+  }
+  
+  /**
+   * Adds the n limbs of the source starting at the offset to the target, reducing the result modulo the prime.
+   */
+  private void addAt(final long[] target, final long[] source, final int offset) {
+    long carry = 0;
+    
+    for (int i = 0; i < target.length; i++) {
+      final long sum = target[i] + source[offset + i] + carry;
+      
+      target[i] = sum & LIMB_MASK;
+      carry = sum >>> LIMB_BITS;
+    }
+    
+    if (carry != 0 || compare(target, 0, modulus.limbs) >= 0) {
+      subtractWithoutReduction(target, modulus.limbs);
+    }
+  }
+  
+  private void add(final long[] target, final long[] source) {
+    addAt(target, source, 0);
+  }
+  
+  private static void addWithoutReduction(final long[] target, final long[] source) {
+    long carry = 0;
+    
+    for (int i = 0; i < target.length; i++) {
+      final long sum = target[i] + source[i] + carry;
+      
+      target[i] = sum & LIMB_MASK;
+      carry = sum >>> LIMB_BITS;
+    }
+  }
+  
+  private static void subtractWithoutReduction(final long[] target, final long[] source) {
+    long borrow = 0;
+    
+    for (int i = 0; i < target.length; i++) {
+      final long difference = target[i] - source[i] - borrow;
+      
+      target[i] = difference & LIMB_MASK;
+      borrow = difference < 0 ? 1 : 0;
+    }
+  }
+  
+  /**
+   * Compares the n limbs of the first array starting at the offset with the limbs of the second array.
+   */
+  private static int compare(final long[] first, final int offset, final long[] second) {
+    for (int i = second.length - 1; i >= 0; i--) {
+      if (first[offset + i] != second[i]) {
+        return first[offset + i] < second[i] ? -1 : 1;
+      }
+    }
+    
+    return 0;
+  }
+  
+  /**
+   * Writes a value which is not negative and fits in the limbs into the limbs.
+   */
+  private static void toLimbs(final BigInteger value, final long[] limbs) {
+    final byte[] bytes = value.toByteArray();
+    
+    Arrays.fill(limbs, 0);
+    
+    // Counts bytes from the least significant, and skips the sign byte if it does not fit
+    for (int i = 0; i < bytes.length && i / 4 < limbs.length; i++) {
+      limbs[i / 4] |= (bytes[bytes.length - 1 - i] & 0xFFL) << (8 * (i % 4));
+    }
+  }
+  
+  private static long[] scratch(final int size) {
+    long[] scratch = SCRATCH.get();
+    
+    if (scratch.length < size) {
+      scratch = new long[size];
+      SCRATCH.set(scratch);
+    }
+    
+    return scratch;
+  }
+  
+  /**
+   * The constants needed for Montgomery arithmetic modulo a prime.
+   */
+  private static final class Modulus {
+    private final BigInteger prime;
+    
+    private final int size;
+    
+    private final long[] limbs;
+    
+    /**
+     * The negative of the inverse of the prime modulo 2^32.
+     */
+    private final long negativeInverse;
+    
+    /**
+     * 2^(64n) modulo the prime, which converts a value into the Montgomery representation.
+     */
+    private final long[] rSquared;
+    
+    /**
+     * The value 1, which converts a value out of the Montgomery representation.
+     */
+    private final long[] one;
+    
+    private Modulus(final BigInteger prime) {
+      this.prime = prime;
+      this.size = (prime.bitLength() + LIMB_BITS - 1) / LIMB_BITS;
+      this.limbs = new long[size];
+      this.rSquared = new long[size];
+      this.one = new long[size];
+      
+      toLimbs(prime, limbs);
+      toLimbs(BigInteger.ONE.shiftLeft(2 * LIMB_BITS * size).mod(prime), rSquared);
+      one[0] = 1;
+      
+      // Newton's iteration doubles the number of correct low bits each step, starting from 3 bits for an odd number
+      long inverse = limbs[0];
+      
+      for (int i = 0; i < 4; i++) {
+        inverse = (inverse * (2 - limbs[0] * inverse)) & LIMB_MASK;
+      }
+      
+      this.negativeInverse = (-inverse) & LIMB_MASK;
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import javax.annotation.Nonnull;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.math.BigInteger.ONE;
+
+/**
+ * A table of the modular inverses of small integers. Share indices are usually small, so the differences between them
+ * which are inverted during Lagrange interpolation usually lie in [-{@value #MAX_DIFFERENCE},
+ * {@value #MAX_DIFFERENCE}]. Looking these up avoids running the extended Euclidean algorithm for each pair of shares.
+ * <p>
+ * The table for a prime is built the first time it is requested, using the recurrence
+ * {@code 1/i = -(p / i) * 1/(p mod i)} so that building it needs no extended Euclidean algorithm either. Tables are
+ * shared, and the tables of the most recently used primes are kept for later recoveries. Values outside the range of
+ * the table fall back to {@link BigInteger#modInverse(BigInteger)}. Instances are immutable and thread safe.
+ * <p>
+ * For primes supported by {@link MutableFieldElement} the inverses are also held in Montgomery form, so
+ * {@link #multiplyByInverseOf(MutableFieldElement, long)} can multiply an element by an inverse without converting or
+ * allocating anything.
+ * <p>
+ * The table only helps Lagrange interpolation, which inverts every pairwise index difference. Interpolation with a
+ * {@link SubproductTree} inverts large products instead, and already uses a single extended Euclidean inversion for all
+ * of its denominators, so it does not use the table.
+ */
+public final class SmallInverseTable {
+  /**
+   * The largest absolute value held in a table.
+   */
+  public static final int MAX_DIFFERENCE = 255;
+  
+  private static final int MAX_CACHED_TABLES = 16;
+  
+  private static final Map<BigInteger, SmallInverseTable> TABLES =
+      new LinkedHashMap<BigInteger, SmallInverseTable>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<BigInteger, SmallInverseTable> eldest) {
+          return size() > MAX_CACHED_TABLES;
+        }
+      };
+  
+  private final BigInteger prime;
+  
+  /**
+   * The inverse of each value from 0 to the limit of the table, indexed by value. An entry is null if the value has
+   * no inverse modulo the prime.
+   */
+  private final BigInteger[] inverses;
+  
+  /**
+   * The inverse of the negation of each value from 0 to the limit of the table, indexed by value.
+   */
+  private final BigInteger[] negatedInverses;
+  
+  /**
+   * The same inverses as {@link #inverses} in Montgomery form, or empty if the prime is not supported by
+   * {@link MutableFieldElement}. The elements are never modified after construction, so they may be read from any
+   * thread.
+   */
+  private final MutableFieldElement[] inverseElements;
+  
+  /**
+   * The same inverses as {@link #negatedInverses} in Montgomery form, or empty.
+   */
+  private final MutableFieldElement[] negatedInverseElements;
+  
+  private SmallInverseTable(final BigInteger prime) {
+    this.prime = prime;
+    
+    final int limit = prime.compareTo(BigInteger.valueOf(MAX_DIFFERENCE)) > 0 ?
+        MAX_DIFFERENCE :
+        prime.intValue() - 1;
+    
+    inverses = new BigInteger[limit + 1];
+    negatedInverses = new BigInteger[limit + 1];
+    
+    if (limit >= 1) {
+      inverses[1] = ONE;
+      negatedInverses[1] = prime.subtract(ONE);
+    }
+    
+    for (int i = 2; i <= limit; i++) {
+      final BigInteger[] quotientAndRemainder = prime.divideAndRemainder(BigInteger.valueOf(i));
+      final BigInteger inverseOfRemainder = inverses[quotientAndRemainder[1].intValue()];
+      
+      // Only null if the remainder is zero or shares a factor with a composite modulus
+      if (inverseOfRemainder != null) {
+        negatedInverses[i] = quotientAndRemainder[0].multiply(inverseOfRemainder).mod(prime);
+        inverses[i] = prime.subtract(negatedInverses[i]);
+      }
+    }
+    
+    if (MutableFieldElement.supports(prime)) {
+      final MutableFieldElement zero = MutableFieldElement.zero(prime);
+      
+      inverseElements = toElements(inverses, zero);
+      negatedInverseElements = toElements(negatedInverses, zero);
+      
+    } else {
+      inverseElements = new MutableFieldElement[0];
+      negatedInverseElements = new MutableFieldElement[0];
+    }
+  }
+  
+  /**
+   * Gets the table for a prime, building it if it has not been built recently.
+   *
+   * @param prime
+   *     the prime to use as the modulus, not null, greater than 1
+   *
+   * @return the table for the prime, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code prime} is null or not greater than 1
+   */
+  @Nonnull
+  public static SmallInverseTable forPrime(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    if (prime.compareTo(ONE) <= 0) {
+      throw new IllegalArgumentException("\'prime\' must be greater than 1.");
+    }
+    
+    synchronized (TABLES) {
+      return TABLES.computeIfAbsent(prime, SmallInverseTable::new);
+    }
+  }
+  
+  /**
+   * @return the prime used as the modulus, not null
+   */
+  @Nonnull
+  public BigInteger getPrime() {
+    return prime;
+  }
+  
+  /**
+   * Calculates the inverse of a value modulo the prime, using the table if the value is within its range.
+   *
+   * @param value
+   *     the value to invert
+   *
+   * @return the inverse, in the range [1, prime), not null
+   *
+   * @throws ArithmeticException
+   *     if the value has no inverse modulo the prime
+   */
+  @Nonnull
+  public BigInteger inverseOf(final long value) {
+    final BigInteger inverse = value >= 0 ?
+        lookUp(inverses, value) :
+        value > -negatedInverses.length ? lookUp(negatedInverses, -value) : null;
+    
+    return inverse == null ? BigInteger.valueOf(value).modInverse(prime) : inverse;
+  }
+  
+  /**
+   * Calculates the inverse of a value modulo the prime, using the table if the value is within its range.
+   *
+   * @param value
+   *     the value to invert, not null
+   *
+   * @return the inverse, in the range [1, prime), not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code value} is null
+   * @throws ArithmeticException
+   *     if the value has no inverse modulo the prime
+   */
+  @Nonnull
+  public BigInteger inverseOf(@Nonnull final BigInteger value) {
+    checkNotNull(value, "\'value\' must not be null.");
+    
+    return value.bitLength() < Long.SIZE ? inverseOf(value.longValue()) : value.modInverse(prime);
+  }
+  
+  /**
+   * Multiplies an element by the inverse of a value modulo the prime. If the value is within the range of the table,
+   * the inverse is already held in Montgomery form and the multiplication allocates nothing.
+   *
+   * @param element
+   *     the element to multiply, not null, in the field of the prime
+   * @param value
+   *     the value to multiply by the inverse of
+   *
+   * @return the element, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code element} is null or is not in the field of the prime
+   * @throws ArithmeticException
+   *     if the value has no inverse modulo the prime
+   */
+  @Nonnull
+  public MutableFieldElement multiplyByInverseOf(@Nonnull final MutableFieldElement element, final long value) {
+    checkNotNull(element, "\'element\' must not be null.");
+    
+    if (!element.getPrime().equals(prime)) {
+      throw new IllegalArgumentException("\'element\' must be in the field of the prime.");
+    }
+    
+    final MutableFieldElement inverse = value >= 0 ?
+        lookUp(inverseElements, value) :
+        value > -negatedInverseElements.length ? lookUp(negatedInverseElements, -value) : null;
+    
+    return inverse == null ?
+        element.multiply(element.newElement().set(inverseOf(value))) :
+        element.multiply(inverse);
+  }
+  
+  private static MutableFieldElement[] toElements(final BigInteger[] values, final MutableFieldElement zero) {
+    final MutableFieldElement[] elements = new MutableFieldElement[values.length];
+    
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        elements[i] = zero.newElement().set(values[i]);
+      }
+    }
+    
+    return elements;
+  }
+  
+  private static <T> T lookUp(final T[] table, final long value) {
+    return value < table.length ? table[(int) value] : null;
+  }
+}
\ No newline at end of file
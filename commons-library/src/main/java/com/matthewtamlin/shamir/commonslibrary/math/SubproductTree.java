@@ -0,0 +1,315 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import javax.annotation.Nonnull;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+/**
+ * A subproduct tree over a set of distinct points in the finite field of integers modulo a prime. Each node of the tree
+ * holds the product of {@code (x - point)} for the points beneath it, which allows a polynomial to be evaluated at
+ * every point by repeatedly reducing it modulo the nodes (a remainder tree). Combined with fast polynomial
+ * multiplication and division, evaluating a polynomial with n coefficients at n points takes a quasi-linear number of
+ * operations instead of the n^2 operations needed to evaluate the polynomial at each point separately.
+ * <p>
+ * The same tree also supports the reverse operation of interpolating a polynomial from its values at the points. The
+ * derivative of the product at the root gives the Lagrange weight of every point via a single evaluation, and the
+ * weighted products are then combined up the tree.
+ * <p>
+ * Building the tree is about as expensive as a single evaluation, so a tree should be reused when the same points are
+ * evaluated or interpolated more than once.
+ */
+public class SubproductTree {
+  /**
+   * Nodes with at most this many points are not split further, since evaluating them directly is faster.
+   */
+  private static final int LEAF_SIZE = 8;
+  
+  private final BigInteger prime;
+  
+  private final BigInteger[] points;
+  
+  private final Node root;
+  
+  /**
+   * Constructs a new SubproductTree.
+   *
+   * @param points
+   *     the points of the tree, not null, not empty, not containing null, each distinct modulo the prime
+   * @param prime
+   *     the prime to use as the basis of the finite field, not null, greater than 1
+   *
+   * @throws IllegalArgumentException
+   *     if {@code points} is empty, if any two points are equal modulo the prime, or if the prime is not greater than 1
+   */
+  public SubproductTree(@Nonnull final List<BigInteger> points, @Nonnull final BigInteger prime) {
+    checkNotNull(points, "\'points\' must not be null.");
+    checkEachElementIsNotNull(points, "\'points\' must not contain null.");
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    if (points.isEmpty()) {
+      throw new IllegalArgumentException("\'points\' must not be empty.");
+    }
+    
+    if (prime.compareTo(ONE) <= 0) {
+      throw new IllegalArgumentException("\'prime\' must be greater than 1.");
+    }
+    
+    this.prime = prime;
+    this.points = new BigInteger[points.size()];
+    
+    final Set<BigInteger> distinctPoints = new HashSet<>();
+    
+    for (int i = 0; i < this.points.length; i++) {
+      this.points[i] = points.get(i).mod(prime);
+      
+      if (!distinctPoints.add(this.points[i])) {
+        throw new IllegalArgumentException("\'points\' must be distinct modulo the prime.");
+      }
+    }
+    
+    root = build(0, this.points.length);
+  }
+  
+  /**
+   * Evaluates a polynomial at every point of this tree. The result is reduced modulo the prime.
+   *
+   * @param coefficients
+   *     the coefficients of the polynomial in ascending order of exponent, not null, not containing null
+   *
+   * @return the value of the polynomial at each point, in the same order as the points, not null
+   */
+  @Nonnull
+  public List<BigInteger> evaluate(@Nonnull final List<BigInteger> coefficients) {
+    checkNotNull(coefficients, "\'coefficients\' must not be null.");
+    checkEachElementIsNotNull(coefficients, "\'coefficients\' must not contain null.");
+    
+    return new ArrayList<>(Arrays.asList(evaluate(FieldPolynomials.trim(reduce(coefficients)))));
+  }
+  
+  /**
+   * Calculates the value at zero of the unique polynomial with fewer coefficients than there are points in this tree
+   * which passes through the given values at the points of this tree. The result is reduced modulo the prime.
+   *
+   * @param values
+   *     the value of the polynomial at each point, in the same order as the points, not null, not containing null, the
+   *     same size as the points
+   *
+   * @return the value of the interpolated polynomial at zero, not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code values} is not the same size as the points
+   */
+  @Nonnull
+  public BigInteger interpolateAtZero(@Nonnull final List<BigInteger> values) {
+    final BigInteger[] reducedValues = checkAndReduceValues(values);
+    
+    for (int i = 0; i < points.length; i++) {
+      if (points[i].signum() == 0) {
+        return reducedValues[i];
+      }
+    }
+    
+    // f(0) = M(0) * sum(y_i / (M'(x_i) * (0 - x_i))) where M is the product of (x - x_i) over all points
+    final BigInteger[] derivativeValues = evaluate(FieldPolynomials.derivative(root.product, prime));
+    final BigInteger[] denominators = new BigInteger[points.length];
+    
+    for (int i = 0; i < points.length; i++) {
+      denominators[i] = derivativeValues[i].multiply(prime.subtract(points[i])).mod(prime);
+    }
+    
+    final BigInteger[] inverseDenominators = FieldPolynomials.invertAll(denominators, prime);
+    
+    BigInteger sum = ZERO;
+    
+    for (int i = 0; i < points.length; i++) {
+      sum = sum.add(reducedValues[i].multiply(inverseDenominators[i]));
+    }
+    
+    return sum.mod(prime).multiply(root.product[0]).mod(prime);
+  }
+  
+  /**
+   * Calculates the coefficients of the unique polynomial with fewer coefficients than there are points in this tree
+   * which passes through the given values at the points of this tree. The coefficients are reduced modulo the prime.
+   *
+   * @param values
+   *     the value of the polynomial at each point, in the same order as the points, not null, not containing null, the
+   *     same size as the points
+   *
+   * @return the coefficients of the interpolated polynomial in ascending order of exponent, without trailing zeros,
+   * not null
+   *
+   * @throws IllegalArgumentException
+   *     if {@code values} is not the same size as the points
+   */
+  @Nonnull
+  public List<BigInteger> interpolate(@Nonnull final List<BigInteger> values) {
+    final BigInteger[] reducedValues = checkAndReduceValues(values);
+    
+    // Each point contributes y_i / M'(x_i) times the product of (x - x_j) over every other point
+    final BigInteger[] weights = FieldPolynomials.invertAll(
+        evaluate(FieldPolynomials.derivative(root.product, prime)),
+        prime);
+    
+    for (int i = 0; i < points.length; i++) {
+      weights[i] = weights[i].multiply(reducedValues[i]).mod(prime);
+    }
+    
+    return new ArrayList<>(Arrays.asList(combine(root, weights)));
+  }
+  
+  private BigInteger[] reduce(final List<BigInteger> values) {
+    final BigInteger[] reducedValues = new BigInteger[values.size()];
+    
+    for (int i = 0; i < reducedValues.length; i++) {
+      reducedValues[i] = values.get(i).mod(prime);
+    }
+    
+    return reducedValues;
+  }
+  
+  private BigInteger[] checkAndReduceValues(final List<BigInteger> values) {
+    checkNotNull(values, "\'values\' must not be null.");
+    checkEachElementIsNotNull(values, "\'values\' must not contain null.");
+    
+    if (values.size() != points.length) {
+      throw new IllegalArgumentException("\'values\' must be the same size as the points.");
+    }
+    
+    return reduce(values);
+  }
+  
+  private BigInteger[] evaluate(final BigInteger[] polynomial) {
+    final BigInteger[] values = new BigInteger[points.length];
+    
+    evaluate(root, polynomial, values);
+    
+    return values;
+  }
+  
+  private Node build(final int from, final int to) {
+    if (to - from <= LEAF_SIZE) {
+      BigInteger[] product = new BigInteger[]{ONE};
+      
+      for (int i = from; i < to; i++) {
+        final BigInteger[] linearFactor = new BigInteger[]{points[i].negate().mod(prime), ONE};
+        
+        product = FieldPolynomials.multiply(product, linearFactor, prime);
+      }
+      
+      return new Node(from, to, product, null, null);
+    }
+    
+    final int middle = (from + to) >>> 1;
+    
+    final Node left = build(from, middle);
+    final Node right = build(middle, to);
+    
+    return new Node(from, to, FieldPolynomials.multiply(left.product, right.product, prime), left, right);
+  }
+  
+  private void evaluate(final Node node, final BigInteger[] polynomial, final BigInteger[] values) {
+    final BigInteger[] remainder = FieldPolynomials.remainder(polynomial, node.product, prime);
+    
+    if (node.isLeaf()) {
+      for (int i = node.from; i < node.to; i++) {
+        values[i] = FieldPolynomials.evaluateAt(remainder, points[i], prime);
+      }
+      
+    } else {
+      evaluate(node.left, remainder, values);
+      evaluate(node.right, remainder, values);
+    }
+  }
+  
+  /**
+   * Calculates the sum over the points of the node of the weight of each point multiplied by the product of
+   * {@code (x - point)} over every other point of the node.
+   */
+  private BigInteger[] combine(final Node node, final BigInteger[] weights) {
+    if (node.isLeaf()) {
+      BigInteger[] sum = new BigInteger[0];
+      
+      for (int i = node.from; i < node.to; i++) {
+        final BigInteger[] scaledCofactor = divideByLinearFactor(node.product, points[i]);
+        
+        for (int j = 0; j < scaledCofactor.length; j++) {
+          scaledCofactor[j] = scaledCofactor[j].multiply(weights[i]).mod(prime);
+        }
+        
+        sum = FieldPolynomials.add(sum, FieldPolynomials.trim(scaledCofactor), prime);
+      }
+      
+      return sum;
+    }
+    
+    return FieldPolynomials.add(
+        FieldPolynomials.multiply(combine(node.left, weights), node.right.product, prime),
+        FieldPolynomials.multiply(combine(node.right, weights), node.left.product, prime),
+        prime);
+  }
+  
+  /**
+   * Divides a polynomial by {@code (x - point)} using synthetic division. The point must be a root of the polynomial.
+   */
+  private BigInteger[] divideByLinearFactor(final BigInteger[] polynomial, final BigInteger point) {
+    final BigInteger[] quotient = new BigInteger[polynomial.length - 1];
+    BigInteger carry = ZERO;
+    
+    for (int i = polynomial.length - 1; i > 0; i--) {
+      carry = carry.multiply(point).add(polynomial[i]).mod(prime);
+      quotient[i - 1] = carry;
+    }
+    
+    return quotient;
+  }
+  
+  private static class Node {
+    private final int from;
+    
+    private final int to;
+    
+    private final BigInteger[] product;
+    
+    private final Node left;
+    
+    private final Node right;
+    
+    private Node(final int from, final int to, final BigInteger[] product, final Node left, final Node right) {
+      this.from = from;
+      this.to = to;
+      this.product = product;
+      this.left = left;
+      this.right = right;
+    }
+    
+    private boolean isLeaf() {
+      return left == null;
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.model;
+
+import javax.annotation.Nonnull;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * A fixed capacity batch of shares stored in columns rather than as individual {@link Share} objects. The indices are
+ * stored in an int array, and the values are stored back to back in a single buffer as unsigned big-endian integers of
+ * a fixed width. Storing a share costs four bytes plus the value width, compared to the several object headers and
+ * arrays of a Share holding two BigIntegers.
+ * <p>
+ * The value buffer can either be on the heap (see {@link #allocate(int, int)}), off the heap (see
+ * {@link #allocateDirect(int, int)}), or supplied by the caller (see {@link #wrap(int, int, ByteBuffer)}). Share
+ * objects are only created when requested using {@link #getShare(int)} or the {@link #asList()} view.
+ * <p>
+ * Batches are not thread safe.
+ */
+public final class ShareBatch {
+  private final int[] indices;
+  
+  private final ByteBuffer values;
+  
+  private final int valueWidth;
+  
+  private int size = 0;
+  
+  private ShareBatch(final int capacity, final int valueWidth, final ByteBuffer values) {
+    this.indices = new int[capacity];
+    this.values = values;
+    this.valueWidth = valueWidth;
+  }
+  
+  /**
+   * Creates a new empty batch with the values stored on the heap.
+   *
+   * @param capacity
+   *     the maximum number of shares in the batch, at least 0
+   * @param valueWidth
+   *     the number of bytes used to store each value, at least 1
+   *
+   * @return the new batch, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the capacity is negative, if the value width is less than 1, or if the values would not fit in a single
+   *     buffer
+   */
+  @Nonnull
+  public static ShareBatch allocate(final int capacity, final int valueWidth) {
+    return new ShareBatch(capacity, valueWidth, ByteBuffer.allocate(getBufferSize(capacity, valueWidth)));
+  }
+  
+  /**
+   * Creates a new empty batch with the values stored in a direct buffer outside the heap.
+   *
+   * @param capacity
+   *     the maximum number of shares in the batch, at least 0
+   * @param valueWidth
+   *     the number of bytes used to store each value, at least 1
+   *
+   * @return the new batch, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the capacity is negative, if the value width is less than 1, or if the values would not fit in a single
+   *     buffer
+   */
+  @Nonnull
+  public static ShareBatch allocateDirect(final int capacity, final int valueWidth) {
+    return new ShareBatch(capacity, valueWidth, ByteBuffer.allocateDirect(getBufferSize(capacity, valueWidth)));
+  }
+  
+  /**
+   * Creates a new empty batch which stores the values in an existing buffer, starting at index zero of the buffer.
+   * This allows the values to be stored in a buffer the batch cannot allocate itself, such as a region of a
+   * memory-mapped file. The position and limit of the buffer are ignored.
+   *
+   * @param capacity
+   *     the maximum number of shares in the batch, at least 0
+   * @param valueWidth
+   *     the number of bytes used to store each value, at least 1
+   * @param values
+   *     the buffer to store the values in, not null, with a capacity of at least {@code capacity * valueWidth}
+   *
+   * @return the new batch, not null
+   *
+   * @throws IllegalArgumentException
+   *     if the capacity is negative, if the value width is less than 1, or if the values would not fit in the buffer
+   */
+  @Nonnull
+  public static ShareBatch wrap(final int capacity, final int valueWidth, @Nonnull final ByteBuffer values) {
+    checkNotNull(values, "\'values\' must not be null.");
+    
+    if (values.capacity() < getBufferSize(capacity, valueWidth)) {
+      throw new IllegalArgumentException("The values would not fit in \'values\'.");
+    }
+    
+    return new ShareBatch(capacity, valueWidth, values);
+  }
+  
+  /**
+   * Returns the number of bytes needed to store every value less than the supplied prime.
+   *
+   * @param prime
+   *     the prime, not null, greater than 0
+   *
+   * @return the value width, at least 1
+   */
+  public static int getValueWidth(@Nonnull final BigInteger prime) {
+    checkNotNull(prime, "\'prime\' must not be null.");
+    
+    if (prime.signum() <= 0) {
+      throw new IllegalArgumentException("\'prime\' must be greater than 0.");
+    }
+    
+    return Math.max(1, (prime.subtract(BigInteger.ONE).bitLength() + 7) / 8);
+  }
+  
+  /**
+   * @return the number of shares in the batch, at least 0
+   */
+  public int size() {
+    return size;
+  }
+  
+  /**
+   * @return the maximum number of shares in the batch, at least 0
+   */
+  public int getCapacity() {
+    return indices.length;
+  }
+  
+  /**
+   * @return the number of bytes used to store each value, at least 1
+   */
+  public int getValueWidth() {
+    return valueWidth;
+  }
+  
+  /**
+   * @return true if the values are stored outside the heap, false otherwise
+   */
+  public boolean isDirect() {
+    return values.isDirect();
+  }
+  
+  /**
+   * Adds a share to the end of the batch.
+   *
+   * @param index
+   *     the index of the share, at least 1
+   * @param value
+   *     the value of the share, not null, not negative, and small enough to fit in the value width
+   *
+   * @throws IllegalArgumentException
+   *     if the index is less than 1, or if the value is negative or too large
+   * @throws IllegalStateException
+   *     if the batch is full
+   */
+  public void add(final int index, @Nonnull final BigInteger value) {
+    checkNotNull(value, "\'value\' must not be null.");
+    
+    if (index < 1) {
+      throw new IllegalArgumentException("\'index\' must be at least 1.");
+    }
+    
+    if (value.signum() < 0 || value.bitLength() > valueWidth * 8) {
+      throw new IllegalArgumentException(format("\'value\' must fit in %1$s unsigned bytes.", valueWidth));
+    }
+    
+    if (size == indices.length) {
+      throw new IllegalStateException("The batch is full.");
+    }
+    
+    final byte[] bytes = value.toByteArray();
+    final int significantLength = Math.min(bytes.length, valueWidth);
+    final int start = size * valueWidth;
+    
+    for (int i = 0; i < valueWidth - significantLength; i++) {
+      values.put(start + i, (byte) 0);
+    }
+    
+    for (int i = 0; i < significantLength; i++) {
+      values.put(start + valueWidth - significantLength + i, bytes[bytes.length - significantLength + i]);
+    }
+    
+    indices[size++] = index;
+  }
+  
+  /**
+   * Adds a share to the end of the batch.
+   *
+   * @param share
+   *     the share to add, not null, with an index which fits in an int
+   *
+   * @throws IllegalArgumentException
+   *     if the index does not fit in an int, or if the value is too large
+   * @throws IllegalStateException
+   *     if the batch is full
+   */
+  public void add(@Nonnull final Share share) {
+    checkNotNull(share, "\'share\' must not be null.");
+    
+    if (share.getIndex().bitLength() >= 32) {
+      throw new IllegalArgumentException("The index of \'share\' must fit in an int.");
+    }
+    
+    add(share.getIndex().intValue(), share.getValue());
+  }
+  
+  /**
+   * @param position
+   *     the position of the share in the batch, at least 0 and less than the size
+   *
+   * @return the index of the share at the position
+   */
+  public int getIndex(final int position) {
+    checkPosition(position);
+    
+    return indices[position];
+  }
+  
+  /**
+   * @param position
+   *     the position of the share in the batch, at least 0 and less than the size
+   *
+   * @return the value of the share at the position, not null
+   */
+  @Nonnull
+  public BigInteger getValue(final int position) {
+    final byte[] bytes = new byte[valueWidth];
+    
+    copyValue(position, bytes, 0);
+    
+    return new BigInteger(1, bytes);
+  }
+  
+  /**
+   * Copies the fixed width bytes of a value into an array without creating any objects. The bytes are read with
+   * absolute gets, so the position of the underlying buffer is never changed and no view of it is needed.
+   *
+   * @param position
+   *     the position of the share in the batch, at least 0 and less than the size
+   * @param destination
+   *     the array to copy into, not null
+   * @param offset
+   *     the position in the array to copy the first byte to
+   */
+  public void copyValue(final int position, @Nonnull final byte[] destination, final int offset) {
+    checkPosition(position);
+    checkNotNull(destination, "\'destination\' must not be null.");
+    
+    final int start = position * valueWidth;
+    
+    for (int i = 0; i < valueWidth; i++) {
+      destination[offset + i] = values.get(start + i);
+    }
+  }
+  
+  /**
+   * @param position
+   *     the position of the share in the batch, at least 0 and less than the size
+   *
+   * @return a new share containing the index and value at the position, not null
+   */
+  @Nonnull
+  public Share getShare(final int position) {
+    return Share
+        .builder()
+        .setIndex(getIndex(position))
+        .setValue(getValue(position))
+        .build();
+  }
+  
+  /**
+   * Returns a read-only view of the batch as a list of shares. Each share is created when it is accessed, and the view
+   * reflects shares added to the batch later.
+   *
+   * @return the view, not null
+   */
+  @Nonnull
+  public List<Share> asList() {
+    return new AbstractList<Share>() {
+      @Override
+      public Share get(final int position) {
+        if (position < 0 || position >= size) {
+          throw new IndexOutOfBoundsException(format("Position %1$s is out of bounds.", position));
+        }
+        
+        return getShare(position);
+      }
+      
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+  
+  /**
+   * @return a new set containing every share in the batch, not null
+   */
+  @Nonnull
+  public Set<Share> toSet() {
+    return new HashSet<>(asList());
+  }
+  
+  private void checkPosition(final int position) {
+    if (position < 0 || position >= size) {
+      throw new IllegalArgumentException(format("\'position\' must be in the range [0, %1$s).", size));
+    }
+  }
+  
+  private static int getBufferSize(final int capacity, final int valueWidth) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("\'capacity\' must not be negative.");
+    }
+    
+    if (valueWidth < 1) {
+      throw new IllegalArgumentException("\'valueWidth\' must be at least 1.");
+    }
+    
+    if ((long) capacity * valueWidth > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The values would not fit in a single buffer.");
+    }
+    
+    return capacity * valueWidth;
+  }
+}
\ No newline at end of file
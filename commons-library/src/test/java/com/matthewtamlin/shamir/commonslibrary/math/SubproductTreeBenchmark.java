@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.String.format;
+
+/**
+ * Compares the direct algorithms used by share creation and secret recovery against their {@link SubproductTree}
+ * counterparts. Each evaluation run evaluates a polynomial with k coefficients at k points, which is the unit of work
+ * that share creation repeats for every group of k shares. The direct side uses Horner's method with mutable field
+ * elements, exactly as share creation does below its subproduct tree threshold. Each interpolation run recovers the
+ * value at zero from k points, which is the work done by secret recovery, and the direct side is Lagrange
+ * interpolation with mutable field elements and a {@link SmallInverseTable}. The points where the subproduct tree
+ * becomes faster are the thresholds used by share creation and secret recovery.
+ * <p>
+ * Every operation is first run for {@link #GLOBAL_WARM_UP_NANOS} across all the sizes so that the JIT has compiled
+ * the arithmetic before anything is measured. Each measurement then has its own timed warm-up, and reports the median
+ * of several timed trials. Coefficients are held in a list in order of degree.
+ * <p>
+ * This is not a unit test and is not run as part of the build. Run the main method directly, optionally passing the
+ * bit length of the prime as the first argument (defaults to 4096) and the largest size to measure as the second
+ * (defaults to 1024).
+ */
+public class SubproductTreeBenchmark {
+  private static final int[] SIZES = {2, 4, 6, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256, 384, 512, 768, 1024, 2048};
+  
+  /**
+   * The sizes run repeatedly before any measurement, so that both the small and the large size code paths are
+   * compiled.
+   */
+  private static final int[] GLOBAL_WARM_UP_SIZES = {2, 8, 32, 128};
+  
+  private static final long GLOBAL_WARM_UP_NANOS = 10_000_000_000L;
+  
+  private static final long WARM_UP_NANOS = 500_000_000L;
+  
+  private static final int TRIALS = 7;
+  
+  /**
+   * Each trial repeats the operation until at least this much time has passed, so that small sizes are not lost in
+   * timer noise. Large sizes run once per trial.
+   */
+  private static final long MIN_TRIAL_NANOS = 100_000_000L;
+  
+  /**
+   * Large sizes have fewer trials, so that the whole benchmark finishes in a reasonable time.
+   */
+  private static final long MAX_MEASURED_NANOS = 5_000_000_000L;
+  
+  /**
+   * Lagrange interpolation is only measured up to this size. Beyond it the index differences are not covered by the
+   * table of small inverses, and Lagrange interpolation becomes impractically slow. Larger sizes are reported as NaN.
+   */
+  private static final int MAX_LAGRANGE_SIZE = SmallInverseTable.MAX_DIFFERENCE + 1;
+  
+  public static void main(final String[] args) {
+    final int primeBitLength = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+    final int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+    final Random random = new Random(0);
+    final BigInteger prime = BigInteger.probablePrime(primeBitLength, random);
+    
+    System.out.println(format("Prime bit length: %1$s", primeBitLength));
+    
+    final long warmUpStart = System.nanoTime();
+    
+    while (System.nanoTime() - warmUpStart < GLOBAL_WARM_UP_NANOS) {
+      for (final int size : GLOBAL_WARM_UP_SIZES) {
+        new Workload(size, prime, random).runAll();
+      }
+    }
+    
+    System.out.println(format(
+        "%1$8s %2$18s %3$18s %4$8s %5$18s %6$18s %7$8s",
+        "k",
+        "horner (ms)",
+        "tree (ms)",
+        "speedup",
+        "lagrange (ms)",
+        "tree (ms)",
+        "speedup"));
+    
+    for (final int size : SIZES) {
+      if (size > maxSize) {
+        break;
+      }
+      
+      final Workload workload = new Workload(size, prime, random);
+      
+      final double hornerMillis = time(workload::evaluateByHorner);
+      final double evaluationTreeMillis = time(workload::evaluateWithTree);
+      final double lagrangeMillis = size <= MAX_LAGRANGE_SIZE ? time(workload::interpolateByLagrange) : Double.NaN;
+      final double interpolationTreeMillis = time(workload::interpolateWithTree);
+      
+      System.out.println(format(
+          "%1$8d %2$18.3f %3$18.3f %4$8.2f %5$18.3f %6$18.3f %7$8.2f",
+          size,
+          hornerMillis,
+          evaluationTreeMillis,
+          hornerMillis / evaluationTreeMillis,
+          lagrangeMillis,
+          interpolationTreeMillis,
+          lagrangeMillis / interpolationTreeMillis));
+    }
+  }
+  
+  /**
+   * Returns the median time of a single run in milliseconds.
+   */
+  private static double time(final Runnable runnable) {
+    final long warmUpStart = System.nanoTime();
+    long singleRunNanos = Long.MAX_VALUE;
+    
+    do {
+      final long start = System.nanoTime();
+      runnable.run();
+      singleRunNanos = Math.min(singleRunNanos, System.nanoTime() - start);
+    } while (System.nanoTime() - warmUpStart < WARM_UP_NANOS);
+    
+    final int trials = (int) Math.max(1, Math.min(TRIALS, MAX_MEASURED_NANOS / Math.max(1, singleRunNanos)));
+    final double[] trialMillis = new double[trials];
+    
+    for (int trial = 0; trial < trials; trial++) {
+      final long start = System.nanoTime();
+      int runs = 0;
+      
+      do {
+        runnable.run();
+        runs++;
+      } while (System.nanoTime() - start < MIN_TRIAL_NANOS);
+      
+      trialMillis[trial] = (System.nanoTime() - start) / 1e6 / runs;
+    }
+    
+    Arrays.sort(trialMillis);
+    
+    return trialMillis[trials / 2];
+  }
+  
+  /**
+   * The inputs of one size, and the four operations compared on them.
+   */
+  private static class Workload {
+    private final BigInteger prime;
+    
+    private final List<BigInteger> points = new ArrayList<>();
+    
+    private final List<BigInteger> coefficients = new ArrayList<>();
+    
+    private final List<BigInteger> values;
+    
+    private final MutableFieldElement accumulator;
+    
+    private final MutableFieldElement x;
+    
+    private final MutableFieldElement[] coefficientElements;
+    
+    /**
+     * Share creation converts the coefficients to mutable field elements once per polynomial and reuses them for
+     * every share, so the conversion is done here rather than in the timed evaluation.
+     */
+    private Workload(final int size, final BigInteger prime, final Random random) {
+      this.prime = prime;
+      
+      for (int i = 0; i < size; i++) {
+        points.add(BigInteger.valueOf(i + 1));
+        coefficients.add(new BigInteger(prime.bitLength() - 1, random));
+      }
+      
+      values = new SubproductTree(points, prime).evaluate(coefficients);
+      accumulator = MutableFieldElement.zero(prime);
+      x = accumulator.newElement();
+      coefficientElements = new MutableFieldElement[size];
+      
+      for (int i = 0; i < size; i++) {
+        coefficientElements[i] = accumulator.newElement().set(coefficients.get(i));
+      }
+    }
+    
+    private void runAll() {
+      evaluateByHorner();
+      evaluateWithTree();
+      interpolateByLagrange();
+      interpolateWithTree();
+    }
+    
+    /**
+     * Evaluates the polynomial at each point the same way as share creation, accumulating each evaluation in place.
+     */
+    private void evaluateByHorner() {
+      for (final BigInteger point : points) {
+        accumulator.setZero();
+        x.set(point.longValue());
+        
+        for (int i = coefficientElements.length - 1; i >= 0; i--) {
+          accumulator.multiply(x).add(coefficientElements[i]);
+        }
+        
+        accumulator.toBigInteger();
+      }
+    }
+    
+    private void evaluateWithTree() {
+      new SubproductTree(points, prime).evaluate(coefficients);
+    }
+    
+    /**
+     * Interpolates the value at zero the same way as secret recovery, using mutable field elements and a
+     * {@link SmallInverseTable}.
+     */
+    private void interpolateByLagrange() {
+      final SmallInverseTable inverses = SmallInverseTable.forPrime(prime);
+      final MutableFieldElement sum = MutableFieldElement.zero(prime);
+      final MutableFieldElement term = sum.newElement();
+      final MutableFieldElement[] pointElements = new MutableFieldElement[points.size()];
+      final MutableFieldElement[] valueElements = new MutableFieldElement[points.size()];
+      
+      for (int i = 0; i < points.size(); i++) {
+        pointElements[i] = sum.newElement().set(points.get(i));
+        valueElements[i] = sum.newElement().set(values.get(i));
+      }
+      
+      for (int i = 0; i < points.size(); i++) {
+        term.set(valueElements[i]);
+        
+        for (int j = 0; j < points.size(); j++) {
+          if (i != j) {
+            term.multiply(pointElements[j]);
+            inverses.multiplyByInverseOf(term, points.get(j).longValue() - points.get(i).longValue());
+          }
+        }
+        
+        sum.add(term);
+      }
+      
+      sum.toBigInteger();
+    }
+    
+    private void interpolateWithTree() {
+      new SubproductTree(points, prime).interpolateAtZero(values);
+    }
+  }
+}
\ No newline at end of file
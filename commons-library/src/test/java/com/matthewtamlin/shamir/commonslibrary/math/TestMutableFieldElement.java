@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static java.math.BigInteger.ONE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for the {@link MutableFieldElement} class.
+ */
+@SuppressWarnings("ConstantConditions")
+public class TestMutableFieldElement {
+  private static final BigInteger[] PRIMES = {
+      BigInteger.valueOf(3),
+      BigInteger.valueOf(7),
+      BigInteger.valueOf(4294967291L),
+      BigInteger.valueOf(4294967311L),
+      ONE.shiftLeft(61).subtract(ONE),
+      ONE.shiftLeft(127).subtract(ONE),
+      ONE.shiftLeft(521).subtract(ONE),
+      new BigInteger(1024, 40, new Random(1))};
+  
+  private static final int OPERATION_COUNT = 200;
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testZero_nullPrime() {
+    MutableFieldElement.zero(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testZero_evenPrime() {
+    MutableFieldElement.zero(BigInteger.valueOf(2));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testZero_primeEqualTo1() {
+    MutableFieldElement.zero(ONE);
+  }
+  
+  @Test
+  public void testSupports() {
+    assertThat(MutableFieldElement.supports(BigInteger.valueOf(2)), is(false));
+    assertThat(MutableFieldElement.supports(BigInteger.valueOf(7)), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetLong_negativeValue() {
+    MutableFieldElement.zero(BigInteger.valueOf(7)).set(-1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_differentField() {
+    MutableFieldElement.zero(BigInteger.valueOf(7)).add(MutableFieldElement.zero(BigInteger.valueOf(11)));
+  }
+  
+  @Test
+  public void testAdd_equalPrimesFromDifferentElements() {
+    final MutableFieldElement element = MutableFieldElement.zero(BigInteger.valueOf(7)).set(5);
+    
+    element.add(MutableFieldElement.zero(BigInteger.valueOf(7)).set(4));
+    
+    assertThat(element.toBigInteger(), is(BigInteger.valueOf(2)));
+  }
+  
+  @Test(expected = ArithmeticException.class)
+  public void testInvert_zero() {
+    MutableFieldElement.zero(BigInteger.valueOf(7)).invert();
+  }
+  
+  @Test
+  public void testSetAndToBigInteger() {
+    for (final BigInteger prime : PRIMES) {
+      final MutableFieldElement element = MutableFieldElement.zero(prime);
+      
+      assertThat(element.isZero(), is(true));
+      assertThat(element.toBigInteger(), is(BigInteger.ZERO));
+      assertThat(element.set(prime).isZero(), is(true));
+      assertThat(element.set(prime.subtract(ONE)).toBigInteger(), is(prime.subtract(ONE)));
+      assertThat(element.set(prime.negate().subtract(ONE)).toBigInteger(), is(prime.subtract(ONE)));
+      assertThat(element.set(Long.MAX_VALUE).toBigInteger(), is(BigInteger.valueOf(Long.MAX_VALUE).mod(prime)));
+    }
+  }
+  
+  @Test
+  public void testArithmetic_matchesBigInteger() {
+    final Random random = new Random(2);
+    
+    for (final BigInteger prime : PRIMES) {
+      final MutableFieldElement element = MutableFieldElement.zero(prime);
+      final MutableFieldElement operand = element.newElement();
+      final MutableFieldElement multiplier = element.newElement();
+      BigInteger expected = BigInteger.ZERO;
+      
+      for (int i = 0; i < OPERATION_COUNT; i++) {
+        final BigInteger operandValue = new BigInteger(prime.bitLength() + 8, random);
+        final BigInteger multiplierValue = new BigInteger(prime.bitLength(), random).mod(prime);
+        
+        operand.set(operandValue);
+        multiplier.set(multiplierValue);
+        
+        switch (i % 5) {
+          case 0:
+            element.add(operand);
+            expected = expected.add(operandValue).mod(prime);
+            break;
+          
+          case 1:
+            element.subtract(operand);
+            expected = expected.subtract(operandValue).mod(prime);
+            break;
+          
+          case 2:
+            element.multiply(operand);
+            expected = expected.multiply(operandValue).mod(prime);
+            break;
+          
+          case 3:
+            element.multiplyAccumulate(operand, multiplier);
+            expected = expected.add(operandValue.multiply(multiplierValue)).mod(prime);
+            break;
+          
+          default:
+            if (!element.isZero()) {
+              element.invert();
+              expected = expected.modInverse(prime);
+            }
+        }
+        
+        assertThat(element.toBigInteger(), is(expected));
+      }
+    }
+  }
+  
+  @Test
+  public void testMultiplyAccumulate_aliasedOperands() {
+    final BigInteger prime = ONE.shiftLeft(127).subtract(ONE);
+    final BigInteger value = ONE.shiftLeft(100).add(BigInteger.valueOf(12345));
+    final MutableFieldElement element = MutableFieldElement.zero(prime).set(value);
+    
+    element.multiplyAccumulate(element, element);
+    
+    assertThat(element.toBigInteger(), is(value.add(value.multiply(value)).mod(prime)));
+  }
+  
+  @Test
+  public void testMultiply_self() {
+    final BigInteger prime = ONE.shiftLeft(521).subtract(ONE);
+    final BigInteger value = ONE.shiftLeft(520).subtract(BigInteger.valueOf(3));
+    final MutableFieldElement element = MutableFieldElement.zero(prime).set(value);
+    
+    element.multiply(element);
+    
+    assertThat(element.toBigInteger(), is(value.multiply(value).mod(prime)));
+  }
+}
\ No newline at end of file
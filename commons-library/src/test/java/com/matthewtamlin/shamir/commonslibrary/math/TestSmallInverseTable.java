@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static java.math.BigInteger.ONE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Unit tests for the {@link SmallInverseTable} class.
+ */
+@SuppressWarnings("ConstantConditions")
+public class TestSmallInverseTable {
+  private static final BigInteger[] PRIMES = {
+      BigInteger.valueOf(2),
+      BigInteger.valueOf(7),
+      BigInteger.valueOf(251),
+      BigInteger.valueOf(257),
+      ONE.shiftLeft(127).subtract(ONE),
+      ONE.shiftLeft(521).subtract(ONE)};
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testForPrime_nullPrime() {
+    SmallInverseTable.forPrime(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testForPrime_primeEqualTo1() {
+    SmallInverseTable.forPrime(ONE);
+  }
+  
+  @Test
+  public void testForPrime_calledTwiceWithEqualPrimes() {
+    final SmallInverseTable first = SmallInverseTable.forPrime(BigInteger.valueOf(7919));
+    final SmallInverseTable second = SmallInverseTable.forPrime(BigInteger.valueOf(7919));
+    
+    assertThat(second, is(sameInstance(first)));
+    assertThat(second.getPrime(), is(BigInteger.valueOf(7919)));
+  }
+  
+  @Test
+  public void testInverseOf_valuesWithinTable() {
+    for (final BigInteger prime : PRIMES) {
+      final SmallInverseTable table = SmallInverseTable.forPrime(prime);
+      
+      for (long value = -SmallInverseTable.MAX_DIFFERENCE; value <= SmallInverseTable.MAX_DIFFERENCE; value++) {
+        final BigInteger bigValue = BigInteger.valueOf(value);
+        
+        if (bigValue.mod(prime).signum() != 0) {
+          assertThat(table.inverseOf(value), is(bigValue.modInverse(prime)));
+          assertThat(table.inverseOf(bigValue), is(bigValue.modInverse(prime)));
+        }
+      }
+    }
+  }
+  
+  @Test
+  public void testInverseOf_valuesOutsideTable() {
+    final BigInteger prime = ONE.shiftLeft(127).subtract(ONE);
+    final SmallInverseTable table = SmallInverseTable.forPrime(prime);
+    
+    final BigInteger[] values = {
+        BigInteger.valueOf(SmallInverseTable.MAX_DIFFERENCE + 1),
+        BigInteger.valueOf(-SmallInverseTable.MAX_DIFFERENCE - 1),
+        BigInteger.valueOf(Long.MIN_VALUE),
+        BigInteger.valueOf(Long.MAX_VALUE),
+        ONE.shiftLeft(100).add(ONE),
+        ONE.shiftLeft(100).negate()};
+    
+    for (final BigInteger value : values) {
+      assertThat(table.inverseOf(value), is(value.modInverse(prime)));
+    }
+    
+    assertThat(table.inverseOf(Long.MIN_VALUE), is(BigInteger.valueOf(Long.MIN_VALUE).modInverse(prime)));
+  }
+  
+  @Test
+  public void testInverseOf_compositeModulus() {
+    final BigInteger modulus = BigInteger.valueOf(15);
+    final SmallInverseTable table = SmallInverseTable.forPrime(modulus);
+    
+    for (long value = 1; value < 15; value++) {
+      final BigInteger bigValue = BigInteger.valueOf(value);
+      
+      if (bigValue.gcd(modulus).equals(ONE)) {
+        assertThat(table.inverseOf(value), is(bigValue.modInverse(modulus)));
+        assertThat(table.inverseOf(-value), is(bigValue.negate().modInverse(modulus)));
+      }
+    }
+  }
+  
+  @Test(expected = ArithmeticException.class)
+  public void testInverseOf_zero() {
+    SmallInverseTable.forPrime(BigInteger.valueOf(7)).inverseOf(0);
+  }
+  
+  @Test(expected = ArithmeticException.class)
+  public void testInverseOf_multipleOfPrime() {
+    SmallInverseTable.forPrime(BigInteger.valueOf(7)).inverseOf(-14);
+  }
+  
+  @Test(expected = ArithmeticException.class)
+  public void testInverseOf_valueSharingFactorWithCompositeModulus() {
+    SmallInverseTable.forPrime(BigInteger.valueOf(15)).inverseOf(6);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInverseOf_nullValue() {
+    SmallInverseTable.forPrime(BigInteger.valueOf(7)).inverseOf(null);
+  }
+  
+  @Test
+  public void testMultiplyByInverseOf_valuesWithinAndOutsideTable() {
+    final long[] values = {1, -1, 2, -2, 200, -255, 256, -256, 100000, Long.MAX_VALUE};
+    
+    for (final BigInteger prime : PRIMES) {
+      if (!MutableFieldElement.supports(prime)) {
+        continue;
+      }
+      
+      final SmallInverseTable table = SmallInverseTable.forPrime(prime);
+      final BigInteger start = BigInteger.valueOf(12345).mod(prime);
+      
+      for (final long value : values) {
+        final BigInteger bigValue = BigInteger.valueOf(value);
+        
+        if (bigValue.mod(prime).signum() != 0) {
+          final MutableFieldElement element = MutableFieldElement.zero(prime).set(start);
+          
+          assertThat(
+              table.multiplyByInverseOf(element, value).toBigInteger(),
+              is(start.multiply(bigValue.modInverse(prime)).mod(prime)));
+        }
+      }
+    }
+  }
+  
+  @Test(expected = ArithmeticException.class)
+  public void testMultiplyByInverseOf_zero() {
+    final BigInteger prime = BigInteger.valueOf(7);
+    
+    SmallInverseTable.forPrime(prime).multiplyByInverseOf(MutableFieldElement.zero(prime), 0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testMultiplyByInverseOf_nullElement() {
+    SmallInverseTable.forPrime(BigInteger.valueOf(7)).multiplyByInverseOf(null, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testMultiplyByInverseOf_elementInDifferentField() {
+    final MutableFieldElement element = MutableFieldElement.zero(BigInteger.valueOf(11));
+    
+    SmallInverseTable.forPrime(BigInteger.valueOf(7)).multiplyByInverseOf(element, 1);
+  }
+}
\ No newline at end of file
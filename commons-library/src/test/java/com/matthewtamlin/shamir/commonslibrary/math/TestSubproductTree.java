@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.math;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for the {@link SubproductTree} class.
+ */
+@SuppressWarnings("ConstantConditions")
+public class TestSubproductTree {
+  private static final BigInteger SMALL_PRIME = BigInteger.valueOf(7);
+  
+  private static final BigInteger LARGE_PRIME = new BigInteger("1298074214633706835075030044421213");
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullPoints() {
+    new SubproductTree(null, SMALL_PRIME);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_pointsContainsNull() {
+    new SubproductTree(Arrays.asList(BigInteger.ONE, null), SMALL_PRIME);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_emptyPoints() {
+    new SubproductTree(ImmutableList.of(), SMALL_PRIME);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_pointsNotDistinctModuloPrime() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(8)), SMALL_PRIME);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_nullPrime() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE), null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInstantiate_primeNotGreaterThanOne() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE), BigInteger.ONE);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testEvaluate_nullCoefficients() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE), SMALL_PRIME).evaluate(null);
+  }
+  
+  @Test
+  public void testEvaluate_zeroPolynomial() {
+    final SubproductTree tree = new SubproductTree(
+        ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)),
+        SMALL_PRIME);
+    
+    assertThat(tree.evaluate(ImmutableList.of()), is(ImmutableList.of(BigInteger.ZERO, BigInteger.ZERO)));
+  }
+  
+  @Test
+  public void testEvaluate_coefficientsNotReducedModuloPrime() {
+    final SubproductTree tree = new SubproductTree(
+        ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)),
+        SMALL_PRIME);
+    
+    // 10 + 15x, which is 3 + x modulo 7
+    final List<BigInteger> values = tree.evaluate(ImmutableList.of(BigInteger.valueOf(10), BigInteger.valueOf(15)));
+    
+    assertThat(values, is(ImmutableList.of(BigInteger.valueOf(4), BigInteger.valueOf(5))));
+  }
+  
+  @Test
+  public void testEvaluate_fewPointsAndLowDegree() {
+    checkEvaluationMatchesHorner(5, 3);
+  }
+  
+  @Test
+  public void testEvaluate_manyPointsAndLowDegree() {
+    checkEvaluationMatchesHorner(200, 3);
+  }
+  
+  @Test
+  public void testEvaluate_fewPointsAndHighDegree() {
+    checkEvaluationMatchesHorner(5, 200);
+  }
+  
+  @Test
+  public void testEvaluate_manyPointsAndHighDegree() {
+    checkEvaluationMatchesHorner(300, 300);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInterpolateAtZero_nullValues() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE), SMALL_PRIME).interpolateAtZero(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInterpolateAtZero_valuesContainsNull() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)), SMALL_PRIME)
+        .interpolateAtZero(Arrays.asList(BigInteger.ONE, null));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInterpolateAtZero_valuesDifferentSizeToPoints() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)), SMALL_PRIME)
+        .interpolateAtZero(ImmutableList.of(BigInteger.ONE));
+  }
+  
+  @Test
+  public void testInterpolateAtZero_pointsContainsZero() {
+    final SubproductTree tree = new SubproductTree(ImmutableList.of(BigInteger.ONE, BigInteger.ZERO), SMALL_PRIME);
+    
+    assertThat(tree.interpolateAtZero(ImmutableList.of(BigInteger.ONE, BigInteger.TEN)), is(BigInteger.valueOf(3)));
+  }
+  
+  @Test
+  public void testInterpolateAtZero_fewPoints() {
+    checkInterpolationRecoversPolynomial(5, true);
+  }
+  
+  @Test
+  public void testInterpolateAtZero_manyPoints() {
+    checkInterpolationRecoversPolynomial(300, true);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInterpolate_nullValues() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE), SMALL_PRIME).interpolate(null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInterpolate_valuesContainsNull() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)), SMALL_PRIME)
+        .interpolate(Arrays.asList(BigInteger.ONE, null));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testInterpolate_valuesDifferentSizeToPoints() {
+    new SubproductTree(ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)), SMALL_PRIME)
+        .interpolate(ImmutableList.of(BigInteger.ONE));
+  }
+  
+  @Test
+  public void testInterpolate_allValuesZero() {
+    final SubproductTree tree = new SubproductTree(
+        ImmutableList.of(BigInteger.ONE, BigInteger.valueOf(2)),
+        SMALL_PRIME);
+    
+    assertThat(tree.interpolate(ImmutableList.of(BigInteger.ZERO, BigInteger.ZERO)), is(ImmutableList.of()));
+  }
+  
+  @Test
+  public void testInterpolate_fewPoints() {
+    checkInterpolationRecoversPolynomial(5, false);
+  }
+  
+  @Test
+  public void testInterpolate_manyPoints() {
+    checkInterpolationRecoversPolynomial(300, false);
+  }
+  
+  private void checkInterpolationRecoversPolynomial(final int pointCount, final boolean onlyAtZero) {
+    final Random random = new Random(pointCount);
+    
+    final List<BigInteger> points = new ArrayList<>();
+    final List<BigInteger> coefficients = new ArrayList<>();
+    
+    for (int i = 1; i <= pointCount; i++) {
+      points.add(BigInteger.valueOf(i * 7919));
+      coefficients.add(new BigInteger(LARGE_PRIME.bitLength() - 1, random));
+    }
+    
+    final SubproductTree tree = new SubproductTree(points, LARGE_PRIME);
+    final List<BigInteger> values = tree.evaluate(coefficients);
+    
+    if (onlyAtZero) {
+      assertThat(tree.interpolateAtZero(values), is(coefficients.get(0)));
+      
+    } else {
+      assertThat(tree.interpolate(values), is(coefficients));
+    }
+  }
+  
+  private void checkEvaluationMatchesHorner(final int pointCount, final int coefficientCount) {
+    final Random random = new Random(pointCount * 31 + coefficientCount);
+    
+    final List<BigInteger> points = new ArrayList<>();
+    
+    for (int i = 1; i <= pointCount; i++) {
+      points.add(BigInteger.valueOf(i));
+    }
+    
+    final List<BigInteger> coefficients = new ArrayList<>();
+    
+    for (int i = 0; i < coefficientCount; i++) {
+      coefficients.add(new BigInteger(LARGE_PRIME.bitLength() - 1, random));
+    }
+    
+    final List<BigInteger> values = new SubproductTree(points, LARGE_PRIME).evaluate(coefficients);
+    
+    for (int i = 0; i < pointCount; i++) {
+      BigInteger expected = BigInteger.ZERO;
+      
+      for (int j = coefficientCount - 1; j >= 0; j--) {
+        expected = expected.multiply(points.get(i)).add(coefficients.get(j)).mod(LARGE_PRIME);
+      }
+      
+      assertThat(values.get(i), is(expected));
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018 Matthew Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.shamir.commonslibrary.model;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for the {@link ShareBatch} class.
+ */
+@SuppressWarnings("ConstantConditions")
+public class TestShareBatch {
+  @Test(expected = IllegalArgumentException.class)
+  public void testAllocate_negativeCapacity() {
+    ShareBatch.allocate(-1, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAllocate_zeroValueWidth() {
+    ShareBatch.allocate(1, 0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAllocate_valuesTooLargeForBuffer() {
+    ShareBatch.allocate(Integer.MAX_VALUE / 2, 4);
+  }
+  
+  @Test
+  public void testAllocate_emptyBatch() {
+    final ShareBatch batch = ShareBatch.allocate(4, 2);
+    
+    assertThat(batch.size(), is(0));
+    assertThat(batch.getCapacity(), is(4));
+    assertThat(batch.getValueWidth(), is(2));
+    assertThat(batch.isDirect(), is(false));
+  }
+  
+  @Test
+  public void testAllocateDirect_isDirect() {
+    assertThat(ShareBatch.allocateDirect(4, 2).isDirect(), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrap_nullValues() {
+    ShareBatch.wrap(1, 1, null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrap_valuesTooSmall() {
+    ShareBatch.wrap(4, 2, ByteBuffer.allocate(7));
+  }
+  
+  @Test
+  public void testWrap_valuesAreStoredInBuffer() {
+    final ByteBuffer values = ByteBuffer.allocate(4);
+    final ShareBatch batch = ShareBatch.wrap(2, 2, values);
+    
+    batch.add(1, BigInteger.valueOf(0x0102));
+    batch.add(2, BigInteger.valueOf(0x0304));
+    
+    assertThat(values.array(), is(new byte[]{1, 2, 3, 4}));
+    assertThat(batch.getValue(1), is(BigInteger.valueOf(0x0304)));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetValueWidth_nullPrime() {
+    ShareBatch.getValueWidth(null);
+  }
+  
+  @Test
+  public void testGetValueWidth() {
+    assertThat(ShareBatch.getValueWidth(BigInteger.valueOf(2)), is(1));
+    assertThat(ShareBatch.getValueWidth(BigInteger.valueOf(256)), is(1));
+    assertThat(ShareBatch.getValueWidth(BigInteger.valueOf(257)), is(2));
+    assertThat(ShareBatch.getValueWidth(BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE)), is(16));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_nullValue() {
+    ShareBatch.allocate(1, 1).add(1, null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_indexLessThan1() {
+    ShareBatch.allocate(1, 1).add(0, BigInteger.ONE);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_negativeValue() {
+    ShareBatch.allocate(1, 1).add(1, BigInteger.valueOf(-1));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_valueTooWide() {
+    ShareBatch.allocate(1, 1).add(1, BigInteger.valueOf(256));
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testAdd_batchFull() {
+    final ShareBatch batch = ShareBatch.allocate(1, 1);
+    
+    batch.add(1, BigInteger.ONE);
+    batch.add(2, BigInteger.ONE);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testAdd_shareWithLargeIndex() {
+    final Share share = Share
+        .builder()
+        .setIndex(BigInteger.ONE.shiftLeft(40))
+        .setValue(1)
+        .build();
+    
+    ShareBatch.allocate(1, 1).add(share);
+  }
+  
+  @Test
+  public void testAddAndGet_heap() {
+    checkAddAndGet(ShareBatch.allocate(3, 2));
+  }
+  
+  @Test
+  public void testAddAndGet_direct() {
+    checkAddAndGet(ShareBatch.allocateDirect(3, 2));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetIndex_positionOutOfBounds() {
+    final ShareBatch batch = ShareBatch.allocate(2, 1);
+    
+    batch.add(1, BigInteger.ONE);
+    batch.getIndex(1);
+  }
+  
+  @Test
+  public void testCopyValue() {
+    final ShareBatch batch = ShareBatch.allocate(1, 3);
+    final byte[] destination = new byte[4];
+    
+    batch.add(1, BigInteger.valueOf(0x0102));
+    batch.copyValue(0, destination, 1);
+    
+    assertThat(destination, is(new byte[]{0, 0, 1, 2}));
+  }
+  
+  @Test
+  public void testAsList_reflectsLaterAdditions() {
+    final ShareBatch batch = ShareBatch.allocate(2, 1);
+    final List<Share> view = batch.asList();
+    
+    batch.add(3, BigInteger.valueOf(4));
+    
+    assertThat(view.size(), is(1));
+    assertThat(view.get(0), is(Share.builder().setIndex(3).setValue(4).build()));
+  }
+  
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAsList_isReadOnly() {
+    ShareBatch.allocate(1, 1).asList().add(Share.builder().setIndex(1).setValue(1).build());
+  }
+  
+  @Test
+  public void testToSet() {
+    final ShareBatch batch = ShareBatch.allocate(2, 1);
+    
+    batch.add(1, BigInteger.valueOf(5));
+    batch.add(2, BigInteger.valueOf(6));
+    
+    assertThat(batch.toSet().size(), is(2));
+    assertThat(batch.toSet().contains(Share.builder().setIndex(2).setValue(6).build()), is(true));
+  }
+  
+  private static void checkAddAndGet(final ShareBatch batch) {
+    batch.add(1, BigInteger.ZERO);
+    batch.add(2, BigInteger.valueOf(255));
+    batch.add(Share.builder().setIndex(7).setValue(65535).build());
+    
+    assertThat(batch.size(), is(3));
+    assertThat(batch.getIndex(0), is(1));
+    assertThat(batch.getValue(0), is(BigInteger.ZERO));
+    assertThat(batch.getIndex(1), is(2));
+    assertThat(batch.getValue(1), is(BigInteger.valueOf(255)));
+    assertThat(batch.getShare(2), is(Share.builder().setIndex(7).setValue(65535).build()));
+  }
+}
\ No newline at end of file
@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableSet;
 import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import org.junit.Before;
@@ -28,10 +30,14 @@ import org.junit.Test;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.Set;
 
 import static java.math.BigInteger.ONE;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
 
 /**
  * Unit tests for the {@link RxShamir} class.
@@ -197,6 +203,50 @@ public class TestRxShamir {
         .assertNotComplete();
   }
   
+  @Test
+  public void testRecoverSecret_duplicateLargeShareIndex() {
+    final Set<Share> shares = ImmutableSet
+        .<Share>builder()
+        .add(Share.builder().setIndex(1000000).setValue(1).build())
+        .add(Share.builder().setIndex(1000000).setValue(2).build())
+        .build();
+    
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(1000003)
+        .build();
+    
+    rxShamir
+        .recoverSecret(shares, recoveryScheme)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class)
+        .assertNotComplete();
+  }
+  
+  @Test
+  public void testRecoverSecret_distinctSmallAndLargeShareIndices() {
+    final Set<Share> shares = ImmutableSet
+        .<Share>builder()
+        .add(Share.builder().setIndex(1).setValue(1).build())
+        .add(Share.builder().setIndex(1000000).setValue(2).build())
+        .build();
+    
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(1000003)
+        .build();
+    
+    rxShamir
+        .recoverSecret(shares, recoveryScheme)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertComplete();
+  }
+  
   @Test
   public void testRecoverSecret_shareIndexLessThanPrime() {
     final Set<Share> shares = ImmutableSet
@@ -379,6 +429,405 @@ public class TestRxShamir {
     createSharesAndRecoverSecret(10, 100, 11, true);
   }
   
+  @Test
+  public void testCreateSharesAndRecoverSecret_manyRequiredParts_manyTotalParts_requiredSharesRecovered() {
+    createSharesAndRecoverSecret(1024, 1100, 1024, true);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShareBatch_nullSecret() {
+    rxShamir.createShareBatch(null, createScheme(2, 3, SEVEN));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShareBatch_nullCreationScheme() {
+    rxShamir.createShareBatch(ONE, null);
+  }
+  
+  @Test
+  public void testCreateShareBatch_secretEqualToPrime() {
+    rxShamir
+        .createShareBatch(SEVEN, createScheme(2, 3, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateShareBatch_containsEveryIndex() {
+    rxShamir
+        .createShareBatch(FIVE, createScheme(2, 6, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(batch -> batch.size() == 6)
+        .assertValue(batch -> batch.getIndex(0) == 1 && batch.getIndex(5) == 6);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSharesInto_nullDestination() {
+    rxShamir.createSharesInto(ONE, createScheme(2, 3, SEVEN), null);
+  }
+  
+  @Test
+  public void testCreateSharesInto_destinationTooSmall() {
+    rxShamir
+        .createSharesInto(ONE, createScheme(2, 3, SEVEN), ShareBatch.allocate(2, 1))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateSharesInto_valueWidthTooSmall() {
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    
+    rxShamir
+        .createSharesInto(ONE, createScheme(2, 3, prime), ShareBatch.allocate(3, 1))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretFromBatch_nullShares() {
+    rxShamir.recoverSecretFromBatch(null, createRecoveryScheme(2, SEVEN));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretFromBatch_nullRecoveryScheme() {
+    rxShamir.recoverSecretFromBatch(ShareBatch.allocate(1, 1), null);
+  }
+  
+  @Test
+  public void testRecoverSecretFromBatch_duplicateShareIndex() {
+    final ShareBatch batch = ShareBatch.allocate(3, 1);
+    
+    batch.add(1, ONE);
+    batch.add(2, ONE);
+    batch.add(1, FIVE);
+    
+    rxShamir
+        .recoverSecretFromBatch(batch, createRecoveryScheme(2, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testRecoverSecretFromBatch_shareValueEqualToPrime() {
+    final ShareBatch batch = ShareBatch.allocate(2, 1);
+    
+    batch.add(1, ONE);
+    batch.add(2, SEVEN);
+    
+    rxShamir
+        .recoverSecretFromBatch(batch, createRecoveryScheme(2, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testRecoverSecretFromBatch_tooFewShares() {
+    final ShareBatch batch = ShareBatch.allocate(1, 1);
+    
+    batch.add(1, ONE);
+    
+    rxShamir
+        .recoverSecretFromBatch(batch, createRecoveryScheme(2, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateShareBatchAndRecoverSecret_twoRequiredParts_threeTotalParts_twoSharesRecovered() {
+    createShareBatchAndRecoverSecret(2, 3, 2, false);
+  }
+  
+  @Test
+  public void testCreateShareBatchAndRecoverSecret_tenRequiredParts_oneHundredTotalParts_tenSharesRecovered() {
+    createShareBatchAndRecoverSecret(10, 100, 10, false);
+  }
+  
+  @Test
+  public void testCreateShareBatchAndRecoverSecret_tenRequiredParts_oneHundredTotalParts_nineSharesRecovered() {
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    final ShareBatch allShares = rxShamir
+        .createShareBatch(ONE, createScheme(10, 100, prime))
+        .blockingGet();
+    
+    final ShareBatch recoveredShares = ShareBatch.allocate(9, allShares.getValueWidth());
+    
+    for (int i = 0; i < 9; i++) {
+      recoveredShares.add(allShares.getIndex(i), allShares.getValue(i));
+    }
+    
+    rxShamir
+        .recoverSecretFromBatch(recoveredShares, createRecoveryScheme(10, prime))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateShareBatchAndRecoverSecret_manyRequiredParts_manyTotalParts_directBatch() {
+    createShareBatchAndRecoverSecret(1024, 1100, 1024, true);
+  }
+  
+  @Test
+  public void testCreateShareBatchAndRecoverSecret_sharesMatchSetRecovery() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    final ShareBatch batch = rxShamir
+        .createShareBatch(secret, createScheme(3, 5, prime))
+        .blockingGet();
+    
+    rxShamir
+        .recoverSecret(batch.toSet(), createRecoveryScheme(3, prime))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(secret);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShareBatches_nullSecret() {
+    rxShamir.createShareBatches(null, createScheme(2, 3, SEVEN), 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShareBatches_nullCreationScheme() {
+    rxShamir.createShareBatches(ONE, null, 1);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShareBatches_zeroBatchCapacity() {
+    rxShamir.createShareBatches(ONE, createScheme(2, 3, SEVEN), 0);
+  }
+  
+  @Test
+  public void testCreateShareBatches_secretEqualToPrime() {
+    rxShamir
+        .createShareBatches(SEVEN, createScheme(2, 3, SEVEN), 1)
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateShareBatches_lastBatchPartiallyFull() {
+    final List<ShareBatch> batches = rxShamir
+        .createShareBatches(FIVE, createScheme(2, 10, BigInteger.valueOf(11)), 4)
+        .toList()
+        .blockingGet();
+    
+    assertThat(batches.size(), is(3));
+    assertThat(batches.get(0).size(), is(4));
+    assertThat(batches.get(1).size(), is(4));
+    assertThat(batches.get(2).size(), is(2));
+    assertThat(batches.get(0).getIndex(0), is(1));
+    assertThat(batches.get(1).getIndex(0), is(5));
+    assertThat(batches.get(2).getIndex(1), is(10));
+  }
+  
+  @Test
+  public void testCreateShareBatches_sharesMatchBatchCreation() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    
+    final Set<Share> shares = rxShamir
+        .createShareBatches(secret, createScheme(3, 20, prime), 7)
+        .concatMapIterable(ShareBatch::asList)
+        .collect(HashSet<Share>::new, Set::add)
+        .blockingGet();
+    
+    final Set<Share> lastThree = Flowable
+        .fromIterable(shares)
+        .filter(share -> share.getIndex().intValue() > 17)
+        .collect(HashSet<Share>::new, Set::add)
+        .blockingGet();
+    
+    assertThat(shares.size(), is(20));
+    assertThat(rxShamir.recoverSecret(lastThree, createRecoveryScheme(3, prime)).blockingGet(), is(secret));
+  }
+  
+  @Test
+  public void testCreateShareBatches_createsOnlyRequestedBatches() {
+    final AtomicLong emittedCount = new AtomicLong();
+    
+    rxShamir
+        .createShareBatches(FIVE, createScheme(2, 100, BigInteger.valueOf(101)), 10)
+        .doOnNext(batch -> emittedCount.incrementAndGet())
+        .test(0)
+        .assertNoValues()
+        .requestMore(2)
+        .assertValueCount(2)
+        .assertNotComplete();
+    
+    assertThat(emittedCount.get(), is(2L));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSharesAsFlowable_nullCreationScheme() {
+    rxShamir.createSharesAsFlowable(ONE, null);
+  }
+  
+  @Test
+  public void testCreateSharesAsFlowable_secretEqualToPrime() {
+    rxShamir
+        .createSharesAsFlowable(SEVEN, createScheme(2, 3, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testCreateSharesAsFlowable_honoursBackpressure() {
+    rxShamir
+        .createSharesAsFlowable(FIVE, createScheme(2, 1000, BigInteger.valueOf(1009)))
+        .test(0)
+        .assertNoValues()
+        .requestMore(3)
+        .assertValueCount(3)
+        .assertNotComplete()
+        .requestMore(Long.MAX_VALUE)
+        .assertValueCount(1000)
+        .assertComplete();
+  }
+  
+  @Test
+  public void testCreateSharesAsFlowable_manyRequiredParts() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    
+    rxShamir
+        .recoverSecretFromFlowable(
+            rxShamir.createSharesAsFlowable(secret, createScheme(1024, 2100, prime)).skip(1000),
+            createRecoveryScheme(1024, prime))
+        .test()
+        .assertNoErrors()
+        .assertValue(secret);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretFromFlowable_nullShares() {
+    rxShamir.recoverSecretFromFlowable(null, createRecoveryScheme(2, SEVEN));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretFromFlowable_nullRecoveryScheme() {
+    rxShamir.recoverSecretFromFlowable(Flowable.empty(), null);
+  }
+  
+  @Test
+  public void testRecoverSecretFromFlowable_tooFewShares() {
+    final Flowable<Share> shares = rxShamir
+        .createSharesAsFlowable(FIVE, createScheme(3, 5, SEVEN))
+        .take(2);
+    
+    rxShamir
+        .recoverSecretFromFlowable(shares, createRecoveryScheme(3, SEVEN))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertError(IllegalStateException.class);
+  }
+  
+  @Test
+  public void testRecoverSecretFromFlowable_requestsOnlyRequiredShares() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    final AtomicLong requestedCount = new AtomicLong();
+    
+    final Flowable<Share> shares = rxShamir
+        .createSharesAsFlowable(secret, createScheme(10, 1000, prime))
+        .doOnRequest(requestedCount::addAndGet);
+    
+    rxShamir
+        .recoverSecretFromFlowable(shares, createRecoveryScheme(10, prime))
+        .test()
+        .assertNoErrors()
+        .assertValue(secret);
+    
+    assertThat(requestedCount.get(), is(10L));
+  }
+  
+  @Test
+  public void testRecoverSecretFromFlowable_duplicateIndexAmongFirstShares() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    final AtomicLong requestedCount = new AtomicLong();
+    
+    final Flowable<Share> allShares = rxShamir.createSharesAsFlowable(secret, createScheme(3, 10, prime)).cache();
+    
+    final Flowable<Share> shares = Flowable
+        .concat(allShares.take(2), allShares.take(1), allShares.skip(2))
+        .doOnRequest(requestedCount::addAndGet);
+    
+    rxShamir
+        .recoverSecretFromFlowable(shares, createRecoveryScheme(3, prime))
+        .test()
+        .awaitDone(200, MILLISECONDS)
+        .assertNoErrors()
+        .assertValue(secret);
+    
+    assertThat(requestedCount.get(), is(4L));
+  }
+  
+  private void createShareBatchAndRecoverSecret(
+      final int requiredShareCount,
+      final int totalShareCount,
+      final int recoveredShareCount,
+      final boolean direct) {
+    
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    final int valueWidth = ShareBatch.getValueWidth(prime);
+    
+    final ShareBatch allShares = direct ?
+        ShareBatch.allocateDirect(totalShareCount, valueWidth) :
+        ShareBatch.allocate(totalShareCount, valueWidth);
+    
+    rxShamir
+        .createSharesInto(secret, createScheme(requiredShareCount, totalShareCount, prime), allShares)
+        .blockingAwait();
+    
+    final ShareBatch recoveredShares = ShareBatch.allocate(recoveredShareCount, valueWidth);
+    
+    for (int i = totalShareCount - recoveredShareCount; i < totalShareCount; i++) {
+      recoveredShares.add(allShares.getIndex(i), allShares.getValue(i));
+    }
+    
+    rxShamir
+        .recoverSecretFromBatch(recoveredShares, createRecoveryScheme(requiredShareCount, prime))
+        .test()
+        .assertNoErrors()
+        .assertComplete()
+        .assertValue(secret);
+  }
+  
+  private static CreationScheme createScheme(
+      final int requiredShareCount,
+      final int totalShareCount,
+      final BigInteger prime) {
+    
+    return CreationScheme
+        .builder()
+        .setRequiredShareCount(requiredShareCount)
+        .setTotalShareCount(totalShareCount)
+        .setPrime(prime)
+        .build();
+  }
+  
+  private static RecoveryScheme createRecoveryScheme(final int requiredShareCount, final BigInteger prime) {
+    return RecoveryScheme
+        .builder()
+        .setRequiredShareCount(requiredShareCount)
+        .setPrime(prime)
+        .build();
+  }
+  
   private void createSharesAndRecoverSecret(
       final int requiredShareCount,
       final int totalShareCount,
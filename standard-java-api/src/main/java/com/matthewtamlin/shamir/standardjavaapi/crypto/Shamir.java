@@ -19,13 +19,18 @@ package com.matthewtamlin.shamir.standardjavaapi.crypto;
 import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
 import com.matthewtamlin.shamir.reactivejavaapi.crypto.RxShamir;
+import io.reactivex.Single;
 
 import javax.annotation.Nonnull;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
@@ -35,6 +40,11 @@ import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull
  * <p>
  * For convenience, this class can be instantiated using either the {@link #Shamir(SecureRandom)} constructor or the
  * {@link #create(SecureRandom)} static method.
+ * <p>
+ * Each operation is offered as a blocking method and as an asynchronous method which returns a
+ * {@link CompletableFuture}. The asynchronous methods run the operation on a supplied executor, or on the common
+ * fork-join pool if none is supplied, so many operations can be pipelined without blocking a thread for each one.
+ * Instances may be shared between threads.
  */
 public class Shamir {
   private final RxShamir rxShamir;
@@ -87,6 +97,74 @@ public class Shamir {
         .blockingGet();
   }
   
+  /**
+   * Asynchronously splits a secret into a set of shares using Shamir's Secret Sharing. The shares are created on the
+   * common fork-join pool.
+   *
+   * @param secret
+   *     the secret to share, not null
+   * @param creationScheme
+   *     defines the sharing configuration, not null
+   *
+   * @return a new future which completes with the shares, or completes exceptionally with an
+   * {@link IllegalStateException} if the secret is not less than the prime specified in the creation scheme
+   */
+  @Nonnull
+  public CompletableFuture<Set<Share>> createSharesAsync(
+      @Nonnull final BigInteger secret,
+      @Nonnull final CreationScheme creationScheme) {
+    
+    return createSharesAsync(secret, creationScheme, ForkJoinPool.commonPool());
+  }
+  
+  /**
+   * Asynchronously splits a secret into a set of shares using Shamir's Secret Sharing. The shares are created on the
+   * supplied executor.
+   *
+   * @param secret
+   *     the secret to share, not null
+   * @param creationScheme
+   *     defines the sharing configuration, not null
+   * @param executor
+   *     the executor to create the shares on, not null
+   *
+   * @return a new future which completes with the shares, or completes exceptionally with an
+   * {@link IllegalStateException} if the secret is not less than the prime specified in the creation scheme
+   */
+  @Nonnull
+  public CompletableFuture<Set<Share>> createSharesAsync(
+      @Nonnull final BigInteger secret,
+      @Nonnull final CreationScheme creationScheme,
+      @Nonnull final Executor executor) {
+    
+    checkNotNull(executor, "\'executor\' must not be null.");
+    
+    return runOn(
+        rxShamir
+            .createShares(secret, creationScheme)
+            .collectInto(new HashSet<Share>(), Set::add),
+        executor);
+  }
+  
+  /**
+   * Splits a secret into shares using Shamir's Secret Sharing, and returns them in a {@link ShareBatch}. This avoids
+   * creating a {@link Share} object for every share, which matters when the total share count is large.
+   *
+   * @param secret
+   *     the secret to share, not null
+   * @param creationScheme
+   *     defines the sharing configuration, not null
+   *
+   * @return the shares, not null
+   *
+   * @throws IllegalStateException
+   *     if the secret is not less than the prime specified in the creation scheme
+   */
+  @Nonnull
+  public ShareBatch createShareBatch(@Nonnull final BigInteger secret, @Nonnull final CreationScheme creationScheme) {
+    return rxShamir.createShareBatch(secret, creationScheme).blockingGet();
+  }
+  
   /**
    * Recovers a secret from a set of shares using Shamir's Secret Sharing.
    *
@@ -110,4 +188,75 @@ public class Shamir {
   public BigInteger recoverSecret(@Nonnull final Set<Share> shares, @Nonnull final RecoveryScheme recoveryScheme) {
     return rxShamir.recoverSecret(shares, recoveryScheme).blockingGet();
   }
+  
+  /**
+   * Asynchronously recovers a secret from a set of shares using Shamir's Secret Sharing. The secret is recovered on
+   * the common fork-join pool.
+   *
+   * @param shares
+   *     the shares to reconstruct the secret from, not null, not containing null
+   * @param recoveryScheme
+   *     defines the recovery configuration, not null
+   *
+   * @return a new future which completes with the recovered secret, or completes exceptionally with an
+   * {@link IllegalStateException} under the same conditions as {@link #recoverSecret(Set, RecoveryScheme)}
+   */
+  @Nonnull
+  public CompletableFuture<BigInteger> recoverSecretAsync(
+      @Nonnull final Set<Share> shares,
+      @Nonnull final RecoveryScheme recoveryScheme) {
+    
+    return recoverSecretAsync(shares, recoveryScheme, ForkJoinPool.commonPool());
+  }
+  
+  /**
+   * Asynchronously recovers a secret from a set of shares using Shamir's Secret Sharing. The secret is recovered on
+   * the supplied executor. The shares are copied when this method is called, so the set may be modified afterwards.
+   *
+   * @param shares
+   *     the shares to reconstruct the secret from, not null, not containing null
+   * @param recoveryScheme
+   *     defines the recovery configuration, not null
+   * @param executor
+   *     the executor to recover the secret on, not null
+   *
+   * @return a new future which completes with the recovered secret, or completes exceptionally with an
+   * {@link IllegalStateException} under the same conditions as {@link #recoverSecret(Set, RecoveryScheme)}
+   */
+  @Nonnull
+  public CompletableFuture<BigInteger> recoverSecretAsync(
+      @Nonnull final Set<Share> shares,
+      @Nonnull final RecoveryScheme recoveryScheme,
+      @Nonnull final Executor executor) {
+    
+    checkNotNull(shares, "\'shares\' must not be null.");
+    checkNotNull(executor, "\'executor\' must not be null.");
+    
+    return runOn(rxShamir.recoverSecret(new HashSet<>(shares), recoveryScheme), executor);
+  }
+  
+  /**
+   * Recovers a secret from a batch of shares using Shamir's Secret Sharing.
+   *
+   * @param shares
+   *     the shares to reconstruct the secret from, not null
+   * @param recoveryScheme
+   *     defines the recovery configuration, not null
+   *
+   * @return the recovered secret, not null
+   *
+   * @throws IllegalStateException
+   *     under the same conditions as {@link #recoverSecret(Set, RecoveryScheme)}
+   */
+  @Nonnull
+  public BigInteger recoverSecretFromBatch(
+      @Nonnull final ShareBatch shares,
+      @Nonnull final RecoveryScheme recoveryScheme) {
+    
+    return rxShamir.recoverSecretFromBatch(shares, recoveryScheme).blockingGet();
+  }
+  
+  private static <T> CompletableFuture<T> runOn(final Single<T> operation, final Executor executor) {
+    return CompletableFuture.supplyAsync(operation::blockingGet, executor);
+  }
 }
\ No newline at end of file
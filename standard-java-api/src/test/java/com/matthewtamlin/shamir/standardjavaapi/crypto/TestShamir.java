@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableSet;
 import com.matthewtamlin.shamir.commonslibrary.model.CreationScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.RecoveryScheme;
 import com.matthewtamlin.shamir.commonslibrary.model.Share;
+import com.matthewtamlin.shamir.commonslibrary.model.ShareBatch;
 import io.reactivex.Observable;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,8 +29,13 @@ import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.math.BigInteger.ONE;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -227,6 +233,195 @@ public class TestShamir {
     createSharesAndRecoverSecret(10, 100, 11);
   }
   
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateShareBatch_nullSecret() {
+    final CreationScheme creationScheme = CreationScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setTotalShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    shamir.createShareBatch(null, creationScheme);
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testCreateShareBatch_secretEqualToPrime() {
+    final CreationScheme creationScheme = CreationScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setTotalShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    shamir.createShareBatch(SEVEN, creationScheme);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretFromBatch_nullShares() {
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(2)
+        .setPrime(7)
+        .build();
+    
+    shamir.recoverSecretFromBatch(null, recoveryScheme);
+  }
+  
+  @Test
+  public void testCreateShareBatchAndRecoverSecret() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    
+    final CreationScheme creationScheme = CreationScheme
+        .builder()
+        .setRequiredShareCount(10)
+        .setTotalShareCount(100)
+        .setPrime(prime)
+        .build();
+    
+    final RecoveryScheme recoveryScheme = RecoveryScheme
+        .builder()
+        .setRequiredShareCount(10)
+        .setPrime(prime)
+        .build();
+    
+    final ShareBatch shares = shamir.createShareBatch(secret, creationScheme);
+    
+    assertThat(shares.size(), is(100));
+    assertThat(shamir.recoverSecretFromBatch(shares, recoveryScheme), is(secret));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSharesAsync_nullSecret() {
+    shamir.createSharesAsync(null, createCreationScheme(2, 3, BigInteger.valueOf(7)));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSharesAsync_nullExecutor() {
+    shamir.createSharesAsync(ONE, createCreationScheme(2, 3, BigInteger.valueOf(7)), null);
+  }
+  
+  @Test
+  public void testCreateSharesAsync_secretEqualToPrime() throws InterruptedException {
+    final CompletableFuture<Set<Share>> shares = shamir.createSharesAsync(
+        FIVE,
+        createCreationScheme(2, 3, FIVE));
+    
+    try {
+      shares.get();
+      throw new AssertionError("Expected the future to complete exceptionally.");
+    } catch (final ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretAsync_nullShares() {
+    shamir.recoverSecretAsync(null, createRecoveryScheme(2, BigInteger.valueOf(7)));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretAsync_sharesContainingNull() {
+    final Set<Share> shares = new HashSet<>();
+    shares.add(null);
+    
+    shamir.recoverSecretAsync(shares, createRecoveryScheme(2, BigInteger.valueOf(7)));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecoverSecretAsync_nullExecutor() {
+    shamir.recoverSecretAsync(new HashSet<>(), createRecoveryScheme(2, BigInteger.valueOf(7)), null);
+  }
+  
+  @Test
+  public void testRecoverSecretAsync_tooFewShares() throws InterruptedException {
+    final CompletableFuture<BigInteger> secret = shamir.recoverSecretAsync(
+        new HashSet<>(),
+        createRecoveryScheme(2, BigInteger.valueOf(7)));
+    
+    try {
+      secret.get();
+      throw new AssertionError("Expected the future to complete exceptionally.");
+    } catch (final ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+  }
+  
+  @Test
+  public void testCreateSharesAsyncAndRecoverSecretAsync_defaultExecutor() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    
+    final BigInteger recoveredSecret = shamir
+        .createSharesAsync(secret, createCreationScheme(10, 100, prime))
+        .thenCompose(shares -> shamir.recoverSecretAsync(shares, createRecoveryScheme(10, prime)))
+        .join();
+    
+    assertThat(recoveredSecret, is(secret));
+  }
+  
+  @Test
+  public void testCreateSharesAsyncAndRecoverSecretAsync_suppliedExecutor() {
+    final BigInteger secret = new BigInteger("1298074214633706835075030044377087");
+    final BigInteger prime = new BigInteger("1298074214633706835075030044421213");
+    
+    final AtomicInteger executionCount = new AtomicInteger();
+    
+    final Executor executor = command -> {
+      executionCount.incrementAndGet();
+      new Thread(command).start();
+    };
+    
+    final BigInteger recoveredSecret = shamir
+        .createSharesAsync(secret, createCreationScheme(10, 100, prime), executor)
+        .thenCompose(shares -> shamir.recoverSecretAsync(shares, createRecoveryScheme(10, prime), executor))
+        .join();
+    
+    assertThat(recoveredSecret, is(secret));
+    assertThat(executionCount.get(), is(2));
+  }
+  
+  @Test
+  public void testRecoverSecretAsync_sharesModifiedAfterCall() {
+    final BigInteger secret = BigInteger.valueOf(3);
+    final BigInteger prime = BigInteger.valueOf(7);
+    
+    final Set<Share> shares = shamir.createShares(secret, createCreationScheme(2, 3, prime));
+    final Set<Runnable> pending = new HashSet<>();
+    
+    final CompletableFuture<BigInteger> recoveredSecret = shamir.recoverSecretAsync(
+        shares,
+        createRecoveryScheme(2, prime),
+        pending::add);
+    
+    shares.clear();
+    pending.forEach(Runnable::run);
+    
+    assertThat(recoveredSecret.join(), is(secret));
+  }
+  
+  private static CreationScheme createCreationScheme(
+      final int requiredShareCount,
+      final int totalShareCount,
+      final BigInteger prime) {
+    
+    return CreationScheme
+        .builder()
+        .setRequiredShareCount(requiredShareCount)
+        .setTotalShareCount(totalShareCount)
+        .setPrime(prime)
+        .build();
+  }
+  
+  private static RecoveryScheme createRecoveryScheme(final int requiredShareCount, final BigInteger prime) {
+    return RecoveryScheme
+        .builder()
+        .setRequiredShareCount(requiredShareCount)
+        .setPrime(prime)
+        .build();
+  }
+  
   private void createSharesAndRecoverSecret(
       final int requiredShareCount,
       final int totalShareCount,